@@ -0,0 +1,80 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Kleincomputer-Emulator
+ *
+ * Basisklasse fuer einen Benchmark
+ *
+ * Ein Benchmark fuehrt pro Durchlauf eine feste Arbeitsmenge aus
+ * und liefert diese zurueck (z.B. Anzahl der Taktzyklen).
+ * Der BenchRunner misst die Zeit und berechnet daraus den Durchsatz.
+ */
+
+package jkcemu.bench;
+
+
+public abstract class AbstractBench
+{
+  private String name;
+  private String unit;
+  private double unitDivisor;
+
+
+  /*
+   * Parameter:
+   *   name:        Name des Benchmarks
+   *   unit:        Einheit des Durchsatzes
+   *   unitDivisor: Arbeitsmenge pro Sekunde, die einer Einheit entspricht
+   */
+  protected AbstractBench( String name, String unit, double unitDivisor )
+  {
+    this.name        = name;
+    this.unit        = unit;
+    this.unitDivisor = unitDivisor;
+  }
+
+
+  public String getName()
+  {
+    return this.name;
+  }
+
+
+  public String getUnit()
+  {
+    return this.unit;
+  }
+
+
+  public double getUnitDivisor()
+  {
+    return this.unitDivisor;
+  }
+
+
+  /*
+   * Die Methode wird einmal vor den Durchlaeufen aufgerufen.
+   */
+  public void setUp() throws Exception
+  {
+    // leer
+  }
+
+
+  /*
+   * Ausfuehren eines Durchlaufs
+   *
+   * Rueckgabewert:
+   *   ausgefuehrte Arbeitsmenge
+   */
+  public abstract long runIteration() throws Exception;
+
+
+  /*
+   * Die Methode wird einmal nach den Durchlaeufen aufgerufen.
+   */
+  public void tearDown()
+  {
+    // leer
+  }
+}
@@ -0,0 +1,162 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Kleincomputer-Emulator
+ *
+ * Ausfuehren der Benchmarks
+ *
+ * Aufruf:
+ *   ant bench [-Dbench.args="[-wi <n>] [-i <n>] [<Muster>...]"]
+ *
+ *   -wi <n>:  Anzahl der Aufwaermdurchlaeufe
+ *   -i <n>:   Anzahl der Messdurchlaeufe
+ *   <Muster>: regulaerer Ausdruck, nur passende Benchmarks ausfuehren
+ *
+ * Mit "ant bench -Dz80emu.dispatch=table" wird die CPU-Emulation
+ * mit der Befehlsdekodierung ueber Befehlstabellen gemessen.
+ * Mit "ant bench -Dz80emu.blockcache=true" werden haeufig ausgefuehrte
+ * Codebloecke am Stueck abgearbeitet (nur bei direkt adressierbarem
+ * Speicher, z.B. KC85).
+ * Mit "ant bench -Dz80emu.tstatesbatch=false" werden auch
+ * die Z80DeadlineListener wieder nach jedem Befehl benachrichtigt.
+ *
+ * Ausgegeben werden pro Benchmark der Mittelwert des Durchsatzes
+ * und dessen Standardabweichung.
+ */
+
+package jkcemu.bench;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+
+public class BenchRunner
+{
+  private static final int DEFAULT_WARMUP_ITERATIONS  = 3;
+  private static final int DEFAULT_MEASURE_ITERATIONS = 5;
+
+
+  public static void main( String[] args )
+  {
+    int           warmupIterations  = DEFAULT_WARMUP_ITERATIONS;
+    int           measureIterations = DEFAULT_MEASURE_ITERATIONS;
+    List<Pattern> patterns          = new ArrayList<>();
+    try {
+      int i = 0;
+      while( i < args.length ) {
+	String arg = args[ i++ ];
+	if( arg.equals( "-wi" ) && (i < args.length) ) {
+	  warmupIterations = Integer.parseInt( args[ i++ ] );
+	} else if( arg.equals( "-i" ) && (i < args.length) ) {
+	  measureIterations = Integer.parseInt( args[ i++ ] );
+	} else if( !arg.isEmpty() ) {
+	  patterns.add( Pattern.compile( arg ) );
+	}
+      }
+    }
+    catch( NumberFormatException | PatternSyntaxException ex ) {
+      System.err.println( "Ungueltiges Argument: " + ex.getMessage() );
+      System.exit( 1 );
+    }
+    if( measureIterations < 1 ) {
+      measureIterations = 1;
+    }
+
+    List<AbstractBench> benches = new ArrayList<>();
+    Collections.addAll( benches, Z80InstMixBench.createAll() );
+    Collections.addAll( benches, MemAccessBench.createAll() );
+    Collections.addAll( benches, Z80PeripheralBench.createAll() );
+    Collections.addAll( benches, SystemFrameBench.createAll() );
+
+    int exitCode = 0;
+    System.out.printf(
+		"%-16s %4s %12s %10s  %s%n",
+		"Benchmark", "Cnt", "Score", "Error", "Units" );
+    for( AbstractBench bench : benches ) {
+      if( matches( patterns, bench.getName() ) ) {
+	try {
+	  runBench( bench, warmupIterations, measureIterations );
+	}
+	catch( Exception ex ) {
+	  System.out.printf(
+		"%-16s Fehler: %s%n",
+		bench.getName(),
+		ex.toString() );
+	  exitCode = 1;
+	}
+      }
+    }
+
+    /*
+     * Die emulierten Systeme koennen eigene Threads gestartet haben,
+     * deshalb Programm explizit beenden
+     */
+    System.exit( exitCode );
+  }
+
+
+	/* --- private Methoden --- */
+
+  private static boolean matches( List<Pattern> patterns, String name )
+  {
+    boolean rv = patterns.isEmpty();
+    for( Pattern pattern : patterns ) {
+      if( pattern.matcher( name ).find() ) {
+	rv = true;
+	break;
+      }
+    }
+    return rv;
+  }
+
+
+  private static void runBench(
+			AbstractBench bench,
+			int           warmupIterations,
+			int           measureIterations ) throws Exception
+  {
+    bench.setUp();
+    try {
+      for( int i = 0; i < warmupIterations; i++ ) {
+	bench.runIteration();
+      }
+      double[] scores = new double[ measureIterations ];
+      for( int i = 0; i < measureIterations; i++ ) {
+	long nanos = System.nanoTime();
+	long work  = bench.runIteration();
+	nanos      = System.nanoTime() - nanos;
+	if( nanos > 0 ) {
+	  scores[ i ] = (double) work * 1E9
+				/ (double) nanos
+				/ bench.getUnitDivisor();
+	}
+      }
+      double sum = 0.0;
+      for( double score : scores ) {
+	sum += score;
+      }
+      double mean = sum / (double) scores.length;
+      double err  = 0.0;
+      if( scores.length > 1 ) {
+	double sq = 0.0;
+	for( double score : scores ) {
+	  sq += (score - mean) * (score - mean);
+	}
+	err = Math.sqrt( sq / (double) (scores.length - 1) );
+      }
+      System.out.printf(
+		"%-16s %4d %12.3f %10.3f  %s%n",
+		bench.getName(),
+		scores.length,
+		mean,
+		err,
+		bench.getUnit() );
+    }
+    finally {
+      bench.tearDown();
+    }
+  }
+}
@@ -0,0 +1,305 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Kleincomputer-Emulator
+ *
+ * Benchmark fuer den Speicherzugriff der CPU-Emulation
+ *
+ * Ein festes Z80-Programm wird mit unbegrenzter Geschwindigkeit
+ * einmal ueber den herkoemmlichen Weg (Z80Memory.readMemByte(...)
+ * mit Bereichspruefungen wie in einem emulierten System)
+ * und einmal ueber die Seitentabellen (Z80PagedMemory) ausgefuehrt.
+ * Der Durchsatz wird in MHz angegeben.
+ */
+
+package jkcemu.bench;
+
+import java.util.Arrays;
+import z80emu.Z80Memory;
+import z80emu.Z80PagedMemory;
+
+
+public class MemAccessBench extends AbstractBench
+{
+  /*
+   * Speicher mit Bereichspruefungen wie in einem emulierten System
+   * (angelehnt an den KC85), d.h., jeder Zugriff wird
+   * wie bei EmuThread und EmuSys ueber zwei virtuelle Methodenaufrufe
+   * weitergereicht und wertet die Speicherkonfiguration aus.
+   */
+  private static abstract class MemSystem
+  {
+    public abstract int     getMemByte( int addr, boolean m1 );
+    public abstract boolean setMemByte( int addr, int value );
+
+    public int readMemByte( int addr, boolean m1 )
+    {
+      return getMemByte( addr, m1 );
+    }
+
+    public void writeMemByte( int addr, int value )
+    {
+      setMemByte( addr, value );
+    }
+  }
+
+
+  private static class BankedSystem extends MemSystem
+  {
+    protected byte[]  ram;
+    protected byte[]  irm;
+    protected byte[]  rom;
+    protected boolean ram0Enabled;
+    protected boolean ram0Writeable;
+    protected boolean ram4Enabled;
+    protected boolean ram4Writeable;
+    protected boolean irmEnabled;
+    protected boolean romEnabled;
+
+    private BankedSystem()
+    {
+      this.ram           = new byte[ 0x10000 ];
+      this.irm           = new byte[ 0x4000 ];
+      this.rom           = new byte[ 0x2000 ];
+      this.ram0Enabled   = true;
+      this.ram0Writeable = true;
+      this.ram4Enabled   = true;
+      this.ram4Writeable = true;
+      this.irmEnabled    = true;
+      this.romEnabled    = true;
+      Arrays.fill( this.rom, (byte) 0xFF );
+    }
+
+    @Override
+    public int getMemByte( int addr, boolean m1 )
+    {
+      int     rv   = 0xFF;
+      boolean done = false;
+      if( (addr >= 0) && (addr < 0x4000) ) {
+	if( this.ram0Enabled ) {
+	  rv   = (int) this.ram[ addr ] & 0xFF;
+	  done = true;
+	}
+      } else if( (addr >= 0x4000) && (addr < 0x8000) ) {
+	if( this.ram4Enabled ) {
+	  rv   = (int) this.ram[ addr ] & 0xFF;
+	  done = true;
+	}
+      } else if( (addr >= 0x8000) && (addr < 0xC000) ) {
+	if( this.irmEnabled ) {
+	  rv   = (int) this.irm[ addr - 0x8000 ] & 0xFF;
+	  done = true;
+	}
+      } else if( addr >= 0xE000 ) {
+	if( this.romEnabled ) {
+	  rv   = (int) this.rom[ addr - 0xE000 ] & 0xFF;
+	  done = true;
+	}
+      }
+      return done ? rv : 0xFF;
+    }
+
+    @Override
+    public boolean setMemByte( int addr, int value )
+    {
+      boolean rv = false;
+      if( (addr >= 0) && (addr < 0x4000) ) {
+	if( this.ram0Enabled && this.ram0Writeable ) {
+	  this.ram[ addr ] = (byte) value;
+	  rv = true;
+	}
+      } else if( (addr >= 0x4000) && (addr < 0x8000) ) {
+	if( this.ram4Enabled && this.ram4Writeable ) {
+	  this.ram[ addr ] = (byte) value;
+	  rv = true;
+	}
+      } else if( (addr >= 0x8000) && (addr < 0xC000) ) {
+	if( this.irmEnabled ) {
+	  this.irm[ addr - 0x8000 ] = (byte) value;
+	  rv = true;
+	}
+      }
+      return rv;
+    }
+  }
+
+
+  private static class BankedMemory implements Z80Memory
+  {
+    protected BankedSystem sys;
+
+    private BankedMemory()
+    {
+      this.sys = new BankedSystem();
+    }
+
+    @Override
+    public int getMemByte( int addr, boolean m1 )
+    {
+      return this.sys.getMemByte( addr & 0xFFFF, m1 );
+    }
+
+    @Override
+    public int getMemWord( int addr )
+    {
+      return (getMemByte( addr + 1, false ) << 8)
+				| getMemByte( addr, false );
+    }
+
+    @Override
+    public int readMemByte( int addr, boolean m1 )
+    {
+      return this.sys.readMemByte( addr & 0xFFFF, m1 );
+    }
+
+    @Override
+    public boolean setMemByte( int addr, int value )
+    {
+      return this.sys.setMemByte( addr & 0xFFFF, value );
+    }
+
+    @Override
+    public void writeMemByte( int addr, int value )
+    {
+      this.sys.writeMemByte( addr & 0xFFFF, value );
+    }
+  }
+
+
+  /*
+   * derselbe Speicher zusaetzlich mit Seitentabellen
+   */
+  private static class PagedMemory
+			extends BankedMemory
+			implements Z80PagedMemory
+  {
+    private byte[][] readPages;
+    private int[]    readOffs;
+    private byte[][] writePages;
+    private int[]    writeOffs;
+
+    private PagedMemory()
+    {
+      this.readPages  = new byte[ PAGE_COUNT ][];
+      this.readOffs   = new int[ PAGE_COUNT ];
+      this.writePages = new byte[ PAGE_COUNT ][];
+      this.writeOffs  = new int[ PAGE_COUNT ];
+      for( int i = 0; i < PAGE_COUNT; i++ ) {
+	int addr = i << PAGE_SHIFT;
+	if( addr < 0x8000 ) {
+	  this.readPages[ i ]  = this.sys.ram;
+	  this.readOffs[ i ]   = addr;
+	  this.writePages[ i ] = this.sys.ram;
+	  this.writeOffs[ i ]  = addr;
+	} else if( addr >= 0xE000 ) {
+	  this.readPages[ i ] = this.sys.rom;
+	  this.readOffs[ i ]  = addr - 0xE000;
+	}
+      }
+    }
+
+    @Override
+    public byte[][] getReadPages()
+    {
+      return this.readPages;
+    }
+
+    @Override
+    public int[] getReadPageOffs()
+    {
+      return this.readOffs;
+    }
+
+    @Override
+    public byte[][] getWritePages()
+    {
+      return this.writePages;
+    }
+
+    @Override
+    public int[] getWritePageOffs()
+    {
+      return this.writeOffs;
+    }
+  }
+
+
+  private static final long TSTATES_PER_ITERATION = 50000000L;
+
+  /*
+   * Testprogramm:
+   *   0000  LD   SP,0000H
+   *   0003  LD   HL,4000H
+   *   0006  LD   DE,5000H
+   *   0009  LD   BC,0800H
+   *   000C  LDIR
+   *   000E  LD   HL,4000H
+   *   0011  LD   B,00H
+   *   0013  LD   A,(HL)
+   *   0014  CPL
+   *   0015  LD   (HL),A
+   *   0016  INC  HL
+   *   0017  PUSH HL
+   *   0018  POP  HL
+   *   0019  DJNZ 0013H
+   *   001B  CALL 0020H
+   *   001E  JR   0003H
+   *   0020  RET
+   */
+  private static final int[] PROGRAM = {
+			0x31, 0x00, 0x00,
+			0x21, 0x00, 0x40,
+			0x11, 0x00, 0x50,
+			0x01, 0x00, 0x08,
+			0xED, 0xB0,
+			0x21, 0x00, 0x40,
+			0x06, 0x00,
+			0x7E,
+			0x2F,
+			0x77,
+			0x23,
+			0xE5,
+			0xE1,
+			0x10, 0xF8,
+			0xCD, 0x20, 0x00,
+			0x18, 0xE3,
+			0xC9 };
+
+
+  private boolean        paged;
+  private Z80TestMachine machine;
+
+
+  private MemAccessBench( String name, boolean paged )
+  {
+    super( name, "MHz", 1E6 );
+    this.paged   = paged;
+    this.machine = null;
+  }
+
+
+  public static AbstractBench[] createAll()
+  {
+    return new AbstractBench[] {
+		new MemAccessBench( "mem.banked", false ),
+		new MemAccessBench( "mem.paged", true ) };
+  }
+
+
+	/* --- ueberschriebene Methoden --- */
+
+  @Override
+  public void setUp()
+  {
+    this.machine = new Z80TestMachine(
+			this.paged ? new PagedMemory() : new BankedMemory() );
+    this.machine.load( 0x0000, PROGRAM );
+  }
+
+
+  @Override
+  public long runIteration()
+  {
+    return this.machine.run( TSTATES_PER_ITERATION );
+  }
+}
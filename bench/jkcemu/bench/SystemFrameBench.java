@@ -0,0 +1,98 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Kleincomputer-Emulator
+ *
+ * Benchmark fuer die Emulation eines kompletten Systems
+ *
+ * Das System wird ohne Emulatorfenster angelegt,
+ * die ROMs werden geladen und nach einem RESET laeuft
+ * die Emulation mit unbegrenzter Geschwindigkeit.
+ * Gemessen wird, wie viele Bilder (je 20 ms emulierter Zeit)
+ * pro Sekunde emuliert werden koennen.
+ */
+
+package jkcemu.bench;
+
+import java.util.Properties;
+import jkcemu.base.EmuSys;
+import jkcemu.base.EmuThread;
+import jkcemu.emusys.KC85;
+import jkcemu.emusys.Z1013;
+import jkcemu.emusys.Z9001;
+import z80emu.Z80CPU;
+
+
+public class SystemFrameBench extends AbstractBench
+{
+  private static final int FRAME_MILLIS         = 20;
+  private static final int FRAMES_PER_ITERATION = 250;
+  private static final int BOOT_FRAMES          = 100;
+
+  private String    sysName;
+  private EmuThread emuThread;
+  private long      tStatesPerFrame;
+
+
+  private SystemFrameBench( String name, String sysName )
+  {
+    super( name, "frames/s", 1.0 );
+    this.sysName         = sysName;
+    this.emuThread       = null;
+    this.tStatesPerFrame = 0;
+  }
+
+
+  public static AbstractBench[] createAll()
+  {
+    return new AbstractBench[] {
+		new SystemFrameBench( "sys.kc85_4", KC85.SYSNAME_KC85_4 ),
+		new SystemFrameBench( "sys.z1013", Z1013.SYSNAME_Z1013_64 ),
+		new SystemFrameBench( "sys.kc87", Z9001.SYSNAME_KC87 ) };
+  }
+
+
+	/* --- ueberschriebene Methoden --- */
+
+  @Override
+  public void setUp()
+  {
+    Properties props = new Properties();
+    props.setProperty( EmuThread.PROP_SYSNAME, this.sysName );
+
+    int speedKHz = EmuThread.getDefaultSpeedKHz( props );
+    this.tStatesPerFrame = (long) speedKHz * FRAME_MILLIS;
+
+    this.emuThread = new EmuThread( null, props );
+    EmuSys emuSys  = this.emuThread.getEmuSys();
+    Z80CPU cpu     = this.emuThread.getZ80CPU();
+    emuSys.loadROMs( props );
+    cpu.reset( true );
+    cpu.setMaxSpeedKHz( speedKHz );
+    emuSys.reset( true, props );
+    cpu.setRegPC( emuSys.getResetStartAddress( true ) );
+
+    // Betriebssystem initialisieren lassen
+    Z80TestMachine.runCPU( cpu, BOOT_FRAMES * this.tStatesPerFrame );
+  }
+
+
+  @Override
+  public long runIteration()
+  {
+    Z80TestMachine.runCPU(
+		this.emuThread.getZ80CPU(),
+		FRAMES_PER_ITERATION * this.tStatesPerFrame );
+    return FRAMES_PER_ITERATION;
+  }
+
+
+  @Override
+  public void tearDown()
+  {
+    if( this.emuThread != null ) {
+      this.emuThread.getEmuSys().die();
+      this.emuThread = null;
+    }
+  }
+}
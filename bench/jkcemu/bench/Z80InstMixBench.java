@@ -0,0 +1,182 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Kleincomputer-Emulator
+ *
+ * Benchmark fuer die CPU-Emulation mit verschiedenen Befehlsmischungen
+ *
+ * Der Durchsatz wird in MHz angegeben,
+ * d.h. in emulierten Taktzyklen pro Mikrosekunde.
+ */
+
+package jkcemu.bench;
+
+
+public class Z80InstMixBench extends AbstractBench
+{
+  /*
+   * Arithmetik und Flags aehnlich den ZEXALL-Schleifen:
+   *   0000  LD   SP,0000H
+   *   0003  LD   HL,1000H
+   *   0006  LD   DE,1234H
+   *   0009  LD   B,00H
+   *   000B  LD   A,(HL)
+   *   000C  ADD  A,E
+   *   000D  ADC  A,D
+   *   000E  SUB  E
+   *   000F  SBC  A,D
+   *   0010  AND  E
+   *   0011  XOR  D
+   *   0012  OR   E
+   *   0013  CP   D
+   *   0014  DAA
+   *   0015  RLA
+   *   0016  RRCA
+   *   0017  RL   E
+   *   0019  SRL  D
+   *   001B  INC  E
+   *   001C  DEC  D
+   *   001D  PUSH AF
+   *   001E  POP  AF
+   *   001F  LD   (HL),A
+   *   0020  INC  HL
+   *   0021  DJNZ 000BH
+   *   0023  JP   0003H
+   */
+  private static final int[] PROG_ALU = {
+			0x31, 0x00, 0x00,
+			0x21, 0x00, 0x10,
+			0x11, 0x34, 0x12,
+			0x06, 0x00,
+			0x7E,
+			0x83,
+			0x8A,
+			0x93,
+			0x9A,
+			0xA3,
+			0xAA,
+			0xB3,
+			0xBA,
+			0x27,
+			0x17,
+			0x0F,
+			0xCB, 0x13,
+			0xCB, 0x3A,
+			0x1C,
+			0x15,
+			0xF5,
+			0xF1,
+			0x77,
+			0x23,
+			0x10, 0xE8,
+			0xC3, 0x03, 0x00 };
+
+  /*
+   * Blockkopieren:
+   *   0000  LD   HL,1000H
+   *   0003  LD   DE,9000H
+   *   0006  LD   BC,4000H
+   *   0009  LDIR
+   *   000B  JP   0000H
+   */
+  private static final int[] PROG_LDIR = {
+			0x21, 0x00, 0x10,
+			0x11, 0x00, 0x90,
+			0x01, 0x00, 0x40,
+			0xED, 0xB0,
+			0xC3, 0x00, 0x00 };
+
+  /*
+   * Block-E/A:
+   *   0000  LD   HL,1000H
+   *   0003  LD   BC,0010H
+   *   0006  INIR
+   *   0008  LD   HL,1000H
+   *   000B  OTIR
+   *   000D  JP   0000H
+   */
+  private static final int[] PROG_BLOCK_IO = {
+			0x21, 0x00, 0x10,
+			0x01, 0x10, 0x00,
+			0xED, 0xB2,
+			0x21, 0x00, 0x10,
+			0xED, 0xB3,
+			0xC3, 0x00, 0x00 };
+
+  /*
+   * Indexregister:
+   *   0000  LD   SP,0000H
+   *   0003  LD   IX,1000H
+   *   0007  LD   IY,2000H
+   *   000B  LD   B,00H
+   *   000D  LD   A,(IX+00H)
+   *   0010  ADD  A,(IX+01H)
+   *   0013  LD   (IY+00H),A
+   *   0016  INC  (IY+01H)
+   *   0019  RLC  (IX+02H)
+   *   001D  BIT  0,(IY+03H)
+   *   0021  INC  IX
+   *   0023  INC  IY
+   *   0025  PUSH IX
+   *   0027  POP  IX
+   *   0029  DJNZ 000DH
+   *   002B  JP   0003H
+   */
+  private static final int[] PROG_INDEX = {
+			0x31, 0x00, 0x00,
+			0xDD, 0x21, 0x00, 0x10,
+			0xFD, 0x21, 0x00, 0x20,
+			0x06, 0x00,
+			0xDD, 0x7E, 0x00,
+			0xDD, 0x86, 0x01,
+			0xFD, 0x77, 0x00,
+			0xFD, 0x34, 0x01,
+			0xDD, 0xCB, 0x02, 0x06,
+			0xFD, 0xCB, 0x03, 0x46,
+			0xDD, 0x23,
+			0xFD, 0x23,
+			0xDD, 0xE5,
+			0xDD, 0xE1,
+			0x10, 0xE2,
+			0xC3, 0x03, 0x00 };
+
+  private static final long TSTATES_PER_ITERATION = 50000000L;
+
+  private int[]          program;
+  private Z80TestMachine machine;
+
+
+  private Z80InstMixBench( String name, int[] program )
+  {
+    super( name, "MHz", 1E6 );
+    this.program = program;
+    this.machine = null;
+  }
+
+
+  public static AbstractBench[] createAll()
+  {
+    return new AbstractBench[] {
+		new Z80InstMixBench( "z80.alu", PROG_ALU ),
+		new Z80InstMixBench( "z80.ldir", PROG_LDIR ),
+		new Z80InstMixBench( "z80.blockio", PROG_BLOCK_IO ),
+		new Z80InstMixBench( "z80.index", PROG_INDEX ) };
+  }
+
+
+	/* --- ueberschriebene Methoden --- */
+
+  @Override
+  public void setUp()
+  {
+    this.machine = new Z80TestMachine();
+    this.machine.load( 0x0000, this.program );
+  }
+
+
+  @Override
+  public long runIteration()
+  {
+    return this.machine.run( TSTATES_PER_ITERATION );
+  }
+}
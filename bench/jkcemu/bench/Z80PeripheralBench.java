@@ -0,0 +1,119 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Kleincomputer-Emulator
+ *
+ * Benchmarks fuer die Peripheriebausteine CTC und PIO
+ *
+ * Beim CTC wird die Verarbeitung der Taktzyklen
+ * (Z80TStatesListener) mit vier laufenden Zeitgebern gemessen,
+ * beim PIO die Ausgabe ueber einen Port mit Benachrichtigung
+ * eines Z80PIOPortListener.
+ */
+
+package jkcemu.bench;
+
+import z80emu.Z80CPU;
+import z80emu.Z80CTC;
+import z80emu.Z80CTCListener;
+import z80emu.Z80PIO;
+import z80emu.Z80PIOPortListener;
+
+
+public class Z80PeripheralBench
+			extends AbstractBench
+			implements Z80CTCListener, Z80PIOPortListener
+{
+  private static final int CALLS_PER_ITERATION = 20000000;
+
+  private boolean ctcMode;
+  private Z80CPU  cpu;
+  private Z80CTC  ctc;
+  private Z80PIO  pio;
+  private long    eventCount;
+
+
+  private Z80PeripheralBench( String name, String unit, boolean ctcMode )
+  {
+    super( name, unit, 1E6 );
+    this.ctcMode    = ctcMode;
+    this.cpu        = null;
+    this.ctc        = null;
+    this.pio        = null;
+    this.eventCount = 0;
+  }
+
+
+  public static AbstractBench[] createAll()
+  {
+    return new AbstractBench[] {
+		new Z80PeripheralBench( "ctc.tstates", "MHz", true ),
+		new Z80PeripheralBench( "pio.output", "Mops/s", false ) };
+  }
+
+
+	/* --- Z80CTCListener --- */
+
+  @Override
+  public void z80CTCUpdate( Z80CTC ctc, int timerNum )
+  {
+    this.eventCount++;
+  }
+
+
+	/* --- Z80PIOPortListener --- */
+
+  @Override
+  public void z80PIOPortStatusChanged(
+				Z80PIO          pio,
+				Z80PIO.PortInfo port,
+				Z80PIO.Status   status )
+  {
+    if( (status == Z80PIO.Status.OUTPUT_AVAILABLE)
+	|| (status == Z80PIO.Status.OUTPUT_CHANGED) )
+    {
+      this.eventCount += pio.fetchOutValuePortA( 0xFF );
+    }
+  }
+
+
+	/* --- ueberschriebene Methoden --- */
+
+  @Override
+  public void setUp()
+  {
+    this.cpu = new Z80TestMachine().getZ80CPU();
+    if( this.ctcMode ) {
+      this.ctc = new Z80CTC( "CTC" );
+      this.ctc.addCTCListener( this );
+      for( int i = 0; i < 4; i++ ) {
+	// Zeitgeber, Vorteiler 16, Zeitkonstante folgt
+	this.ctc.write( i, 0x07, 0 );
+	this.ctc.write( i, 0x10 << i, 0 );
+      }
+    } else {
+      this.pio = new Z80PIO( "PIO" );
+      this.pio.addPIOPortListener( this, Z80PIO.PortInfo.A );
+      this.pio.writeControlA( 0x0F );		// Byte-Ausgabe
+    }
+  }
+
+
+  @Override
+  public long runIteration()
+  {
+    long rv = 0;
+    if( this.ctcMode ) {
+      for( int i = 0; i < CALLS_PER_ITERATION; i++ ) {
+	this.ctc.z80TStatesProcessed( this.cpu, 4 );
+      }
+      rv = 4L * CALLS_PER_ITERATION;
+    } else {
+      for( int i = 0; i < CALLS_PER_ITERATION; i++ ) {
+	this.pio.writeDataA( i & 0xFF );
+      }
+      rv = CALLS_PER_ITERATION;
+    }
+    return rv;
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Kleincomputer-Emulator
+ *
+ * Minimales Z80-System fuer Benchmarks:
+ * 64 KByte RAM und ein E/A-System, das nur Daten durchreicht
+ */
+
+package jkcemu.bench;
+
+import z80emu.Z80CPU;
+import z80emu.Z80IOSystem;
+import z80emu.Z80Memory;
+import z80emu.Z80DeadlineListener;
+
+
+public class Z80TestMachine implements Z80IOSystem, Z80Memory
+{
+  private static class TStatesLimiter implements Z80DeadlineListener
+  {
+    private long tStatesToProcess;
+    private long tStatesProcessed;
+
+    private TStatesLimiter( long tStates )
+    {
+      this.tStatesToProcess = tStates;
+      this.tStatesProcessed = 0;
+    }
+
+    private long getProcessedTStates()
+    {
+      return this.tStatesProcessed;
+    }
+
+    @Override
+    public int z80TStatesToDeadline( Z80CPU cpu )
+    {
+      return (int) Math.max(
+		Math.min(
+			this.tStatesToProcess - this.tStatesProcessed,
+			Integer.MAX_VALUE ),
+		1 );
+    }
+
+    @Override
+    public void z80TStatesProcessed( Z80CPU cpu, int tStates )
+    {
+      this.tStatesProcessed += tStates;
+      if( this.tStatesProcessed >= this.tStatesToProcess ) {
+	cpu.fireExit();
+      }
+    }
+  }
+
+
+  private Z80Memory memory;
+  private Z80CPU    cpu;
+  private byte[]    ram;
+  private int       ioValue;
+
+
+  public Z80TestMachine()
+  {
+    this( null );
+  }
+
+
+  /*
+   * Wird ein Arbeitsspeicher uebergeben,
+   * greift die CPU-Emulation auf diesen zu
+   * und nicht auf das eigene RAM.
+   */
+  public Z80TestMachine( Z80Memory memory )
+  {
+    this.ram     = new byte[ 0x10000 ];
+    this.ioValue = 0;
+    this.memory  = (memory != null ? memory : this);
+    this.cpu     = new Z80CPU( this.memory, this );
+  }
+
+
+  public Z80CPU getZ80CPU()
+  {
+    return this.cpu;
+  }
+
+
+  public void load( int addr, int... data )
+  {
+    for( int i = 0; i < data.length; i++ ) {
+      this.memory.setMemByte( addr + i, data[ i ] );
+    }
+  }
+
+
+  /*
+   * Ausfuehren des ab Adresse 0000h geladenen Programms
+   * mit unbegrenzter Geschwindigkeit
+   *
+   * Rueckgabewert:
+   *   tatsaechlich ausgefuehrte Anzahl an Taktzyklen
+   */
+  public long run( long tStates )
+  {
+    this.cpu.reset( true );
+    return runCPU( this.cpu, tStates );
+  }
+
+
+  /*
+   * Ausfuehren der CPU-Emulation im aktuellen Thread,
+   * bis mindestens die uebergebene Anzahl an Taktzyklen
+   * abgearbeitet wurde
+   *
+   * Rueckgabewert:
+   *   tatsaechlich ausgefuehrte Anzahl an Taktzyklen
+   */
+  public static long runCPU( Z80CPU cpu, long tStates )
+  {
+    TStatesLimiter limiter = new TStatesLimiter( tStates );
+    cpu.setBrakeEnabled( false );
+    cpu.addTStatesListener( limiter );
+    try {
+      cpu.run();
+    }
+    finally {
+      cpu.removeTStatesListener( limiter );
+    }
+    return limiter.getProcessedTStates();
+  }
+
+
+	/* --- Z80IOSystem --- */
+
+  @Override
+  public int readIOByte( int port, int tStates )
+  {
+    this.ioValue = (this.ioValue + port) & 0xFF;
+    return this.ioValue;
+  }
+
+
+  @Override
+  public void writeIOByte( int port, int value, int tStates )
+  {
+    this.ioValue = value;
+  }
+
+
+	/* --- Z80Memory --- */
+
+  @Override
+  public int getMemByte( int addr, boolean m1 )
+  {
+    return (int) this.ram[ addr & 0xFFFF ] & 0xFF;
+  }
+
+
+  @Override
+  public int getMemWord( int addr )
+  {
+    return (getMemByte( addr + 1, false ) << 8) | getMemByte( addr, false );
+  }
+
+
+  @Override
+  public int readMemByte( int addr, boolean m1 )
+  {
+    return (int) this.ram[ addr & 0xFFFF ] & 0xFF;
+  }
+
+
+  @Override
+  public boolean setMemByte( int addr, int value )
+  {
+    this.ram[ addr & 0xFFFF ] = (byte) value;
+    return true;
+  }
+
+
+  @Override
+  public void writeMemByte( int addr, int value )
+  {
+    this.ram[ addr & 0xFFFF ] = (byte) value;
+  }
+}
@@ -39,6 +39,8 @@ import jkcemu.audio.AudioFrm;
 import jkcemu.audio.AudioRecorderFrm;
 import jkcemu.base.BaseDlg;
 import jkcemu.base.BaseFrm;
+import jkcemu.base.CmdLineEmuRunner;
+import jkcemu.base.CmdLineEmuServer;
 import jkcemu.base.DesktopHelper;
 import jkcemu.base.EmuThread;
 import jkcemu.base.EmuUtil;
@@ -56,6 +58,7 @@ import jkcemu.text.TextEditFrm;
 import jkcemu.text.TextUtil;
 import jkcemu.tools.calculator.CalculatorFrm;
 import jkcemu.tools.filebrowser.FileBrowserFrm;
+import jkcemu.tools.fileconverter.BatchFileConverter;
 import jkcemu.tools.fileconverter.FileConvertFrm;
 import jkcemu.tools.findfiles.FindFilesFrm;
 import jkcemu.tools.hexdiff.HexDiffFrm;
@@ -88,6 +91,7 @@ public class Main
   public static final String FILE_GROUP_ROM         = "rom";
   public static final String FILE_GROUP_SCREEN      = "screen";
   public static final String FILE_GROUP_SECTOR      = "sector";
+  public static final String FILE_GROUP_SNAPSHOT    = "snapshot";
   public static final String FILE_GROUP_SOFTWARE    = "software";
   public static final String FILE_GROUP_TEXT        = "text";
   public static final String FILE_GROUP_USB         = "usb";
@@ -149,9 +153,18 @@ public class Main
 								+ " starten",
 	"  --fb oder --filebrowser      Datei-Browser starten",
 	"  --fc oder --fileconverter    Dateikonverter starten",
+	"  --fc -h                      Hilfe zur Stapelkonvertierung"
+								+ " anzeigen",
 	"  --ff oder --findfiles        Dateisuche starten",
 	"  --hd oder --hexdiff          Hex-Dateivergeicher starten",
 	"  --he oder --hexeditor        Hex-Editor starten",
+	"  --hl oder --headless         Emulation ohne Fenster starten",
+	"  --hl -h                      Hilfe zur Emulation ohne Fenster"
+								+ " anzeigen",
+	"  --srv oder --server          mehrere Emulationen ohne Fenster"
+							+ " in einem",
+	"                               Prozess starten",
+	"  --srv -h                     Hilfe zum Server anzeigen",
 	"  --iv oder --imageviewer      Bildbetrachter/Bildbearbeitung"
 								+ " starten",
 	"  --te oder --texteditor       Texteditor starten",
@@ -362,6 +375,13 @@ public class Main
       else if( arg.equalsIgnoreCase( "--fc" )
 	       || arg.equalsIgnoreCase( "--fileconverter" ) )
       {
+	if( (argIdx < args.length) && args[ argIdx ].startsWith( "-" ) ) {
+	  if( BatchFileConverter.execute( args, argIdx ) ) {
+	    exitSuccess();
+	  } else {
+	    exitFailure();
+	  }
+	}
 	setAppName( FileConvertFrm.TITLE );
 	final File file = getArgFile( args, argIdx );
 	EventQueue.invokeLater(
@@ -443,6 +463,24 @@ public class Main
 		} );
 	done = true;
       }
+      else if( arg.equalsIgnoreCase( "--hl" )
+	       || arg.equalsIgnoreCase( "--headless" ) )
+      {
+	if( CmdLineEmuRunner.execute( args, argIdx ) ) {
+	  exitSuccess();
+	} else {
+	  exitFailure();
+	}
+      }
+      else if( arg.equalsIgnoreCase( "--srv" )
+	       || arg.equalsIgnoreCase( "--server" ) )
+      {
+	if( CmdLineEmuServer.execute( args, argIdx ) ) {
+	  exitSuccess();
+	} else {
+	  exitFailure();
+	}
+      }
       else if( arg.equalsIgnoreCase( "--iv" )
 	       || arg.equalsIgnoreCase( "--imageviewer" ) )
       {
@@ -7,6 +7,11 @@
  * des Anschlusses des Magnettonbandgeraetes (Ausgang)
  *
  * Die Ausgabe erfolgt als Rechteckkurve
+ *
+ * Die Audiodaten werden nicht direkt in den Audiokanal geschrieben,
+ * sondern ueber einen Ringpuffer an einen eigenen Thread
+ * uebergeben (siehe AudioOutWriter), sodass die CPU-Emulation
+ * nie auf den Audiokanal warten muss.
  */
 
 package jkcemu.audio;
@@ -17,7 +22,6 @@ import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioSystem;
-import javax.sound.sampled.DataLine;
 import javax.sound.sampled.LineUnavailableException;
 import javax.sound.sampled.Mixer;
 import javax.sound.sampled.SourceDataLine;
@@ -57,8 +61,7 @@ public class AudioOut extends AudioIO
   private long                          maxTStates;
   private int                           maxWaveTStatesLine;
   private int                           maxWaveTStatesRec;
-  private int                           audioPos;
-  private byte[]                        audioBuf;
+  private volatile AudioOutWriter       lineWriter;
   private volatile SourceDataLine       dataLine;
   private Mixer.Info                    mixerInfo;
   private RecStatus                     recStatus;
@@ -108,8 +111,7 @@ public class AudioOut extends AudioIO
     this.firstCall          = true;
     this.lastPhase          = false;
     this.lineChannels       = 0;
-    this.audioPos           = 0;
-    this.audioBuf           = null;
+    this.lineWriter         = null;
     this.dataLine           = null;
     this.recBufGZip         = null;
     this.recBufOut          = null;
@@ -282,49 +284,45 @@ public class AudioOut extends AudioIO
     try {
       checkOpen();
 
-      // Daten in Audiokanal schreiben
-      SourceDataLine line     = this.dataLine;
-      byte[]         audioBuf = this.audioBuf;
-      if( (line != null) && (audioBuf != null) && (nFrames > 0) ) {
-	try {
+      /*
+       * Daten in den Ringpuffer des Audiokanals schreiben
+       *
+       * Die CPU-Emulation wartet nie. Ist der Puffer voll,
+       * werden die restlichen Frames verworfen.
+       * Andere Threads (z.B. PSG) warten dagegen auf freien Platz
+       * und werden dadurch mit der Abspielgeschwindigkeit synchronisiert.
+       */
+      AudioOutWriter writer = this.lineWriter;
+      if( (writer != null) && (nFrames > 0) ) {
+	if( writer.hasLineFailed() ) {
+	  setErrorText( ERROR_LINE_CLOSED_BECAUSE_NOT_WORKING );
+	  fireStop();
+	} else {
+	  if( this.lineChannels == 2 ) {
+	    if( this.channels == 1 ) {
+	      leftValue  = monoValue;
+	      rightValue = monoValue;
+	    }
+	  }
 	  for( int i = 0; i < nFrames; i++ ) {
-	    if( (this.audioPos + this.lineChannels - 1) >= audioBuf.length ) {
-	      if( line.available() < audioBuf.length ) {
-		int n = 0;
-		do {
-		  Thread.sleep( 10 );
-		  n++;
-		  if( n > 100 ) {
-		    throw new IOException(
-				ERROR_LINE_CLOSED_BECAUSE_NOT_WORKING );
-		  }
-		} while( line.available() < audioBuf.length );
+	    if( !writer.hasSpace() ) {
+	      if( isEmuThread() ) {
+		break;
 	      }
-	      if( line != null ) {
-		line.write( audioBuf, 0, audioBuf.length );
+	      if( !writer.waitForSpace() ) {
+		// z.B. Programmbeendigung
+		fireStop();
+		break;
 	      }
-	      this.audioPos = 0;
 	    }
 	    if( this.lineChannels == 2 ) {
-	      if( this.channels == 1 ) {
-		leftValue  = monoValue;
-		rightValue = monoValue;
-	      }
-	      audioBuf[ this.audioPos++ ] = (byte) leftValue;
-	      audioBuf[ this.audioPos++ ] = (byte) rightValue;
+	      writer.put( leftValue );
+	      writer.put( rightValue );
 	    } else {
-	      audioBuf[ this.audioPos++ ] = (byte) monoValue;
+	      writer.put( monoValue );
 	    }
 	  }
-	}
-	catch( InterruptedException ex ) {
-	  // z.B. Programmbeendigung
-	  fireStop();
-	}
-	catch( Exception ex ) {
-	  // z.B. Abziehen eines aktiven USB-Audiogeraetes
-	  setErrorText( ERROR_LINE_CLOSED_BECAUSE_NOT_WORKING );
-	  fireStop();
+	  writer.publish();
 	}
       }
 
@@ -499,6 +497,15 @@ public class AudioOut extends AudioIO
   @Override
   public synchronized void closeLine()
   {
+    AudioOutWriter writer = this.lineWriter;
+    if( writer != null ) {
+      this.lineWriter = null;
+      writer.fireStop();
+      try {
+	writer.join( 500 );
+      }
+      catch( InterruptedException ex ) {}
+    }
     if( this.dataLine != null ) {
       closeDataLine( this.dataLine );
       this.dataLine = null;
@@ -514,29 +521,24 @@ public class AudioOut extends AudioIO
 
     // Audiokanal
     if( diffTStates > this.maxWaveTStatesLine ) {
-      DataLine line = this.dataLine;
-      if( line != null ) {
+      AudioOutWriter writer = this.lineWriter;
+      if( writer != null ) {
 	/*
 	 * Sollte nicht vorkommen, aber falls doch,
 	 * dann Puffer leeren und fuer die verstrichene Zeit
 	 * keine Audiodaten ausgeben
 	 */
-        line.flush();
-	this.audioPos = 0;
-	rv            = false;
-      }
-    } else {
-      /*
-       * Wenn Daten geschrieben werden, darf das Soundsystem
-       * auf keinen Fall auf die CPU-Emulation warten.
-       * In diesem Fall wird die Geschwindigkeitsbremse
-       * der CPU-Emulation temporaer, d.h.,
-       * bis mindestens zum naechsten Soundsystemaufruf, abgeschaltet.
-       */
-      if( this.dataLine != null ) {
-	this.z80cpu.setSpeedUnlimitedFor( diffTStates * 8 );
+	writer.fireFlush();
+	rv = false;
       }
     }
+    /*
+     * Die Geschwindigkeitsbremse der CPU-Emulation bleibt aktiv.
+     * Kurze Schwankungen faengt der Ringpuffer ab,
+     * langfristige Abweichungen zwischen dem emulierten Takt
+     * und dem des Audiogeraetes gleicht AudioOutWriter
+     * durch Anpassung der Abspielgeschwindigkeit aus.
+     */
 
     // Recorder
     if( this.recStatus.equals( RecStatus.RUNNING )
@@ -662,14 +664,14 @@ public class AudioOut extends AudioIO
       this.dataLine      = line;
 
       /*
-       * externen Audiopuffer anlegen
+       * Writer-Thread starten
        *
-       * Damit die Implementierung des Blockens ausserhalb
-       * der SourceDataLine.write-Methode funktioniert,
-       * muss der externe Puffer kleiner als der interne sein.
+       * Die Abspielgeschwindigkeit wird nur angepasst,
+       * wenn die Daten von der CPU-Emulation kommen.
        */
-      this.audioBuf = new byte[ Math.min( line.getBufferSize() / 4, 512 ) ];
-      this.audioPos = 0;
+      AudioOutWriter writer = new AudioOutWriter( line, isEmuThread() );
+      writer.start();
+      this.lineWriter = writer;
 
       // Fuer die Pegelanzeige gilt der Wertebereich 0...MAX_UNSIGEND_VALUE.
       this.observer.setVolumeLimits( 0, MAX_UNSIGNED_VALUE );
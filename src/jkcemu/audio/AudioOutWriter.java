@@ -0,0 +1,316 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Kleincomputer-Emulator
+ *
+ * Thread, der die Audiodaten in den Audiokanal schreibt
+ *
+ * Zwischen dem erzeugenden Thread (CPU-Emulation bzw. PSG)
+ * und dem Audiokanal liegt ein Ringpuffer, der ohne Monitore
+ * auskommt, da es genau einen schreibenden und einen lesenden
+ * Thread gibt. Der Writer-Thread wartet, bis im Audiokanal
+ * Platz fuer einen groesseren Block ist, und schreibt dann
+ * die bis dahin angefallenen Daten am Stueck.
+ *
+ * Wird der Ringpuffer von der CPU-Emulation gefuellt,
+ * darf diese niemals blockieren. Ist der Puffer voll,
+ * werden die Daten verworfen. Damit das moeglichst selten passiert,
+ * wird der Fuellstand durch eine geringfuegige Aenderung
+ * der Abspielgeschwindigkeit (Weglassen bzw. Wiederholen
+ * einzelner Frames) auf einem mittleren Wert gehalten.
+ * Somit werden kleine Unterschiede zwischen dem emulierten Takt
+ * und dem Takt des Audiogeraetes ausgeglichen.
+ *
+ * Wird der Ringpuffer von einem anderen Thread gefuellt (z.B. PSG),
+ * wird dieser Thread durch das Warten auf freien Platz im Puffer
+ * gebremst. In dem Fall wird nur ein kleiner Teil des Puffers
+ * genutzt und die Abspielgeschwindigkeit nicht veraendert.
+ */
+
+package jkcemu.audio;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import javax.sound.sampled.SourceDataLine;
+import jkcemu.Main;
+
+
+class AudioOutWriter extends Thread
+{
+  // max. Aenderung der Abspielgeschwindigkeit
+  private static final double MAX_RATE_ADJUST = 0.02;
+
+  // Wartezeit, wenn keine Daten bzw. kein Platz vorhanden ist
+  private static final long WAIT_NANOS = 1000000L;
+
+  // max. Wartezeit auf den Audiokanal, bevor er als defekt gilt
+  private static final long LINE_TIMEOUT_NANOS = 1000000000L;
+
+  private SourceDataLine   line;
+  private int              frameSize;
+  private int              chunkFrames;
+  private int              maxFillFrames;
+  private int              targetFillFrames;
+  private boolean          adaptive;
+  private byte[]           ringBuf;
+  private int              ringMask;
+  private AtomicLong       writePos;
+  private AtomicLong       readPos;
+  private long             producerPos;
+  private long             producerReadPos;
+  private byte[]           chunkBuf;
+  private double           srcFrac;
+  private double           avgFillFrames;
+  private volatile Thread  waitingProducer;
+  private volatile boolean flushRequested;
+  private volatile boolean lineFailed;
+  private volatile boolean running;
+
+
+  /*
+   * Parameter:
+   *   line:     geoeffneter und gestarteter Audiokanal
+   *   adaptive: true:  Ringpuffer wird von der CPU-Emulation gefuellt,
+   *                    die nicht warten darf
+   *             false: Ringpuffer wird von einem Thread gefuellt,
+   *                    der auf freien Platz warten kann
+   */
+  AudioOutWriter( SourceDataLine line, boolean adaptive )
+  {
+    super( Main.getThreadGroup(), "JKCEMU audio out" );
+    this.line      = line;
+    this.adaptive  = adaptive;
+    this.frameSize = Math.max( line.getFormat().getFrameSize(), 1 );
+
+    int lineFrames   = line.getBufferSize() / this.frameSize;
+    this.chunkFrames = Math.max( lineFrames / 4, 64 );
+
+    int ringFrames = 1;
+    while( ringFrames < (lineFrames * 4) ) {
+      ringFrames <<= 1;
+    }
+    this.ringBuf          = new byte[ ringFrames * this.frameSize ];
+    this.ringMask         = this.ringBuf.length - 1;
+    this.chunkBuf         = new byte[ this.chunkFrames * this.frameSize ];
+    this.targetFillFrames = this.chunkFrames * 2;
+    this.maxFillFrames    = (adaptive ? ringFrames : this.targetFillFrames);
+    this.avgFillFrames    = this.targetFillFrames;
+    this.srcFrac          = 0.0;
+    this.writePos         = new AtomicLong( 0L );
+    this.readPos          = new AtomicLong( 0L );
+    this.producerPos      = 0L;
+    this.producerReadPos  = 0L;
+    this.waitingProducer  = null;
+    this.flushRequested   = false;
+    this.lineFailed       = false;
+    this.running          = true;
+  }
+
+
+  void fireStop()
+  {
+    this.running = false;
+    LockSupport.unpark( this );
+  }
+
+
+  /*
+   * Verwerfen der noch nicht abgespielten Daten,
+   * wird vom Writer-Thread ausgefuehrt
+   */
+  void fireFlush()
+  {
+    this.flushRequested = true;
+  }
+
+
+  boolean hasLineFailed()
+  {
+    return this.lineFailed;
+  }
+
+
+	/* --- Methoden fuer den erzeugenden Thread --- */
+
+  /*
+   * Pruefen, ob Platz fuer ein weiteres Frame vorhanden ist
+   */
+  boolean hasSpace()
+  {
+    boolean rv = ((this.producerPos - this.producerReadPos)
+			< ((long) this.maxFillFrames * this.frameSize));
+    if( !rv ) {
+      this.producerReadPos = this.readPos.get();
+      rv = ((this.producerPos - this.producerReadPos)
+			< ((long) this.maxFillFrames * this.frameSize));
+    }
+    return rv;
+  }
+
+
+  /*
+   * Bereitstellen der bisher mit put(...) geschriebenen Daten
+   * fuer den Writer-Thread
+   */
+  void publish()
+  {
+    this.writePos.lazySet( this.producerPos );
+  }
+
+
+  /*
+   * Die Methode schreibt ein Byte in den Ringpuffer.
+   * Vorher muss mit hasSpace() geprueft worden sein,
+   * dass Platz fuer das ganze Frame vorhanden ist.
+   */
+  void put( int value )
+  {
+    this.ringBuf[ (int) this.producerPos & this.ringMask ] = (byte) value;
+    this.producerPos++;
+  }
+
+
+  /*
+   * Warten, bis Platz fuer ein weiteres Frame vorhanden ist
+   * (nicht im Thread der CPU-Emulation aufrufen)
+   *
+   * Rueckgabewert:
+   *   true:  Platz vorhanden
+   *   false: Writer-Thread beendet oder aufrufender Thread unterbrochen
+   */
+  boolean waitForSpace()
+  {
+    boolean rv = hasSpace();
+    if( !rv ) {
+      publish();
+      this.waitingProducer = Thread.currentThread();
+      while( !rv && this.running && !this.lineFailed ) {
+	LockSupport.parkNanos( WAIT_NANOS );
+	if( Thread.interrupted() ) {
+	  break;
+	}
+	rv = hasSpace();
+      }
+      this.waitingProducer = null;
+    }
+    return rv;
+  }
+
+
+	/* --- ueberschriebene Methoden --- */
+
+  @Override
+  public void run()
+  {
+    while( this.running && !this.lineFailed ) {
+      try {
+	if( this.flushRequested ) {
+	  this.flushRequested = false;
+	  this.readPos.lazySet( this.writePos.get() );
+	  this.line.flush();
+	}
+	int nFrames = (int) ((this.writePos.get() - this.readPos.get())
+							/ this.frameSize);
+	if( nFrames > 0 ) {
+	  if( waitForLine() ) {
+	    writeChunk( nFrames );
+	  }
+	} else {
+	  LockSupport.parkNanos( WAIT_NANOS );
+	}
+      }
+      catch( RuntimeException ex ) {
+	/*
+	 * z.B. Audiogeraet nicht mehr vorhanden:
+	 * Der Audiokanal gilt dann als defekt,
+	 * damit der erzeugende Thread nicht endlos wartet.
+	 */
+	this.lineFailed = true;
+      }
+    }
+    Thread producer = this.waitingProducer;
+    if( producer != null ) {
+      LockSupport.unpark( producer );
+    }
+  }
+
+
+	/* --- private Methoden --- */
+
+  /*
+   * Warten, bis im Audiokanal Platz fuer einen ganzen Block ist
+   */
+  private boolean waitForLine()
+  {
+    boolean rv       = false;
+    int     nBytes   = this.chunkBuf.length;
+    long    begNanos = System.nanoTime();
+    while( this.running ) {
+      if( this.line.available() >= nBytes ) {
+	rv = true;
+	break;
+      }
+      if( (System.nanoTime() - begNanos) > LINE_TIMEOUT_NANOS ) {
+	// z.B. Abziehen eines aktiven USB-Audiogeraetes
+	this.lineFailed = true;
+	break;
+      }
+      LockSupport.parkNanos( WAIT_NANOS );
+    }
+    return rv;
+  }
+
+
+  /*
+   * Lesen eines Blocks aus dem Ringpuffer und Schreiben
+   * in den Audiokanal
+   *
+   * Bei adaptiver Abspielgeschwindigkeit wird das Verhaeltnis
+   * zwischen gelesenen und geschriebenen Frames anhand des
+   * geglaetteten Fuellstands des Ringpuffers bestimmt.
+   */
+  private void writeChunk( int nAvailFrames )
+  {
+    double rate = 1.0;
+    if( this.adaptive ) {
+      this.avgFillFrames = (this.avgFillFrames * 0.9)
+					+ ((double) nAvailFrames * 0.1);
+      rate = 1.0 + (MAX_RATE_ADJUST
+			* (this.avgFillFrames - this.targetFillFrames)
+			/ this.targetFillFrames);
+      if( rate < (1.0 - MAX_RATE_ADJUST) ) {
+	rate = 1.0 - MAX_RATE_ADJUST;
+      } else if( rate > (1.0 + MAX_RATE_ADJUST) ) {
+	rate = 1.0 + MAX_RATE_ADJUST;
+      }
+    }
+    long   srcPos  = this.readPos.get();
+    double pos     = this.srcFrac;
+    int    dstPos  = 0;
+    int    nFrames = 0;
+    while( nFrames < this.chunkFrames ) {
+      int srcFrame = (int) pos;
+      if( srcFrame >= nAvailFrames ) {
+	break;
+      }
+      long srcIdx = srcPos + ((long) srcFrame * this.frameSize);
+      for( int i = 0; i < this.frameSize; i++ ) {
+	this.chunkBuf[ dstPos++ ] = this.ringBuf[
+				(int) (srcIdx + i) & this.ringMask ];
+      }
+      nFrames++;
+      pos += rate;
+    }
+    int nUsedFrames = Math.min( (int) pos, nAvailFrames );
+    this.srcFrac    = pos - nUsedFrames;
+    this.readPos.lazySet( srcPos + ((long) nUsedFrames * this.frameSize) );
+
+    Thread producer = this.waitingProducer;
+    if( producer != null ) {
+      LockSupport.unpark( producer );
+    }
+    if( dstPos > 0 ) {
+      this.line.write( this.chunkBuf, 0, dstPos );
+    }
+  }
+}
@@ -67,6 +67,27 @@ public abstract class AbstractScreenDevice
   }
 
 
+  /*
+   * Durch Ueberschreiben dieser Methode kann das emulierte System
+   * den kompletten Bildschirminhalt direkt in einen Bildpuffer schreiben,
+   * der anschliessend mit einem einzigen Aufruf von drawImage(...)
+   * ausgegeben wird.
+   * Der Puffer enthaelt zeilenweise fuer jedes Pixel einen Farbindex
+   * und ist getScreenWidth() * getScreenHeight() Bytes gross.
+   * Es muessen mindestens die Pixelzeilen lineBeg bis lineEnd
+   * (jeweils einschliesslich) gefuellt werden.
+   * Wenn nicht (Rueckgabewert false) wird der Bildschirminhalt
+   * fuer dieses eine Neuzeichnen
+   * ueber die Methode getColorIndex( x, y ) ermittelt.
+   * Wer diese Methode ueberschreibt,
+   * muss auch supportsFrameBuffer() ueberschreiben.
+   */
+  public boolean fillFrameBuffer( byte[] frameBuf, int lineBeg, int lineEnd )
+  {
+    return false;
+  }
+
+
   public void fireScreenSizeChanged()
   {
     AbstractScreenFrm screenFrm = getScreenFrm();
@@ -324,7 +345,8 @@ public abstract class AbstractScreenDevice
    * Durch Ueberschreiben dieser Methode hat das emulierte System
    * die Moeglichkeit,
    * selbst die Bildschirmausgabe grafisch darzustellen.
-   * Wenn nicht (Rueckgabewert false) werden die Methoden getColorCount()
+   * Wenn nicht (Rueckgabewert false) wird die Methode
+   * fillFrameBuffer(...) bzw. werden die Methoden getColorCount()
    * und getColorIndex( x, y ) aufgerufen.
    */
   public boolean paintScreen( Graphics g, int x, int y, int screenScale )
@@ -351,6 +373,19 @@ public abstract class AbstractScreenDevice
   }
 
 
+  /*
+   * Markieren eines Bereichs von Pixelzeilen (jeweils einschliesslich)
+   * als geaendert
+   */
+  public void setScreenLinesDirty( int lineBeg, int lineEnd )
+  {
+    AbstractScreenFrm screenFrm = getScreenFrm();
+    if( screenFrm != null ) {
+      screenFrm.setScreenLinesDirty( lineBeg, lineEnd );
+    }
+  }
+
+
   public void setScreenFrm( AbstractScreenFrm screenFrm )
   {
     this.screenFrm = screenFrm;
@@ -388,6 +423,15 @@ public abstract class AbstractScreenDevice
   }
 
 
+  /*
+   * Rueckgabewert true, wenn fillFrameBuffer(...) ueberschrieben ist
+   */
+  public boolean supportsFrameBuffer()
+  {
+    return false;
+  }
+
+
   public boolean supportsPasteFromClipboard()
   {
     return false;
@@ -102,6 +102,9 @@ public abstract class AbstractScreenFrm
 							KeyEvent.VK_4 };
 
   private JRadioButtonMenuItem[] mnuScaleItems;
+  private Object                 dirtyLinesLock;
+  private int                    dirtyLineBeg;
+  private int                    dirtyLineEnd;
   private int                    mnuShortcutKeyMask;
   private boolean                ignoreKeyChar;
   private boolean                joyActionByKey;
@@ -129,6 +132,9 @@ public abstract class AbstractScreenFrm
     this.ignoreKeyChar       = false;
     this.joyActionByKey      = false;
     this.screenDirty         = false;
+    this.dirtyLinesLock      = new Object();
+    this.dirtyLineBeg        = -1;
+    this.dirtyLineEnd        = -1;
     this.screenRefreshMillis = getDefaultScreenRefreshMillis();
     this.screenRefreshTimer  = new javax.swing.Timer(
 					this.screenRefreshMillis,
@@ -632,9 +638,62 @@ public abstract class AbstractScreenFrm
   }
 
 
+  /*
+   * Die Methode zeichnet den Bildschirminhalt neu,
+   * sofern er sich geaendert hat.
+   * Wurden nur einzelne Pixelzeilen als geaendert markiert,
+   * werden auch nur diese neu gezeichnet.
+   */
+  protected void repaintDirtyScreen()
+  {
+    if( this.screenDirty ) {
+      this.screenFld.repaint();
+    } else {
+      int lineBeg = -1;
+      int lineEnd = -1;
+      synchronized( this.dirtyLinesLock ) {
+	lineBeg           = this.dirtyLineBeg;
+	lineEnd           = this.dirtyLineEnd;
+	this.dirtyLineBeg = -1;
+	this.dirtyLineEnd = -1;
+      }
+      if( (lineBeg >= 0) && (lineEnd >= lineBeg) ) {
+	this.screenFld.repaintScreenLines( lineBeg, lineEnd );
+      }
+    }
+  }
+
+
   public void setScreenDirty( boolean state )
   {
     this.screenDirty = state;
+    if( !state ) {
+      synchronized( this.dirtyLinesLock ) {
+	this.dirtyLineBeg = -1;
+	this.dirtyLineEnd = -1;
+      }
+    }
+  }
+
+
+  /*
+   * Markieren eines Bereichs von Pixelzeilen (jeweils einschliesslich)
+   * als geaendert,
+   * damit beim naechsten Bildschirm-Refresh nur diese Zeilen
+   * neu gezeichnet werden muessen
+   */
+  public void setScreenLinesDirty( int lineBeg, int lineEnd )
+  {
+    if( !this.screenDirty && (lineBeg >= 0) && (lineEnd >= lineBeg) ) {
+      synchronized( this.dirtyLinesLock ) {
+	if( (this.dirtyLineBeg < 0) || (lineBeg < this.dirtyLineBeg) ) {
+	  this.dirtyLineBeg = lineBeg;
+	}
+	if( lineEnd > this.dirtyLineEnd ) {
+	  this.dirtyLineEnd = lineEnd;
+	}
+      }
+    }
   }
 
 
@@ -752,9 +811,7 @@ public abstract class AbstractScreenFrm
     boolean done = false;
     Object  src  = e.getSource();
     if( (src != null) && (src == this.screenRefreshTimer) ) {
-      if( this.screenDirty ) {
-	this.screenFld.repaint();
-      }
+      repaintDirtyScreen();
       done = true;
     }
     if( !done ) {
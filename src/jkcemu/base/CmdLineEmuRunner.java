@@ -0,0 +1,546 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Kleincomputer-Emulator
+ *
+ * Emulation ohne Fenster ueber die Kommandozeile
+ *
+ * Das emulierte System wird ohne Emulatorfenster und ohne
+ * Audioausgabe angelegt und laeuft im aktuellen Thread
+ * mit abgeschalteter Geschwindigkeitsbremse.
+ * Nach der Initialisierung des Betriebssystems kann eine Datei
+ * geladen und gestartet werden.
+ * Die Emulation endet nach einer vorgegebenen Anzahl an Taktzyklen,
+ * beim Erreichen einer Adresse oder wenn ein bestimmter Text
+ * auf dem Bildschirm erscheint.
+ * Anschliessend koennen Bildschirminhalt und Speicherbereiche
+ * ausgegeben werden.
+ * Anstelle der Initialisierung kann auch ein zuvor gespeicherter
+ * Emulatorzustand geladen werden.
+ *
+ * Da keine globalen Dateien geschrieben werden,
+ * koennen mehrere Instanzen parallel laufen.
+ */
+
+package jkcemu.base;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import jkcemu.Main;
+import jkcemu.file.FileInfo;
+import jkcemu.file.LoadData;
+import jkcemu.programming.CmdLineArgIterator;
+import z80emu.Z80CPU;
+import z80emu.Z80DeadlineListener;
+
+
+public class CmdLineEmuRunner implements Z80DeadlineListener
+{
+  private static final String[] usageLines = {
+	"",
+	"Aufruf:",
+	"  java -jar jkcemu.jar --hl [Optionen]",
+	"  java -jar jkcemu.jar --headless [Optionen]",
+	"",
+	"Optionen:",
+	"  -h                   diese Hilfe anzeigen",
+	"  -f <Datei>           Kommandozeile aus Datei lesen",
+	"  -p <Datei>           Einstellungen aus Profildatei laden",
+	"  -s <System>          emuliertes System (z.B. KC85_4, Z1013.64,"
+							+ " KC87)",
+	"  -D <Name=Wert>       Einstellung setzen",
+	"  -z <Datei>           Emulatorzustand laden"
+					+ " anstelle der Initialisierung",
+	"                       (Einstellungen aus der Datei,"
+					+ " ohne -p und -s)",
+	"  -w <Taktzyklen>      Taktzyklen f\u00FCr die Initialisierung"
+							+ " vor dem Laden",
+	"                       (Standard: 2 Sekunden emulierte Zeit)",
+	"  -l <Datei>           Datei nach der Initialisierung laden",
+	"  -r                   geladenes Programm starten",
+	"  -g <Adresse>         Programm ab Adresse (hex) starten",
+	"  -t <Taktzyklen>      maximale Anzahl Taktzyklen",
+	"                       (Standard: 100000000)",
+	"  -b <Adresse>         anhalten, wenn der Programmz\u00E4hler"
+							+ " die Adresse (hex)",
+	"                       erreicht",
+	"  -o <Text>            anhalten, wenn der Text"
+							+ " auf dem Bildschirm",
+	"                       erscheint",
+	"  -x                   Bildschirminhalt als Text ausgeben",
+	"  -m <Von>-<Bis>       Speicherbereich (hex) als Hex-Dump"
+							+ " ausgeben",
+	"  -Z <Datei>           Emulatorzustand am Ende speichern",
+	"",
+	"R\u00FCckgabewert:",
+	"  0  Haltebedingung erreicht bzw. keine Haltebedingung angegeben",
+	"  1  Haltebedingung nicht erreicht oder Fehler",
+	"" };
+
+  private static final long DEFAULT_MAX_TSTATES = 100000000L;
+  private static final int  DEFAULT_BOOT_MILLIS = 2000;
+  private static final int  SCREEN_CHECK_MILLIS = 20;
+
+  private EmuThread emuThread;
+  private EmuSys    emuSys;
+  private Z80CPU    cpu;
+  private int       breakAddr;
+  private String    screenText;
+  private long      tStatesLimit;
+  private long      tStatesProcessed;
+  private long      tStatesScreenCheck;
+  private long      tStatesScreenCheckNext;
+  private boolean   conditionsEnabled;
+  private boolean   conditionMatched;
+
+
+  private CmdLineEmuRunner(
+			Properties props,
+			int        breakAddr,
+			String     screenText )
+  {
+    this.emuThread         = new EmuThread( null, props );
+    this.emuSys            = this.emuThread.getEmuSys();
+    this.cpu               = this.emuThread.getZ80CPU();
+    this.breakAddr         = breakAddr;
+    this.screenText        = screenText;
+    this.tStatesLimit      = 0;
+    this.tStatesProcessed  = 0;
+    this.conditionsEnabled = false;
+    this.conditionMatched  = false;
+
+    int speedKHz = EmuThread.getDefaultSpeedKHz( props );
+    this.tStatesScreenCheck     = (long) speedKHz * SCREEN_CHECK_MILLIS;
+    this.tStatesScreenCheckNext = 0;
+
+    this.emuSys.loadROMs( props );
+    this.cpu.reset( true );
+    this.cpu.setMaxSpeedKHz( speedKHz );
+    this.cpu.setBrakeEnabled( false );
+    this.emuSys.reset( true, props );
+    this.cpu.setRegPC( this.emuSys.getResetStartAddress( true ) );
+  }
+
+
+  public static boolean execute( String[] args, int argIdx )
+  {
+    boolean     status       = false;
+    boolean     helpFlag     = false;
+    boolean     startFlag    = false;
+    boolean     screenFlag   = false;
+    int         startAddr    = -1;
+    int         breakAddr    = -1;
+    long        bootTStates  = -1;
+    long        maxTStates   = DEFAULT_MAX_TSTATES;
+    String      profileName  = null;
+    String      sysName      = null;
+    String      loadFileName = null;
+    String      screenText   = null;
+    String      snapshotIn   = null;
+    String      snapshotOut  = null;
+    Properties  props        = new Properties();
+    List<int[]> memRanges    = new ArrayList<>();
+
+    // AWT darf nicht initialisiert werden
+    System.setProperty( "java.awt.headless", "true" );
+
+    CmdLineArgIterator backIter = null;
+    CmdLineArgIterator iter     = CmdLineArgIterator.createFromStringArray(
+								args,
+								argIdx );
+    try {
+      String arg = iter.next();
+      while( arg != null ) {
+	if( !arg.isEmpty() ) {
+	  if( (arg.length() == 2) && (arg.charAt( 0 ) == '-') ) {
+	    switch( arg.charAt( 1 ) ) {
+	      case 'f':
+		{
+		  if( backIter != null ) {
+		    throw new IOException(
+			"Option -f in der Datei nicht erlaubt" );
+		  }
+		  String fileName = nextArg( iter );
+		  backIter = iter;
+		  iter     = CmdLineArgIterator.createFromReader(
+					new FileReader( fileName ) );
+		}
+		break;
+	      case 'h':
+	      case 'H':
+		helpFlag = true;
+		break;
+	      case 'p':
+		profileName = nextArg( iter );
+		break;
+	      case 's':
+		sysName = nextArg( iter );
+		break;
+	      case 'D':
+		{
+		  String text = nextArg( iter );
+		  int    pos  = text.indexOf( '=' );
+		  if( pos < 1 ) {
+		    throw new IOException(
+			"Einstellung muss die Form Name=Wert haben" );
+		  }
+		  props.setProperty(
+				text.substring( 0, pos ),
+				text.substring( pos + 1 ) );
+		}
+		break;
+	      case 'w':
+		bootTStates = parseTStates( nextArg( iter ) );
+		break;
+	      case 'l':
+		loadFileName = nextArg( iter );
+		break;
+	      case 'r':
+		startFlag = true;
+		break;
+	      case 'g':
+		startAddr = parseAddr( nextArg( iter ) );
+		break;
+	      case 't':
+		maxTStates = parseTStates( nextArg( iter ) );
+		break;
+	      case 'b':
+		breakAddr = parseAddr( nextArg( iter ) );
+		break;
+	      case 'o':
+		screenText = nextArg( iter );
+		break;
+	      case 'x':
+		screenFlag = true;
+		break;
+	      case 'm':
+		memRanges.add( parseMemRange( nextArg( iter ) ) );
+		break;
+	      case 'z':
+		snapshotIn = nextArg( iter );
+		break;
+	      case 'Z':
+		snapshotOut = nextArg( iter );
+		break;
+	      default:
+		throw new IOException( "Unbekannte Option \'" + arg + "\'" );
+	    }
+	  } else {
+	    throwWrongCmdLine();
+	  }
+	}
+	arg = iter.next();
+	if( (arg == null) && (backIter != null) ) {
+	  EmuUtil.closeSilently( iter );
+	  iter     = backIter;
+	  backIter = null;
+	  arg      = iter.next();
+	}
+      }
+      if( helpFlag ) {
+	Main.printlnOut();
+	Main.printlnOut( Main.APPINFO + " ohne Fenster" );
+	for( String s : usageLines ) {
+	  Main.printlnOut( s );
+	}
+	status = true;
+      } else {
+
+	// Einstellungen zusammenstellen
+	Properties  allProps = new Properties();
+	EmuSnapshot snapshot = null;
+	if( snapshotIn != null ) {
+	  if( (profileName != null) || (sysName != null) ) {
+	    throw new IOException(
+			"Optionen -p und -s nicht zusammen mit -z erlaubt" );
+	  }
+	  snapshot = EmuSnapshot.read( new File( snapshotIn ) );
+	  allProps.putAll( snapshot.getProperties() );
+	} else if( profileName != null ) {
+	  allProps.putAll( Main.loadProperties( new File( profileName ) ) );
+	}
+	allProps.putAll( props );
+	if( sysName != null ) {
+	  allProps.setProperty( EmuThread.PROP_SYSNAME, sysName );
+	}
+	if( EmuUtil.getProperty(
+			allProps,
+			EmuThread.PROP_SYSNAME ).isEmpty() )
+	{
+	  throw new IOException( "Emuliertes System nicht angegeben" );
+	}
+	if( startFlag && (loadFileName == null) ) {
+	  throw new IOException( "Option -r ohne zu ladende Datei" );
+	}
+	LoadData loadData = null;
+	if( loadFileName != null ) {
+	  loadData = FileInfo.createLoadData( new File( loadFileName ) );
+	  if( loadData == null ) {
+	    throw new IOException( loadFileName + ": Datei ist leer" );
+	  }
+	  if( startFlag && (startAddr < 0) ) {
+	    startAddr = loadData.getStartAddr();
+	    if( startAddr < 0 ) {
+	      throw new IOException(
+			loadFileName + ": Datei hat keine Startadresse" );
+	    }
+	  }
+	}
+	Main.setProfile( null, allProps );
+
+	// Emulation
+	CmdLineEmuRunner runner = new CmdLineEmuRunner(
+						allProps,
+						breakAddr,
+						screenText );
+	if( snapshot != null ) {
+	  snapshot.loadInto( runner.emuThread );
+	  if( bootTStates < 0 ) {
+	    bootTStates = 0;
+	  }
+	}
+	status = runner.run( bootTStates, loadData, startAddr, maxTStates );
+	if( snapshotOut != null ) {
+	  EmuSnapshot.save(
+			runner.emuThread,
+			allProps,
+			new File( snapshotOut ) );
+	}
+	if( screenFlag ) {
+	  String text = runner.emuSys.getScreenText();
+	  if( text != null ) {
+	    Main.printlnOut( text );
+	  }
+	}
+	for( int[] range : memRanges ) {
+	  Main.printOut( createHexDump( runner.cpu, range[ 0 ], range[ 1 ] ) );
+	}
+	runner.emuSys.die();
+      }
+    }
+    catch( IOException ex ) {
+      Main.printlnErr();
+      Main.printlnErr( Main.APPINFO + " ohne Fenster:" );
+      String msg = ex.getMessage();
+      if( msg != null ) {
+	if( !msg.isEmpty() ) {
+	  Main.printlnErr( msg );
+	}
+      }
+      for( String s : usageLines ) {
+	Main.printlnErr( s );
+      }
+      status = false;
+    }
+    finally {
+      EmuUtil.closeSilently( iter );
+    }
+    return status;
+  }
+
+
+	/* --- Z80DeadlineListener --- */
+
+  /*
+   * Nur die Haltadresse muss nach jedem Befehl geprueft werden,
+   * die anderen Haltebedingungen haengen von der Anzahl
+   * der verarbeiteten Taktzyklen ab.
+   */
+  @Override
+  public int z80TStatesToDeadline( Z80CPU cpu )
+  {
+    long rv = this.tStatesLimit - this.tStatesProcessed;
+    if( this.conditionsEnabled ) {
+      if( this.breakAddr >= 0 ) {
+	rv = 1;
+      } else if( this.screenText != null ) {
+	rv = Math.min(
+		rv,
+		this.tStatesScreenCheckNext - this.tStatesProcessed );
+      }
+    }
+    return (int) Math.max( Math.min( rv, Integer.MAX_VALUE ), 1 );
+  }
+
+
+	/* --- Z80TStatesListener --- */
+
+  @Override
+  public void z80TStatesProcessed( Z80CPU cpu, int tStates )
+  {
+    this.tStatesProcessed += tStates;
+    if( this.tStatesProcessed >= this.tStatesLimit ) {
+      cpu.fireExit();
+    }
+    if( this.conditionsEnabled ) {
+      if( (this.breakAddr >= 0) && (cpu.getRegPC() == this.breakAddr) ) {
+	this.conditionMatched = true;
+	cpu.fireExit();
+      }
+      if( (this.screenText != null)
+	  && (this.tStatesProcessed >= this.tStatesScreenCheckNext) )
+      {
+	this.tStatesScreenCheckNext = this.tStatesProcessed
+					+ this.tStatesScreenCheck;
+	String text = this.emuSys.getScreenText();
+	if( text != null ) {
+	  if( text.contains( this.screenText ) ) {
+	    this.conditionMatched = true;
+	    cpu.fireExit();
+	  }
+	}
+      }
+    }
+  }
+
+
+	/* --- private Methoden --- */
+
+  private static String createHexDump( Z80CPU cpu, int begAddr, int endAddr )
+  {
+    StringBuilder buf  = new StringBuilder( 0x4000 );
+    int           addr = begAddr;
+    while( addr <= endAddr ) {
+      buf.append( String.format( "%04X ", addr ) );
+      int n = Math.min( endAddr - addr + 1, 16 );
+      for( int i = 0; i < 16; i++ ) {
+	if( i < n ) {
+	  buf.append( String.format(
+				" %02X",
+				cpu.getMemByte( addr + i, false ) ) );
+	} else {
+	  buf.append( "   " );
+	}
+      }
+      buf.append( "  " );
+      for( int i = 0; i < n; i++ ) {
+	int b = cpu.getMemByte( addr + i, false );
+	buf.append( (b >= 0x20) && (b < 0x7F) ? (char) b : '.' );
+      }
+      buf.append( '\n' );
+      addr += 16;
+    }
+    return buf.toString();
+  }
+
+
+  static String nextArg( CmdLineArgIterator iter )
+							throws IOException
+  {
+    String rv = iter.next();
+    if( rv == null ) {
+      throwWrongCmdLine();
+    }
+    return rv;
+  }
+
+
+  private static int parseAddr( String text ) throws IOException
+  {
+    int rv = -1;
+    try {
+      rv = Integer.parseInt( text, 16 );
+    }
+    catch( NumberFormatException ex ) {}
+    if( (rv < 0) || (rv > 0xFFFF) ) {
+      throw new IOException( text + ": Ung\u00FCltige Adresse" );
+    }
+    return rv;
+  }
+
+
+  private static int[] parseMemRange( String text ) throws IOException
+  {
+    int pos = text.indexOf( '-' );
+    if( pos < 0 ) {
+      throw new IOException(
+		text + ": Speicherbereich muss die Form Von-Bis haben" );
+    }
+    int begAddr = parseAddr( text.substring( 0, pos ) );
+    int endAddr = parseAddr( text.substring( pos + 1 ) );
+    if( endAddr < begAddr ) {
+      throw new IOException( text + ": Ung\u00FCltiger Speicherbereich" );
+    }
+    return new int[] { begAddr, endAddr };
+  }
+
+
+  private static long parseTStates( String text ) throws IOException
+  {
+    long rv = -1;
+    try {
+      rv = Long.parseLong( text );
+    }
+    catch( NumberFormatException ex ) {}
+    if( rv < 0 ) {
+      throw new IOException( text + ": Ung\u00FCltige Anzahl Taktzyklen" );
+    }
+    return rv;
+  }
+
+
+  /*
+   * Rueckgabewert:
+   *   true:  Haltebedingung erreicht
+   *          bzw. keine Haltebedingung angegeben
+   *   false: Haltebedingung nicht erreicht
+   */
+  private boolean run(
+		long     bootTStates,
+		LoadData loadData,
+		int      startAddr,
+		long     maxTStates )
+  {
+    this.cpu.addTStatesListener( this );
+    try {
+      // Betriebssystem initialisieren lassen
+      if( bootTStates < 0 ) {
+	bootTStates = (long) this.cpu.getMaxSpeedKHz() * DEFAULT_BOOT_MILLIS;
+      }
+      if( (loadData != null) || (startAddr >= 0) ) {
+	if( bootTStates > 0 ) {
+	  runCPU( bootTStates );
+	}
+	if( loadData != null ) {
+	  loadData.loadIntoMemory( this.emuThread, null );
+	}
+	if( startAddr >= 0 ) {
+	  this.cpu.setRegPC( startAddr );
+	  int spInitValue = this.emuSys.getAppStartStackInitValue();
+	  if( spInitValue > 0 ) {
+	    this.cpu.setRegSP( spInitValue );
+	  }
+	}
+      }
+
+      // eigentliche Emulation mit Haltebedingungen
+      this.conditionsEnabled      = true;
+      this.conditionMatched       = false;
+      this.tStatesScreenCheckNext = 0;
+      runCPU( maxTStates );
+    }
+    finally {
+      this.cpu.removeTStatesListener( this );
+    }
+    return this.conditionMatched
+		|| ((this.breakAddr < 0) && (this.screenText == null));
+  }
+
+
+  private void runCPU( long tStates )
+  {
+    this.tStatesProcessed = 0;
+    this.tStatesLimit     = tStates;
+    this.cpu.run();
+  }
+
+
+  static void throwWrongCmdLine() throws IOException
+  {
+    throw new IOException( "Kommandozeile fehlerhaft" );
+  }
+}
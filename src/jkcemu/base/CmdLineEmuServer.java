@@ -0,0 +1,655 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Kleincomputer-Emulator
+ *
+ * Mehrere Emulationen ohne Fenster in einem Prozess
+ *
+ * Eine Instanz besteht nur aus EmuThread (ohne gestarteten Thread),
+ * EmuSys und Z80CPU, d.h. ohne Emulatorfenster und ohne Audioausgabe.
+ * Die mitgelieferten ROM-Inhalte halten die Systemklassen statisch,
+ * sodass sie von allen Instanzen gemeinsam genutzt werden.
+ *
+ * Die CPU-Emulationen laufen in einem Thread-Pool fester Groesse.
+ * Eine Instanz emuliert pro Aufruf eine Zeitscheibe und wird danach
+ * fuer den Zeitpunkt neu eingeplant, an dem die emulierte Zeit
+ * in Echtzeit erreicht ist. Ohne Geschwindigkeitsbremse wird sie
+ * sofort wieder eingereiht, sodass sich die Instanzen
+ * die Threads reihum teilen.
+ *
+ * Kommandos ueber die Standardeingabe werden in die Warteschlange
+ * der betreffenden Instanz eingereiht und von dem Thread,
+ * der die Instanz gerade emuliert, zwischen zwei Zeitscheiben
+ * ausgefuehrt.
+ */
+
+package jkcemu.base;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import jkcemu.Main;
+import jkcemu.programming.CmdLineArgIterator;
+import z80emu.Z80CPU;
+import z80emu.Z80DeadlineListener;
+
+
+public class CmdLineEmuServer
+{
+  private static final String[] usageLines = {
+	"",
+	"Aufruf:",
+	"  java -jar jkcemu.jar --srv [Optionen]",
+	"  java -jar jkcemu.jar --server [Optionen]",
+	"",
+	"Optionen:",
+	"  -h                   diese Hilfe anzeigen",
+	"  -f <Datei>           Kommandozeile aus Datei lesen",
+	"  -n <Anzahl>          Anzahl der Instanzen f\u00FCr die folgenden"
+							+ " Optionen",
+	"                       -p, -s und -z (Standard: 1)",
+	"  -p <Datei>           Instanzen mit Einstellungen"
+						+ " aus Profildatei anlegen",
+	"  -s <System>          Instanzen des emulierten Systems anlegen",
+	"                       (z.B. KC85_4, Z1013.64, KC87)",
+	"  -z <Datei>           Instanzen aus Emulatorzustand anlegen",
+	"  -D <Name=Wert>       Einstellung f\u00FCr die folgenden"
+							+ " Instanzen setzen",
+	"  -j <Anzahl>          Anzahl der Threads f\u00FCr die"
+						+ " CPU-Emulationen",
+	"                       (Standard: Anzahl der Prozessorkerne)",
+	"  -u                   ohne Geschwindigkeitsbremse emulieren",
+	"  -t <Sekunden>        nach der angegebenen emulierten Zeit"
+							+ " beenden",
+	"  -Z <Verzeichnis>     Emulatorzust\u00E4nde am Ende"
+						+ " im Verzeichnis speichern",
+	"",
+	"Kommandos \u00FCber die Standardeingabe:",
+	"  l                    Instanzen auflisten",
+	"  x <Nr>               Bildschirminhalt einer Instanz ausgeben",
+	"  r <Nr>               Instanz zur\u00FCcksetzen",
+	"  z <Nr> <Datei>       Emulatorzustand einer Instanz speichern",
+	"  q                    alle Instanzen beenden",
+	"" };
+
+  private static final int  SLICE_MILLIS  = 20;
+  private static final long MAX_LAG_NANOS = 200000000L;
+
+  private List<Instance>              instances;
+  private ScheduledThreadPoolExecutor executor;
+  private CountDownLatch              doneLatch;
+  private boolean                     speedLimited;
+  private long                        maxMillis;
+  private volatile boolean            running;
+
+
+  private CmdLineEmuServer(
+			int     nThreads,
+			boolean speedLimited,
+			long    maxMillis )
+  {
+    this.instances    = new ArrayList<>();
+    this.speedLimited = speedLimited;
+    this.maxMillis    = maxMillis;
+    this.running      = true;
+    this.doneLatch    = null;
+    this.executor     = new ScheduledThreadPoolExecutor(
+		nThreads,
+		new ThreadFactory()
+		{
+		  private AtomicInteger threadNum = new AtomicInteger();
+
+		  @Override
+		  public Thread newThread( Runnable r )
+		  {
+		    return new Thread(
+				Main.getThreadGroup(),
+				r,
+				"JKCEMU server CPU "
+					+ this.threadNum.incrementAndGet() );
+		  }
+		} );
+  }
+
+
+  public static boolean execute( String[] args, int argIdx )
+  {
+    boolean             status      = false;
+    boolean             helpFlag    = false;
+    boolean             unlimited   = false;
+    int                 nInstances  = 1;
+    int                 nThreads    = Runtime.getRuntime()
+						.availableProcessors();
+    long                maxMillis   = 0;
+    String              snapshotDir = null;
+    Properties          props       = new Properties();
+    List<InstanceGroup> groups      = new ArrayList<>();
+
+    // AWT darf nicht initialisiert werden
+    System.setProperty( "java.awt.headless", "true" );
+
+    CmdLineArgIterator backIter = null;
+    CmdLineArgIterator iter     = CmdLineArgIterator.createFromStringArray(
+								args,
+								argIdx );
+    try {
+      String arg = iter.next();
+      while( arg != null ) {
+	if( !arg.isEmpty() ) {
+	  if( (arg.length() == 2) && (arg.charAt( 0 ) == '-') ) {
+	    switch( arg.charAt( 1 ) ) {
+	      case 'f':
+		{
+		  if( backIter != null ) {
+		    throw new IOException(
+			"Option -f in der Datei nicht erlaubt" );
+		  }
+		  String fileName = CmdLineEmuRunner.nextArg( iter );
+		  backIter = iter;
+		  iter     = CmdLineArgIterator.createFromReader(
+					new FileReader( fileName ) );
+		}
+		break;
+	      case 'h':
+	      case 'H':
+		helpFlag = true;
+		break;
+	      case 'n':
+		nInstances = parseCount( CmdLineEmuRunner.nextArg( iter ) );
+		break;
+	      case 'p':
+	      case 's':
+	      case 'z':
+		groups.add( new InstanceGroup(
+				arg.charAt( 1 ),
+				CmdLineEmuRunner.nextArg( iter ),
+				nInstances,
+				props ) );
+		break;
+	      case 'D':
+		{
+		  String text = CmdLineEmuRunner.nextArg( iter );
+		  int    pos  = text.indexOf( '=' );
+		  if( pos < 1 ) {
+		    throw new IOException(
+			"Einstellung muss die Form Name=Wert haben" );
+		  }
+		  props.setProperty(
+				text.substring( 0, pos ),
+				text.substring( pos + 1 ) );
+		}
+		break;
+	      case 'j':
+		nThreads = parseCount( CmdLineEmuRunner.nextArg( iter ) );
+		break;
+	      case 'u':
+		unlimited = true;
+		break;
+	      case 't':
+		maxMillis = 1000L * parseCount(
+					CmdLineEmuRunner.nextArg( iter ) );
+		break;
+	      case 'Z':
+		snapshotDir = CmdLineEmuRunner.nextArg( iter );
+		break;
+	      default:
+		throw new IOException( "Unbekannte Option \'" + arg + "\'" );
+	    }
+	  } else {
+	    CmdLineEmuRunner.throwWrongCmdLine();
+	  }
+	}
+	arg = iter.next();
+	if( (arg == null) && (backIter != null) ) {
+	  EmuUtil.closeSilently( iter );
+	  iter     = backIter;
+	  backIter = null;
+	  arg      = iter.next();
+	}
+      }
+      if( helpFlag ) {
+	Main.printlnOut();
+	Main.printlnOut( Main.APPINFO + " Server ohne Fenster" );
+	for( String s : usageLines ) {
+	  Main.printlnOut( s );
+	}
+	status = true;
+      } else {
+	if( groups.isEmpty() ) {
+	  throw new IOException( "Keine Instanzen angegeben" );
+	}
+	File dirFile = null;
+	if( snapshotDir != null ) {
+	  dirFile = new File( snapshotDir );
+	  if( !dirFile.isDirectory() ) {
+	    throw new IOException(
+			snapshotDir + ": Verzeichnis nicht gefunden" );
+	  }
+	}
+
+	/*
+	 * Instanzen anlegen
+	 *
+	 * Einige Systemklassen lesen beim Anlegen die globalen
+	 * Einstellungen, weshalb diese vorher jeweils
+	 * auf die der Instanz gesetzt werden.
+	 */
+	CmdLineEmuServer server = new CmdLineEmuServer(
+						nThreads,
+						!unlimited,
+						maxMillis );
+	for( InstanceGroup group : groups ) {
+	  Properties  allProps = new Properties();
+	  EmuSnapshot snapshot = null;
+	  if( group.type == 'z' ) {
+	    snapshot = EmuSnapshot.read( new File( group.name ) );
+	    allProps.putAll( snapshot.getProperties() );
+	  } else if( group.type == 'p' ) {
+	    allProps.putAll( Main.loadProperties( new File( group.name ) ) );
+	  }
+	  allProps.putAll( group.props );
+	  if( group.type == 's' ) {
+	    allProps.setProperty( EmuThread.PROP_SYSNAME, group.name );
+	  }
+	  if( EmuUtil.getProperty(
+			allProps,
+			EmuThread.PROP_SYSNAME ).isEmpty() )
+	  {
+	    throw new IOException(
+			group.name + ": Emuliertes System nicht angegeben" );
+	  }
+	  for( int i = 0; i < group.count; i++ ) {
+	    Main.setProfile( null, allProps );
+	    Instance instance = server.addInstance( allProps );
+	    if( snapshot != null ) {
+	      snapshot.loadInto( instance.emuThread );
+	    }
+	  }
+	}
+
+	// Emulation
+	server.run();
+	if( dirFile != null ) {
+	  for( Instance instance : server.instances ) {
+	    EmuSnapshot.save(
+			instance.emuThread,
+			instance.props,
+			new File(
+				dirFile,
+				String.format(
+					"instance%d.jks",
+					instance.number ) ) );
+	  }
+	}
+	for( Instance instance : server.instances ) {
+	  instance.emuSys.die();
+	}
+	status = true;
+      }
+    }
+    catch( IOException ex ) {
+      Main.printlnErr();
+      Main.printlnErr( Main.APPINFO + " Server ohne Fenster:" );
+      String msg = ex.getMessage();
+      if( msg != null ) {
+	if( !msg.isEmpty() ) {
+	  Main.printlnErr( msg );
+	}
+      }
+      for( String s : usageLines ) {
+	Main.printlnErr( s );
+      }
+      status = false;
+    }
+    finally {
+      EmuUtil.closeSilently( iter );
+    }
+    return status;
+  }
+
+
+	/* --- private Methoden --- */
+
+  private Instance addInstance( Properties props )
+  {
+    Instance instance = new Instance( this.instances.size() + 1, props );
+    this.instances.add( instance );
+    return instance;
+  }
+
+
+  private void execCommand( String line )
+  {
+    String[] items = line.trim().split( "\\s+" );
+    if( !items[ 0 ].isEmpty() ) {
+      String   cmd      = items[ 0 ];
+      Instance instance = null;
+      if( (cmd.equals( "x" ) || cmd.equals( "r" ) || cmd.equals( "z" ))
+	  && (items.length > 1) )
+      {
+	try {
+	  int idx = Integer.parseInt( items[ 1 ] ) - 1;
+	  if( (idx >= 0) && (idx < this.instances.size()) ) {
+	    instance = this.instances.get( idx );
+	  }
+	}
+	catch( NumberFormatException ex ) {}
+	if( instance == null ) {
+	  Main.printlnErr( items[ 1 ] + ": Instanz nicht vorhanden" );
+	  cmd = "";
+	}
+      }
+      if( cmd.equals( "l" ) ) {
+	for( Instance item : this.instances ) {
+	  Main.printlnOut( String.format(
+				"%3d  %-24s %10d s",
+				item.number,
+				item.emuSys.getTitle(),
+				item.tStatesTotal
+					/ ((long) item.speedKHz * 1000L) ) );
+	}
+      } else if( cmd.equals( "q" ) ) {
+	fireStop();
+      } else if( (instance != null) && cmd.equals( "x" ) ) {
+	final Instance instance1 = instance;
+	instance.cmdQueue.add(
+		new Runnable()
+		{
+		  @Override
+		  public void run()
+		  {
+		    String text = instance1.emuSys.getScreenText();
+		    if( text != null ) {
+		      Main.printlnOut( text );
+		    }
+		  }
+		} );
+      } else if( (instance != null) && cmd.equals( "r" ) ) {
+	final Instance instance1 = instance;
+	instance.cmdQueue.add(
+		new Runnable()
+		{
+		  @Override
+		  public void run()
+		  {
+		    instance1.reset( false );
+		  }
+		} );
+      } else if( (instance != null) && cmd.equals( "z" )
+		 && (items.length > 2) )
+      {
+	final Instance instance1 = instance;
+	final File     file      = new File( items[ 2 ] );
+	instance.cmdQueue.add(
+		new Runnable()
+		{
+		  @Override
+		  public void run()
+		  {
+		    try {
+		      EmuSnapshot.save(
+				instance1.emuThread,
+				instance1.props,
+				file );
+		    }
+		    catch( IOException ex ) {
+		      Main.printlnErr( file.getPath() + ": "
+						+ ex.getMessage() );
+		    }
+		  }
+		} );
+      } else if( !cmd.isEmpty() ) {
+	Main.printlnErr( cmd + ": Unbekanntes Kommando" );
+      }
+    }
+  }
+
+
+  private void fireStop()
+  {
+    this.running = false;
+  }
+
+
+  private static int parseCount( String text ) throws IOException
+  {
+    int rv = -1;
+    try {
+      rv = Integer.parseInt( text );
+    }
+    catch( NumberFormatException ex ) {}
+    if( rv < 1 ) {
+      throw new IOException( text + ": Ung\u00FCltige Anzahl" );
+    }
+    return rv;
+  }
+
+
+  /*
+   * Einplanen der Instanzen und Warten, bis alle beendet sind
+   *
+   * Die Standardeingabe wird in einem eigenen Thread gelesen,
+   * damit das Ende der emulierten Zeit auch ohne Eingabe
+   * erkannt wird.
+   */
+  private void run()
+  {
+    this.doneLatch = new CountDownLatch( this.instances.size() );
+    for( Instance instance : this.instances ) {
+      instance.begNanos = System.nanoTime();
+      this.executor.execute( instance );
+    }
+    Thread consoleThread = new Thread(
+				Main.getThreadGroup(),
+				"JKCEMU server console" )
+	{
+	  @Override
+	  public void run()
+	  {
+	    try {
+	      BufferedReader in = new BufferedReader(
+				new InputStreamReader( System.in ) );
+	      String line = in.readLine();
+	      while( running && (line != null) ) {
+		execCommand( line );
+		line = in.readLine();
+	      }
+	    }
+	    catch( IOException ex ) {}
+	  }
+	};
+    consoleThread.setDaemon( true );
+    consoleThread.start();
+    try {
+      this.doneLatch.await();
+    }
+    catch( InterruptedException ex ) {
+      fireStop();
+    }
+    this.executor.shutdown();
+    try {
+      this.executor.awaitTermination( 1, TimeUnit.SECONDS );
+    }
+    catch( InterruptedException ex ) {}
+  }
+
+
+  /*
+   * Erneutes Einplanen einer Instanz nach einer Zeitscheibe
+   *
+   * Der Zeitpunkt ergibt sich absolut aus dem Beginn der Emulation
+   * und der bis dahin emulierten Zeit, sodass sich Abweichungen
+   * nicht aufsummieren. Hinkt die Instanz zu weit hinterher,
+   * wird der Rueckstand verworfen.
+   */
+  private void schedule( Instance instance )
+  {
+    if( this.speedLimited ) {
+      long dueNanos = instance.begNanos
+			+ ((instance.tStatesTotal - instance.begTStates)
+					* 1000000L / instance.speedKHz);
+      long delay    = dueNanos - System.nanoTime();
+      if( delay < -MAX_LAG_NANOS ) {
+	instance.begNanos   = System.nanoTime();
+	instance.begTStates = instance.tStatesTotal;
+	delay               = 0;
+      }
+      this.executor.schedule(
+			instance,
+			Math.max( delay, 0 ),
+			TimeUnit.NANOSECONDS );
+    } else {
+      this.executor.execute( instance );
+    }
+  }
+
+
+	/* --- innere Klassen --- */
+
+  private static class InstanceGroup
+  {
+    private char       type;
+    private String     name;
+    private int        count;
+    private Properties props;
+
+    private InstanceGroup(
+			char       type,
+			String     name,
+			int        count,
+			Properties props )
+    {
+      this.type  = type;
+      this.name  = name;
+      this.count = count;
+      this.props = new Properties();
+      this.props.putAll( props );
+    }
+  }
+
+
+  private class Instance implements Runnable, Z80DeadlineListener
+  {
+    private int                             number;
+    private Properties                      props;
+    private EmuThread                       emuThread;
+    private EmuSys                          emuSys;
+    private Z80CPU                          cpu;
+    private int                             speedKHz;
+    private long                            tStatesLimit;
+    private long                            tStatesProcessed;
+    private long                            begTStates;
+    private long                            begNanos;
+    private volatile long                   tStatesTotal;
+    private ConcurrentLinkedQueue<Runnable> cmdQueue;
+
+
+    private Instance( int number, Properties props )
+    {
+      this.number           = number;
+      this.props            = props;
+      this.emuThread        = new EmuThread( null, props );
+      this.emuSys           = this.emuThread.getEmuSys();
+      this.cpu              = this.emuThread.getZ80CPU();
+      this.speedKHz         = EmuThread.getDefaultSpeedKHz( props );
+      this.tStatesLimit     = 0;
+      this.tStatesProcessed = 0;
+      this.tStatesTotal     = 0;
+      this.begTStates       = 0;
+      this.begNanos         = 0;
+      this.cmdQueue         = new ConcurrentLinkedQueue<>();
+
+      this.emuSys.loadROMs( props );
+      this.cpu.setMaxSpeedKHz( this.speedKHz );
+      this.cpu.setBrakeEnabled( false );
+      this.cpu.addTStatesListener( this );
+      reset( true );
+    }
+
+
+    private void reset( boolean powerOn )
+    {
+      this.cpu.reset( powerOn );
+      this.emuSys.reset( powerOn, this.props );
+      this.cpu.setRegPC( this.emuSys.getResetStartAddress( powerOn ) );
+    }
+
+
+	/* --- Runnable --- */
+
+    /*
+     * Emulation einer Zeitscheibe im Thread-Pool
+     */
+    @Override
+    public void run()
+    {
+      boolean done = !running;
+      if( !done ) {
+	Runnable cmd = this.cmdQueue.poll();
+	while( cmd != null ) {
+	  cmd.run();
+	  cmd = this.cmdQueue.poll();
+	}
+	long tStates    = (long) this.speedKHz * SLICE_MILLIS;
+	long tStatesMax = maxMillis * this.speedKHz;
+	if( tStatesMax > 0 ) {
+	  tStates = Math.min( tStates, tStatesMax - this.tStatesTotal );
+	}
+	try {
+	  if( tStates > 0 ) {
+	    this.tStatesProcessed = 0;
+	    this.tStatesLimit     = tStates;
+	    this.cpu.run();
+	    this.tStatesTotal += this.tStatesProcessed;
+	  }
+	  done = ((tStatesMax > 0) && (this.tStatesTotal >= tStatesMax));
+	}
+	catch( RuntimeException ex ) {
+	  Main.printlnErr( String.format(
+				"Instanz %d: %s",
+				this.number,
+				ex.toString() ) );
+	  done = true;
+	}
+      }
+      if( done || !running ) {
+	doneLatch.countDown();
+      } else {
+	schedule( this );
+      }
+    }
+
+
+	/* --- Z80DeadlineListener --- */
+
+    @Override
+    public int z80TStatesToDeadline( Z80CPU cpu )
+    {
+      long rv = this.tStatesLimit - this.tStatesProcessed;
+      return (int) Math.max( Math.min( rv, Integer.MAX_VALUE ), 1 );
+    }
+
+
+	/* --- Z80TStatesListener --- */
+
+    @Override
+    public void z80TStatesProcessed( Z80CPU cpu, int tStates )
+    {
+      this.tStatesProcessed += tStates;
+      if( this.tStatesProcessed >= this.tStatesLimit ) {
+	cpu.fireExit();
+      }
+    }
+  }
+}
@@ -0,0 +1,239 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Kleincomputer-Emulator
+ *
+ * Speichern und Laden des Emulatorzustandes
+ *
+ * Eine Snapshot-Datei beginnt mit einer Kennung und einer Versionsnummer.
+ * Danach folgen GZIP-komprimiert die Einstellungen des emulierten Systems,
+ * der CPU-Zustand, der von EmuThread verwaltete Arbeitsspeicher
+ * sowie der vom emulierten System selbst geschriebene Zustand
+ * (Speicherbaenke, Peripherie, Bildschirm).
+ * Der Inhalt von Diskettenabbilddateien und RAM-Floppies
+ * ist nicht enthalten.
+ *
+ * Ein Snapshot kann nur in ein emuliertes System geladen werden,
+ * das die gleiche Konfiguration hat wie das System beim Speichern.
+ * Die Methoden loadInto(...) und save(...) muessen
+ * bei angehaltener CPU-Emulation aufgerufen werden.
+ */
+
+package jkcemu.base;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+
+public class EmuSnapshot
+{
+  private static final String MAGIC   = "JKCEMU-SNAPSHOT";
+  private static final int    VERSION = 1;
+
+  private static final String ERR_MSG_FORMAT =
+		"Die Datei ist keine JKCEMU-Snapshot-Datei\n"
+			+ "oder sie wurde mit einer anderen Version"
+			+ " gespeichert.";
+
+  private File       file;
+  private Properties props;
+  private byte[]     stateBytes;
+
+
+  /*
+   * Die Methode prueft, ob der Snapshot in das uebergebene
+   * emulierte System geladen werden kann.
+   * Wenn nicht, wird eine IOException mit entsprechender
+   * Fehlermeldung geworfen.
+   */
+  public void checkApplicable( EmuSys emuSys ) throws IOException
+  {
+    emuSys.checkSnapshotSupported();
+    if( !emuSys.canApplySettings( this.props ) ) {
+      throw new IOException(
+		"Der Emulatorzustand wurde f\u00FCr ein anderes System"
+			+ " oder eine andere\n"
+			+ "Systemkonfiguration gespeichert."
+			+ " Bitte stellen Sie zuerst\n"
+			+ "die Einstellungen des gespeicherten"
+			+ " Systems wieder her." );
+    }
+  }
+
+
+  public File getFile()
+  {
+    return this.file;
+  }
+
+
+  /*
+   * Rueckgabewert:
+   *   Einstellungen des emulierten Systems zum Zeitpunkt
+   *   des Speicherns
+   */
+  public Properties getProperties()
+  {
+    return this.props;
+  }
+
+
+  /*
+   * Laden des Snapshots in das aktuell emulierte System
+   *
+   * Wird eine Exception geworfen, nachdem bereits Daten uebernommen
+   * wurden, ist der Zustand des emulierten Systems undefiniert
+   * und es muss ein RESET ausgeloest werden.
+   */
+  public void loadInto( EmuThread emuThread ) throws IOException
+  {
+    EmuSys emuSys = emuThread.getEmuSys();
+    checkApplicable( emuSys );
+
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(
+			new ByteArrayInputStream( this.stateBytes ) );
+      emuThread.getZ80CPU().loadState( in );
+      in.readFully( emuThread.getRAM() );
+      emuSys.loadSnapshot( in );
+      if( in.read() != -1 ) {
+	throw new IOException( ERR_MSG_FORMAT );
+      }
+    }
+    finally {
+      EmuUtil.closeSilently( in );
+    }
+    emuThread.getZ80CPU().updMemPages();
+  }
+
+
+  public static EmuSnapshot read( File file ) throws IOException
+  {
+    EmuSnapshot rv = new EmuSnapshot( file );
+    InputStream in = null;
+    try {
+      in = new BufferedInputStream( new FileInputStream( file ) );
+      for( int i = 0; i < MAGIC.length(); i++ ) {
+	if( in.read() != MAGIC.charAt( i ) ) {
+	  throw new IOException( ERR_MSG_FORMAT );
+	}
+      }
+      if( in.read() != VERSION ) {
+	throw new IOException( ERR_MSG_FORMAT );
+      }
+      DataInputStream dataIn = new DataInputStream(
+						new GZIPInputStream( in ) );
+      in = dataIn;
+
+      int n = dataIn.readInt();
+      if( n < 0 ) {
+	throw new IOException( ERR_MSG_FORMAT );
+      }
+      for( int i = 0; i < n; i++ ) {
+	String key   = dataIn.readUTF();
+	String value = dataIn.readUTF();
+	rv.props.setProperty( key, value );
+      }
+      if( EmuUtil.getProperty(
+			rv.props,
+			EmuThread.PROP_SYSNAME ).isEmpty() )
+      {
+	throw new IOException( ERR_MSG_FORMAT );
+      }
+      ByteArrayOutputStream buf    = new ByteArrayOutputStream( 0x20000 );
+      byte[]                buffer = new byte[ 0x1000 ];
+      int                   len    = dataIn.read( buffer );
+      while( len > 0 ) {
+	buf.write( buffer, 0, len );
+	len = dataIn.read( buffer );
+      }
+      rv.stateBytes = buf.toByteArray();
+    }
+    finally {
+      EmuUtil.closeSilently( in );
+    }
+    return rv;
+  }
+
+
+  /*
+   * Speichern des aktuellen Emulatorzustandes
+   *
+   * Parameter:
+   *   props: Einstellungen, mit denen das emulierte System
+   *          angelegt wurde
+   */
+  public static void save(
+			EmuThread  emuThread,
+			Properties props,
+			File       file ) throws IOException
+  {
+    EmuSys emuSys = emuThread.getEmuSys();
+    emuSys.checkSnapshotSupported();
+
+    /*
+     * Zustand zuerst vollstaendig erzeugen,
+     * damit bei einem Fehler keine unvollstaendige Datei entsteht
+     */
+    ByteArrayOutputStream buf = new ByteArrayOutputStream( 0x20000 );
+    DataOutputStream stateOut = new DataOutputStream( buf );
+    emuThread.getZ80CPU().saveState( stateOut );
+    stateOut.write( emuThread.getRAM() );
+    emuSys.saveSnapshot( stateOut );
+    stateOut.flush();
+
+    Properties sysProps = new Properties();
+    for( String key : props.stringPropertyNames() ) {
+      if( key.startsWith( "jkcemu." ) ) {
+	sysProps.setProperty( key, props.getProperty( key ) );
+      }
+    }
+
+    OutputStream out = null;
+    try {
+      out = new BufferedOutputStream( new FileOutputStream( file ) );
+      for( int i = 0; i < MAGIC.length(); i++ ) {
+	out.write( MAGIC.charAt( i ) );
+      }
+      out.write( VERSION );
+      DataOutputStream dataOut = new DataOutputStream(
+					new GZIPOutputStream( out ) );
+      out = dataOut;
+      dataOut.writeInt( sysProps.size() );
+      for( String key : sysProps.stringPropertyNames() ) {
+	dataOut.writeUTF( key );
+	dataOut.writeUTF( sysProps.getProperty( key ) );
+      }
+      buf.writeTo( dataOut );
+      dataOut.close();
+      out = null;
+    }
+    finally {
+      EmuUtil.closeSilently( out );
+    }
+  }
+
+
+	/* --- Konstruktor --- */
+
+  private EmuSnapshot( File file )
+  {
+    this.file       = file;
+    this.props      = new Properties();
+    this.stateBytes = null;
+  }
+}
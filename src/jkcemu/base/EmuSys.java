@@ -12,7 +12,10 @@ import java.awt.EventQueue;
 import java.awt.Image;
 import java.awt.event.KeyEvent;
 import java.awt.image.ImageObserver;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
+import java.io.IOException;
 import java.text.CharacterIterator;
 import java.text.StringCharacterIterator;
 import java.util.Arrays;
@@ -153,13 +156,25 @@ public abstract class EmuSys
 
   protected void checkAndFireOpenSecondScreen()
   {
-    if( !this.secondScreenFired ) {
+    if( !this.secondScreenFired && (this.screenFrm != null) ) {
       this.screenFrm.fireOpenSecondScreen();
       this.secondScreenFired = true;
     }
   }
 
 
+  /*
+   * Die Methode wirft eine IOException mit entsprechender
+   * Fehlermeldung, wenn supportsSnapshot() false liefert.
+   */
+  public void checkSnapshotSupported() throws IOException
+  {
+    if( !supportsSnapshot() ) {
+      throwSnapshotNotSupported();
+    }
+  }
+
+
   public AbstractKeyboardFld<? extends EmuSys> createKeyboardFld()
 		throws UnsupportedOperationException, UserCancelException
   {
@@ -417,6 +432,20 @@ public abstract class EmuSys
   }
 
 
+  /*
+   * Die Methode prueft direkt das Emulatorfenster,
+   * da bei EmuSys-Objekten setScreenFrm(...) nicht aufgerufen wird.
+   * Ohne Emulatorfenster (z.B. bei Benchmarks)
+   * gibt es keinen Vollbildmodus.
+   */
+  @Override
+  protected boolean isFullScreenMode()
+  {
+    ScreenFrm screenFrm = this.screenFrm;
+    return screenFrm != null ? screenFrm.isFullScreenMode() : false;
+  }
+
+
   public boolean hasKCBasicInROM()
   {
     return false;
@@ -520,6 +549,20 @@ public abstract class EmuSys
   }
 
 
+  /*
+   * Laden des mit saveSnapshot(...) geschriebenen Systemzustandes
+   *
+   * Der Zustand der CPU und des von EmuThread verwalteten
+   * Arbeitsspeichers ist nicht enthalten.
+   * Die Methode wird nur im Emulations-Thread
+   * bei angehaltener CPU aufgerufen.
+   */
+  public void loadSnapshot( DataInput in ) throws IOException
+  {
+    throwSnapshotNotSupported();
+  }
+
+
   protected boolean pasteChar( char ch ) throws InterruptedException
   {
     boolean rv = false;
@@ -820,6 +863,12 @@ public abstract class EmuSys
   }
 
 
+  public void saveSnapshot( DataOutput out ) throws IOException
+  {
+    throwSnapshotNotSupported();
+  }
+
+
   public boolean setBasicMemByte( int addr, int value )
   {
     return setMemByte( addr, value );
@@ -924,6 +973,17 @@ public abstract class EmuSys
   }
 
 
+  /*
+   * Die Methode gibt an, ob der Zustand des emulierten Systems
+   * in seiner aktuellen Konfiguration mit saveSnapshot(...)
+   * gespeichert werden kann.
+   */
+  public boolean supportsSnapshot()
+  {
+    return false;
+  }
+
+
   public boolean supportsTapeIn()
   {
     return false;
@@ -1191,4 +1251,13 @@ public abstract class EmuSys
 	"Diese Funktion steht f\u00FCr das gerade emulierte System\n"
 		+ "nicht zur Verf\u00FCgung." );
   }
+
+
+  private void throwSnapshotNotSupported() throws IOException
+  {
+    throw new IOException(
+	"Das Speichern und Laden des Emulatorzustandes wird\n"
+		+ "f\u00FCr das gerade emulierte System in der aktuellen\n"
+		+ "Konfiguration nicht unterst\u00FCtzt." );
+  }
 }
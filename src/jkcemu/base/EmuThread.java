@@ -12,6 +12,8 @@ import java.awt.Component;
 import java.awt.EventQueue;
 import java.awt.Frame;
 import java.awt.event.KeyEvent;
+import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Properties;
 import java.util.TreeSet;
@@ -51,12 +53,12 @@ import jkcemu.print.PrintMngr;
 import jkcemu.text.TextUtil;
 import z80emu.Z80CPU;
 import z80emu.Z80IOSystem;
-import z80emu.Z80Memory;
+import z80emu.Z80PagedMemory;
 
 
 public class EmuThread extends Thread implements
 					Z80IOSystem,
-					Z80Memory,
+					Z80PagedMemory,
 					EmuMemView
 {
   public static final String PROP_SYSNAME = "jkcemu.system";
@@ -84,6 +86,8 @@ public class EmuThread extends Thread implements
   private RAMFloppy           ramFloppy2;
   private PrintMngr           printMngr;
   private volatile LoadData   loadData;
+  private EmuSnapshot         snapshotToLoad;
+  private File                snapshotFileToSave;
   private volatile boolean    powerOn;
   private volatile boolean    emuRunning;
   private volatile EmuSys     emuSys;
@@ -105,10 +109,14 @@ public class EmuThread extends Thread implements
     this.printMngr  = new PrintMngr();
     this.loadData   = null;
     this.powerOn    = true;
+
+    this.snapshotToLoad     = null;
+    this.snapshotFileToSave = null;
     this.emuRunning = false;
     this.emuSys     = createEmuSys( props );
     this.newProps   = null;
     Arrays.fill( this.joyThreads, null );
+    this.z80cpu.updMemPages();
   }
 
 
@@ -275,6 +283,17 @@ public class EmuThread extends Thread implements
   }
 
 
+  /*
+   * Die Methode liefert den Arbeitsspeicher direkt zurueck,
+   * damit ein emuliertes System ihn in eine Seitentabelle
+   * fuer den schnellen Speicherzugriff eintragen kann.
+   */
+  public byte[] getRAM()
+  {
+    return this.ram;
+  }
+
+
   public int getRAMByte( int addr )
   {
     return (int) this.ram[ addr & 0xFFFF ] & 0xFF;
@@ -433,12 +452,41 @@ public class EmuThread extends Thread implements
 
 	/* --- Empfang von Signalen aus einen anderen Thread --- */
 
+  /*
+   * Der Snapshot wird im Emulations-Thread geladen.
+   * Schlaegt das Laden fehl, wird ein RESET ausgeloest.
+   */
+  public void fireLoadSnapshot( EmuSnapshot snapshot )
+  {
+    this.screenFrm.clearScreenSelection();
+    this.emuSys.cancelPastingText();
+    synchronized( this.monitor ) {
+      this.snapshotToLoad = snapshot;
+      this.loadData       = null;
+    }
+    this.z80cpu.fireExit();
+  }
+
+
   public void fireReset( boolean powerOn )
   {
     fireReset( powerOn, null );
   }
 
 
+  /*
+   * Der Emulatorzustand wird im Emulations-Thread
+   * zwischen zwei Befehlen gespeichert.
+   */
+  public void fireSaveSnapshot( File file )
+  {
+    synchronized( this.monitor ) {
+      this.snapshotFileToSave = file;
+    }
+    this.z80cpu.fireExit();
+  }
+
+
   /*
    * Diese Methode laedt Daten in den Arbeitsspeicher und startet
    * diese bei Bedarf.
@@ -560,6 +608,48 @@ public class EmuThread extends Thread implements
   }
 
 
+	/* --- Z80PagedMemory --- */
+
+  @Override
+  public byte[][] getReadPages()
+  {
+    EmuSys emuSys = this.emuSys;
+    return emuSys instanceof Z80PagedMemory ?
+		((Z80PagedMemory) emuSys).getReadPages()
+		: null;
+  }
+
+
+  @Override
+  public int[] getReadPageOffs()
+  {
+    EmuSys emuSys = this.emuSys;
+    return emuSys instanceof Z80PagedMemory ?
+		((Z80PagedMemory) emuSys).getReadPageOffs()
+		: null;
+  }
+
+
+  @Override
+  public byte[][] getWritePages()
+  {
+    EmuSys emuSys = this.emuSys;
+    return emuSys instanceof Z80PagedMemory ?
+		((Z80PagedMemory) emuSys).getWritePages()
+		: null;
+  }
+
+
+  @Override
+  public int[] getWritePageOffs()
+  {
+    EmuSys emuSys = this.emuSys;
+    return emuSys instanceof Z80PagedMemory ?
+		((Z80PagedMemory) emuSys).getWritePageOffs()
+		: null;
+  }
+
+
 	/* --- ueberschriebene Methoden fuer Thread --- */
 
   @Override
@@ -579,18 +669,62 @@ public class EmuThread extends Thread implements
 	 * Pruefen, ob ein Programm geladen oder der Emulator
 	 * tatsaechlich zurueckgesetzt werden soll
 	 */
-	LoadData loadData = null;
-	boolean  powerOn  = false;
+	LoadData    loadData     = null;
+	EmuSnapshot snapshot     = null;
+	File        snapshotFile = null;
+	boolean     powerOn      = false;
 	synchronized( this.monitor ) {
-	  loadData = this.loadData;
-	  powerOn  = this.powerOn;
-	  if( loadData != null ) {
+	  snapshot     = this.snapshotToLoad;
+	  snapshotFile = this.snapshotFileToSave;
+	  loadData     = this.loadData;
+	  powerOn      = this.powerOn;
+	  this.snapshotToLoad     = null;
+	  this.snapshotFileToSave = null;
+	  if( (snapshot != null) || (snapshotFile != null) ) {
+	    loadData = null;
+	  } else if( loadData != null ) {
 	    this.loadData = null;
 	  } else {
 	    this.powerOn = false;
 	  }
 	}
-	if( loadData != null ) {
+	if( snapshotFile != null ) {
+
+	  // Emulatorzustand speichern, danach weiterlaufen
+	  try {
+	    EmuSnapshot.save( this, Main.getProperties(), snapshotFile );
+	    Main.setLastFile( snapshotFile, Main.FILE_GROUP_SNAPSHOT );
+	    this.screenFrm.fireShowStatusText(
+				"Emulatorzustand gespeichert" );
+	  }
+	  catch( IOException ex ) {
+	    EmuUtil.fireShowErrorDlg(
+			this.screenFrm,
+			"Der Emulatorzustand konnte nicht gespeichert werden.",
+			ex );
+	  }
+
+	} else if( snapshot != null ) {
+
+	  // Emulatorzustand laden
+	  try {
+	    snapshot.loadInto( this );
+	    Main.setLastFile( snapshot.getFile(), Main.FILE_GROUP_SNAPSHOT );
+	    fireCallResetFired( null, null );
+	    this.screenFrm.fireShowStatusText( "Emulatorzustand geladen" );
+	  }
+	  catch( IOException ex ) {
+	    EmuUtil.fireShowErrorDlg(
+			this.screenFrm,
+			"Der Emulatorzustand konnte nicht geladen werden.",
+			ex );
+	    synchronized( this.monitor ) {
+	      this.powerOn = true;
+	    }
+	    continue;
+	  }
+
+	} else if( loadData != null ) {
 
 	  // nur Daten laden
 	  loadData.loadIntoMemory( this, null );
@@ -614,6 +748,7 @@ public class EmuThread extends Thread implements
 	      this.emuSys.die();
 	      this.emuSys   = createEmuSys( props );
 	      emuSysChanged = true;
+	      this.z80cpu.updMemPages();
 	    } else {
 	      props = Main.getProperties();
 	    }
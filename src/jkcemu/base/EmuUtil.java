@@ -1213,44 +1213,17 @@ public class EmuUtil
   }
 
 
+  /*
+   * Die zurueckgelieferten Bytes werden ueber ROMCache
+   * gemeinsam genutzt und duerfen nicht veraendert werden.
+   */
   public static byte[] readResource( Component owner, String resource )
   {
-    ByteArrayOutputStream buf  = new ByteArrayOutputStream( 0x0800 );
-    boolean               done = false;
-    InputStream           is   = null;
-    InputStream           in   = null;
-    Exception             ex   = null;
-    try {
-      in = owner.getClass().getResourceAsStream( resource );
-      if( in != null ) {
-	if( resource.endsWith( ".gz" ) ) {
-	  is = in;
-	  in = new GZIPInputStream( in );
-	}
-	int b = in.read();
-	while( b != -1 ) {
-	  buf.write( b );
-	  b = in.read();
-	}
-	done = true;
-      }
-    }
-    catch( IOException ioEx ) {
-      ex = ioEx;
-    }
-    finally {
-      closeSilently( in );
-      closeSilently( is );
-    }
-    if( !done ) {
-      fireExitSysError(
-		owner,
-		String.format(
-			"Resource %s kann nicht geladen werden",
-			resource ),
-		ex );
+    byte[] rv = ROMCache.getResource( resource );
+    if( rv == null ) {
+      rv = readResourceBytes( owner, resource );
     }
-    return buf.toByteArray();
+    return rv;
   }
 
 
@@ -1573,6 +1546,54 @@ public class EmuUtil
   }
 
 
+  private static byte[] readResourceBytes(
+					Component owner,
+					String    resource )
+  {
+    byte[]                rv   = null;
+    ByteArrayOutputStream buf  = new ByteArrayOutputStream( 0x0800 );
+    boolean               done = false;
+    InputStream           is   = null;
+    InputStream           in   = null;
+    Exception             ex   = null;
+    try {
+      in = (owner != null ? owner.getClass() : EmuUtil.class)
+					.getResourceAsStream( resource );
+      if( in != null ) {
+	if( resource.endsWith( ".gz" ) ) {
+	  is = in;
+	  in = new GZIPInputStream( in );
+	}
+	int b = in.read();
+	while( b != -1 ) {
+	  buf.write( b );
+	  b = in.read();
+	}
+	done = true;
+      }
+    }
+    catch( IOException ioEx ) {
+      ex = ioEx;
+    }
+    finally {
+      closeSilently( in );
+      closeSilently( is );
+    }
+    if( done ) {
+      rv = ROMCache.putResource( resource, buf.toByteArray() );
+    } else {
+      fireExitSysError(
+		owner,
+		String.format(
+			"Resource %s kann nicht geladen werden",
+			resource ),
+		ex );
+      rv = buf.toByteArray();
+    }
+    return rv;
+  }
+
+
   private static void updComponentTreeUIInternal(
 					Component c,
 					boolean   updLAF,
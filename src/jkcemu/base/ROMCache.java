@@ -0,0 +1,200 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Kleincomputer-Emulator
+ *
+ * Gemeinsamer Zwischenspeicher fuer ROM-Inhalte und Zeichensaetze
+ *
+ * EmuUtil.readResource(...) und FileUtil.readFile(...)
+ * (Variante mit Fehlerdialog fuer ROM- und Zeichensatzdateien)
+ * legen die gelesenen Bytes hier ab, sodass ein erneutes Laden,
+ * z.B. beim Wechsel des emulierten Systems oder bei mehreren
+ * Instanzen in einem Prozess, ohne Dateizugriff auskommt.
+ * Dateien werden ueber Pfad, Aenderungszeitpunkt, Laenge
+ * und die Leseparameter identifiziert, sodass eine geaenderte
+ * Datei neu gelesen wird.
+ *
+ * Gleiche Inhalte unter verschiedenen Namen werden nur einmal
+ * gehalten. Dazu werden die Inhalte nach ihrem Hash-Wert
+ * in Listen einsortiert und darin byteweise verglichen,
+ * damit verschiedene Inhalte mit gleichem Hash-Wert
+ * sich nicht gegenseitig verdraengen.
+ * Da die Eintraege ueber SoftReferences referenziert werden,
+ * kann der Garbage Collector nicht mehr benutzte Inhalte
+ * bei Speicherknappheit freigeben.
+ *
+ * Die zurueckgelieferten Arrays werden von allen Nutzern
+ * gemeinsam verwendet und duerfen deshalb nicht veraendert werden.
+ */
+
+package jkcemu.base;
+
+import java.io.File;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+
+public class ROMCache
+{
+  private static Map<String,SoftReference<byte[]>>        nameMap
+							= new HashMap<>();
+  private static Map<Integer,List<SoftReference<byte[]>>> contentMap
+							= new HashMap<>();
+
+
+  public static byte[] getFile(
+			File    file,
+			boolean allowUncompress,
+			int     maxLen )
+  {
+    return get( createFileKey( file, allowUncompress, maxLen ) );
+  }
+
+
+  public static byte[] getResource( String resource )
+  {
+    return get( createResourceKey( resource ) );
+  }
+
+
+  /*
+   * Ablegen der aus einer Datei gelesenen Bytes
+   *
+   * Der Aenderungszeitpunkt der Datei muss derselbe sein
+   * wie beim Lesen.
+   *
+   * Rueckgabewert:
+   *   abgelegte Bytes, ggf. ein bereits vorhandenes Array
+   *   mit gleichem Inhalt
+   */
+  public static byte[] putFile(
+			File    file,
+			boolean allowUncompress,
+			int     maxLen,
+			byte[]  data )
+  {
+    return put( createFileKey( file, allowUncompress, maxLen ), data );
+  }
+
+
+  public static byte[] putResource( String resource, byte[] data )
+  {
+    return put( createResourceKey( resource ), data );
+  }
+
+
+	/* --- private Methoden --- */
+
+  private static String createFileKey(
+			File    file,
+			boolean allowUncompress,
+			int     maxLen )
+  {
+    return String.format(
+		"file:%s:%d:%d:%d:%b",
+		file.getAbsolutePath(),
+		file.lastModified(),
+		file.length(),
+		maxLen,
+		allowUncompress );
+  }
+
+
+  private static String createResourceKey( String resource )
+  {
+    return "resource:" + resource;
+  }
+
+
+  private static synchronized byte[] get( String key )
+  {
+    byte[]                rv  = null;
+    SoftReference<byte[]> ref = nameMap.get( key );
+    if( ref != null ) {
+      rv = ref.get();
+      if( rv == null ) {
+	nameMap.remove( key );
+      }
+    }
+    return rv;
+  }
+
+
+  private static synchronized byte[] put( String key, byte[] data )
+  {
+    byte[] rv = data;
+    if( data != null ) {
+      Integer                     hash    = Arrays.hashCode( data );
+      List<SoftReference<byte[]>> bucket  = contentMap.get( hash );
+      byte[]                      present = null;
+      if( bucket != null ) {
+	for( SoftReference<byte[]> ref : bucket ) {
+	  byte[] tmpData = ref.get();
+	  if( (tmpData != null) && Arrays.equals( tmpData, data ) ) {
+	    present = tmpData;
+	    break;
+	  }
+	}
+      }
+      if( present != null ) {
+	rv = present;
+      } else {
+	removeClearedContents();
+	bucket = contentMap.get( hash );
+	if( bucket == null ) {
+	  bucket = new ArrayList<>( 1 );
+	  contentMap.put( hash, bucket );
+	}
+	bucket.add( new SoftReference<>( data ) );
+      }
+      removeClearedEntries( nameMap );
+      nameMap.put( key, new SoftReference<>( rv ) );
+    }
+    return rv;
+  }
+
+
+  private static void removeClearedContents()
+  {
+    Iterator<List<SoftReference<byte[]>>> iter
+				= contentMap.values().iterator();
+    while( iter.hasNext() ) {
+      List<SoftReference<byte[]>> bucket = iter.next();
+      removeClearedRefs( bucket.iterator() );
+      if( bucket.isEmpty() ) {
+	iter.remove();
+      }
+    }
+  }
+
+
+  private static void removeClearedEntries(
+			Map<?,SoftReference<byte[]>> map )
+  {
+    removeClearedRefs( map.values().iterator() );
+  }
+
+
+  private static void removeClearedRefs(
+			Iterator<SoftReference<byte[]>> iter )
+  {
+    while( iter.hasNext() ) {
+      if( iter.next().get() == null ) {
+	iter.remove();
+      }
+    }
+  }
+
+
+	/* --- Konstruktor --- */
+
+  private ROMCache()
+  {
+    // Klasse nicht instanziierbar
+  }
+}
@@ -13,9 +13,12 @@ import java.awt.Container;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionListener;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
 import java.awt.image.IndexColorModel;
 import javax.swing.JComponent;
 
@@ -29,6 +32,9 @@ public class ScreenFld extends JComponent implements MouseMotionListener
   private AbstractScreenFrm             screenFrm;
   private volatile AbstractScreenDevice screenDevice;
   private volatile CharRaster           charRaster;
+  private BufferedImage                 frameImg;
+  private byte[]                        frameBuf;
+  private int[]                         frameRGBs;
   private Point                         dragStart;
   private Point                         dragEnd;
   private Color                         markXORColor;
@@ -45,6 +51,9 @@ public class ScreenFld extends JComponent implements MouseMotionListener
   {
     this.screenFrm       = screenFrm;
     this.screenDevice    = null;
+    this.frameImg        = null;
+    this.frameBuf        = null;
+    this.frameRGBs       = null;
     this.dragStart       = null;
     this.dragEnd         = null;
     this.markXORColor    = new Color( 192, 192, 0 );
@@ -155,6 +164,29 @@ public class ScreenFld extends JComponent implements MouseMotionListener
   }
 
 
+  /*
+   * Neuzeichnen eines Bereichs von Pixelzeilen (jeweils einschliesslich)
+   * des Bildschirmgeraetes
+   */
+  public void repaintScreenLines( int lineBeg, int lineEnd )
+  {
+    AbstractScreenDevice screenDevice = this.screenDevice;
+    int                  w            = getWidth();
+    int                  h            = getHeight();
+    if( (screenDevice != null) && (w > 0) && (h > 0) ) {
+      int yOffs = (h - (screenDevice.getScreenHeight() * this.scale)) / 2;
+      if( yOffs < 0 ) {
+	yOffs = 0;
+      }
+      repaint(
+	0,
+	yOffs + (lineBeg * this.scale),
+	w,
+	(lineEnd - lineBeg + 1) * this.scale );
+    }
+  }
+
+
   public void setMargin( int margin )
   {
     this.margin = margin;
@@ -242,8 +274,18 @@ public class ScreenFld extends JComponent implements MouseMotionListener
   @Override
   public void paint( Graphics g )
   {
-    this.screenFrm.setScreenDirty( false );
-    paint( g, getWidth(), getHeight(), true );
+    int       w    = getWidth();
+    int       h    = getHeight();
+    Rectangle clip = g.getClipBounds();
+    if( clip != null ) {
+      if( clip.contains( 0, 0, w, h ) ) {
+	clip = null;
+      }
+    }
+    if( clip == null ) {
+      this.screenFrm.setScreenDirty( false );
+    }
+    paint( g, w, h, true );
   }
 
 
@@ -262,6 +304,87 @@ public class ScreenFld extends JComponent implements MouseMotionListener
 
 	/* --- private Methoden --- */
 
+  /*
+   * Ausgabe des Bildschirminhaltes ueber einen Bildpuffer,
+   * sofern das Bildschirmgeraet diesen selbst fuellen kann
+   */
+  private boolean paintFrameBuffer(
+			Graphics             g,
+			AbstractScreenDevice screenDevice,
+			int                  wBase,
+			int                  hBase,
+			int                  lineBeg,
+			int                  lineEnd,
+			int                  xOffs,
+			int                  yOffs )
+  {
+    boolean rv      = false;
+    int     nColors = screenDevice.getColorCount();
+    if( screenDevice.supportsFrameBuffer()
+	&& (nColors > 0) && (nColors <= 256)
+	&& (wBase > 0) && (hBase > 0) )
+    {
+      // Farbpalette pruefen und ggf. Bildpuffer neu anlegen
+      BufferedImage img     = this.frameImg;
+      int[]         rgbs    = this.frameRGBs;
+      boolean       changed = ((img == null)
+				|| (rgbs == null)
+				|| (rgbs.length != nColors)
+				|| (img.getWidth() != wBase)
+				|| (img.getHeight() != hBase));
+      if( !changed ) {
+	for( int i = 0; i < nColors; i++ ) {
+	  Color color = screenDevice.getColor( i );
+	  if( (color == null) || (color.getRGB() != rgbs[ i ]) ) {
+	    changed = true;
+	    break;
+	  }
+	}
+      }
+      if( changed ) {
+	rgbs = new int[ nColors ];
+	for( int i = 0; i < nColors; i++ ) {
+	  Color color = screenDevice.getColor( i );
+	  rgbs[ i ]   = (color != null ? color.getRGB() : 0xFF000000);
+	}
+	img = new BufferedImage(
+			wBase,
+			hBase,
+			BufferedImage.TYPE_BYTE_INDEXED,
+			new IndexColorModel(
+					8,
+					nColors,
+					rgbs,
+					0,
+					false,
+					-1,
+					DataBuffer.TYPE_BYTE ) );
+	this.frameImg  = img;
+	this.frameRGBs = rgbs;
+	this.frameBuf  = ((DataBufferByte) img.getRaster()
+					.getDataBuffer()).getData();
+      }
+      if( lineEnd < lineBeg ) {
+	rv = true;		// nichts zu zeichnen
+      } else if( screenDevice.fillFrameBuffer(
+					this.frameBuf,
+					lineBeg,
+					lineEnd ) )
+      {
+	g.drawImage(
+		img,
+		xOffs,
+		yOffs,
+		wBase * this.scale,
+		hBase * this.scale,
+		this );
+	rv = true;
+      }
+    }
+    return rv;
+  }
+
+
   private void paint( Graphics g, int w, int h, boolean withMarking )
   {
     boolean              textSelected = false;
@@ -312,12 +435,36 @@ public class ScreenFld extends JComponent implements MouseMotionListener
 	g.fillRect( 0, 0, w, h );
       }
 
+      /*
+       * Bereich der zu zeichnenden Pixelzeilen ermitteln,
+       * damit bei einem teilweisen Neuzeichnen
+       * nur die betroffenen Zeilen ermittelt werden muessen
+       */
+      int       lineBeg = 0;
+      int       lineEnd = hBase - 1;
+      Rectangle clip    = g.getClipBounds();
+      if( clip != null ) {
+	lineBeg = Math.max( clip.y - yOffs, 0 ) / this.scale;
+	lineEnd = Math.min(
+		Math.floorDiv( clip.y + clip.height - 1 - yOffs, this.scale ),
+		hBase - 1 );
+      }
+
       // Vordergrund zeichnen
       if( !screenDevice.paintScreen(
 				g,
 				xOffs,
 				yOffs,
-				this.scale ) )
+				this.scale )
+	  && !paintFrameBuffer(
+				g,
+				screenDevice,
+				wBase,
+				hBase,
+				lineBeg,
+				lineEnd,
+				xOffs,
+				yOffs ) )
       {
 	if( (xOffs > 0) || (yOffs > 0) ) {
 	  g.translate( xOffs, yOffs );
@@ -330,7 +477,7 @@ public class ScreenFld extends JComponent implements MouseMotionListener
 	for( int x = 0; x < wBase; x++ ) {
 	  int lastColorIdx = -1;
 	  int yColorBeg    = -1;
-	  for( int y = 0; y < hBase; y++ ) {
+	  for( int y = lineBeg; y <= lineEnd; y++ ) {
 	    int curColorIdx = screenDevice.getColorIndex( x, y );
 	    if( curColorIdx != lastColorIdx ) {
 	      if( (lastColorIdx >= 0)
@@ -357,7 +504,7 @@ public class ScreenFld extends JComponent implements MouseMotionListener
 		x * this.scale,
 		yColorBeg * this.scale,
 		this.scale,
-		(hBase - yColorBeg) * this.scale );
+		(lineEnd + 1 - yColorBeg) * this.scale );
 	  }
 	}
 	if( (xOffs > 0) || (yOffs > 0) ) {
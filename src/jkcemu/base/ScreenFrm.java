@@ -180,6 +180,8 @@ public class ScreenFrm
   private static final String ACTION_RESET             = "reset";
   private static final String ACTION_SECOND_SCREEN     = "second_screen";
   private static final String ACTION_SETTINGS          = "extra.settings";
+  private static final String ACTION_SNAPSHOT_LOAD     = "snapshot.load";
+  private static final String ACTION_SNAPSHOT_SAVE     = "snapshot.save";
   private static final String ACTION_SPEED             = "speed";
   private static final String ACTION_TEXTEDITOR        = "texteditor";
   private static final String ACTION_USB               = "usb";
@@ -201,6 +203,8 @@ public class ScreenFrm
   private JMenuItem          mnuPrintJobs;
   private JMenuItem          mnuRAMFloppies;
   private JMenuItem          mnuSecondScreen;
+  private JMenuItem          mnuSnapshotLoad;
+  private JMenuItem          mnuSnapshotSave;
   private JMenuItem          mnuSpeed;
   private JMenuItem          mnuUSB;
   private JMenuItem          mnuHelpEmuSys;
@@ -314,6 +318,17 @@ public class ScreenFrm
     mnuFile.add( this.mnuBasicSave );
     mnuFile.addSeparator();
 
+    this.mnuSnapshotLoad = createMenuItem(
+				"Emulatorzustand laden...",
+				ACTION_SNAPSHOT_LOAD );
+    mnuFile.add( this.mnuSnapshotLoad );
+
+    this.mnuSnapshotSave = createMenuItem(
+				"Emulatorzustand speichern...",
+				ACTION_SNAPSHOT_SAVE );
+    mnuFile.add( this.mnuSnapshotSave );
+    mnuFile.addSeparator();
+
     this.mnuRAMFloppies = createMenuItem(
 				"RAM-Floppies...",
 				ACTION_RAMFLOPPIES );
@@ -1189,9 +1204,7 @@ public class ScreenFrm
 	if( this.chessboardDirty ) {
 	  ChessboardFrm.repaintChessboard();
 	}
-	if( this.screenDirty ) {
-	  this.screenFld.repaint();
-	}
+	repaintDirtyScreen();
       }
       else if( src == this.statusRefreshTimer ) {
 	refreshStatus();
@@ -1318,6 +1331,14 @@ public class ScreenFrm
 	  rv = true;
 	  doFileSave();
 	}
+	else if( actionCmd.equals( ACTION_SNAPSHOT_LOAD ) ) {
+	  rv = true;
+	  doFileSnapshotLoad();
+	}
+	else if( actionCmd.equals( ACTION_SNAPSHOT_SAVE ) ) {
+	  rv = true;
+	  doFileSnapshotSave();
+	}
 	else if( actionCmd.equals( ACTION_RAMFLOPPIES ) ) {
 	  rv = true;
 	  doRAMFloppies();
@@ -1740,6 +1761,45 @@ public class ScreenFrm
   }
 
 
+  private void doFileSnapshotLoad()
+  {
+    File file = FileUtil.showFileOpenDlg(
+			this,
+			"Emulatorzustand laden",
+			Main.getLastDirFile( Main.FILE_GROUP_SNAPSHOT ),
+			FileUtil.getSnapshotFileFilter() );
+    if( file != null ) {
+      try {
+	EmuSnapshot snapshot = EmuSnapshot.read( file );
+	snapshot.checkApplicable( getEmuSys() );
+	this.emuThread.fireLoadSnapshot( snapshot );
+      }
+      catch( IOException ex ) {
+	BaseDlg.showErrorDlg(
+		this,
+		"Der Emulatorzustand kann nicht geladen werden.",
+		ex );
+      }
+    }
+  }
+
+
+  private void doFileSnapshotSave()
+  {
+    EmuSys emuSys = getEmuSys();
+    if( emuSys.supportsSnapshot() ) {
+      File file = FileUtil.showFileSaveDlg(
+			this,
+			"Emulatorzustand speichern",
+			Main.getLastDirFile( Main.FILE_GROUP_SNAPSHOT ),
+			FileUtil.getSnapshotFileFilter() );
+      if( file != null ) {
+	this.emuThread.fireSaveSnapshot( file );
+      }
+    }
+  }
+
+
   private void doFloppyDisk()
   {
     EmuSys emuSys = getEmuSys();
@@ -2577,6 +2637,7 @@ public class ScreenFrm
     boolean supportsPrinter      = false;
     boolean supportsRAMFloppies  = false;
     boolean supportsSecondScreen = false;
+    boolean supportsSnapshot     = false;
     boolean supportsUSB          = false;
     if( emuSys != null ) {
       supportsOpenBasic    = emuSys.supportsOpenBasic();
@@ -2591,6 +2652,7 @@ public class ScreenFrm
       supportsUSB          = emuSys.supportsUSB();
       supportsSecondScreen = (emuSys.getSecondScreenDevice() != null);
       supportsRAMFloppies  = emuSys.supportsRAMFloppies();
+      supportsSnapshot     = emuSys.supportsSnapshot();
     }
 
     // Menueeintrage
@@ -2608,6 +2670,8 @@ public class ScreenFrm
     this.mnuPlotter.setEnabled( supportsPlotter );
     this.mnuPrintJobs.setEnabled( supportsPrinter );
     this.mnuSecondScreen.setEnabled( supportsSecondScreen );
+    this.mnuSnapshotLoad.setEnabled( supportsSnapshot );
+    this.mnuSnapshotSave.setEnabled( supportsSnapshot );
     this.mnuRAMFloppies.setEnabled( supportsRAMFloppies );
     this.mnuUSB.setEnabled( supportsUSB );
     this.popupUSB.setEnabled( supportsUSB );
@@ -26,16 +26,17 @@ public abstract class AbstractFloppyDisk
   public static final String PROP_SECTORSIZE        = "sectorsize";
   public static final String PROP_SIDES             = "sides";
 
-  private Frame           owner;
-  private volatile int    cyls;
-  private volatile int    sides;
-  private volatile int    sectorsPerTrack;
-  private volatile int    sectorSize;
-  private volatile String fmtText;
-  private String          mediaText;
-  private String          warningText;
-  private boolean         repaired;
-  private int[]           sectorIdxMap;
+  private Frame                  owner;
+  private volatile int           cyls;
+  private volatile int           sides;
+  private volatile int           sectorsPerTrack;
+  private volatile int           sectorSize;
+  private volatile String        fmtText;
+  private String                 mediaText;
+  private String                 warningText;
+  private boolean                repaired;
+  private int[]                  sectorIdxMap;
+  private java.util.List<String> errorMsgs;
 
 
   protected AbstractFloppyDisk(
@@ -55,6 +56,7 @@ public abstract class AbstractFloppyDisk
     this.mediaText       = null;
     this.warningText     = null;
     this.sectorIdxMap    = null;
+    this.errorMsgs       = null;
     this.repaired        = false;
     if( (interleave > 1)
 	&& (interleave < sectorsPerTrack)
@@ -94,7 +96,13 @@ public abstract class AbstractFloppyDisk
 
   protected void fireShowError( final String msg, final Exception ex )
   {
-    if( this.owner instanceof FloppyDiskStationFrm ) {
+    java.util.List<String> errorMsgs = this.errorMsgs;
+    if( errorMsgs != null ) {
+      String exMsg = (ex != null ? ex.getMessage() : null);
+      synchronized( errorMsgs ) {
+	errorMsgs.add( exMsg != null ? (msg + ": " + exMsg) : msg );
+      }
+    } else if( this.owner instanceof FloppyDiskStationFrm ) {
       ((FloppyDiskStationFrm) this.owner).fireShowDiskError( this, msg, ex );
     } else {
       EmuUtil.fireShowErrorDlg( owner, msg, ex );
@@ -102,6 +110,20 @@ public abstract class AbstractFloppyDisk
   }
 
 
+  protected void fireShowReadError(
+				int       cyl,
+				int       head,
+				Exception ex )
+  {
+    fireShowError(
+	String.format(
+		"Spur [C=%d,H=%d] kann nicht gelesen werden",
+		cyl,
+		head ),
+	ex );
+  }
+
+
   protected void fireShowReadError(
 				int       cyl,
 				int       head,
@@ -476,6 +498,17 @@ public abstract class AbstractFloppyDisk
   }
 
 
+  /*
+   * Liste, in der Fehlermeldungen gesammelt werden,
+   * anstelle sie in einem Dialog anzuzeigen,
+   * z.B. bei der Stapelkonvertierung
+   */
+  public void setErrorMsgList( java.util.List<String> errorMsgs )
+  {
+    this.errorMsgs = errorMsgs;
+  }
+
+
   public void setOwner( Frame owner )
   {
     this.owner = owner;
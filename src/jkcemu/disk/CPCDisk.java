@@ -15,7 +15,6 @@ package jkcemu.disk;
 import java.awt.Frame;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -28,7 +27,6 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
-import java.util.zip.GZIPInputStream;
 import jkcemu.base.EmuUtil;
 import jkcemu.file.FileUtil;
 
@@ -84,6 +82,63 @@ public class CPCDisk extends AbstractFloppyDisk
   };
 
 
+  /*
+   * Lesen einer Spur beim ersten Zugriff auf eine schreibgeschuetzte Datei
+   */
+  private static class Decoder implements TrackIndex.TrackDecoder
+  {
+    private byte[]             fileHeader;
+    private boolean            extendedFmt;
+    private int                diskTrackSize;
+    private Map<Long,Integer>  trackNums;
+
+    private Decoder(
+		byte[]            fileHeader,
+		boolean           extendedFmt,
+		int               diskTrackSize,
+		Map<Long,Integer> trackNums )
+    {
+      this.fileHeader    = fileHeader;
+      this.extendedFmt   = extendedFmt;
+      this.diskTrackSize = diskTrackSize;
+      this.trackNums     = trackNums;
+    }
+
+    @Override
+    public void decodeTrack(
+			TrackIndex.Reader          in,
+			int                        cyl,
+			int                        head,
+			java.util.List<SectorData> sectors ) throws IOException
+    {
+      long    trackPos = in.getPosition();
+      Integer trackNum = this.trackNums.get( trackPos );
+      if( trackNum != null ) {
+	byte[] trackHeader = new byte[ 0x100 ];
+	if( EmuUtil.read( in, trackHeader ) != trackHeader.length ) {
+	  throwUnexpectedEOF();
+	}
+	int trackSize = this.diskTrackSize;
+	if( this.extendedFmt ) {
+	  trackSize = getExtTrackSize( this.fileHeader, trackNum.intValue() );
+	}
+	if( trackSize > 0x100 ) {
+	  byte[] trackBuf = new byte[ trackSize - 0x100 ];
+	  EmuUtil.read( in, trackBuf );
+	  addSectors(
+		sectors,
+		trackNum.intValue(),
+		trackHeader,
+		trackBuf,
+		trackPos + trackHeader.length,
+		getTrackSectorSize( trackHeader, this.extendedFmt ),
+		this.extendedFmt );
+	}
+      }
+    }
+  };
+
+
   private static final String TRACK_HEADER = "Track-Info\r\n";
 
   private String                 fileName;
@@ -94,6 +149,7 @@ public class CPCDisk extends AbstractFloppyDisk
   private RandomAccessFile       raf;
   private Map<Integer,TrackData> side0;
   private Map<Integer,TrackData> side1;
+  private TrackIndex             trackIndex;
 
 
   public static String export(
@@ -406,6 +462,7 @@ public class CPCDisk extends AbstractFloppyDisk
 		raf,
 		fl,
 		null,
+		null,
 		null );
     }
     finally {
@@ -426,7 +483,14 @@ public class CPCDisk extends AbstractFloppyDisk
     try {
       raf = new RandomAccessFile( file, "rw" );
       fl  = FileUtil.lockFile( file, raf );
-      rv  = createInstance( owner, null, raf, fl, file.getPath(), false );
+      rv  = createInstance(
+			owner,
+			null,
+			raf,
+			fl,
+			null,
+			file.getPath(),
+			false );
     }
     finally {
       if( rv == null ) {
@@ -438,20 +502,32 @@ public class CPCDisk extends AbstractFloppyDisk
   }
 
 
+  /*
+   * Oeffnen einer Datei nur zum Lesen
+   *
+   * Es wird nur ein Spurindex angelegt,
+   * die Sektordaten werden erst beim Zugriff gelesen.
+   */
   public static CPCDisk readFile( Frame owner, File file ) throws IOException
   {
-    CPCDisk     rv = null;
-    InputStream in = null;
+    CPCDisk           rv         = null;
+    TrackIndex        trackIndex = TrackIndex.open( file );
+    TrackIndex.Reader in         = null;
     try {
-      in = new FileInputStream( file );
-      if( FileUtil.isGZipFile( file ) ) {
-	in = new GZIPInputStream( in );
-      }
-      rv = createInstance( owner, in, null, null, file.getPath(), false );
+      in = trackIndex.openReader( 0 );
+      rv = createInstance(
+			owner,
+			in,
+			null,
+			null,
+			trackIndex,
+			file.getPath(),
+			false );
     }
     finally {
+      EmuUtil.closeSilently( in );
       if( rv == null ) {
-	EmuUtil.closeSilently( in );
+	trackIndex.close();
       }
     }
     return rv;
@@ -465,6 +541,9 @@ public class CPCDisk extends AbstractFloppyDisk
   {
     FileUtil.releaseSilent( this.fileLock );
     EmuUtil.closeSilently( this.raf );
+    if( this.trackIndex != null ) {
+      this.trackIndex.close();
+    }
   }
 
 
@@ -750,10 +829,18 @@ public class CPCDisk extends AbstractFloppyDisk
   @Override
   public int getSectorsOfTrack( int physCyl, int physHead )
   {
-    java.util.List<SectorData> sectors = getSectorsOfTrackInternal(
+    int rv = 0;
+    if( this.trackIndex != null ) {
+      rv = this.trackIndex.getSectorCount( physCyl, physHead & 0x01 );
+    } else {
+      java.util.List<SectorData> sectors = getSectorsOfTrackInternal(
 								physCyl,
 								physHead );
-    return sectors != null ? sectors.size() : 0;
+      if( sectors != null ) {
+	rv = sectors.size();
+      }
+    }
+    return rv;
   }
 
 
@@ -836,16 +923,62 @@ public class CPCDisk extends AbstractFloppyDisk
 		RandomAccessFile       raf,
 		FileLock               fileLock,
 		Map<Integer,TrackData> side0,
-		Map<Integer,TrackData> side1 )
+		Map<Integer,TrackData> side1,
+		TrackIndex             trackIndex )
   {
     super( owner, cyls, sides, sectorsPerTrack, sectorSize );
-    this.fileName  = fileName;
-    this.resource  = resource;
-    this.raf       = raf;
-    this.fileLock  = fileLock;
-    this.trackSize = trackSize;
-    this.side0     = side0;
-    this.side1     = side1;
+    this.fileName   = fileName;
+    this.resource   = resource;
+    this.raf        = raf;
+    this.fileLock   = fileLock;
+    this.trackSize  = trackSize;
+    this.side0      = side0;
+    this.side1      = side1;
+    this.trackIndex = trackIndex;
+  }
+
+
+  /*
+   * Anlegen der im Spurkopf beschriebenen Sektoren
+   */
+  private static void addSectors(
+			java.util.List<SectorData> sectors,
+			int                        trackNum,
+			byte[]                     trackHeader,
+			byte[]                     trackBuf,
+			long                       sectorPos,
+			int                        sectorSize,
+			boolean                    extendedFmt )
+  {
+    int nSectors = (int) trackHeader[ 0x15 ] & 0xFF;
+    int infoPos  = 0x18;
+    int dataPos  = 0;
+    for( int k = 0; k < nSectors; k++ ) {
+      int idCyl      = (int) trackHeader[ infoPos++ ] & 0xFF;
+      int idHead     = (int) trackHeader[ infoPos++ ] & 0xFF;
+      int idRecord   = (int) trackHeader[ infoPos++ ] & 0xFF;
+      int idSizeCode = (int) trackHeader[ infoPos++ ] & 0xFF;
+      if( extendedFmt ) {
+	sectorSize = EmuUtil.getWord( trackHeader, infoPos + 2 );
+      }
+      infoPos += 4;
+
+      SectorData sector = new SectorData(
+			trackNum,
+			idCyl,
+			idHead,
+			idRecord,
+			idSizeCode,
+			trackBuf,
+			dataPos,
+			Math.min( sectorSize, trackBuf.length - dataPos ) );
+      sector.setFilePortionLen( sectorSize );
+      sector.setFilePos( sectorPos );
+      sectors.add( sector );
+
+      dataPos += sectorSize;
+      sectorPos += sectorSize;
+    }
   }
 
 
@@ -877,6 +1010,7 @@ public class CPCDisk extends AbstractFloppyDisk
 				InputStream      in,
 				RandomAccessFile raf,
 				FileLock         fl,
+				TrackIndex       trackIndex,
 				String           fileName,
 				boolean          resource ) throws IOException
   {
@@ -903,8 +1037,9 @@ public class CPCDisk extends AbstractFloppyDisk
 	if( (nCyls > 0) && (nSides > 0) ) {
 	  int nTracks = nCyls * nSides;
 
-	  Map<Integer,TrackData> side0 = null;
-	  Map<Integer,TrackData> side1 = null;
+	  Map<Integer,TrackData> side0     = null;
+	  Map<Integer,TrackData> side1     = null;
+	  Map<Long,Integer>      trackNums = new HashMap<>();
 
 	  // Spuren lesen
 	  byte[] trackHeader = new byte[ 0x100 ];
@@ -926,7 +1061,7 @@ public class CPCDisk extends AbstractFloppyDisk
 
 	    int trackSize = diskTrackSize;
 	    if( extendedFmt ) {
-	      trackSize = ((int) fileHeader[ 0x34 + i ] << 8) & 0xFF00;
+	      trackSize = getExtTrackSize( fileHeader, i );
 	    }
 	    int cyl            = (int) trackHeader[ 0x10 ] & 0xFF;
 	    int side           = (int) trackHeader[ 0x11 ] & 0xFF;
@@ -936,12 +1071,7 @@ public class CPCDisk extends AbstractFloppyDisk
 	      side1 = null;
 	      break;
 	    }
-	    int sectorSize = 128;
-	    if( !extendedFmt && (sectorSizeCode == 6) ) {
-	      sectorSize = 0x1800;
-	    } else if( sectorSizeCode > 0 ) {
-	      sectorSize <<= sectorSizeCode;
-	    }
+	    int sectorSize = getTrackSectorSize( trackHeader, extendedFmt );
 	    if( sectorSize > diskSectorSize ) {
 	      diskSectorSize = sectorSize;
 	    }
@@ -955,9 +1085,14 @@ public class CPCDisk extends AbstractFloppyDisk
 	    long   sectorPos = filePos;
 	    byte[] trackBuf  = null;
 	    if( trackSize > 0x100 ) {
-	      trackBuf = new byte[ trackSize - 0x100 ];
-	      EmuUtil.read( in, trackBuf );
-	      filePos += trackBuf.length;
+	      if( trackIndex != null ) {
+		// Sektordaten erst beim Zugriff lesen
+		in.skip( trackSize - 0x100 );
+	      } else {
+		trackBuf = new byte[ trackSize - 0x100 ];
+		EmuUtil.read( in, trackBuf );
+	      }
+	      filePos += (trackSize - 0x100);
 	    }
 
 	    // Sektorliste
@@ -984,36 +1119,20 @@ public class CPCDisk extends AbstractFloppyDisk
 		  trackData = new TrackData( trackPos, trackBuf.length );
 		  trackMap.put( cyl, trackData );
 		}
-	      }
-	      int infoPos = 0x18;
-	      int dataPos = 0;
-	      for( int k = 0; k < nSectors; k++ ) {
-		int idCyl      = (int) trackHeader[ infoPos++ ] & 0xFF;
-		int idHead     = (int) trackHeader[ infoPos++ ] & 0xFF;
-		int idRecord   = (int) trackHeader[ infoPos++ ] & 0xFF;
-		int idSizeCode = (int) trackHeader[ infoPos++ ] & 0xFF;
-		if( extendedFmt ) {
-		  sectorSize = EmuUtil.getWord( trackHeader, infoPos + 2 );
-		}
-		infoPos += 4;
-
-		if( trackBuf != null ) {
-		  SectorData sector = new SectorData(
+		addSectors(
+			trackData.getSectorList(),
 			i,
-			idCyl,
-			idHead,
-			idRecord,
-			idSizeCode,
+			trackHeader,
 			trackBuf,
-			dataPos,
-			Math.min( sectorSize, trackBuf.length - dataPos ) );
-		  sector.setFilePortionLen( sectorSize );
-		  sector.setFilePos( sectorPos );
-		  trackData.add( sector );
-
-		  dataPos += sectorSize;
-		  sectorPos += sectorSize;
-		}
+			sectorPos,
+			sectorSize,
+			extendedFmt );
+	      } else if( (trackMap != null)
+			 && (trackIndex != null)
+			 && (trackSize > 0x100) )
+	      {
+		trackIndex.addTrack( cyl, side, trackPos, nSectors );
+		trackNums.put( trackPos, i );
 	      }
 	    }
 	  }
@@ -1022,6 +1141,14 @@ public class CPCDisk extends AbstractFloppyDisk
 	    if( side1 != null ) {
 	      sides++;
 	    }
+	    if( trackIndex != null ) {
+	      trackIndex.setDecoder(
+			new Decoder(
+				fileHeader,
+				extendedFmt,
+				diskTrackSize,
+				trackNums ) );
+	    }
 	    rv = new CPCDisk(
 			owner,
 			nCyls,
@@ -1035,7 +1162,8 @@ public class CPCDisk extends AbstractFloppyDisk
 			raf,
 			fl,
 			side0,
-			side1 );
+			side1,
+			trackIndex );
 	  }
 	}
       }
@@ -1047,16 +1175,31 @@ public class CPCDisk extends AbstractFloppyDisk
   }
 
 
+  private static int getExtTrackSize( byte[] fileHeader, int trackNum )
+  {
+    return ((int) fileHeader[ 0x34 + trackNum ] << 8) & 0xFF00;
+  }
+
+
   private java.util.List<SectorData> getSectorsOfTrackInternal(
 							int physCyl,
 							int physHead )
   {
     java.util.List<SectorData> rv = null;
-    Map<Integer,TrackData> map = ((physHead & 0x01) != 0 ? side1 : side0);
-    if( map != null ) {
-      TrackData trackData = map.get( physCyl );
-      if( trackData != null ) {
-	rv = trackData.getSectorList();
+    if( this.trackIndex != null ) {
+      try {
+	rv = this.trackIndex.getSectors( physCyl, physHead & 0x01 );
+      }
+      catch( IOException ex ) {
+	fireShowReadError( physCyl, physHead, ex );
+      }
+    } else {
+      Map<Integer,TrackData> map = ((physHead & 0x01) != 0 ? side1 : side0);
+      if( map != null ) {
+	TrackData trackData = map.get( physCyl );
+	if( trackData != null ) {
+	  rv = trackData.getSectorList();
+	}
       }
     }
     return rv;
@@ -1074,6 +1217,21 @@ public class CPCDisk extends AbstractFloppyDisk
   }
 
 
+  private static int getTrackSectorSize(
+				byte[]  trackHeader,
+				boolean extendedFmt )
+  {
+    int sectorSizeCode = (int) trackHeader[ 0x14 ] & 0xFF;
+    int sectorSize     = 128;
+    if( !extendedFmt && (sectorSizeCode == 6) ) {
+      sectorSize = 0x1800;
+    } else if( sectorSizeCode > 0 ) {
+      sectorSize <<= sectorSizeCode;
+    }
+    return sectorSize;
+  }
+
+
   private static boolean isDiskFileHeader( byte[] header, String pattern )
   {
     boolean rv = false;
@@ -12,9 +12,11 @@
 package jkcemu.disk;
 
 import java.awt.Frame;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -96,11 +98,60 @@ public class CopyQMDisk extends AbstractFloppyDisk
 	0xB3667A2EL, 0xC4614AB8L, 0x5D681B02L, 0x2A6F2B94L,
 	0xB40BBE37L, 0xC30C8EA1L, 0x5A05DF1BL, 0x2D02EF8DL };
 
+
+  /*
+   * Lesen einer Spur aus der temporaeren Datei mit den entpackten Daten
+   */
+  private static class Decoder implements TrackIndex.TrackDecoder
+  {
+    private int sectorsPerTrack;
+    private int sectorSize;
+    private int sectorSizeCode;
+    private int sectorOffset;
+
+    private Decoder(
+		int sectorsPerTrack,
+		int sectorSize,
+		int sectorSizeCode,
+		int sectorOffset )
+    {
+      this.sectorsPerTrack = sectorsPerTrack;
+      this.sectorSize      = sectorSize;
+      this.sectorSizeCode  = sectorSizeCode;
+      this.sectorOffset    = sectorOffset;
+    }
+
+    @Override
+    public void decodeTrack(
+			TrackIndex.Reader          in,
+			int                        cyl,
+			int                        head,
+			java.util.List<SectorData> sectors ) throws IOException
+    {
+      // nicht mehr entpackte Daten bleiben Null
+      byte[] trackBuf = new byte[ this.sectorsPerTrack * this.sectorSize ];
+      Arrays.fill( trackBuf, (byte) 0 );
+      EmuUtil.read( in, trackBuf );
+      for( int i = 0; i < this.sectorsPerTrack; i++ ) {
+	sectors.add(
+		new SectorData(
+			i,
+			cyl,
+			head,
+			i + 1 + this.sectorOffset,
+			this.sectorSizeCode,
+			trackBuf,
+			i * this.sectorSize,
+			this.sectorSize ) );
+      }
+    }
+  };
+
+
   private String         fileName;
   private String         remark;
   private java.util.Date diskDate;
-  private byte[]         diskBytes;
-  private int            sectorSizeCode;
+  private TrackIndex     trackIndex;
   private int            sectorOffset;
   private int            skew;
 
@@ -513,9 +564,11 @@ public class CopyQMDisk extends AbstractFloppyDisk
 				Frame owner,
 				File  file ) throws IOException
   {
-    CopyQMDisk  rv    = null;
-    InputStream in    = null;
-    Exception   errEx = null;
+    CopyQMDisk   rv      = null;
+    InputStream  in      = null;
+    OutputStream out     = null;
+    File         tmpFile = null;
+    TrackIndex   index   = null;
     try {
       in = new FileInputStream( file );
       if( FileUtil.isGZipFile( file ) ) {
@@ -608,11 +661,22 @@ public class CopyQMDisk extends AbstractFloppyDisk
 	remark = buf.toString().trim();
       }
 
-      // Daten lesen
-      int    diskSize  = cyls * sides * sectorsPerTrack * sectorSize;
-      byte[] diskBytes = new byte[ diskSize ];
-      Arrays.fill( diskBytes, (byte) 0 );
-      int dstPos = 0;
+      // Original-CRC
+      long orgCRC = 0L;
+      for( int i = 0x5F; i >= 0x5C; --i ) {
+	orgCRC = (orgCRC << 8) | ((int) header[ i ] & 0xFF);
+      }
+
+      /*
+       * Daten in eine temporaere Datei entpacken
+       * und dabei die CRC ueber die entpackten Daten berechnen
+       */
+      tmpFile = TrackIndex.createTempFile();
+      out     = new BufferedOutputStream( new FileOutputStream( tmpFile ) );
+
+      long newCRC   = 0L;
+      long diskSize = (long) cyls * sides * sectorsPerTrack * sectorSize;
+      long dstPos   = 0;
       while( dstPos < diskSize ) {
 	int lLen = in.read();
 	int hLen = in.read();
@@ -627,7 +691,9 @@ public class CopyQMDisk extends AbstractFloppyDisk
 	    break;
 	  }
 	  while( (dstPos < diskSize) && (n > 0) ) {
-	    diskBytes[ dstPos++ ] = (byte) b;
+	    out.write( b );
+	    newCRC = updateCRC( newCRC, b );
+	    dstPos++;
 	    --n;
 	  }
 	} else {
@@ -636,12 +702,35 @@ public class CopyQMDisk extends AbstractFloppyDisk
 	    if( b < 0 ) {
 	      break;
 	    }
-	    diskBytes[ dstPos++ ] = (byte) b;
+	    out.write( b );
+	    newCRC = updateCRC( newCRC, b );
+	    dstPos++;
 	    --len;
 	  }
 	}
       }
 
+      out.close();
+      out = null;
+
+      // Spurindex anlegen
+      index = new TrackIndex( tmpFile, true );
+      for( int cyl = 0; cyl < cyls; cyl++ ) {
+	for( int head = 0; head < sides; head++ ) {
+	  index.addTrack(
+		cyl,
+		head,
+		(long) ((cyl * sides) + head) * sectorsPerTrack * sectorSize,
+		sectorsPerTrack );
+	}
+      }
+      index.setDecoder(
+		new Decoder(
+			sectorsPerTrack,
+			sectorSize,
+			sectorSizeCode,
+			sectorOffset ) );
+
       // Disk-Object anlegen
       rv = new CopyQMDisk(
 			owner,
@@ -652,20 +741,14 @@ public class CopyQMDisk extends AbstractFloppyDisk
 			file.getPath(),
 			remark,
 			diskDate,
-			diskBytes,
-			sectorSizeCode,
+			index,
 			sectorOffset,
 			(int) header[ 0x74 ] & 0xFF,	// Interleave
 			(int) header[ 0x75 ] & 0xFF );	// Skew
 
-      // CRC ueber die entpackten Daten berechnen
-      long orgCRC = 0L;
-      long newCRC = 0L;
-      for( int i = 0x5F; i >= 0x5C; --i ) {
-	orgCRC = (orgCRC << 8) | ((int) header[ i ] & 0xFF);
-      }
-      if( orgCRC != 0 ) {
-	newCRC = computeCRC( diskBytes, dstPos );
+      // CRC ueber die entpackten Daten pruefen
+      if( orgCRC == 0 ) {
+	newCRC = 0L;
       }
       if( orgCRC != newCRC ) {
 	rv.setWarningText( 
@@ -674,6 +757,14 @@ public class CopyQMDisk extends AbstractFloppyDisk
     }
     finally {
       EmuUtil.closeSilently( in );
+      EmuUtil.closeSilently( out );
+      if( rv == null ) {
+	if( index != null ) {
+	  index.close();
+	} else if( tmpFile != null ) {
+	  tmpFile.delete();
+	}
+      }
     }
     return rv;
   }
@@ -681,6 +772,13 @@ public class CopyQMDisk extends AbstractFloppyDisk
 
 	/* --- ueberschriebene Methoden --- */
 
+  @Override
+  public void closeSilently()
+  {
+    this.trackIndex.close();
+  }
+
+
   @Override
   public java.util.Date getDiskDate()
   {
@@ -786,8 +884,7 @@ public class CopyQMDisk extends AbstractFloppyDisk
 		String         fileName,
 		String         remark,
 		java.util.Date diskDate,
-		byte[]         diskBytes,
-		int            sectorSizeCode,
+		TrackIndex     trackIndex,
 		int            sectorOffset,
 		int            interleave,
 		int            skew )
@@ -796,8 +893,7 @@ public class CopyQMDisk extends AbstractFloppyDisk
     this.fileName       = fileName;
     this.remark         = remark;
     this.diskDate       = diskDate;
-    this.diskBytes      = diskBytes;
-    this.sectorSizeCode = sectorSizeCode;
+    this.trackIndex     = trackIndex;
     this.sectorOffset   = sectorOffset;
     this.skew           = skew;
   }
@@ -808,14 +904,20 @@ public class CopyQMDisk extends AbstractFloppyDisk
     long crc = 0;
     if( dataBytes != null ) {
       for( int i = 0; i < len; i++ ) {
-	int b = (int) dataBytes[ i ] & 0x7F;
-	crc   = crcTable[ ((int) ((long) b ^ crc)) & 0x3F ] ^ (crc >> 8);
+	crc = updateCRC( crc, dataBytes[ i ] );
       }
     }
     return crc;
   }
 
 
+  private static long updateCRC( long crc, int b )
+  {
+    b &= 0x7F;
+    return crcTable[ ((int) ((long) b ^ crc)) & 0x3F ] ^ (crc >> 8);
+  }
+
+
   /*
    * Die Methode liefert den Sektor an der angegebenen Position
    * im internen Datenbereich zurueck.
@@ -837,20 +939,19 @@ public class CopyQMDisk extends AbstractFloppyDisk
           && (sectorIdx < sectorsPerTrack)
           && (sectorSize > 0) )
       {
-        int nSkipSectors = physCyl * sides * sectorsPerTrack;
-        if( physHead > 0 ) {
-          nSkipSectors += sectorsPerTrack;
-        }
-        nSkipSectors += sectorIdx;
-	rv = new SectorData(
-			sectorIdx,
-			physCyl,
-			physHead,
-			sectorIdx + 1 + this.sectorOffset,
-			this.sectorSizeCode,
-			this.diskBytes,
-                        nSkipSectors * sectorSize,
-			sectorSize );
+	try {
+	  java.util.List<SectorData> sectors = this.trackIndex.getSectors(
+								physCyl,
+								physHead );
+	  if( sectors != null ) {
+	    if( sectorIdx < sectors.size() ) {
+	      rv = sectors.get( sectorIdx );
+	    }
+	  }
+	}
+	catch( IOException ex ) {
+	  fireShowReadError( physCyl, physHead, ex );
+	}
       }
     }
     return rv;
@@ -57,10 +57,27 @@ public class DateStamper
 
   public void addFileTimes( File file )
   {
-    FileTimesData ftd = FileTimesData.createOf( file );
-    writeDateTimeEntry( ftd.getCreationMillis() );
-    writeDateTimeEntry( ftd.getLastAccessMillis() );
-    writeDateTimeEntry( ftd.getLastModifiedMillis() );
+    addFileTimes( FileTimesData.createOf( file ) );
+  }
+
+
+  /*
+   * Eintragen bereits ermittelter Zeitstempel,
+   * bei null ein leerer Eintrag
+   */
+  public void addFileTimes( FileTimesData ftd )
+  {
+    Long creationMillis     = null;
+    Long lastAccessMillis   = null;
+    Long lastModifiedMillis = null;
+    if( ftd != null ) {
+      creationMillis     = ftd.getCreationMillis();
+      lastAccessMillis   = ftd.getLastAccessMillis();
+      lastModifiedMillis = ftd.getLastModifiedMillis();
+    }
+    writeDateTimeEntry( creationMillis );
+    writeDateTimeEntry( lastAccessMillis );
+    writeDateTimeEntry( lastModifiedMillis );
     this.pos++;
   }
 
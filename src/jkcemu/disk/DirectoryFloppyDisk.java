@@ -5,6 +5,16 @@
  *
  * Emulation einer Diskette,
  * die auf ein Verzeichnis im Dateisystem des Host-Systems abbildet
+ *
+ * Die Zugriffe auf das Verzeichnis finden moeglichst nicht
+ * im FDC-Thread statt:
+ * Bei automatischer Aktualisierung wird das Verzeichnis ueberwacht
+ * und nach einer Aenderung in einem Hintergrund-Thread abgefragt.
+ * Beim Neuaufbau behalten unveraenderte Dateien ihre Bloecke
+ * und bereits gelesenen Sektoren.
+ * Dateien werden erst beim ersten Zugriff auf einen ihrer Bloecke gelesen.
+ * Geschriebene Sektoren der Systemspuren und des Datenbereichs
+ * werden im Hintergrund in die Dateien geschrieben.
  */
 
 package jkcemu.disk;
@@ -13,16 +23,25 @@ import java.awt.Frame;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
-import java.util.Collection;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.Comparator;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import jkcemu.Main;
 import jkcemu.base.EmuUtil;
 import jkcemu.file.FileTimesData;
 import jkcemu.file.FileUtil;
@@ -41,6 +60,10 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
 
   public static final String SYS_FILE_NAME = "@boot.sys";
 
+  private static final int BG_WAIT_MILLIS      = 200;
+  private static final int BG_SETTLE_MILLIS    = 100;
+  private static final int BG_MAX_SETTLE_LOOPS = 20;
+
 
   private static class EntryNameComparator implements Comparator<String>
   {
@@ -71,6 +94,88 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
     }
   };
 
+
+  /*
+   * Zustand einer Datei im Verzeichnis zum Zeitpunkt der Abfrage
+   */
+  private static class HostFile
+  {
+    private File          file;
+    private long          fileLen;
+    private long          lastModified;
+    private boolean       writable;
+    private FileTimesData fileTimes;
+
+    private HostFile( File file )
+    {
+      this.file      = file;
+      this.fileTimes = FileTimesData.createOf( file );
+      this.fileLen   = file.length();
+      this.writable  = file.canWrite();
+
+      Long millis = this.fileTimes.getLastModifiedMillis();
+      this.lastModified = (millis != null ?
+					millis.longValue()
+					: file.lastModified());
+    }
+
+    private boolean equalsContent( HostFile other )
+    {
+      return (other != null)
+		&& this.file.equals( other.file )
+		&& (this.fileLen == other.fileLen)
+		&& (this.lastModified == other.lastModified);
+    }
+  };
+
+
+  /*
+   * Im Hintergrund ermittelte Verzeichnisabfrage
+   *
+   * hostWrites ist der Stand des Schreibzaehlers zu Beginn der Abfrage.
+   * Hat das emulierte System seitdem geschrieben,
+   * ist die Abfrage moeglicherweise veraltet.
+   */
+  private static class HostScan
+  {
+    private Map<String,HostFile> hostFiles;
+    private int                  hostWrites;
+
+    private HostScan( Map<String,HostFile> hostFiles, int hostWrites )
+    {
+      this.hostFiles  = hostFiles;
+      this.hostWrites = hostWrites;
+    }
+  };
+
+
+  /*
+   * Sektor, der im Hintergrund in eine Datei geschrieben wird
+   */
+  private static class WriteJob
+  {
+    private File       file;
+    private long       filePos;
+    private byte[]     data;
+    private int        absSectorIdx;
+    private SectorData sector;
+
+    private WriteJob(
+		File       file,
+		long       filePos,
+		byte[]     data,
+		int        absSectorIdx,
+		SectorData sector )
+    {
+      this.file         = file;
+      this.filePos      = filePos;
+      this.data         = data;
+      this.absSectorIdx = absSectorIdx;
+      this.sector       = sector;
+    }
+  };
+
+
   private static EntryNameComparator entryNameComparator = null;
 
   private File                  dirFile;
@@ -99,6 +204,15 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
   private int                   dsSectors;
   private String                remark;
   private volatile boolean      refreshFired;
+  private Map<String,HostFile>  hostFiles;
+  private LinkedList<WriteJob>  writeQueue;
+  private Object                writeLock;
+  private WatchService          watchService;
+  private Thread                bgThread;
+  private volatile int          hostWrites;
+  private volatile boolean      rescanRequested;
+  private volatile boolean      closed;
+  private AtomicReference<HostScan> pendingScan;
 
 
   public DirectoryFloppyDisk(
@@ -142,6 +256,15 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
     this.maxDirEntries   = 0;
     this.sectors         = new SectorData[ cyls * sides * sectorsPerTrack ];
     this.refreshFired    = false;
+    this.hostFiles       = new HashMap<>();
+    this.writeQueue      = new LinkedList<>();
+    this.writeLock       = new Object();
+    this.watchService    = null;
+    this.bgThread        = null;
+    this.hostWrites      = 0;
+    this.rescanRequested = false;
+    this.closed          = false;
+    this.pendingScan     = new AtomicReference<>();
     this.extentsPerDirEntry = DiskUtil.getExtentsPerDirEntry(
 							blockSize,
 							blockNum16Bit );
@@ -168,6 +291,22 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
 
 	/* --- ueberschriebene Methoden --- */
 
+  /*
+   * Schreiben der ausstehenden Sektoren und Beenden
+   * des Hintergrund-Threads
+   */
+  @Override
+  public synchronized void closeSilently()
+  {
+    this.closed = true;
+    EmuUtil.closeSilently( this.watchService );
+    if( this.bgThread != null ) {
+      this.bgThread.interrupt();
+    }
+    flushWrites();
+  }
+
+
   @Override
   public String getFileFormatText()
   {
@@ -202,12 +341,17 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
     SectorData rv = null;
     if( this.dirBytes == null ) {
       rebuildDisk();
+      startBgThread();
     } else {
       /*
        * Wenn eine Aktualisierung angefordert wurde oder AutoRefresh
        * aktiviert ist, wird beim naechsten lesenden Zugriff
        * auf den ersten Sektor der Diskette oder des Directories
-       * die virtuelle Diskette neu erzeugt, bei AutoRefresh aber nur,
+       * die virtuelle Diskette neu erzeugt.
+       * Bei AutoRefresh wird eine im Hintergrund ermittelte
+       * Verzeichnisabfrage uebernommen, sofern das emulierte System
+       * seitdem nicht geschrieben hat.
+       * Ohne Ueberwachung des Verzeichnisses wird neu eingelesen,
        * wenn die letzte Aktualisierung mehr als 5 Sekunden zurueckliegt.
        */
       if( ((physCyl == 0) || (physCyl == this.sysTracks))
@@ -217,6 +361,15 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
 	if( this.refreshFired ) {
 	  this.refreshFired = false;
 	  rebuildDisk();
+	} else if( this.autoRefresh && (this.watchService != null) ) {
+	  HostScan scan = this.pendingScan.getAndSet( null );
+	  if( scan != null ) {
+	    if( scan.hostWrites == this.hostWrites ) {
+	      rebuildDisk( scan.hostFiles );
+	    } else {
+	      this.rescanRequested = true;
+	    }
+	  }
 	} else if( this.autoRefresh ) {
 	  long curMillis = System.currentTimeMillis();
 	  if( (curMillis != -1L)
@@ -392,7 +545,6 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
 					physHead,
 					sector.getSectorNum() - 1 );
       if( (absSectorIdx >= 0) && (absSectorIdx < this.sectors.length) ) {
-	RandomAccessFile raf = null;
 	try {
 	  int sectorSize = getSectorSize();
 
@@ -402,14 +554,19 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
 	  System.arraycopy( dataBuf, 0, a, 0, n );
 	  setSectorData( absSectorIdx, a, 0, n, false );
 
-	  // Synchronisation mit Dateisystem
+	  /*
+	   * Synchronisation mit Dateisystem,
+	   * Aenderungen an Directory und DateStamper-Daten sofort,
+	   * Sektorinhalte im Hintergrund
+	   */
+	  this.hostWrites++;
 	  if( absSectorIdx < this.sysSectors ) {
 	    // Systemspuren
-	    raf = new RandomAccessFile( this.sysFile, "rw" );
-	    raf.seek( absSectorIdx * getSectorSize() );
-	    raf.write( dataBuf, 0, Math.min( dataLen, sectorSize ) );
-	    raf.close();
-	    raf = null;
+	    addWriteJob(
+			this.sysFile,
+			(long) absSectorIdx * sectorSize,
+			a,
+			absSectorIdx );
 	  }
 	  else if( (absSectorIdx >= this.sysSectors)
 		   && (absSectorIdx < (this.sysSectors + this.dirSectors)) )
@@ -447,12 +604,12 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
 		  if( file != null ) {
 		    int sectOffs = relSectorIdx
 				- (blockNum * this.sectorsPerBlock);
-		    raf = new RandomAccessFile( file, "rw" );
-		    raf.seek( ((blockOffs * this.sectorsPerBlock)
-					+ sectOffs) * getSectorSize() );
-		    raf.write( dataBuf, 0, Math.min( dataLen, sectorSize ) );
-		    raf.close();
-		    raf = null;
+		    addWriteJob(
+			file,
+			(long) ((blockOffs * this.sectorsPerBlock)
+					+ sectOffs) * sectorSize,
+			a,
+			absSectorIdx );
 		  }
 		}
 	      }
@@ -464,9 +621,6 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
 	  fireShowError( "E/A-Fehler", ex );
 	  rv = false;
 	}
-	finally {
-	  EmuUtil.closeSilently( raf );
-	}
 	rv = true;
       }
     }
@@ -476,6 +630,93 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
 
 	/* --- private Methoden --- */
 
+  /*
+   * Vermerken eines Sektors, der im Hintergrund
+   * in die Datei geschrieben wird
+   */
+  private void addWriteJob(
+			File   file,
+			long   filePos,
+			byte[] data,
+			int    absSectorIdx )
+  {
+    synchronized( this.writeQueue ) {
+      this.writeQueue.add(
+		new WriteJob(
+			file,
+			filePos,
+			data,
+			absSectorIdx,
+			this.sectors[ absSectorIdx ] ) );
+      this.writeQueue.notifyAll();
+    }
+    startBgThread();
+    if( this.closed ) {
+      flushWrites();
+    }
+  }
+
+
+  /*
+   * Zuordnen freier Bloecke
+   *
+   * Es wird zuerst ein zusammenhaengender Bereich gesucht.
+   * Wenn es keinen gibt und dieser nicht zwingend erforderlich ist,
+   * werden die Bloecke verstreut zugeordnet.
+   *
+   * Rueckgabewert:
+   *   true:  Bloecke wurden an die Liste angehaengt
+   *   false: nicht genuegend freie Bloecke vorhanden
+   */
+  private boolean allocBlocks(
+			boolean[]               usedBlocks,
+			java.util.List<Integer> blocks,
+			int                     nBlocks,
+			boolean                 runRequired )
+  {
+    boolean rv = (nBlocks <= 0);
+    if( !rv ) {
+      int runBegin = -1;
+      int runLen   = 0;
+      int nFree    = 0;
+      for( int i = this.dirBlocks; i < usedBlocks.length; i++ ) {
+	if( usedBlocks[ i ] ) {
+	  runLen = 0;
+	} else {
+	  if( runLen == 0 ) {
+	    runBegin = i;
+	  }
+	  runLen++;
+	  nFree++;
+	  if( runLen >= nBlocks ) {
+	    break;
+	  }
+	}
+      }
+      if( runLen >= nBlocks ) {
+	for( int i = 0; i < nBlocks; i++ ) {
+	  usedBlocks[ runBegin + i ] = true;
+	  blocks.add( runBegin + i );
+	}
+	rv = true;
+      } else if( !runRequired && (nFree >= nBlocks) ) {
+	for( int i = this.dirBlocks;
+	     (nBlocks > 0) && (i < usedBlocks.length);
+	     i++ )
+	{
+	  if( !usedBlocks[ i ] ) {
+	    usedBlocks[ i ] = true;
+	    blocks.add( i );
+	    --nBlocks;
+	  }
+	}
+	rv = true;
+      }
+    }
+    return rv;
+  }
+
+
   private int computeAbsSectorIdx(
 				int physCyl,
 				int physHead,
@@ -620,6 +861,97 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
   }
 
 
+  /*
+   * Schreiben der im Hintergrund noch ausstehenden Sektoren
+   *
+   * Die Methode wird vor jedem anderen Zugriff auf die Dateien
+   * des Verzeichnisses aufgerufen.
+   * Sektoren, die nicht geschrieben werden konnten, werden verworfen,
+   * sofern sie zwischenzeitlich nicht erneut geschrieben wurden,
+   * damit sie beim naechsten Lesen aus der Datei kommen.
+   * Das Objekt wird erst nach dem Freigeben von writeLock gesperrt,
+   * da der FDC-Thread die Sperren in umgekehrter Reihenfolge anfordert.
+   */
+  private void flushWrites()
+  {
+    java.util.List<WriteJob> failedJobs = null;
+    synchronized( this.writeLock ) {
+      Map<File,RandomAccessFile> rafs = new HashMap<>();
+      try {
+	for(;;) {
+	  WriteJob job = null;
+	  synchronized( this.writeQueue ) {
+	    job = this.writeQueue.poll();
+	  }
+	  if( job == null ) {
+	    break;
+	  }
+	  try {
+	    RandomAccessFile raf = rafs.get( job.file );
+	    if( raf == null ) {
+	      raf = new RandomAccessFile( job.file, "rw" );
+	      rafs.put( job.file, raf );
+	    }
+	    raf.seek( job.filePos );
+	    raf.write( job.data );
+	  }
+	  catch( IOException ex ) {
+	    if( failedJobs == null ) {
+	      failedJobs = new ArrayList<>();
+	    }
+	    failedJobs.add( job );
+	    fireShowError( "E/A-Fehler", ex );
+	  }
+	}
+      }
+      finally {
+	for( RandomAccessFile raf : rafs.values() ) {
+	  EmuUtil.closeSilently( raf );
+	}
+      }
+    }
+    if( failedJobs != null ) {
+      synchronized( this ) {
+	for( WriteJob job : failedJobs ) {
+	  int idx = job.absSectorIdx;
+	  if( (idx < this.sectors.length)
+	      && (this.sectors[ idx ] == job.sector) )
+	  {
+	    this.sectors[ idx ] = null;
+	  }
+	}
+      }
+    }
+  }
+
+
+  private static void freeBlocks(
+			boolean[]               usedBlocks,
+			java.util.List<Integer> blocks )
+  {
+    for( Integer blockNum : blocks ) {
+      usedBlocks[ blockNum.intValue() ] = false;
+    }
+  }
+
+
+  /*
+   * Groesse eines Eintrags in Bytes
+   *
+   * Rueckgabewert: -1, wenn der Eintrag nicht angelegt werden kann
+   */
+  private long getEntrySize( String entryName, HostFile hostFile )
+  {
+    long rv = -1;
+    if( isDsEntry( entryName ) ) {
+      rv = this.maxDirEntries * 16;
+    } else if( hostFile != null ) {
+      rv = hostFile.fileLen;
+    }
+    return rv;
+  }
+
+
   private java.util.List<Integer> getBlockNumsByEntryName(
 						String        entryName,
 						AtomicInteger fileLen )
@@ -685,6 +1017,25 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
   }
 
 
+  private static boolean isBlockRun(
+			java.util.List<Integer> blocks,
+			long                    nBlocks )
+  {
+    boolean rv = (blocks.size() == nBlocks);
+    for( int i = 1; rv && (i < blocks.size()); i++ ) {
+      rv = (blocks.get( i ).intValue() == (blocks.get( i - 1 ) + 1));
+    }
+    return rv;
+  }
+
+
+  private boolean isDsEntry( String entryName )
+  {
+    return this.dsEnabled
+		&& entryName.equals( "0" + DateStamper.ENTRYNAME );
+  }
+
+
   private static boolean isInSameMinute( Long minuteMillis, Long exactMillis )
   {
     boolean rv = false;
@@ -699,6 +1050,29 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
   }
 
 
+  /*
+   * Uebernehmen der Sektoren der angegebenen Bloecke
+   * aus der vorherigen virtuellen Diskette
+   */
+  private void keepSectors(
+			SectorData[]            oldSectors,
+			java.util.List<Integer> blocks )
+  {
+    for( Integer blockNum : blocks ) {
+      int idx = this.sysSectors + (blockNum * this.sectorsPerBlock);
+      for( int i = 0; i < this.sectorsPerBlock; i++ ) {
+	if( (idx >= 0)
+	    && (idx < this.sectors.length)
+	    && (idx < oldSectors.length) )
+	{
+	  this.sectors[ idx ] = oldSectors[ idx ];
+	}
+	idx++;
+      }
+    }
+  }
+
+
   private void loadFileIntoSectors(
 			File                    file,
 			java.util.List<Integer> blockNums )
@@ -730,6 +1104,8 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
 
   private byte[] readFile( File file )
   {
+    flushWrites();
+
     byte[] fileBytes = null;
     try {
       fileBytes = FileUtil.readFile( file, false, getDiskSize() );
@@ -753,127 +1129,71 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
   }
 
 
+  /*
+   * Neuaufbau der virtuellen Diskette anhand einer aktuellen Abfrage
+   * des Verzeichnisses
+   */
   private void rebuildDisk()
+  {
+    flushWrites();
+    this.pendingScan.set( null );
+    rebuildDisk( scanHostDir() );
+  }
+
+
+  /*
+   * Neuaufbau der virtuellen Diskette anhand einer Verzeichnisabfrage
+   *
+   * Unveraenderte Dateien behalten ihre Bloecke und die bereits
+   * gelesenen Sektoren. Geaenderte Dateien behalten ihre Bloecke,
+   * soweit sie noch benoetigt werden, und werden beim naechsten Zugriff
+   * neu gelesen. Freie Bloecke werden nur neuen bzw. gewachsenen Dateien
+   * zugeordnet. Damit aendern sich die Blocknummern einer Datei nicht,
+   * waehrend das emulierte System diese noch geoeffnet hat.
+   */
+  private void rebuildDisk( Map<String,HostFile> hostFiles )
   {
     if( this.dirBytes == null ) {
       this.dirBytes      = new byte[ this.dirBlocks * this.blockSize ];
       this.maxDirEntries = this.dirBytes.length / 32;
     }
+
+    // bisherige Blockzuordnung ermitteln
+    Map<String,java.util.List<Integer>> oldBlockMap = new HashMap<>();
+    for( String entryName : this.fileMap.keySet() ) {
+      java.util.List<Integer> blockNums = getBlockNumsByEntryName(
+								entryName,
+								null );
+      if( blockNums != null ) {
+	oldBlockMap.put( entryName, blockNums );
+      }
+    }
+    SectorData[]          oldSectors   = this.sectors;
+    Map<String,HostFile>  oldHostFiles = this.hostFiles;
+    Map<String,Exception> oldErrorMap  = this.errorMap;
+
     Arrays.fill( this.dirBytes, (byte) 0xE5 );
-    Arrays.fill( this.sectors, null );
+    this.sectors    = new SectorData[ oldSectors.length ];
     this.sysSectors = getSides() * this.sysTracks * getSectorsPerTrack();
     this.fileMap.clear();
-    if( this.errorMap != null ) {
-      this.errorMap.clear();
-    }
+    this.hostFiles  = new HashMap<>();
+    this.errorMap   = null;
     this.lastBuildMillis = System.currentTimeMillis();
 
     int extentsPerDirEntry = DiskUtil.getExtentsPerDirEntry(
 							blockSize,
 							blockNum16Bit );
 
-    // Dateien ermitteln, die in der emulierten Disketten enthalten sind
-    Map<String,File> fileMap     = new HashMap<>();
-    DateStamper      dateStamper = null;
-    boolean          dirFull     = false;
+    DateStamper dateStamper = null;
     if( this.dsEnabled ) {
-      fileMap.put( "0" + DateStamper.ENTRYNAME, null );
       dateStamper = new DateStamper(
 				this.dirBlocks * this.blockSize / 32,
 				this.dsBytes );
     }
-    for( int userNum = 0; !dirFull && (userNum < 16); userNum++ ) {
-      File dirFile = this.dirFile;
-      if( userNum > 0 ) {
-	dirFile = new File( dirFile, Integer.toString( userNum ) );
-      }
-      File[] files = dirFile.listFiles();
-      if( files != null ) {
-	for( int i = 0; i < files.length; i++ ) {
-	  File file = files[ i ];
-	  if( file != null ) {
-	    if( file.isFile() && file.canRead()
-		&& !file.equals( this.sysFile ) )
-	    {
-	      String fName = files[ i ].getName();
-	      if( fName != null ) {
-		String fName2 = fName.trim().toUpperCase();
-		if( fName2 != null ) {
-		  int len = fName2.length();
-		  if( (!this.dsEnabled
-				|| !fName.equals( DateStamper.FILENAME ))
-		      &&(len > 0) && (len < 13)
-		      && (len == fName.length()) )
-		  {
-		    StringBuilder buf = new StringBuilder( 12 );
-		    buf.append( (char) (userNum + '0') );
-		    int     nChars = 1;
-		    boolean ignore = false;
-		    boolean point  = false;
-		    for( int k = 0; k < len; k++ ) {
-		      char ch = fName2.charAt( k );
-		      if( DiskUtil.isValidCPMFileNameChar( ch ) ) {
-			int n = buf.length();
-			if( (!point && (nChars < 9))
-			    || (point && (nChars < 12)) )
-			{
-			  buf.append( ch );
-			  nChars++;
-			} else {
-			  ignore = true;
-			  break;
-			}
-		      } else if( ch == '.' ) {
-			if( nChars > 0 ) {
-			  while( nChars < 9 ) {
-			    buf.append( '\u0020' );
-			    nChars++;
-			  }
-			  point = true;
-			} else {
-			  ignore = true;
-			  break;
-			}
-		      } else {
-			ignore = true;
-			break;
-		      }
-		    }
-		    if( !ignore && (nChars > 1) ) {
-		      while( nChars < 12 ) {
-			buf.append( '\u0020' );
-			nChars++;
-		      }
-		      String entryName = buf.toString();
-		      if( fileMap.containsKey( entryName ) ) {
-			/*
-			 * Falls mehrere Dateien existieren und deren
-			 * grossgeschriebene Namen sich nicht unterscheiden,
-			 * werden diese Dateien ignoriert.
-			 */
-			fileMap.put( entryName, null );
-		      } else {
-			fileMap.put( entryName, file );
-			if( fileMap.size() >= this.maxDirEntries ) {
-			  dirFull = true;
-			}
-		      }
-		    }
-		  }
-		}
-	      }
-	    }
-	  }
-	}
-      }
-    }
-    String[]           entryNames = null;
-    Collection<String> tmpNames   = fileMap.keySet();
-    if( tmpNames != null ) {
-      int n = tmpNames.size();
-      if( n > 0 ) {
-	entryNames = tmpNames.toArray( new String[ n ] );
-      }
+    String[] entryNames = null;
+    int      nNames     = hostFiles.size();
+    if( nNames > 0 ) {
+      entryNames = hostFiles.keySet().toArray( new String[ nNames ] );
     }
     if( entryNames != null ) {
       if( entryNameComparator == null ) {
@@ -883,34 +1203,66 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
 	Arrays.sort( entryNames, entryNameComparator );
       }
       catch( ClassCastException ex ) {}
+
+      /*
+       * Bloecke, die den Dateien bereits vorher zugeordnet waren,
+       * reservieren, soweit sie noch benoetigt werden
+       */
+      boolean[] usedBlocks = new boolean[
+			Math.max( getDiskSize() / this.blockSize, 0 ) ];
+      Map<String,java.util.List<Integer>> keptBlockMap = new HashMap<>();
+      for( String entryName : entryNames ) {
+	java.util.List<Integer> oldBlocks = oldBlockMap.get( entryName );
+	long fSize = getEntrySize( entryName, hostFiles.get( entryName ) );
+	if( (fSize >= 0) && (oldBlocks != null) ) {
+	  long nBlocks = (fSize + this.blockSize - 1) / this.blockSize;
+	  java.util.List<Integer> blocks = new ArrayList<>();
+	  for( Integer blockNum : oldBlocks ) {
+	    int b = blockNum.intValue();
+	    if( (blocks.size() >= nBlocks)
+		|| (b < this.dirBlocks)
+		|| (b >= usedBlocks.length)
+		|| usedBlocks[ b ] )
+	    {
+	      break;
+	    }
+	    usedBlocks[ b ] = true;
+	    blocks.add( blockNum );
+	  }
+	  // DateStamper-Bloecke muessen zusammenhaengend sein
+	  if( isDsEntry( entryName ) && !isBlockRun( blocks, nBlocks ) ) {
+	    freeBlocks( usedBlocks, blocks );
+	    blocks.clear();
+	  }
+	  keptBlockMap.put( entryName, blocks );
+	}
+      }
+
+      // Directory-Eintraege erzeugen
       int firstDsBlkIdx  = -1;
       int dirIdx         = 0;
-      int blkIdx         = this.dirBlocks;
-      int nRemainBlocks  = (getDiskSize() / this.blockSize) - blkIdx;
       int maxFileEntries = Math.max( 32 / extentsPerDirEntry, 1 );
       int maxEntrySize   = (this.blockNum16Bit ? 8 : 16) * this.blockSize;
       int maxEntrySegs   = maxEntrySize / 128;
       for( int i = 0; i < entryNames.length; i++ ) {
 	String entryName = entryNames[ i ];
 	if( entryName != null ) {
-	  File    file     = null;
-	  long    fSize    = -1;
-	  boolean writable = false;
-	  if( this.dsEnabled
-	      && entryName.equals( "0" + DateStamper.ENTRYNAME ) )
-	  {
-	    fSize         = maxDirEntries * 16;
-	    writable      = true;
-	    firstDsBlkIdx = blkIdx;
-	  } else {
-	    file = fileMap.get( entryName );
-	    if( file != null ) {
-	      fSize    = file.length();
-	      writable = file.canWrite();
-	    }
+	  HostFile hostFile = hostFiles.get( entryName );
+	  File     file     = null;
+	  long     fSize    = getEntrySize( entryName, hostFile );
+	  boolean  dsEntry  = isDsEntry( entryName );
+	  boolean  writable = dsEntry;
+	  if( !dsEntry && (hostFile != null) ) {
+	    file     = hostFile.file;
+	    writable = hostFile.writable;
 	  }
 	  if( fSize >= 0 ) {
-	    long nEntries = (fSize + maxEntrySize - 1) / maxEntrySize;
+	    java.util.List<Integer> blocks = keptBlockMap.get( entryName );
+	    if( blocks == null ) {
+	      blocks = new ArrayList<>();
+	    }
+	    boolean done     = false;
+	    long    nEntries = (fSize + maxEntrySize - 1) / maxEntrySize;
 	    if( nEntries < 1 ) {
 	      nEntries = 1;
 	    }
@@ -918,8 +1270,17 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
 		&& (nEntries <= maxFileEntries) )
 	    {
 	      long nBlocks = (fSize + this.blockSize - 1) / this.blockSize;
-	      if( nBlocks <= nRemainBlocks ) {
-		int baseExtentNum = 0;
+	      if( allocBlocks(
+			usedBlocks,
+			blocks,
+			(int) (nBlocks - blocks.size()),
+			dsEntry ) )
+	      {
+		if( dsEntry && !blocks.isEmpty() ) {
+		  firstDsBlkIdx = blocks.get( 0 ).intValue();
+		}
+		Iterator<Integer> blockIter     = blocks.iterator();
+		int               baseExtentNum = 0;
 		for( int k = 0; k < nEntries; k++ ) {
 		  int roAttrPos = dirIdx + 9;
 		  int len       = entryName.length();
@@ -967,11 +1328,10 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
 		  if( this.blockNum16Bit ) {
 		    for( int m = 0; m < 8; m++ ) {
 		      if( nBlocks > 0 ) {
+			int blkIdx = blockIter.next().intValue();
 			this.dirBytes[ dirIdx++ ] = (byte) blkIdx;
 			this.dirBytes[ dirIdx++ ] = (byte) (blkIdx >> 8);
-			blkIdx++;
 			--nBlocks;
-			--nRemainBlocks;
 			fSize -= this.blockSize;
 		      } else {
 			this.dirBytes[ dirIdx++ ] = (byte) 0;
@@ -981,9 +1341,9 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
 		  } else {
 		    for( int m = 0; m < 16; m++ ) {
 		      if( nBlocks > 0 ) {
-			this.dirBytes[ dirIdx++ ] = (byte) blkIdx++;
+			this.dirBytes[ dirIdx++ ] =
+				(byte) blockIter.next().intValue();
 			--nBlocks;
-			--nRemainBlocks;
 			fSize -= this.blockSize;
 		      } else {
 			this.dirBytes[ dirIdx++ ] = (byte) 0;
@@ -991,12 +1351,32 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
 		    }
 		  }
 		  if( dateStamper != null ) {
-		    dateStamper.addFileTimes( file );
+		    dateStamper.addFileTimes(
+			hostFile != null ? hostFile.fileTimes : null );
 		  }
 		  baseExtentNum += extentsPerDirEntry;
 		}
+		done = true;
+
+		/*
+		 * bereits gelesene Sektoren einer unveraenderten Datei
+		 * uebernehmen
+		 */
+		if( hostFile != null ) {
+		  this.hostFiles.put( entryName, hostFile );
+		  if( hostFile.equalsContent( oldHostFiles.get( entryName ) )
+		      && blocks.equals( oldBlockMap.get( entryName ) )
+		      && ((oldErrorMap == null)
+			  || !oldErrorMap.containsKey( file.getPath() )) )
+		  {
+		    keepSectors( oldSectors, blocks );
+		  }
+		}
 	      }
 	    }
+	    if( !done ) {
+	      freeBlocks( usedBlocks, blocks );
+	    }
 	    this.fileMap.put( entryName, file );
 	  }
 	}
@@ -1043,6 +1423,198 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
   }
 
 
+  /*
+   * Ueberwachen des Verzeichnisses und der Unterverzeichnisse
+   * der User-Bereiche
+   *
+   * Bereits ueberwachte Verzeichnisse werden dabei nicht doppelt
+   * registriert.
+   */
+  private void registerDirs( WatchService ws )
+  {
+    for( int userNum = 0; userNum < 16; userNum++ ) {
+      File dirFile = this.dirFile;
+      if( userNum > 0 ) {
+	dirFile = new File( dirFile, Integer.toString( userNum ) );
+      }
+      if( dirFile.isDirectory() ) {
+	try {
+	  dirFile.toPath().register(
+			ws,
+			StandardWatchEventKinds.ENTRY_CREATE,
+			StandardWatchEventKinds.ENTRY_DELETE,
+			StandardWatchEventKinds.ENTRY_MODIFY );
+	}
+	catch( IOException | UnsupportedOperationException ex ) {}
+      }
+    }
+  }
+
+
+  /*
+   * Hintergrund-Thread
+   *
+   * Er schreibt die geschriebenen Sektoren in die Dateien
+   * und fragt bei automatischer Aktualisierung das Verzeichnis ab,
+   * sobald sich darin etwas geaendert hat.
+   * Das Ergebnis wird vom FDC-Thread beim naechsten Zugriff
+   * auf den ersten Sektor der Diskette oder des Directories uebernommen.
+   * Nach mehreren kurz aufeinanderfolgenden Aenderungen wird
+   * das Verzeichnis nur einmal abgefragt.
+   */
+  private void runBgThread()
+  {
+    WatchService ws      = this.watchService;
+    boolean      changed = true;
+    try {
+      while( !this.closed ) {
+	if( ws != null ) {
+	  WatchKey wk = ws.poll( BG_WAIT_MILLIS, TimeUnit.MILLISECONDS );
+	  int      n  = 0;
+	  while( wk != null ) {
+	    wk.pollEvents();
+	    wk.reset();
+	    changed = true;
+	    wk      = null;
+	    if( ++n < BG_MAX_SETTLE_LOOPS ) {
+	      wk = ws.poll( BG_SETTLE_MILLIS, TimeUnit.MILLISECONDS );
+	    }
+	  }
+	} else {
+	  synchronized( this.writeQueue ) {
+	    if( this.writeQueue.isEmpty() ) {
+	      this.writeQueue.wait();
+	    }
+	  }
+	}
+	flushWrites();
+	if( (ws != null) && !this.closed ) {
+	  if( this.rescanRequested ) {
+	    this.rescanRequested = false;
+	    changed              = true;
+	  }
+	  if( changed ) {
+	    changed = false;
+	    registerDirs( ws );
+	    int hostWrites = this.hostWrites;
+	    this.pendingScan.set(
+			new HostScan( scanHostDir(), hostWrites ) );
+	  }
+	}
+      }
+    }
+    catch( ClosedWatchServiceException ex ) {}
+    catch( InterruptedException ex ) {}
+  }
+
+
+  /*
+   * Ermitteln der Dateien, die in der emulierten Diskette
+   * enthalten sind
+   *
+   * Die Methode greift nur auf unveraenderliche Attribute
+   * der Diskette zu und kann deshalb auch im Hintergrund-Thread
+   * aufgerufen werden.
+   * Doppelte Eintragsnamen und der DateStamper-Eintrag werden
+   * mit null als Wert vermerkt.
+   */
+  private Map<String,HostFile> scanHostDir()
+  {
+    Map<String,HostFile> fileMap       = new HashMap<>();
+    int                  maxDirEntries = this.dirBlocks * this.blockSize / 32;
+    boolean              dirFull       = false;
+    if( this.dsEnabled ) {
+      fileMap.put( "0" + DateStamper.ENTRYNAME, null );
+    }
+    for( int userNum = 0; !dirFull && (userNum < 16); userNum++ ) {
+      File dirFile = this.dirFile;
+      if( userNum > 0 ) {
+	dirFile = new File( dirFile, Integer.toString( userNum ) );
+      }
+      File[] files = dirFile.listFiles();
+      if( files != null ) {
+	for( int i = 0; i < files.length; i++ ) {
+	  File file = files[ i ];
+	  if( file != null ) {
+	    if( file.isFile() && file.canRead()
+		&& !file.equals( this.sysFile ) )
+	    {
+	      String fName = files[ i ].getName();
+	      if( fName != null ) {
+		String fName2 = fName.trim().toUpperCase();
+		if( fName2 != null ) {
+		  int len = fName2.length();
+		  if( (!this.dsEnabled
+				|| !fName.equals( DateStamper.FILENAME ))
+		      &&(len > 0) && (len < 13)
+		      && (len == fName.length()) )
+		  {
+		    StringBuilder buf = new StringBuilder( 12 );
+		    buf.append( (char) (userNum + '0') );
+		    int     nChars = 1;
+		    boolean ignore = false;
+		    boolean point  = false;
+		    for( int k = 0; k < len; k++ ) {
+		      char ch = fName2.charAt( k );
+		      if( DiskUtil.isValidCPMFileNameChar( ch ) ) {
+			int n = buf.length();
+			if( (!point && (nChars < 9))
+			    || (point && (nChars < 12)) )
+			{
+			  buf.append( ch );
+			  nChars++;
+			} else {
+			  ignore = true;
+			  break;
+			}
+		      } else if( ch == '.' ) {
+			if( nChars > 0 ) {
+			  while( nChars < 9 ) {
+			    buf.append( '\u0020' );
+			    nChars++;
+			  }
+			  point = true;
+			} else {
+			  ignore = true;
+			  break;
+			}
+		      } else {
+			ignore = true;
+			break;
+		      }
+		    }
+		    if( !ignore && (nChars > 1) ) {
+		      while( nChars < 12 ) {
+			buf.append( '\u0020' );
+			nChars++;
+		      }
+		      String entryName = buf.toString();
+		      if( fileMap.containsKey( entryName ) ) {
+			/*
+			 * Falls mehrere Dateien existieren und deren
+			 * grossgeschriebene Namen sich nicht unterscheiden,
+			 * werden diese Dateien ignoriert.
+			 */
+			fileMap.put( entryName, null );
+		      } else {
+			fileMap.put( entryName, new HostFile( file ) );
+			if( fileMap.size() >= maxDirEntries ) {
+			  dirFull = true;
+			}
+		      }
+		    }
+		  }
+		}
+	      }
+	    }
+	  }
+	}
+      }
+    }
+    return fileMap;
+  }
+
+
   private void setSectorData(
 			int     absSectIdx,
 			byte[]  dataBuf,
@@ -1080,11 +1652,49 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
   }
 
 
+  /*
+   * Starten des Hintergrund-Threads beim ersten Zugriff,
+   * bei automatischer Aktualisierung mit Ueberwachung des Verzeichnisses
+   *
+   * Steht keine Ueberwachung zur Verfuegung, wird wie bisher
+   * nach Ablauf einer Zeitspanne neu eingelesen.
+   */
+  private void startBgThread()
+  {
+    if( (this.bgThread == null) && !this.closed ) {
+      if( this.autoRefresh ) {
+	try {
+	  this.watchService = FileSystems.getDefault().newWatchService();
+	  registerDirs( this.watchService );
+	}
+	catch( IOException | UnsupportedOperationException ex ) {
+	  EmuUtil.closeSilently( this.watchService );
+	  this.watchService = null;
+	}
+      }
+      this.bgThread = new Thread(
+			Main.getThreadGroup(),
+			new Runnable()
+			{
+			  @Override
+			  public void run()
+			  {
+			    runBgThread();
+			  }
+			},
+			"JKCEMU directory disk " + this.dirFile.getName() );
+      this.bgThread.setDaemon( true );
+      this.bgThread.start();
+    }
+  }
+
+
   private void writeDirSector(
 			int    absSectorIdx,
 			byte[] dataBuf,
 			int    dataLen ) throws IOException
   {
+    flushWrites();
     if( this.dirBytes != null ) {
       int dirPos = (absSectorIdx - this.sysSectors) * getSectorSize();
       if( dirPos >= 0 ) {
@@ -1218,6 +1828,8 @@ public class DirectoryFloppyDisk extends AbstractFloppyDisk
 			byte[] dataBuf,
 			int    dataLen ) throws IOException
   {
+    flushWrites();
+
     byte[] oldDsBytes     = this.dsBytes;
     int    dsFirstSectopr = this.dsFirstSector;
     if( this.dsEnabled && (oldDsBytes != null) && (dsFirstSector >= 0) ) {
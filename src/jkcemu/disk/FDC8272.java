@@ -9,6 +9,9 @@
 
 package jkcemu.disk;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Arrays;
 import jkcemu.Main;
 import jkcemu.base.EmuThread;
@@ -162,7 +165,7 @@ public class FDC8272 implements
   private int                 statusReg3;
   private int                 stepRateMillis;
   private int                 tStatesTillIOReq;
-  private int                 tStatesTillIOStart;
+  private volatile int        tStatesTillIOStart;
   private int                 tStatesTillOverrun;
   private int                 tStateRotationCounter;
   private int                 tStateStepCounter;
@@ -177,8 +180,10 @@ public class FDC8272 implements
   private int                 dataLen;
   private int                 remainBytes;
   private int                 curSectorIdx;
+  private byte[]              xferBuf;
+  private int                 xferPos;
+  private int                 xferLen;
   private volatile SectorData curSector;
-  private SectorData.Reader   curSectorReader;
 
 
   public FDC8272( DriveSelector driveSelector, int mhz )
@@ -196,6 +201,9 @@ public class FDC8272 implements
     this.tStatesPerStep     = 0;
     this.debugLevel         = 0;
     this.dataBuf            = null;
+    this.xferBuf            = null;
+    this.xferPos            = -1;
+    this.xferLen            = 0;
     this.args               = new int[ 9 ];
     this.results            = new int[ 7 ];
     this.remainSeekSteps    = new int[ 4 ];
@@ -325,6 +333,48 @@ public class FDC8272 implements
   }
 
 
+  /*
+   * Lesen des mit saveState(...) geschriebenen Zustandes
+   *
+   * Die Diskettenlaufwerke werden auf die gespeicherten
+   * Kopfpositionen gestellt.
+   */
+  public void loadState( DataInput in ) throws IOException
+  {
+    reset( false );
+    this.dmaMode               = in.readBoolean();
+    this.stepRateMillis        = in.readUnsignedByte();
+    this.hdPossible            = in.readBoolean();
+    this.hdMode                = in.readBoolean();
+    this.interruptReq          = in.readBoolean();
+    this.statusRegMain         = in.readUnsignedByte();
+    this.statusReg0            = in.readUnsignedByte();
+    this.statusReg1            = in.readUnsignedByte();
+    this.statusReg2            = in.readUnsignedByte();
+    this.statusReg3            = in.readUnsignedByte();
+    this.sectorIdCyl           = in.readUnsignedByte();
+    this.sectorIdHead          = in.readUnsignedByte();
+    this.sectorIdRec           = in.readUnsignedByte();
+    this.sectorIdSizeCode      = in.readUnsignedByte();
+    this.tStateRotationCounter = in.readInt();
+    for( int i = 0; i < this.seekStatus.length; i++ ) {
+      this.seekStatus[ i ] = in.readShort();
+      int head = in.readByte();
+      int cyl  = in.readShort();
+      if( (head >= 0) && (cyl >= 0) ) {
+	FloppyDiskDrive drive = getDrive( i );
+	if( drive != null ) {
+	  drive.setSeekMode( head, cyl );
+	  while( !drive.seekStep() ) {
+	    // Kopf auf den gespeicherten Zylinder stellen
+	  }
+	}
+      }
+    }
+    calcTStatesPerStep();
+  }
+
+
   public int readMainStatusReg()
   {
     int rv = this.statusRegMain;
@@ -397,7 +447,8 @@ public class FDC8272 implements
     this.formatStatus          = FormatStatus.IDLE;
     this.ioTaskCmd             = IOTaskCmd.IDLE;
     this.curSector             = null;
-    this.curSectorReader       = null;
+    this.xferPos               = -1;
+    this.xferLen               = 0;
     this.curSectorIdx          = -1;
     this.dataPos               = -1;
     this.dataLen               = 0;
@@ -417,6 +468,52 @@ public class FDC8272 implements
   }
 
 
+  /*
+   * Schreiben des Zustandes
+   *
+   * Der Zustand kann nur geschrieben werden,
+   * wenn der FDC kein Kommando ausfuehrt.
+   */
+  public void saveState( DataOutput out ) throws IOException
+  {
+    boolean idle = (this.curCmd == Command.INVALID)
+			&& (this.ioTaskCmd == IOTaskCmd.IDLE)
+			&& (this.argIdx == 0)
+			&& (this.resultIdx < 0)
+			&& !this.seekMode;
+    if( !idle ) {
+      throw new IOException( "Der Floppy-Disk-Controller ist gerade aktiv.\n"
+		+ "Bitte warten Sie, bis der Diskettenzugriff beendet ist." );
+    }
+    out.writeBoolean( this.dmaMode );
+    out.writeByte( this.stepRateMillis );
+    out.writeBoolean( this.hdPossible );
+    out.writeBoolean( this.hdMode );
+    out.writeBoolean( this.interruptReq );
+    out.writeByte( this.statusRegMain );
+    out.writeByte( this.statusReg0 );
+    out.writeByte( this.statusReg1 );
+    out.writeByte( this.statusReg2 );
+    out.writeByte( this.statusReg3 );
+    out.writeByte( this.sectorIdCyl );
+    out.writeByte( this.sectorIdHead );
+    out.writeByte( this.sectorIdRec );
+    out.writeByte( this.sectorIdSizeCode );
+    out.writeInt( this.tStateRotationCounter );
+    for( int i = 0; i < this.seekStatus.length; i++ ) {
+      out.writeShort( this.seekStatus[ i ] );
+      FloppyDiskDrive drive = getDrive( i );
+      if( drive != null ) {
+	out.writeByte( drive.getHead() );
+	out.writeShort( drive.getCylinder() );
+      } else {
+	out.writeByte( -1 );
+	out.writeShort( -1 );
+      }
+    }
+  }
+
+
   public void setHDMode( boolean state )
   {
     this.hdMode = (state && this.hdPossible);
@@ -534,23 +631,30 @@ public class FDC8272 implements
   @Override
   public void z80TStatesProcessed( Z80CPU cpu, int tStates )
   {
-    synchronized( this.ioTaskThread ) {
-      if( this.tStatesTillIOStart > 0 ) {
-	this.tStatesTillIOStart -= tStates;
-	if( (this.tStatesTillIOStart <= 0)
-	    && (this.ioTaskCmd != IOTaskCmd.IDLE) )
-	{
-	  if( this.eotReached ) {
-	    this.statusReg0 |= ST0_ABNORMAL_TERMINATION;
-	    this.statusReg1 |= ST1_END_OF_CYLINDER;
-	    stopExecution();
-	    this.eotReached = false;
-	  } else {
-	    try {
-	      this.ioTaskThread.notify();
-	    }
-	    catch( IllegalMonitorStateException ex ) {
-	      this.ioTaskNoWait = true;
+    /*
+     * Der Monitor wird nur benoetigt, wenn ein verzoegerter Start
+     * des IO-Threads ansteht.
+     * Im Leerlauf wird er deshalb nicht nach jedem Befehl angefordert.
+     */
+    if( this.tStatesTillIOStart > 0 ) {
+      synchronized( this.ioTaskThread ) {
+	if( this.tStatesTillIOStart > 0 ) {
+	  this.tStatesTillIOStart -= tStates;
+	  if( (this.tStatesTillIOStart <= 0)
+	      && (this.ioTaskCmd != IOTaskCmd.IDLE) )
+	  {
+	    if( this.eotReached ) {
+	      this.statusReg0 |= ST0_ABNORMAL_TERMINATION;
+	      this.statusReg1 |= ST1_END_OF_CYLINDER;
+	      stopExecution();
+	      this.eotReached = false;
+	    } else {
+	      try {
+		this.ioTaskThread.notify();
+	      }
+	      catch( IllegalMonitorStateException ex ) {
+		this.ioTaskNoWait = true;
+	      }
 	    }
 	  }
 	}
@@ -826,9 +930,8 @@ public class FDC8272 implements
 	  this.statusReg1 |= ST1_DATA_ERROR;
 	  this.statusReg2 |= ST2_DATA_ERROR_IN_DATA_FIELD;
 	}
-	this.curSector       = sector;
-	this.curSectorReader = sector.reader();
-	this.remainBytes     = this.dataLen;
+	this.remainBytes = this.dataLen;
+	loadSector( sector );
 	startIOReqTimer();
       } else {
 	this.statusReg0 |= ST0_ABNORMAL_TERMINATION;
@@ -872,9 +975,8 @@ public class FDC8272 implements
     drive = getExecutingDrive();
     if( drive != null ) {
       if( sector != null ) {
-	this.curSector       = sector;
-	this.curSectorReader = sector.reader();
-	this.remainBytes     = this.dataLen;
+	this.remainBytes = this.dataLen;
+	loadSector( sector );
 	if( this.curCmd == Command.READ_TRACK ) {
 	  setByteReadable();
 	} else {
@@ -1175,6 +1277,33 @@ public class FDC8272 implements
   }
 
 
+  /*
+   * Kopieren des Sektorinhalts in den Transferpuffer
+   *
+   * Der Sektor wird dabei nur einmal gesperrt.
+   * Die einzelnen Bytes werden anschliessend ohne Sperre
+   * aus dem Transferpuffer gelesen.
+   * Der Sektor wird erst nach dem Fuellen des Puffers gesetzt,
+   * da der CPU-Thread ueber das volatile Feld curSector
+   * auf den Puffer zugreift.
+   */
+  private void loadSector( SectorData sector )
+  {
+    int len = sector.getDataLength();
+    if( this.xferBuf != null ) {
+      if( this.xferBuf.length < len ) {
+	this.xferBuf = null;
+      }
+    }
+    if( this.xferBuf == null ) {
+      this.xferBuf = new byte[ Math.max( len, 1024 ) ];
+    }
+    this.xferLen   = sector.read( this.xferBuf, 0, len );
+    this.xferPos   = 0;
+    this.curSector = sector;
+  }
+
+
   private int readFromDisk()
   {
     int rv = -1;
@@ -1184,12 +1313,11 @@ public class FDC8272 implements
 	  || (this.curCmd == Command.READ_DELETED_DATA)
 	  || (this.curCmd == Command.READ_TRACK) )
       {
-	this.tStatesTillOverrun  = 0;
-	SectorData sector        = this.curSector;
-	SectorData.Reader reader = this.curSectorReader;
-	if( (sector != null) && (reader != null) ) {
+	this.tStatesTillOverrun = 0;
+	SectorData sector       = this.curSector;
+	if( (sector != null) && (this.xferPos >= 0) ) {
 	  if( this.remainBytes > 0 ) {
-	    rv = reader.read();
+	    rv = readSectorByte();
 	    --this.remainBytes;
 	  }
 	  if( (rv < 0)
@@ -1201,7 +1329,7 @@ public class FDC8272 implements
 	  } else {
 	    this.statusRegMain &= ~STM_REQUEST_FOR_MASTER;
 	    if( (this.remainBytes > 0)
-		&& this.curSectorReader.isByteAvailable() )
+		&& (this.xferPos < this.xferLen) )
 	    {
 	      startIOReqTimer();
 	    } else {
@@ -1214,8 +1342,8 @@ public class FDC8272 implements
 	       * was dann zum falschen Setzen des End Of Cylinder Bits
 	       * fuehren koennte.
 	       */
-	      this.curSector       = null;
-	      this.curSectorReader = null;
+	      this.curSector = null;
+	      this.xferPos   = -1;
 	      incSectorNum();
 	      if( this.curCmd == Command.READ_TRACK ) {
 		startIOTask(
@@ -1235,6 +1363,16 @@ public class FDC8272 implements
   }
 
 
+  private int readSectorByte()
+  {
+    int rv = -1;
+    if( (this.xferPos >= 0) && (this.xferPos < this.xferLen) ) {
+      rv = (int) this.xferBuf[ this.xferPos++ ] & 0xFF;
+    }
+    return rv;
+  }
+
+
   private void seek( int driveNum, int head, int cyl )
   {
     this.statusRegMain &= ~STM_BUSY;
@@ -1436,7 +1574,7 @@ public class FDC8272 implements
     this.sectorIdHead     = this.args[ 3 ];
     this.sectorIdRec      = this.args[ 4 ];
     this.sectorIdSizeCode = this.args[ 5 ];
-    this.curSectorReader  = null;
+    this.xferPos          = -1;
     this.tcEnabled        = true;
     boolean         done  = false;
     FloppyDiskDrive drive = getArgDrive();
@@ -1506,7 +1644,7 @@ public class FDC8272 implements
     this.sectorIdHead     = this.args[ 3 ];
     this.sectorIdRec      = 1;
     this.sectorIdSizeCode = this.args[ 5 ];
-    this.curSectorReader  = null;
+    this.xferPos          = -1;
     this.curSectorIdx     = 0;
     this.tcEnabled        = true;
     boolean         done  = false;
@@ -1723,13 +1861,12 @@ public class FDC8272 implements
 	  || (this.curCmd == Command.SCAN_LOW_OR_EQUAL)
 	  || (this.curCmd == Command.SCAN_HIGH_OR_EQUAL) )
       {
-	this.tStatesTillOverrun  = 0;
-	int        b             = -1;
-	SectorData sector        = this.curSector;
-	SectorData.Reader reader = this.curSectorReader;
-	if( (sector != null) && (reader != null) ) {
+	this.tStatesTillOverrun = 0;
+	int        b            = -1;
+	SectorData sector       = this.curSector;
+	if( (sector != null) && (this.xferPos >= 0) ) {
 	  if( this.remainBytes > 0 ) {
-	    b = reader.read();
+	    b = readSectorByte();
 	    --this.remainBytes;
 	  }
 	  if( (b < 0) || ((this.statusReg0 & ST0_ERROR_MASK) != 0) ) {
@@ -1752,7 +1889,7 @@ public class FDC8272 implements
 	      }
 	    }
 	    if( (this.remainBytes > 0)
-		&& this.curSectorReader.isByteAvailable() )
+		&& (this.xferPos < this.xferLen) )
 	    {
 	      startIOReqTimer();
 	    } else {
@@ -1768,8 +1905,8 @@ public class FDC8272 implements
 		 * was dann zum falschen Setzen des End Of Cylinder Bits
 		 * fuehren wuerde.
 		 */
-		this.curSector       = null;
-		this.curSectorReader = null;
+		this.curSector = null;
+		this.xferPos   = -1;
 		addSectorNum( this.args[ 8 ] );
 		startIOTask(
 			IOTaskCmd.READ_SECTOR_BY_ID,
@@ -11,11 +11,11 @@ package jkcemu.disk;
 import java.awt.Component;
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.util.Arrays;
 import java.util.Properties;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
 import jkcemu.Main;
 import jkcemu.base.EmuUtil;
 import jkcemu.etc.RTC7242X;
@@ -49,6 +49,14 @@ public class GIDE implements Runnable
 
   private static final int SECTOR_SIZE = 512;
 
+  /*
+   * Geschriebene Sektoren werden in die Abbilddatei uebertragen,
+   * sobald die angegebene Zeit kein Kommando mehr kam
+   * oder die angegebene Anzahl an Sektoren erreicht ist.
+   */
+  private static final long FLUSH_DELAY_MILLIS = 500;
+  private static final int  MAX_DIRTY_SECTORS  = 256;
+
   private enum Command {
 		NONE,
 		FORMAT_TRACK,
@@ -67,16 +75,16 @@ public class GIDE implements Runnable
 
   protected static class IOTask
   {
-    public Command cmd;
-    public File    file;
-    public long    filePos;
-    public int     byteCnt;
+    public Command      cmd;
+    public HardDiskFile file;
+    public long         filePos;
+    public int          byteCnt;
 
     protected IOTask(
-		Command cmd,
-		File    file,
-		long    filePos,
-		int     byteCnt )
+		Command      cmd,
+		HardDiskFile file,
+		long         filePos,
+		int          byteCnt )
     {
       this.cmd     = cmd;
       this.file    = file;
@@ -89,6 +97,7 @@ public class GIDE implements Runnable
   private Component             owner;
   private String                propPrefix;
   private HardDisk[]            disks;
+  private HardDiskFile[]        diskFiles;
   private RTC7242X              rtc;
   private BlockingQueue<IOTask> ioTaskQueue;
   private volatile Command      pendingCmd;
@@ -169,6 +178,29 @@ public class GIDE implements Runnable
       }
       catch( IllegalMonitorStateException ex ) {}
     }
+
+    /*
+     * Einen bereits gestarteten Auftrag noch beenden lassen,
+     * damit dieser nicht auf eine geschlossene Datei zugreift
+     */
+    try {
+      this.ioTaskThread.join( 1000 );
+    }
+    catch( InterruptedException ex ) {}
+
+    // noch nicht geschriebene Sektoren sichern
+    if( this.diskFiles != null ) {
+      for( HardDiskFile diskFile : this.diskFiles ) {
+	if( diskFile != null ) {
+	  try {
+	    diskFile.close();
+	  }
+	  catch( IOException ex ) {
+	    showWriteError( ex );
+	  }
+	}
+      }
+    }
   }
 
 
@@ -480,8 +512,12 @@ public class GIDE implements Runnable
   {
     while( this.ioTaskEnabled ) {
       try {
-	IOTask task = this.ioTaskQueue.take();
-	if( this.ioTaskEnabled ) {
+	IOTask task = this.ioTaskQueue.poll(
+					FLUSH_DELAY_MILLIS,
+					TimeUnit.MILLISECONDS );
+	if( task == null ) {
+	  flushDiskFiles();
+	} else if( this.ioTaskEnabled ) {
 	  switch( task.cmd ) {
 	    case READ_SECTORS:
 	      execReadSectorsTask( task );
@@ -510,6 +546,7 @@ public class GIDE implements Runnable
     this.owner           = owner;
     this.propPrefix      = propPrefix;
     this.disks           = disks;
+    this.diskFiles       = null;
     this.debugLevel      = 0;
     this.rtc             = new RTC7242X();
     this.offsets         = null;
@@ -525,6 +562,16 @@ public class GIDE implements Runnable
 				this,
 				"JKCEMU GIDE" );
 
+    if( disks != null ) {
+      this.diskFiles = new HardDiskFile[ disks.length ];
+      for( int i = 0; i < disks.length; i++ ) {
+	File file = disks[ i ].getFile();
+	if( file != null ) {
+	  this.diskFiles[ i ] = new HardDiskFile( file );
+	}
+      }
+    }
+
     String text = System.getProperty( SYSPROP_DEBUG );
     if( text != null ) {
       try {
@@ -940,27 +987,14 @@ public class GIDE implements Runnable
   {
     long cnt = task.byteCnt;
     if( (task.file != null) && (task.filePos >= 0) && (cnt > 0) ) {
-      boolean          err  = false;
-      RandomAccessFile raf = null;
+      boolean err = false;
       try {
-	raf = new RandomAccessFile( task.file, "rw" );
-	raf.seek( task.filePos );
-	while( cnt > 0 ) {
-	  raf.write( 0 );
-	  --cnt;
-	}
-	raf.close();
-	raf = null;
+	task.file.write( task.filePos, new byte[ (int) cnt ], (int) cnt );
+	flushDiskFileIfFull( task.file );
       }
       catch( IOException ex ) {
 	err = true;
-	if( !this.writeErrShown ) {
-	  this.writeErrShown = true;
-	  EmuUtil.fireShowErrorDlg( this.owner, null, ex );
-	}
-      }
-      finally {
-	EmuUtil.closeSilently( raf );
+	showWriteError( ex );
       }
       if( err ) {
 	this.errorReg = ERROR_UNCORRECTABLE_DATA;
@@ -980,11 +1014,8 @@ public class GIDE implements Runnable
     if( (task.file != null) && (task.filePos >= 0) && (cnt > 0) ) {
       Arrays.fill( this.ioBuf, 0, cnt, (byte) 0xE5 );
       if( task.file.exists() ) {
-	RandomAccessFile raf = null;
 	try {
-	  raf = new RandomAccessFile( task.file, "r" );
-	  raf.seek( task.filePos );
-	  cnt = (int) raf.read( this.ioBuf, 0, cnt );
+	  cnt = task.file.read( task.filePos, this.ioBuf, cnt );
 	  if( this.debugLevel > 3 ) {
 	    System.out.printf(
 			"GIDE io task: read sector: %d read\n",
@@ -1006,9 +1037,6 @@ public class GIDE implements Runnable
 		ex );
 	  }
 	}
-	finally {
-	  EmuUtil.closeSilently( raf );
-	}
       } else {
 	if( !this.readMissingFileShown ) {
 	  this.readMissingFileShown = true;
@@ -1037,40 +1065,14 @@ public class GIDE implements Runnable
       System.out.printf( "GIDE io task: write sector, pos=%d", task.filePos );
     }
     if( (task.file != null) && (task.filePos >= 0) ) {
-      boolean          err  = false;
-      RandomAccessFile raf = null;
+      boolean err = false;
       try {
-	raf      = new RandomAccessFile( task.file, "rw" );
-	long len = raf.length();
-	if( len < task.filePos ) {
-	  try {
-	    byte[] buf = new byte[ 512 ];
-	    Arrays.fill( buf, (byte) 0xE5 );
-	    raf.seek( len );
-	    while( (len + buf.length) <= task.filePos ) {
-	      raf.write( buf );
-	      len += buf.length;
-	    }
-	    if( len < task.filePos ) {
-	      raf.write( buf, 0, (int) (task.filePos - len) );
-	    }
-	  }
-	  catch( IOException ex ) {}
-	}
-	raf.seek( task.filePos );
-	raf.write( this.ioBuf, 0, SECTOR_SIZE );
-	raf.close();
-	raf = null;
+	task.file.write( task.filePos, this.ioBuf, SECTOR_SIZE );
+	flushDiskFileIfFull( task.file );
       }
       catch( IOException ex ) {
 	err = true;
-	if( !this.writeErrShown ) {
-	  this.writeErrShown = true;
-	  EmuUtil.fireShowErrorDlg( this.owner, null, ex );
-	}
-      }
-      finally {
-	EmuUtil.closeSilently( raf );
+	showWriteError( ex );
       }
       if( err ) {
 	this.errorReg = ERROR_UNCORRECTABLE_DATA;
@@ -1103,7 +1105,7 @@ public class GIDE implements Runnable
 	this.statusReg |= STATUS_ERROR;
       } else {
 	Arrays.fill( this.ioBuf, (byte) 0xE5 );
-	File file = this.curDisk.getFile();
+	HardDiskFile file = this.diskFiles[ this.curDiskIdx ];
 	if( file != null ) {
 	  int nSec = Math.min(
 			this.sectorsPerTrack[ this.curDiskIdx ]
@@ -1123,6 +1125,32 @@ public class GIDE implements Runnable
   }
 
 
+  private void flushDiskFileIfFull( HardDiskFile diskFile )
+					throws IOException
+  {
+    if( diskFile.getDirtyCount() >= MAX_DIRTY_SECTORS ) {
+      diskFile.flush();
+    }
+  }
+
+
+  private void flushDiskFiles()
+  {
+    if( this.diskFiles != null ) {
+      for( HardDiskFile diskFile : this.diskFiles ) {
+	if( diskFile != null ) {
+	  try {
+	    diskFile.flush();
+	  }
+	  catch( IOException ex ) {
+	    showWriteError( ex );
+	  }
+	}
+      }
+    }
+  }
+
+
   private static HardDisk[] getHardDisks(
 				Properties props,
 				String     propPrefix )
@@ -1268,6 +1296,15 @@ public class GIDE implements Runnable
   }
 
 
+  private void showWriteError( IOException ex )
+  {
+    if( !this.writeErrShown ) {
+      this.writeErrShown = true;
+      EmuUtil.fireShowErrorDlg( this.owner, null, ex );
+    }
+  }
+
+
   private void softReset()
   {
     this.ioTaskQueue.clear();
@@ -1295,7 +1332,7 @@ public class GIDE implements Runnable
   }
 
 
-  private void startIOTask( File file, long filePos, int byteCnt )
+  private void startIOTask( HardDiskFile file, long filePos, int byteCnt )
   {
     this.statusReg |= STATUS_BUSY;
     try {
@@ -1401,7 +1438,7 @@ public class GIDE implements Runnable
 	    {
 	      long sectOffs = (this.cylNum * heads * spt) + (headNum * spt);
 	      startIOTask(
-			this.curDisk.getFile(),
+			this.diskFiles[ this.curDiskIdx ],
 			this.offsets[ this.curDiskIdx ]
 				+ (sectOffs * ((long) SECTOR_SIZE)),
 			spt * SECTOR_SIZE );
@@ -1427,7 +1464,7 @@ public class GIDE implements Runnable
       if( this.ioBufPos == SECTOR_SIZE ) {
 	long pos = calcFilePos();
 	if( (pos >= 0) || (this.sectorNum >= 1) ) {
-	  startIOTask( this.curDisk.getFile(), pos, SECTOR_SIZE );
+	  startIOTask( this.diskFiles[ this.curDiskIdx ], pos, SECTOR_SIZE );
 	} else {
 	  this.errorReg = ERROR_CMD_ABORTED;
 	  this.statusReg |= STATUS_ERROR;
@@ -0,0 +1,262 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Kleincomputer-Emulator
+ *
+ * Festplattenabbilddatei mit Sektor-Cache
+ *
+ * Die Datei bleibt geoeffnet, bis close() aufgerufen wird.
+ * Gelesene und geschriebene Sektoren werden in einem LRU-Cache
+ * gehalten. Geschriebene Sektoren werden zuerst nur vermerkt
+ * und erst mit flush() nach Dateiposition sortiert in die Datei
+ * geschrieben. Dabei werden aufeinanderfolgende Sektoren
+ * zu einem Schreibzugriff zusammengefasst.
+ *
+ * Es werden die Methoden von RandomAccessFile und nicht
+ * die eines FileChannels verwendet, da ein FileChannel geschlossen wird,
+ * wenn der zugreifende Thread unterbrochen wird,
+ * und GIDE seinen IO-Thread bei einem RESET unterbricht.
+ */
+
+package jkcemu.disk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import jkcemu.base.EmuUtil;
+
+
+class HardDiskFile
+{
+  private static final int SECTOR_SIZE       = 512;
+  private static final int MAX_CACHE_SECTORS = 2048;
+  private static final int MAX_RUN_SECTORS   = 128;
+
+  private File                 file;
+  private RandomAccessFile     raf;
+  private boolean              writable;
+  private boolean              closed;
+  private Map<Long,byte[]>     cache;
+  private TreeMap<Long,byte[]> dirty;
+
+
+  HardDiskFile( File file )
+  {
+    this.file     = file;
+    this.raf      = null;
+    this.writable = false;
+    this.closed   = false;
+    this.dirty    = new TreeMap<>();
+    this.cache    = new LinkedHashMap<Long,byte[]>( 256, 0.75F, true )
+			{
+			  @Override
+			  protected boolean removeEldestEntry(
+					Map.Entry<Long,byte[]> eldest )
+			  {
+			    return size() > MAX_CACHE_SECTORS;
+			  }
+			};
+  }
+
+
+  /*
+   * Schreiben der vermerkten Sektoren und Schliessen der Datei
+   */
+  synchronized void close() throws IOException
+  {
+    try {
+      if( !this.closed ) {
+	flush();
+      }
+    }
+    finally {
+      this.closed = true;
+      this.cache.clear();
+      this.dirty.clear();
+      EmuUtil.closeSilently( this.raf );
+      this.raf = null;
+    }
+  }
+
+
+  synchronized boolean exists()
+  {
+    return (this.raf != null) || this.file.exists();
+  }
+
+
+  synchronized void flush() throws IOException
+  {
+    if( !this.dirty.isEmpty() ) {
+      openFile( true );
+      long   len    = this.raf.length();
+      byte[] runBuf = new byte[ MAX_RUN_SECTORS * SECTOR_SIZE ];
+      while( !this.dirty.isEmpty() ) {
+
+	// aufeinanderfolgende Sektoren zusammenfassen
+	long   runPos = this.dirty.firstKey().longValue();
+	int    runLen = 0;
+	byte[] sector = this.dirty.get( runPos );
+	while( sector != null ) {
+	  System.arraycopy( sector, 0, runBuf, runLen, SECTOR_SIZE );
+	  runLen += SECTOR_SIZE;
+	  sector = null;
+	  if( runLen < runBuf.length ) {
+	    sector = this.dirty.get( runPos + runLen );
+	  }
+	}
+
+	// ggf. Datei bis zur Schreibposition verlaengern
+	if( len < runPos ) {
+	  byte[] fillBuf = new byte[ SECTOR_SIZE ];
+	  Arrays.fill( fillBuf, (byte) 0xE5 );
+	  this.raf.seek( len );
+	  while( len < runPos ) {
+	    int n = (int) Math.min( runPos - len, fillBuf.length );
+	    this.raf.write( fillBuf, 0, n );
+	    len += n;
+	  }
+	}
+	this.raf.seek( runPos );
+	this.raf.write( runBuf, 0, runLen );
+	if( (runPos + runLen) > len ) {
+	  len = runPos + runLen;
+	}
+	this.dirty.headMap( runPos + runLen ).clear();
+      }
+    }
+  }
+
+
+  synchronized int getDirtyCount()
+  {
+    return this.dirty.size();
+  }
+
+
+  /*
+   * Lesen von Sektoren
+   *
+   * Bereiche hinter dem Dateiende bleiben im Puffer unveraendert.
+   *
+   * Rueckgabewert: Anzahl der aus Cache und Datei gelesenen Bytes
+   */
+  synchronized int read( long filePos, byte[] buf, int cnt )
+							throws IOException
+  {
+    int rv  = 0;
+    int pos = 0;
+    while( pos < cnt ) {
+      int    n      = Math.min( cnt - pos, SECTOR_SIZE );
+      byte[] sector = getCachedSector( filePos + pos );
+      if( sector != null ) {
+	System.arraycopy( sector, 0, buf, pos, n );
+	rv  += n;
+	pos += n;
+      } else {
+
+	// nicht im Cache befindliche Sektoren am Stueck lesen
+	int endPos = pos + n;
+	while( (endPos < cnt) && !isCached( filePos + endPos ) ) {
+	  endPos += Math.min( cnt - endPos, SECTOR_SIZE );
+	}
+	int nRead = readFile( filePos + pos, buf, pos, endPos - pos );
+	int p = pos;
+	while( (p + SECTOR_SIZE) <= (pos + nRead) ) {
+	  this.cache.put(
+		filePos + p,
+		Arrays.copyOfRange( buf, p, p + SECTOR_SIZE ) );
+	  p += SECTOR_SIZE;
+	}
+	rv += nRead;
+	pos = endPos;
+      }
+    }
+    return rv;
+  }
+
+
+  /*
+   * Schreiben von Sektoren
+   *
+   * Die Daten werden nur vermerkt und erst mit flush()
+   * in die Datei geschrieben.
+   * Die Datei wird jedoch schon hier zum Schreiben geoeffnet
+   * bzw. angelegt, damit eine schreibgeschuetzte Datei
+   * sofort als Fehler gemeldet wird.
+   */
+  synchronized void write( long filePos, byte[] buf, int cnt )
+							throws IOException
+  {
+    openFile( true );
+    for( int pos = 0; pos < cnt; pos += SECTOR_SIZE ) {
+      byte[] sector = new byte[ SECTOR_SIZE ];
+      System.arraycopy(
+		buf,
+		pos,
+		sector,
+		0,
+		Math.min( cnt - pos, SECTOR_SIZE ) );
+      this.dirty.put( filePos + pos, sector );
+      this.cache.put( filePos + pos, sector );
+    }
+  }
+
+
+	/* --- private Methoden --- */
+
+  private byte[] getCachedSector( long filePos )
+  {
+    byte[] rv = this.dirty.get( filePos );
+    if( rv == null ) {
+      rv = this.cache.get( filePos );
+    }
+    return rv;
+  }
+
+
+  private boolean isCached( long filePos )
+  {
+    return this.dirty.containsKey( filePos )
+		|| this.cache.containsKey( filePos );
+  }
+
+
+  private void openFile( boolean forWrite ) throws IOException
+  {
+    if( this.closed ) {
+      throw new IOException( "Festplattenabbilddatei bereits geschlossen" );
+    }
+    if( (this.raf == null) || (forWrite && !this.writable) ) {
+      EmuUtil.closeSilently( this.raf );
+      this.raf      = null;
+      this.writable = forWrite || this.file.canWrite();
+      this.raf      = new RandomAccessFile(
+				this.file,
+				this.writable ? "rw" : "r" );
+    }
+  }
+
+
+  private int readFile( long filePos, byte[] buf, int offs, int len )
+							throws IOException
+  {
+    int rv = 0;
+    if( exists() ) {
+      openFile( false );
+      this.raf.seek( filePos );
+      while( rv < len ) {
+	int n = this.raf.read( buf, offs + rv, len - rv );
+	if( n <= 0 ) {
+	  break;
+	}
+	rv += n;
+      }
+    }
+    return rv;
+  }
+}
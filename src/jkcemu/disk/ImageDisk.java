@@ -11,7 +11,6 @@ package jkcemu.disk;
 
 import java.awt.Frame;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -21,11 +20,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
-import java.util.HashMap;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Properties;
-import java.util.zip.GZIPInputStream;
 import jkcemu.base.EmuUtil;
 import jkcemu.file.FileUtil;
 import jkcemu.text.CharConverter;
@@ -33,11 +29,10 @@ import jkcemu.text.CharConverter;
 
 public class ImageDisk extends AbstractFloppyDisk
 {
-  private String                                  fileName;
-  private String                                  remark;
-  private java.util.Date                          diskDate;
-  private Map<Integer,java.util.List<SectorData>> side0;
-  private Map<Integer,java.util.List<SectorData>> side1;
+  private String         fileName;
+  private String         remark;
+  private java.util.Date diskDate;
+  private TrackIndex     trackIndex;
 
 
   public static String export(
@@ -279,9 +274,9 @@ public class ImageDisk extends AbstractFloppyDisk
 				Frame owner,
 				File  file ) throws IOException
   {
-    ImageDisk   rv    = null;
-    InputStream in    = null;
-    Exception   errEx = null;
+    ImageDisk         rv         = null;
+    TrackIndex        trackIndex = TrackIndex.open( file );
+    TrackIndex.Reader in         = null;
     try {
       int cyls            = 0;
       int sides           = 0;
@@ -289,10 +284,7 @@ public class ImageDisk extends AbstractFloppyDisk
       int diskSectorSize  = 0;
 
       // Datei oeffnen
-      in = new FileInputStream( file );
-      if( FileUtil.isGZipFile( file ) ) {
-	in = new GZIPInputStream( in );
-      }
+      in = trackIndex.openReader( 0 );
 
       // Kopfblock
       int b0 = in.read();
@@ -339,162 +331,58 @@ public class ImageDisk extends AbstractFloppyDisk
 	throwNoImageDiskFile();
       }
 
-      // Spuren einlesen
-      Map<Integer,java.util.List<SectorData>> side0 = null;
-      Map<Integer,java.util.List<SectorData>> side1 = null;
+      /*
+       * Spuren indizieren,
+       * Die Sektordaten werden erst beim Zugriff dekodiert.
+       */
+      java.util.List<SectorData> sectors = new ArrayList<>();
 
-      int transferRate = in.read();
+      long trackPos     = in.getPosition();
+      int  transferRate = in.read();
       while( transferRate >= 0 ) {
-	int cyl      = readMandatoryByte( in );
-	int head     = readMandatoryByte( in );
-	int nSec     = readMandatoryByte( in );
-	int sizeCode = readMandatoryByte( in );
-	if( sizeCode > 6 ) {
-	  throw new IOException(
-		String.format(
-			"Sektorgr\u00F6\u00DFe Nr. %d nicht unterst\u00FCtzt",
-			sizeCode ) );
-	}
-	int sectorSize = 128;
-	if( sizeCode > 0 ) {
-	  sectorSize <<= sizeCode;
-	}
-
-	// Sektornummerntabelle
-	int[] sectorNums = new int[ nSec ];
-	for( int i = 0; i < nSec; i++ ) {
-	  sectorNums[ i ] = readMandatoryByte( in );
-	}
-
-	// Sektorzylindertabelle
-	int[] sectorCyls = null;
-	if( (head & 0x80) != 0 ) {
-	  sectorCyls = new int[ nSec ];
-	  for( int i = 0; i < nSec; i++ ) {
-	    sectorCyls[ i ] = readMandatoryByte( in );
-	  }
-	}
-
-	// Sektorkopftabelle
-	int[] sectorHeads = null;
-	if( (head & 0x40) != 0 ) {
-	  sectorHeads = new int[ nSec ];
-	  for( int i = 0; i < nSec; i++ ) {
-	    sectorHeads[ i ] = readMandatoryByte( in );
-	  }
-	}
-
-	// Sektordaten
-	head &= 0x01;
-	for( int i = 0; i < nSec; i++ ) {
-	  boolean crcError    = false;
-	  boolean dataDeleted = false;
-	  byte[]  secBuf      = null;
-	  int     fillByte    = 0;
-	  int     secNum      = sectorNums[ i ];
-	  int     secType     = readMandatoryByte( in );
-	  switch( secType ) {
-	    case 0:	// keine Daten
-	      break;
-
-	    case 1:	// normale Daten
-	    case 3:	// normale und geloeschte Daten
-	    case 5:	// normale Daten mit Fehler
-	    case 7:	// normale und geloeschte Daten Daten mit Fehler
-	      secBuf = new byte[ sectorSize ];
-	      if( EmuUtil.read( in, secBuf ) != secBuf.length ) {
-		throwUnexpectedEOF();
-	      }
-	      break;
-
-	    case 2:	// komprimierte Daten
-	    case 4:	// komprimierte und geloeschte Daten
-	    case 6:	// komprimierte Daten mit Fehler
-	    case 8:	// komprimierte und geloeschte Daten mit Fehler
-	      secBuf  = new byte[ sectorSize ];
-	      fillByte = readMandatoryByte( in );
-	      Arrays.fill( secBuf, (byte) fillByte );
-	      break;
-
-	    default:
-	      throw new IOException(
-			String.format(
-				"Sektor C=%d, H=%d R=%d: Typ %02h"
-					+ " nicht unterst\u00FCtzt",
-				cyl,
-				head,
-				secNum,
-				secType ) );
+	int cyl  = readMandatoryByte( in );
+	int head = readMandatoryByte( in );
+	sectors.clear();
+	readTrack( in, cyl, head, sectors, false );
+	int nSec = sectors.size();
+	if( nSec > 0 ) {
+	  head &= 0x01;
+	  trackIndex.addTrack( cyl, head, trackPos, nSec );
+	  if( cyl >= cyls ) {
+	    cyls = cyl + 1;
 	  }
-	  if( secBuf != null ) {
-	    if( (secType == 3) || (secType == 4)
-		|| (secType == 7) || (secType == 8) )
-	    {
-	      dataDeleted = true;
-	    }
-	    if( (secType >= 5) && (secType <= 8) ) {
-	      crcError = true;
-	    }
+	  if( head >= sides ) {
+	    sides = head + 1;
 	  }
-	  Map<Integer,java.util.List<SectorData>> map = null;
-	  if( head == 0 ) {
-	    if( side0 == null ) {
-	      side0 = new HashMap<>();
-	    }
-	    map = side0;
-	  } else if( head == 1 ) {
-	    if( side1 == null ) {
-	      side1 = new HashMap<>();
-	    }
-	    map = side1;
+	  if( nSec > sectorsPerTrack ) {
+	    sectorsPerTrack = nSec;
 	  }
-	  if( map != null ) {
-	    java.util.List<SectorData> sectors = map.get( cyl );
-	    if( sectors == null ) {
-	      sectors = new ArrayList<>( nSec > 0 ? nSec : 1 );
-	      map.put( cyl, sectors );
-	    }
-	    int secCyl = cyl;
-	    if( sectorCyls != null ) {
-	      if( i < sectorCyls.length ) {
-		secCyl = sectorCyls[ i ];
-	      }
-	    }
-	    int secHead = head;
-	    if( sectorHeads != null ) {
-	      if( i < sectorHeads.length ) {
-		secHead = sectorHeads[ i ];
-	      }
-	    }
-	    SectorData sector = new SectorData(
-					i,
-					secCyl,
-					secHead,
-					secNum,
-					sizeCode,
-					secBuf,
-					0,
-					secBuf != null ? secBuf.length : 0 );
-	    sector.setError( crcError );
-	    sector.setDataDeleted( dataDeleted );
-	    sectors.add( sector );
-
-	    if( cyl >= cyls ) {
-	      cyls = cyl + 1;
-	    }
-	    if( head >= sides ) {
-	      sides = head + 1;
-	    }
-	    if( i >= sectorsPerTrack ) {
-	      sectorsPerTrack = i + 1;
-	    }
-	    if( sectorSize > diskSectorSize ) {
-	      diskSectorSize = sectorSize;
-	    }
+	  int sectorSize = SectorData.getSizeBySizeCode(
+					sectors.get( 0 ).getSizeCode() );
+	  if( sectorSize > diskSectorSize ) {
+	    diskSectorSize = sectorSize;
 	  }
 	}
+	trackPos     = in.getPosition();
 	transferRate = in.read();
       }
+      trackIndex.setDecoder(
+		new TrackIndex.TrackDecoder()
+		{
+		  @Override
+		  public void decodeTrack(
+				TrackIndex.Reader          in,
+				int                        cyl,
+				int                        head,
+				java.util.List<SectorData> sectors )
+							throws IOException
+		  {
+		    readMandatoryByte( in );		// Transferrate
+		    int trackCyl  = readMandatoryByte( in );
+		    int trackHead = readMandatoryByte( in );
+		    readTrack( in, trackCyl, trackHead, sectors, true );
+		  }
+		} );
       rv = new ImageDisk(
 		owner,
 		cyls,
@@ -504,11 +392,13 @@ public class ImageDisk extends AbstractFloppyDisk
 		file.getPath(),
 		remark,
 		diskDate,
-		side0,
-		side1 );
+		trackIndex );
     }
     finally {
       EmuUtil.closeSilently( in );
+      if( rv == null ) {
+	trackIndex.close();
+      }
     }
     return rv;
   }
@@ -516,6 +406,13 @@ public class ImageDisk extends AbstractFloppyDisk
 
 	/* --- ueberschriebene Methoden --- */
 
+  @Override
+  public void closeSilently()
+  {
+    this.trackIndex.close();
+  }
+
+
   @Override
   public java.util.Date getDiskDate()
   {
@@ -557,8 +454,7 @@ public class ImageDisk extends AbstractFloppyDisk
   @Override
   public int getSectorsOfTrack( int physCyl, int physHead )
   {
-    java.util.List<SectorData> sectors = getSectorList( physCyl, physHead );
-    return sectors != null ? sectors.size() : 0;
+    return this.trackIndex.getSectorCount( physCyl, physHead );
   }
 
 
@@ -590,15 +486,13 @@ public class ImageDisk extends AbstractFloppyDisk
 		String                                  fileName,
 		String                                  remark,
 		java.util.Date                          diskDate,
-		Map<Integer,java.util.List<SectorData>> side0,
-		Map<Integer,java.util.List<SectorData>> side1 )
+		TrackIndex                              trackIndex )
   {
     super( owner, cyls, sides, sectorsPerTrack, sectorSize );
-    this.fileName = fileName;
-    this.remark   = remark;
-    this.diskDate = diskDate;
-    this.side0    = side0;
-    this.side1    = side1;
+    this.fileName   = fileName;
+    this.remark     = remark;
+    this.diskDate   = diskDate;
+    this.trackIndex = trackIndex;
   }
 
 
@@ -606,16 +500,163 @@ public class ImageDisk extends AbstractFloppyDisk
 						int physCyl,
 						int physHead )
   {
-    java.util.List<SectorData>              rv  = null;
-    Map<Integer,java.util.List<SectorData>> map = ((physHead & 0x01) != 0 ?
-							side1 : side0);
-    if( map != null ) {
-      rv = map.get( physCyl );
+    java.util.List<SectorData> rv = null;
+    try {
+      rv = this.trackIndex.getSectors( physCyl, physHead & 0x01 );
+    }
+    catch( IOException ex ) {
+      fireShowReadError( physCyl, physHead, ex );
     }
     return rv;
   }
 
 
+  /*
+   * Lesen eines Spurdatensatzes ab der Anzahl der Sektoren
+   *
+   * Ohne Sektordaten (withData == false) werden die Daten nur
+   * ueberlesen und die Sektoren ohne Datenpuffer angelegt.
+   */
+  private static void readTrack(
+			InputStream                in,
+			int                        cyl,
+			int                        head,
+			java.util.List<SectorData> sectors,
+			boolean                    withData ) throws IOException
+  {
+    int nSec     = readMandatoryByte( in );
+    int sizeCode = readMandatoryByte( in );
+    if( sizeCode > 6 ) {
+      throw new IOException(
+		String.format(
+			"Sektorgr\u00F6\u00DFe Nr. %d nicht unterst\u00FCtzt",
+			sizeCode ) );
+    }
+    int sectorSize = 128;
+    if( sizeCode > 0 ) {
+      sectorSize <<= sizeCode;
+    }
+
+    // Sektornummerntabelle
+    int[] sectorNums = new int[ nSec ];
+    for( int i = 0; i < nSec; i++ ) {
+      sectorNums[ i ] = readMandatoryByte( in );
+    }
+
+    // Sektorzylindertabelle
+    int[] sectorCyls = null;
+    if( (head & 0x80) != 0 ) {
+      sectorCyls = new int[ nSec ];
+      for( int i = 0; i < nSec; i++ ) {
+	sectorCyls[ i ] = readMandatoryByte( in );
+      }
+    }
+
+    // Sektorkopftabelle
+    int[] sectorHeads = null;
+    if( (head & 0x40) != 0 ) {
+      sectorHeads = new int[ nSec ];
+      for( int i = 0; i < nSec; i++ ) {
+	sectorHeads[ i ] = readMandatoryByte( in );
+      }
+    }
+
+    // Sektordaten
+    byte[] skipBuf = null;
+    head &= 0x01;
+    for( int i = 0; i < nSec; i++ ) {
+      boolean crcError    = false;
+      boolean dataDeleted = false;
+      boolean hasData     = false;
+      byte[]  secBuf      = null;
+      int     fillByte    = 0;
+      int     secNum      = sectorNums[ i ];
+      int     secType     = readMandatoryByte( in );
+      switch( secType ) {
+	case 0:	// keine Daten
+	  break;
+
+	case 1:	// normale Daten
+	case 3:	// normale und geloeschte Daten
+	case 5:	// normale Daten mit Fehler
+	case 7:	// normale und geloeschte Daten Daten mit Fehler
+	  if( withData ) {
+	    secBuf = new byte[ sectorSize ];
+	  } else {
+	    if( skipBuf == null ) {
+	      skipBuf = new byte[ sectorSize ];
+	    }
+	    secBuf = skipBuf;
+	  }
+	  if( EmuUtil.read( in, secBuf ) != secBuf.length ) {
+	    throwUnexpectedEOF();
+	  }
+	  hasData = true;
+	  break;
+
+	case 2:	// komprimierte Daten
+	case 4:	// komprimierte und geloeschte Daten
+	case 6:	// komprimierte Daten mit Fehler
+	case 8:	// komprimierte und geloeschte Daten mit Fehler
+	  fillByte = readMandatoryByte( in );
+	  if( withData ) {
+	    secBuf = new byte[ sectorSize ];
+	    Arrays.fill( secBuf, (byte) fillByte );
+	  }
+	  hasData = true;
+	  break;
+
+	default:
+	  throw new IOException(
+			String.format(
+				"Sektor C=%d, H=%d R=%d: Typ %02h"
+					+ " nicht unterst\u00FCtzt",
+				cyl,
+				head,
+				secNum,
+				secType ) );
+      }
+      if( hasData ) {
+	if( (secType == 3) || (secType == 4)
+	    || (secType == 7) || (secType == 8) )
+	{
+	  dataDeleted = true;
+	}
+	if( (secType >= 5) && (secType <= 8) ) {
+	  crcError = true;
+	}
+      }
+      if( !withData ) {
+	secBuf = null;
+      }
+      int secCyl = cyl;
+      if( sectorCyls != null ) {
+	if( i < sectorCyls.length ) {
+	  secCyl = sectorCyls[ i ];
+	}
+      }
+      int secHead = head;
+      if( sectorHeads != null ) {
+	if( i < sectorHeads.length ) {
+	  secHead = sectorHeads[ i ];
+	}
+      }
+      SectorData sector = new SectorData(
+				i,
+				secCyl,
+				secHead,
+				secNum,
+				sizeCode,
+				secBuf,
+				0,
+				hasData ? sectorSize : 0 );
+      sector.setError( crcError );
+      sector.setDataDeleted( dataDeleted );
+      sectors.add( sector );
+    }
+  }
+
+
   private static int readMandatoryByte( InputStream in ) throws IOException
   {
     int b = in.read();
@@ -21,56 +21,6 @@ public class SectorData extends SectorID
 				0x800, 0x1000, 0x2000, 0x4000,
 				0x8000, 0x10000 };
 
-  public class Reader
-  {
-    private byte[]  buf;
-    private int     pos;
-    private int     len;
-    private boolean dataDeleted;
-
-    private Reader(
-		byte[]  buf,
-		int     pos,
-		int     len,
-		boolean dataDeleted )
-    {
-      this.buf         = buf;
-      this.pos         = pos;
-      this.len         = len;
-      this.dataDeleted = dataDeleted;
-    }
-
-
-    public boolean getDataDeleted()
-    {
-      return this.dataDeleted;
-    }
-
-
-    public boolean isByteAvailable()
-    {
-      return this.len > 0;
-    }
-
-
-    public int read()
-    {
-      int rv = -1;
-      if( (this.buf != null) && (this.len > 0) ) {
-	if( (this.pos >= 0) && (this.pos < this.buf.length) ) {
-	  rv = (int) this.buf[ this.pos++ ] & 0xFF;
-	  --this.len;
-	}
-      }
-      if( (rv == -1) && (len > 0) ) {
-	rv = 0;
-	--len;
-      }
-      return rv;
-    }
-  };
-
-
   private int                dataOffs;
   private int                dataLen;
   private byte[]             dataBuf;
@@ -235,42 +185,39 @@ public class SectorData extends SectorID
   }
 
 
+  /*
+   * Lesen der Sektordaten als Block
+   *
+   * Nicht im Datenpuffer vorhandene Bytes werden mit Null aufgefuellt.
+   *
+   * Rueckgabewert: Anzahl der in den Zielpuffer geschriebenen Bytes
+   */
   public synchronized int read( byte[] dstBuf, int dstPos, int dstLen )
   {
     int rv = 0;
-    if( dstBuf != null ) {
-      if( this.dataBuf != null ) {
-	int srcIdx = this.dataOffs;
-	int srcLen = this.dataLen;
-	while( (srcIdx < this.dataBuf.length) && (srcLen > 0)
-	       && (dstPos < dstBuf.length) && (dstLen > 0) )
-	{
-	  dstBuf[ dstPos++ ] = this.dataBuf[ srcIdx++ ];
-	  --srcLen;
-	  --dstLen;
-	  rv++;
+    if( (dstBuf != null) && (dstPos >= 0) ) {
+      dstLen = Math.min( dstLen, dstBuf.length - dstPos );
+      if( dstLen > 0 ) {
+	if( this.dataBuf != null ) {
+	  rv = Math.min(
+		Math.min( this.dataLen, this.dataBuf.length - this.dataOffs ),
+		dstLen );
+	  if( rv > 0 ) {
+	    System.arraycopy( this.dataBuf, this.dataOffs, dstBuf, dstPos, rv );
+	  } else {
+	    rv = 0;
+	  }
+	}
+	if( rv < dstLen ) {
+	  Arrays.fill( dstBuf, dstPos + rv, dstPos + dstLen, (byte) 0 );
+	  rv = dstLen;
 	}
-      }
-      while( (dstPos < dstBuf.length) && (dstLen > 0) ) {
-	dstBuf[ dstPos++ ] = (byte) 0;
-	--dstLen;
-	rv++;
       }
     }
     return rv;
   }
 
 
-  public synchronized Reader reader()
-  {
-    return new Reader(
-		this.dataBuf,
-		this.dataOffs,
-		this.dataLen,
-		this.dataDeleted );
-  }
-
-
   public void setBogusID( boolean state )
   {
     this.bogusID = state;
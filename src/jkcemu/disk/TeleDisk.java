@@ -15,7 +15,6 @@ package jkcemu.disk;
 import java.awt.Frame;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -30,7 +29,6 @@ import java.util.Random;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
-import java.util.zip.GZIPInputStream;
 import jkcemu.base.EmuUtil;
 import jkcemu.etc.CRC16;
 import jkcemu.file.FileUtil;
@@ -39,14 +37,55 @@ import jkcemu.text.CharConverter;
 
 public class TeleDisk extends AbstractFloppyDisk
 {
-  private static final int CRC_POLYNOM = 0xA097;
-  private static final int CRC_INIT    = 0;
+  /*
+   * Dekodieren einer Spur beim ersten Zugriff
+   */
+  private static class Decoder implements TrackIndex.TrackDecoder
+  {
+    private boolean enableAutoRepair;
+    private boolean autoRepaired;
+
+    private Decoder( boolean enableAutoRepair )
+    {
+      this.enableAutoRepair = enableAutoRepair;
+      this.autoRepaired     = false;
+    }
+
+    @Override
+    public void decodeTrack(
+			TrackIndex.Reader          in,
+			int                        cyl,
+			int                        head,
+			java.util.List<SectorData> sectors ) throws IOException
+    {
+      int nSec = readMandatoryByte( in );
+      readMandatoryByte( in );		// Zylinder
+      readMandatoryByte( in );		// Kopf
+      readMandatoryByte( in );		// CRC Kopfbereich der Spur
+      int flags = readTrack(
+			in,
+			cyl,
+			head,
+			nSec,
+			sectors,
+			true,
+			this.enableAutoRepair );
+      if( (flags & TRACK_REPAIRED) != 0 ) {
+	this.autoRepaired = true;
+      }
+    }
+  };
+
 
-  private String                                  fileName;
-  private String                                  remark;
-  private java.util.Date                          diskDate;
-  private Map<Integer,java.util.List<SectorData>> side0;
-  private Map<Integer,java.util.List<SectorData>> side1;
+  private static final int CRC_POLYNOM      = 0xA097;
+  private static final int CRC_INIT         = 0;
+  private static final int TRACK_REPAIRED   = 0x01;
+  private static final int TRACK_NEEDS_DATA = 0x02;
+
+  private String         fileName;
+  private String         remark;
+  private java.util.Date diskDate;
+  private TrackIndex     trackIndex;
 
 
   public static String export(
@@ -340,14 +379,11 @@ public class TeleDisk extends AbstractFloppyDisk
 				File    file,
 				boolean enableAutoRepair ) throws IOException
   {
-    TeleDisk    rv    = null;
-    InputStream in    = null;
-    Exception   errEx = null;
+    TeleDisk          rv         = null;
+    TrackIndex        trackIndex = TrackIndex.open( file );
+    TrackIndex.Reader in         = null;
     try {
-      in = new FileInputStream( file );
-      if( FileUtil.isGZipFile( file ) ) {
-	in = new GZIPInputStream( in );
-      }
+      in = trackIndex.openReader( 0 );
       boolean autoRepaired = false;
 
       // Kopfblock lesen
@@ -430,18 +466,18 @@ public class TeleDisk extends AbstractFloppyDisk
 	remark = buf.toString().trim();
       }
 
-      // Spuren einlesen
-      Map<Integer,java.util.List<SectorData>> side0 = null;
-      Map<Integer,java.util.List<SectorData>> side1 = null;
-
+      // Spuren indizieren
+      Map<Integer,java.util.List<SectorData>> trackMap = new HashMap<>();
+      Set<Integer>                            dataKeys = new TreeSet<>();
       Map<Integer,Integer> sectPerTrack2Cnt = new HashMap<>();
 
       int   cyls           = 0;
       int   diskSectorSize = 0;
       for(;;) {
-	int nSec  = in.read();
-	int track = in.read();
-	int head  = in.read();
+	long trackPos = in.getPosition();
+	int  nSec     = in.read();
+	int  track    = in.read();
+	int  head     = in.read();
 	in.read();			// CRC Kopfbereich der Spur
 
 	if( (nSec == 0xFF)
@@ -458,321 +494,40 @@ public class TeleDisk extends AbstractFloppyDisk
 	    cyls = track + 1;
 	  }
 
-	  // Sektoren lesen
-	  boolean                    abnormalFmt        = false;
-	  java.util.List<SectorData> bogusHeaderSectors = null;
-	  for( int i = 0; i < nSec; i++ ) {
-	    int secTrack    = readMandatoryByte( in );
-	    int secHead     = readMandatoryByte( in );
-	    int secNum      = readMandatoryByte( in );
-	    int secSizeCode = readMandatoryByte( in );
-	    int secCtrl     = readMandatoryByte( in );
-	    int secCrcValue = readMandatoryByte( in );
-
-	    if( secTrack != 0xFF ) {
-
-	      // Datenpuffer anlegen
-	      byte[] secBuf = null;
-	      if( (secSizeCode >= 0) && (secSizeCode <= 6) ) {
-		int secSize = 128;
-		if( secSizeCode > 0 ) {
-		  secSize <<= secSizeCode;
-		}
-		secBuf = new byte[ secSize ];
-		Arrays.fill( secBuf, (byte) 0 );
-		if( secSize > diskSectorSize ) {
-		  diskSectorSize = secSize;
-		}
-	      }
-	      if( secBuf == null ) {
-		throwUnsupportedTeleDiskFmt(
-		  String.format(
-			"Code=%02X f\u00FCr Sektorgr\u00F6\u00DFe"
-				+ " nicht unterst\u00FCtzt",
-			secSizeCode ) );
-	      }
-
-	      /*
-	       * Bits in secCtrl:
-	       *   0x01: Sektor mehrfach auf der Spur enthalten
-	       *   0x02: Sektor mit CRC-Fehler gelesen
-	       *   0x04: Sektor hat Deleted Data Address Mark
-	       *   0x10: Datenbereich wurde uebersprungen
-	       *         (keine Daten enthalten)
-	       *   0x20: Sektor hat ID-Feld, aber keine Daten
-	       *   0x40: Sektor hat Daten, aber keinen Kopf
-	       *         (Kopfdaten generiert)
-	       */
-	      boolean crcError    = ((secCtrl & 0x02) != 0);
-	      boolean dataDeleted = ((secCtrl & 0x04) != 0);
-	      boolean bogusHeader = ((secCtrl & 0x40) != 0);
-	      if( !bogusHeader
-		  && ((secTrack != track) || (secHead != head)) )
-	      {
-		abnormalFmt = true;
-	      }
-
-	      if( (secCtrl & 0x30) == 0 ) {
-		int len = readMandatoryWord( in );
-		if( len > 0 ) {
-		  int secEncoding = readMandatoryByte( in );
-		  --len;
-
-		  int pos = 0;
-		  switch( secEncoding ) {
-		    case 0:
-		      while( len > 0 ) {
-			int b = readMandatoryByte( in );
-			if( pos < secBuf.length ) {
-			  secBuf[ pos++ ] = (byte) b;
-			}
-			--len;
-		      }
-		      break;
-
-		    case 1:
-		      if( len >= 4 ) {
-			int n  = readMandatoryWord( in );
-			int b0 = readMandatoryByte( in );
-			int b1 = readMandatoryByte( in );
-			len -= 4;
-			while( n > 0 ) {
-			  if( pos < secBuf.length ) {
-			    secBuf[ pos++ ] = (byte) b0;
-			  }
-			  if( pos < secBuf.length ) {
-			    secBuf[ pos++ ] = (byte) b1;
-			  }
-			  --n;
-			}
-		      }
-		      break;
-
-		    case 2:
-		      while( len >= 2 ) {
-			int t = readMandatoryByte( in );
-			int n = readMandatoryByte( in );
-			len -= 2;
-			switch( t ) {
-			  case 0:
-			    while( (len > 0) && (n > 0) ) {
-			      int b = readMandatoryByte( in );
-			      if( pos < secBuf.length ) {
-				secBuf[ pos++ ] = (byte) b;
-			      }
-			      --n;
-			      --len;
-			    }
-			    if( n > 0 ) {
-			      throwLengthMismatch();
-			    }
-			    break;
-
-			  case 1:
-			    if( len >= 2 ) {
-			      int b0 = readMandatoryByte( in );
-			      int b1 = readMandatoryByte( in );
-			      len -= 2;
-			      while( n > 0 ) {
-				if( pos < secBuf.length ) {
-				  secBuf[ pos++ ] = (byte) b0;
-				}
-				if( pos < secBuf.length ) {
-				  secBuf[ pos++ ] = (byte) b1;
-				}
-				--n;
-			      }
-			    }
-			    break;
-
-			  default:
-			    throwUnsupportedTeleDiskFmt(
-				String.format(
-					"Sektorunterkodierung %02X"
-						+ " nicht unterst\u00FCtzt",
-					t ) );
-			}
-		      }
-		      while( len > 0 ) {
-			readMandatoryByte( in );
-			--len;
-		      }
-		      break;
-
-		    default:
-		      throwUnsupportedTeleDiskFmt(
-			String.format(
-				"Sektorkodierung %02Xh"
-					+ " nicht unterst\u00FCtzt",
-				secEncoding ) );
-		  }
-		  if( len > 0 ) {
-		    throwLengthMismatch();
-		  }
-		}
-	      }
-
-	      Map<Integer,java.util.List<SectorData>> map = null;
-	      if( head == 0 ) {
-		if( side0 == null ) {
-		  side0 = new HashMap<>();
-		}
-		map = side0;
-	      } else if( head == 1 ) {
-		if( side1 == null ) {
-		  side1 = new HashMap<>();
-		}
-		map = side1;
-	      }
-	      if( map != null ) {
-		java.util.List<SectorData> sectors = map.get( track );
-		if( sectors == null ) {
-		  sectors = new ArrayList<>( nSec > 0 ? nSec : 1 );
-		  map.put( track, sectors );
-		}
-		// doppelte Sektoren herausfiltern
-		boolean found  = false;
-		int     secLen = (secBuf != null ? secBuf.length : 0);
-		if( enableAutoRepair ) {
-		  for( SectorData sector : sectors ) {
-		    if( sector.equalsSectorID(
-					secTrack,
-					secHead,
-					secNum,
-					secSizeCode ) )
-		    {
-		      found = true;
-		      if( sector.equalsData( secBuf, 0, secLen ) ) {
-			/*
-			 * Daten sind gleich:
-			 *   sofern moeglich, den Sektor als fehlerfrei
-			 *   und nicht geloescht behalten
-			 */
-			if( !crcError ) {
-			  sector.setError( false );
-			}
-			if( !dataDeleted ) {
-			  sector.setDataDeleted( false );
-			}
-		      } else {
-			/*
-			 * Daten sind unterschiedlich
-			 *   sofern moeglich, den fehlerhaften durch den
-			 *   fehlerfreien Sektor ersetzen
-			 */
-			if( sector.checkError() && !crcError ) {
-			  if( dataDeleted && !sector.getDataDeleted() ) {
-			    dataDeleted  = false;
-			    autoRepaired = true;
-			  }
-			  sector.setData( dataDeleted, secBuf, secLen );
-			  sector.setError( false );
-			}
-		      }
-		    }
-		  }
-		}
-		if( !found ) {
-		  SectorData sector = new SectorData(
-						sectors.size(),
-						secTrack,
-						secHead,
-						secNum,
-						secSizeCode,
-						secBuf,
-						0,
-						secLen );
-		  sector.setBogusID( bogusHeader );
-		  sector.setError( crcError );
-		  sector.setDataDeleted( dataDeleted );
-		  sectors.add( sector );
-		  if( bogusHeader && !abnormalFmt ) {
-		    if( bogusHeaderSectors == null ) {
-		      bogusHeaderSectors = new ArrayList<>();
-		    }
-		    bogusHeaderSectors.add( sector );
-		  }
-		}
-	      }
-	    }
+	  /*
+	   * Sektorkoepfe lesen,
+	   * die Sektordaten werden erst beim Zugriff dekodiert
+	   */
+	  Integer                    key     = (track << 1) | head;
+	  java.util.List<SectorData> sectors = trackMap.get( key );
+	  if( sectors == null ) {
+	    sectors = new ArrayList<>( nSec );
+	    trackMap.put( key, sectors );
 	  }
-
-	  // Sektoren untersuchen und ggf. reparieren
-	  Map<Integer,java.util.List<SectorData>> sideData     = null;
-	  java.util.List<SectorData>              trackSectors = null;
-	  if( head == 0 ) {
-	    sideData = side0;
-	  } else if( head == 1 ) {
-	    sideData = side1;
+	  int nOld  = sectors.size();
+	  int flags = readTrack(
+			in,
+			track,
+			head,
+			nSec,
+			sectors,
+			false,
+			enableAutoRepair );
+	  if( (flags & TRACK_REPAIRED) != 0 ) {
+	    autoRepaired = true;
 	  }
-	  if( sideData != null ) {
-	    trackSectors = sideData.get( track );
+	  if( (flags & TRACK_NEEDS_DATA) != 0 ) {
+	    dataKeys.add( key );
 	  }
-	  if( trackSectors != null ) {
-
-	    /*
-	     * ggf. automatische Reparatur von Sektoren,
-	     * deren Kopf nicht gelesen werden konnte
-	     *
-	     * Das ist jedoch nicht moeglich,
-	     * wenn mehr als ein Sektor pro Spur betroffen sind.
-	     */
-	    if( enableAutoRepair
-		&& (bogusHeaderSectors != null)
-		&& !abnormalFmt )
-	    {
-	      if( bogusHeaderSectors.size() == 1 ) {
-		SectorData bogusHeaderSector = bogusHeaderSectors.get( 0 );
-		if( (trackSectors.size() == nSec)
-		    && trackSectors.contains( bogusHeaderSector ) )
-		{
-		  // Sektornummern ermitteln
-		  SortedSet<Integer> secNums = new TreeSet<>();
-		  for( SectorData sector : trackSectors ) {
-		    if( sector != bogusHeaderSector ) {
-		      secNums.add( sector.getSectorNum() );
-		    }
-		  }
-		  if( !secNums.isEmpty() && (secNums.size() + 1) == nSec ) {
-		    int secNumRange = secNums.last() - secNums.first() + 1;
-		    if( secNumRange == (nSec - 1) ) {
-		      // Sektornummer fehlt am Anfang oder Ende
-		      switch( secNums.first().intValue() ) {
-			case 1:
-			  // Sektornummer fehlt am Ende
-			  bogusHeaderSector.setSectorID(
-						track,
-						head,
-						secNums.last() + 1 );
-			  bogusHeaderSector.setBogusID( false );
-			  autoRepaired = true;
-			  break;
-			case 2:
-			  // Sektornummer fehlt am Anfang
-			  bogusHeaderSector.setSectorID( track, head, 1 );
-			  bogusHeaderSector.setBogusID( false );
-			  autoRepaired = true;
-		      }
-		    } else if( secNumRange == nSec ) {
-		      // Sektornummer fehlt in der Mitte
-		      int tmpSecNum  = secNums.first().intValue() + 1;
-		      int lastSecNum = secNums.last().intValue();
-		      while( tmpSecNum <= lastSecNum ) {
-			if( !secNums.contains( tmpSecNum ) ) {
-			  bogusHeaderSector.setSectorID(
-						track,
-						head,
-						tmpSecNum );
-			  bogusHeaderSector.setBogusID( false );
-			  autoRepaired = true;
-			}
-			tmpSecNum++;
-		      }
-		    }
-		  }
-		}
-	      }
+	  trackIndex.addTrack( track, head, trackPos, sectors.size() - nOld );
+	  for( int i = nOld; i < sectors.size(); i++ ) {
+	    int secSize = SectorData.getSizeBySizeCode(
+					sectors.get( i ).getSizeCode() );
+	    if( secSize > diskSectorSize ) {
+	      diskSectorSize = secSize;
 	    }
+	  }
+	  if( !sectors.isEmpty() ) {
 
 	    /*
 	     * Mitunter sind in einer TeleDisk-Datei Sektoren 
@@ -785,7 +540,7 @@ public class TeleDisk extends AbstractFloppyDisk
 	     * pro Spur genommen, die am haeufigsten vorkommt.
 	     */
 	    Set<Integer> sectorNums = new TreeSet<>();
-	    for( SectorData sector : trackSectors ) {
+	    for( SectorData sector : sectors ) {
 	      sectorNums.add( sector.getSectorNum() );
 	    }
 	    Integer nSectorNums = Integer.valueOf( sectorNums.size() );
@@ -800,6 +555,20 @@ public class TeleDisk extends AbstractFloppyDisk
 	}
       }
 
+      /*
+       * Spuren mit doppelten Sektoren sofort dekodieren,
+       * da erst anhand der Sektordaten feststeht,
+       * ob dabei Sektoren repariert werden
+       */
+      Decoder decoder = new Decoder( enableAutoRepair );
+      trackIndex.setDecoder( decoder );
+      for( Integer key : dataKeys ) {
+	trackIndex.getSectors( key.intValue() >> 1, key.intValue() & 0x01 );
+      }
+      if( decoder.autoRepaired ) {
+	autoRepaired = true;
+      }
+
       // Sektoren pro Zylinder ermitteln
       int sectorsPerTrack = 0;
       int lastOccurrences = -1;
@@ -821,8 +590,7 @@ public class TeleDisk extends AbstractFloppyDisk
 			file.getPath(),
 			remark,
 			diskDate,
-			side0,
-			side1 );
+			trackIndex );
 
       // ggf. Warnung
       if( autoRepaired ) {
@@ -835,6 +603,9 @@ public class TeleDisk extends AbstractFloppyDisk
     }
     finally {
       EmuUtil.closeSilently( in );
+      if( rv == null ) {
+	trackIndex.close();
+      }
     }
     return rv;
   }
@@ -842,6 +613,13 @@ public class TeleDisk extends AbstractFloppyDisk
 
 	/* --- ueberschriebene Methoden --- */
 
+  @Override
+  public void closeSilently()
+  {
+    this.trackIndex.close();
+  }
+
+
   @Override
   public java.util.Date getDiskDate()
   {
@@ -883,8 +661,7 @@ public class TeleDisk extends AbstractFloppyDisk
   @Override
   public int getSectorsOfTrack( int physCyl, int physHead )
   {
-    java.util.List<SectorData> sectors = getSectorList( physCyl, physHead );
-    return sectors != null ? sectors.size() : 0;
+    return this.trackIndex.getSectorCount( physCyl, physHead );
   }
 
 
@@ -916,15 +693,13 @@ public class TeleDisk extends AbstractFloppyDisk
 		String                                  fileName,
 		String                                  remark,
 		java.util.Date                          diskDate,
-		Map<Integer,java.util.List<SectorData>> side0,
-		Map<Integer,java.util.List<SectorData>> side1 )
+		TrackIndex                              trackIndex )
   {
     super( owner, cyls, sides, sectorsPerTrack, sectorSize );
-    this.fileName = fileName;
-    this.remark   = remark;
-    this.diskDate = diskDate;
-    this.side0    = side0;
-    this.side1    = side1;
+    this.fileName   = fileName;
+    this.remark     = remark;
+    this.diskDate   = diskDate;
+    this.trackIndex = trackIndex;
   }
 
 
@@ -932,11 +707,331 @@ public class TeleDisk extends AbstractFloppyDisk
 						int physCyl,
 						int physHead )
   {
-    java.util.List<SectorData>              rv  = null;
-    Map<Integer,java.util.List<SectorData>> map = ((physHead & 0x01) != 0 ?
-							side1 : side0);
-    if( map != null ) {
-      rv = map.get( physCyl );
+    java.util.List<SectorData> rv = null;
+    try {
+      rv = this.trackIndex.getSectors( physCyl, physHead & 0x01 );
+    }
+    catch( IOException ex ) {
+      fireShowReadError( physCyl, physHead, ex );
+    }
+    return rv;
+  }
+
+
+  /*
+   * Lesen der Sektoren eines Spurdatensatzes
+   *
+   * Ohne Sektordaten (withData == false) werden die Daten nur
+   * ueberlesen und die Sektoren ohne Datenpuffer angelegt.
+   *
+   * Rueckgabewert:
+   *   TRACK_REPAIRED:   Sektoren wurden repariert
+   *   TRACK_NEEDS_DATA: doppelte Sektoren koennen nur anhand
+   *                     der Sektordaten zusammengefuehrt werden
+   */
+  private static int readTrack(
+			InputStream                in,
+			int                        track,
+			int                        head,
+			int                        nSec,
+			java.util.List<SectorData> sectors,
+			boolean                    withData,
+			boolean                    enableAutoRepair )
+							throws IOException
+  {
+    int                        rv                 = 0;
+    byte[]                     skipBuf            = null;
+    boolean                    abnormalFmt        = false;
+    java.util.List<SectorData> bogusHeaderSectors = null;
+    for( int i = 0; i < nSec; i++ ) {
+      int secTrack    = readMandatoryByte( in );
+      int secHead     = readMandatoryByte( in );
+      int secNum      = readMandatoryByte( in );
+      int secSizeCode = readMandatoryByte( in );
+      int secCtrl     = readMandatoryByte( in );
+      int secCrcValue = readMandatoryByte( in );
+
+      if( secTrack != 0xFF ) {
+
+	// Datenpuffer anlegen
+	byte[] secBuf = null;
+	int    secLen = SectorData.getSizeBySizeCode( secSizeCode );
+	if( (secSizeCode >= 0) && (secSizeCode <= 6) ) {
+	  if( withData ) {
+	    secBuf = new byte[ secLen ];
+	    Arrays.fill( secBuf, (byte) 0 );
+	  } else {
+	    if( skipBuf == null ) {
+	      skipBuf = new byte[ SectorData.getSizeBySizeCode( 6 ) ];
+	    }
+	    secBuf = skipBuf;
+	  }
+	}
+	if( secBuf == null ) {
+	  throwUnsupportedTeleDiskFmt(
+	    String.format(
+		  "Code=%02X f\u00FCr Sektorgr\u00F6\u00DFe"
+			  + " nicht unterst\u00FCtzt",
+		  secSizeCode ) );
+	}
+
+	/*
+	 * Bits in secCtrl:
+	 *   0x01: Sektor mehrfach auf der Spur enthalten
+	 *   0x02: Sektor mit CRC-Fehler gelesen
+	 *   0x04: Sektor hat Deleted Data Address Mark
+	 *   0x10: Datenbereich wurde uebersprungen
+	 *         (keine Daten enthalten)
+	 *   0x20: Sektor hat ID-Feld, aber keine Daten
+	 *   0x40: Sektor hat Daten, aber keinen Kopf
+	 *         (Kopfdaten generiert)
+	 */
+	boolean crcError    = ((secCtrl & 0x02) != 0);
+	boolean dataDeleted = ((secCtrl & 0x04) != 0);
+	boolean bogusHeader = ((secCtrl & 0x40) != 0);
+	if( !bogusHeader
+	    && ((secTrack != track) || (secHead != head)) )
+	{
+	  abnormalFmt = true;
+	}
+
+	if( (secCtrl & 0x30) == 0 ) {
+	  int len = readMandatoryWord( in );
+	  if( len > 0 ) {
+	    int secEncoding = readMandatoryByte( in );
+	    --len;
+
+	    int pos = 0;
+	    switch( secEncoding ) {
+	      case 0:
+		while( len > 0 ) {
+		  int b = readMandatoryByte( in );
+		  if( pos < secBuf.length ) {
+		    secBuf[ pos++ ] = (byte) b;
+		  }
+		  --len;
+		}
+		break;
+
+	      case 1:
+		if( len >= 4 ) {
+		  int n  = readMandatoryWord( in );
+		  int b0 = readMandatoryByte( in );
+		  int b1 = readMandatoryByte( in );
+		  len -= 4;
+		  while( n > 0 ) {
+		    if( pos < secBuf.length ) {
+		      secBuf[ pos++ ] = (byte) b0;
+		    }
+		    if( pos < secBuf.length ) {
+		      secBuf[ pos++ ] = (byte) b1;
+		    }
+		    --n;
+		  }
+		}
+		break;
+
+	      case 2:
+		while( len >= 2 ) {
+		  int t = readMandatoryByte( in );
+		  int n = readMandatoryByte( in );
+		  len -= 2;
+		  switch( t ) {
+		    case 0:
+		      while( (len > 0) && (n > 0) ) {
+			int b = readMandatoryByte( in );
+			if( pos < secBuf.length ) {
+			  secBuf[ pos++ ] = (byte) b;
+			}
+			--n;
+			--len;
+		      }
+		      if( n > 0 ) {
+			throwLengthMismatch();
+		      }
+		      break;
+
+		    case 1:
+		      if( len >= 2 ) {
+			int b0 = readMandatoryByte( in );
+			int b1 = readMandatoryByte( in );
+			len -= 2;
+			while( n > 0 ) {
+			  if( pos < secBuf.length ) {
+			    secBuf[ pos++ ] = (byte) b0;
+			  }
+			  if( pos < secBuf.length ) {
+			    secBuf[ pos++ ] = (byte) b1;
+			  }
+			  --n;
+			}
+		      }
+		      break;
+
+		    default:
+		      throwUnsupportedTeleDiskFmt(
+			  String.format(
+				  "Sektorunterkodierung %02X"
+					  + " nicht unterst\u00FCtzt",
+				  t ) );
+		  }
+		}
+		while( len > 0 ) {
+		  readMandatoryByte( in );
+		  --len;
+		}
+		break;
+
+	      default:
+		throwUnsupportedTeleDiskFmt(
+		  String.format(
+			  "Sektorkodierung %02Xh"
+				  + " nicht unterst\u00FCtzt",
+			  secEncoding ) );
+	    }
+	    if( len > 0 ) {
+	      throwLengthMismatch();
+	    }
+	  }
+	}
+
+	if( !withData ) {
+	  secBuf = null;
+	}
+
+	// doppelte Sektoren herausfiltern
+	boolean found = false;
+	if( enableAutoRepair ) {
+	  for( SectorData sector : sectors ) {
+	    if( sector.equalsSectorID(
+				secTrack,
+				secHead,
+				secNum,
+				secSizeCode ) )
+	    {
+	      found = true;
+	      if( !withData ) {
+		/*
+		 * Das Zusammenfuehren doppelter Sektoren haengt
+		 * von den Sektordaten ab.
+		 */
+		rv |= TRACK_NEEDS_DATA;
+	      } else if( sector.equalsData( secBuf, 0, secLen ) ) {
+		/*
+		 * Daten sind gleich:
+		 *   sofern moeglich, den Sektor als fehlerfrei
+		 *   und nicht geloescht behalten
+		 */
+		if( !crcError ) {
+		  sector.setError( false );
+		}
+		if( !dataDeleted ) {
+		  sector.setDataDeleted( false );
+		}
+	      } else {
+		/*
+		 * Daten sind unterschiedlich
+		 *   sofern moeglich, den fehlerhaften durch den
+		 *   fehlerfreien Sektor ersetzen
+		 */
+		if( sector.checkError() && !crcError ) {
+		  if( dataDeleted && !sector.getDataDeleted() ) {
+		    dataDeleted = false;
+		    rv |= TRACK_REPAIRED;
+		  }
+		  sector.setData( dataDeleted, secBuf, secLen );
+		  sector.setError( false );
+		}
+	      }
+	    }
+	  }
+	}
+	if( !found ) {
+	  SectorData sector = new SectorData(
+					sectors.size(),
+					secTrack,
+					secHead,
+					secNum,
+					secSizeCode,
+					secBuf,
+					0,
+					secLen );
+	  sector.setBogusID( bogusHeader );
+	  sector.setError( crcError );
+	  sector.setDataDeleted( dataDeleted );
+	  sectors.add( sector );
+	  if( bogusHeader && !abnormalFmt ) {
+	    if( bogusHeaderSectors == null ) {
+	      bogusHeaderSectors = new ArrayList<>();
+	    }
+	    bogusHeaderSectors.add( sector );
+	  }
+	}
+      }
+    }
+
+    /*
+     * ggf. automatische Reparatur von Sektoren,
+     * deren Kopf nicht gelesen werden konnte
+     *
+     * Das ist jedoch nicht moeglich,
+     * wenn mehr als ein Sektor pro Spur betroffen sind.
+     */
+    if( enableAutoRepair
+	&& (bogusHeaderSectors != null)
+	&& !abnormalFmt )
+    {
+      if( bogusHeaderSectors.size() == 1 ) {
+	SectorData bogusHeaderSector = bogusHeaderSectors.get( 0 );
+	if( (sectors.size() == nSec)
+	    && sectors.contains( bogusHeaderSector ) )
+	{
+	  // Sektornummern ermitteln
+	  SortedSet<Integer> secNums = new TreeSet<>();
+	  for( SectorData sector : sectors ) {
+	    if( sector != bogusHeaderSector ) {
+	      secNums.add( sector.getSectorNum() );
+	    }
+	  }
+	  if( !secNums.isEmpty() && (secNums.size() + 1) == nSec ) {
+	    int secNumRange = secNums.last() - secNums.first() + 1;
+	    if( secNumRange == (nSec - 1) ) {
+	      // Sektornummer fehlt am Anfang oder Ende
+	      switch( secNums.first().intValue() ) {
+		case 1:
+		  // Sektornummer fehlt am Ende
+		  bogusHeaderSector.setSectorID(
+					track,
+					head,
+					secNums.last() + 1 );
+		  bogusHeaderSector.setBogusID( false );
+		  rv |= TRACK_REPAIRED;
+		  break;
+		case 2:
+		  // Sektornummer fehlt am Anfang
+		  bogusHeaderSector.setSectorID( track, head, 1 );
+		  bogusHeaderSector.setBogusID( false );
+		  rv |= TRACK_REPAIRED;
+	      }
+	    } else if( secNumRange == nSec ) {
+	      // Sektornummer fehlt in der Mitte
+	      int tmpSecNum  = secNums.first().intValue() + 1;
+	      int lastSecNum = secNums.last().intValue();
+	      while( tmpSecNum <= lastSecNum ) {
+		if( !secNums.contains( tmpSecNum ) ) {
+		  bogusHeaderSector.setSectorID(
+					track,
+					head,
+					tmpSecNum );
+		  bogusHeaderSector.setBogusID( false );
+		  rv |= TRACK_REPAIRED;
+		}
+		tmpSecNum++;
+	      }
+	    }
+	  }
+	}
+      }
     }
     return rv;
   }
@@ -0,0 +1,364 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Kleincomputer-Emulator
+ *
+ * Spurindex einer Diskettenabbilddatei
+ *
+ * Beim Oeffnen einer Abbilddatei wird in einem Durchlauf nur vermerkt,
+ * an welchen Dateipositionen die Spuren beginnen und wie viele
+ * Sektoren sie enthalten.
+ * Die Sektordaten einer Spur werden erst beim ersten Zugriff dekodiert
+ * und in einem LRU-Cache mit einer begrenzten Anzahl an Spuren gehalten.
+ *
+ * Eine mit GZip komprimierte Datei wird einmalig in eine temporaere Datei
+ * entpackt, auf die dann wahlfrei zugegriffen werden kann.
+ * Die Datei wird nur fuer das Lesen einer Spur geoeffnet,
+ * sodass auch nicht geschlossene Diskettenobjekte
+ * keine Dateien offen halten.
+ */
+
+package jkcemu.disk;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import jkcemu.base.EmuUtil;
+import jkcemu.file.FileUtil;
+
+
+class TrackIndex
+{
+  interface TrackDecoder
+  {
+    /*
+     * Dekodieren der an der aktuellen Position des Eingabestroms
+     * beginnenden Spur bzw. des Spurteils
+     *
+     * Die Sektoren werden an die uebergebene Liste angehaengt.
+     */
+    public void decodeTrack(
+			Reader                     in,
+			int                        cyl,
+			int                        head,
+			java.util.List<SectorData> sectors ) throws IOException;
+  }
+
+
+  /*
+   * Gepufferter Eingabestrom auf die Abbilddatei,
+   * der die aktuelle Dateiposition liefert
+   */
+  class Reader extends InputStream
+  {
+    private RandomAccessFile raf;
+    private byte[]           buf;
+    private int              bufPos;
+    private int              bufLen;
+    private long             filePos;
+
+    private Reader( RandomAccessFile raf, long filePos )
+    {
+      this.raf     = raf;
+      this.buf     = new byte[ BUF_SIZE ];
+      this.bufPos  = 0;
+      this.bufLen  = 0;
+      this.filePos = filePos;
+    }
+
+    public long getPosition()
+    {
+      return this.filePos - this.bufLen + this.bufPos;
+    }
+
+    public void seek( long filePos )
+    {
+      this.filePos = filePos;
+      this.bufPos  = 0;
+      this.bufLen  = 0;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+      this.raf.close();
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+      int rv = -1;
+      if( this.bufPos >= this.bufLen ) {
+	fillBuf();
+      }
+      if( this.bufPos < this.bufLen ) {
+	rv = (int) this.buf[ this.bufPos++ ] & 0xFF;
+      }
+      return rv;
+    }
+
+    @Override
+    public int read( byte[] buf, int pos, int len ) throws IOException
+    {
+      int rv = 0;
+      if( this.bufPos >= this.bufLen ) {
+	fillBuf();
+      }
+      if( this.bufPos < this.bufLen ) {
+	rv = Math.min( len, this.bufLen - this.bufPos );
+	System.arraycopy( this.buf, this.bufPos, buf, pos, rv );
+	this.bufPos += rv;
+      } else if( len > 0 ) {
+	rv = -1;
+      }
+      return rv;
+    }
+
+    @Override
+    public long skip( long n ) throws IOException
+    {
+      long rv = 0;
+      if( n > 0 ) {
+	int nBuf = this.bufLen - this.bufPos;
+	if( n <= nBuf ) {
+	  this.bufPos += (int) n;
+	} else {
+	  this.filePos += (n - nBuf);
+	  this.bufPos = 0;
+	  this.bufLen = 0;
+	}
+	rv = n;
+      }
+      return rv;
+    }
+
+    private void fillBuf() throws IOException
+    {
+      this.raf.seek( this.filePos );
+      int n = this.raf.read( this.buf );
+      this.bufPos = 0;
+      this.bufLen = Math.max( n, 0 );
+      this.filePos += this.bufLen;
+    }
+  };
+
+
+  private static final int BUF_SIZE          = 0x4000;
+  private static final int MAX_CACHED_TRACKS = 32;
+
+  private File                                     dataFile;
+  private boolean                                  tmpFile;
+  private boolean                                  closed;
+  private long                                     dataFileLen;
+  private long                                     dataFileModified;
+  private TrackDecoder                             decoder;
+  private Map<Integer,java.util.List<Long>>        trackPositions;
+  private Map<Integer,Integer>                     sectorCounts;
+  private Map<Integer,java.util.List<SectorData>>  cache;
+
+
+  /*
+   * Anlegen einer temporaeren Datei,
+   * in die ein Abbild entpackt werden kann
+   */
+  static File createTempFile() throws IOException
+  {
+    File file = File.createTempFile( "jkcemu_", ".disk" );
+    file.deleteOnExit();
+    return file;
+  }
+
+
+  /*
+   * Oeffnen einer ggf. mit GZip komprimierten Abbilddatei
+   */
+  static TrackIndex open( File file ) throws IOException
+  {
+    TrackIndex rv = null;
+    if( FileUtil.isGZipFile( file ) ) {
+      File         tmpFile = createTempFile();
+      InputStream  in      = null;
+      OutputStream out     = null;
+      try {
+	in  = new GZIPInputStream( new FileInputStream( file ) );
+	out = new BufferedOutputStream( new FileOutputStream( tmpFile ) );
+	byte[] buf = new byte[ BUF_SIZE ];
+	int    n   = in.read( buf );
+	while( n >= 0 ) {
+	  out.write( buf, 0, n );
+	  n = in.read( buf );
+	}
+	out.close();
+	out = null;
+	rv  = new TrackIndex( tmpFile, true );
+      }
+      finally {
+	EmuUtil.closeSilently( in );
+	EmuUtil.closeSilently( out );
+	if( rv == null ) {
+	  tmpFile.delete();
+	}
+      }
+    } else {
+      rv = new TrackIndex( file, false );
+    }
+    return rv;
+  }
+
+
+  TrackIndex( File dataFile, boolean tmpFile )
+  {
+    this.dataFile         = dataFile;
+    this.tmpFile          = tmpFile;
+    this.closed           = false;
+    this.dataFileLen      = dataFile.length();
+    this.dataFileModified = dataFile.lastModified();
+    this.decoder          = null;
+    this.trackPositions   = new HashMap<>();
+    this.sectorCounts     = new HashMap<>();
+    this.cache            = new LinkedHashMap<
+				Integer,
+				java.util.List<SectorData>>( 64, 0.75F, true )
+			{
+			  @Override
+			  protected boolean removeEldestEntry(
+				Map.Entry<
+					Integer,
+					java.util.List<SectorData>> eldest )
+			  {
+			    return size() > MAX_CACHED_TRACKS;
+			  }
+			};
+  }
+
+
+  /*
+   * Vermerken einer Spur bzw. eines weiteren Teils einer Spur
+   */
+  synchronized void addTrack(
+			int  cyl,
+			int  head,
+			long filePos,
+			int  nSectors )
+  {
+    Integer                key       = createKey( cyl, head );
+    java.util.List<Long>   positions = this.trackPositions.get( key );
+    if( positions == null ) {
+      positions = new ArrayList<>( 1 );
+      this.trackPositions.put( key, positions );
+    }
+    positions.add( filePos );
+    Integer n = this.sectorCounts.get( key );
+    if( n != null ) {
+      nSectors += n.intValue();
+    }
+    this.sectorCounts.put( key, nSectors );
+  }
+
+
+  /*
+   * Loeschen einer ggf. angelegten temporaeren Datei
+   *
+   * Danach koennen keine Spuren mehr gelesen werden.
+   */
+  synchronized void close()
+  {
+    this.closed = true;
+    this.cache.clear();
+    if( this.tmpFile ) {
+      this.dataFile.delete();
+    }
+  }
+
+
+  synchronized int getSectorCount( int cyl, int head )
+  {
+    Integer n = this.sectorCounts.get( createKey( cyl, head ) );
+    return n != null ? n.intValue() : 0;
+  }
+
+
+  /*
+   * Sektoren einer Spur,
+   * die ggf. erst jetzt aus der Datei gelesen und dekodiert werden
+   *
+   * Rueckgabewert:
+   *   Sektorliste oder null, wenn die Spur nicht existiert
+   */
+  synchronized java.util.List<SectorData> getSectors(
+						int cyl,
+						int head ) throws IOException
+  {
+    Integer                    key     = createKey( cyl, head );
+    java.util.List<SectorData> sectors = this.cache.get( key );
+    if( sectors == null ) {
+      java.util.List<Long> positions = this.trackPositions.get( key );
+      if( (positions != null) && (this.decoder != null) ) {
+	/*
+	 * Im Fehlerfall wird eine leere Liste vermerkt,
+	 * damit der Fehler nicht bei jedem Zugriff
+	 * erneut gemeldet wird.
+	 */
+	this.cache.put( key, new ArrayList<SectorData>() );
+	if( this.closed ) {
+	  throw new IOException( "Diskettenabbilddatei bereits geschlossen" );
+	}
+	if( (this.dataFile.length() != this.dataFileLen)
+	    || (this.dataFile.lastModified() != this.dataFileModified) )
+	{
+	  throw new IOException( "Die Diskettenabbilddatei wurde"
+			+ " zwischenzeitlich ge\u00E4ndert." );
+	}
+	Reader in = null;
+	try {
+	  in      = openReader( 0 );
+	  sectors = new ArrayList<>( getSectorCount( cyl, head ) );
+	  for( Long filePos : positions ) {
+	    in.seek( filePos.longValue() );
+	    this.decoder.decodeTrack( in, cyl, head, sectors );
+	  }
+	}
+	finally {
+	  EmuUtil.closeSilently( in );
+	}
+	this.cache.put( key, sectors );
+      }
+    }
+    return sectors;
+  }
+
+
+  /*
+   * Oeffnen der (ggf. entpackten) Abbilddatei zum sequenziellen Lesen
+   *
+   * Der Eingabestrom muss vom Aufrufer geschlossen werden.
+   */
+  Reader openReader( long filePos ) throws IOException
+  {
+    return new Reader( new RandomAccessFile( this.dataFile, "r" ), filePos );
+  }
+
+
+  synchronized void setDecoder( TrackDecoder decoder )
+  {
+    this.decoder = decoder;
+  }
+
+
+	/* --- private Methoden --- */
+
+  private static Integer createKey( int cyl, int head )
+  {
+    return Integer.valueOf( (cyl << 1) | (head & 0x01) );
+  }
+}
@@ -10,6 +10,7 @@ package jkcemu.emusys;
 
 import java.awt.Color;
 import java.awt.Graphics;
+import java.awt.Rectangle;
 import java.awt.Window;
 import java.awt.event.KeyEvent;
 import java.util.ArrayList;
@@ -1580,11 +1581,22 @@ public class AC1
 	g.translate( xOffs, yOffs );
       }
 
+      // nur die Pixelzeilen innerhalb des Clip-Bereichs zeichnen
+      int       yBeg = 0;
+      int       yEnd = hBase;
+      Rectangle clip = g.getClipBounds();
+      if( (clip != null) && (screenScale > 0) ) {
+	yBeg = Math.max( clip.y, 0 ) / screenScale;
+	yEnd = Math.min(
+		(clip.y + clip.height + screenScale - 1) / screenScale,
+		hBase );
+      }
+
       /*
        * Aus Gruenden der Performance werden nebeneinander liegende
        * weisse Punkte zusammengefasst und als Linie gezeichnet.
        */
-      for( int y = 0; y < hBase; y++ ) {
+      for( int y = yBeg; y < yEnd; y++ ) {
 	int     lastColorIdx = -1;
 	int     xColorBeg    = -1;
 	boolean inverse      = false;
@@ -2019,13 +2031,13 @@ public class AC1
 	if( (this.ramColor != null) && ((this.regF0 & 0x04) != 0) ) {
 	  if( idx < this.ramColor.length ) {
 	    this.ramColor[ idx ] = (byte) value;
-	    this.screenFrm.setScreenDirty( true );
+	    setScreenCharDirty( idx );
 	    rv = true;
 	  }
 	} else {
 	  if( idx < this.ramVideo.length ) {
 	    this.ramVideo[ idx ] = (byte) value;
-	    this.screenFrm.setScreenDirty( true );
+	    setScreenCharDirty( idx );
 	    rv = true;
 	  }
 	}
@@ -2568,4 +2580,23 @@ public class AC1
       }
     }
   }
+
+
+  /*
+   * Die Methode markiert die Pixelzeilen der Zeichenzeile als geaendert,
+   * in der sich die uebergebene Position des Bildwiederholspeichers
+   * befindet.
+   * Der Bildwiederholspeicher wird von hinten nach vorne ausgelesen.
+   */
+  private void setScreenCharDirty( int idx )
+  {
+    int row = (this.ramVideo.length - 1 - idx) / 64;
+    if( row >= 0 ) {
+      if( this.mode64x16 ) {
+	setScreenLinesDirty( row * 16, (row * 16) + 7 );
+      } else {
+	setScreenLinesDirty( row * 8, (row * 8) + 7 );
+      }
+    }
+  }
 }
@@ -10,6 +10,8 @@ package jkcemu.emusys;
 
 import java.awt.Color;
 import java.awt.event.KeyEvent;
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -31,6 +33,7 @@ import jkcemu.base.UserCancelException;
 import jkcemu.disk.FloppyDiskDrive;
 import jkcemu.disk.FloppyDiskFormat;
 import jkcemu.disk.FloppyDiskInfo;
+import jkcemu.emusys.etc.MemPageTable;
 import jkcemu.emusys.kc85.AbstractKC85KeyboardFld;
 import jkcemu.emusys.kc85.AbstractKC85Module;
 import jkcemu.emusys.kc85.D004;
@@ -69,10 +72,12 @@ import jkcemu.usb.VDIP;
 import z80emu.Z80CPU;
 import z80emu.Z80CTC;
 import z80emu.Z80CTCListener;
+import z80emu.Z80DeadlineListener;
 import z80emu.Z80InterruptSource;
 import z80emu.Z80MaxSpeedListener;
 import z80emu.Z80MemView;
 import z80emu.Z80Memory;
+import z80emu.Z80PagedMemory;
 import z80emu.Z80PIO;
 import z80emu.Z80PIOPortListener;
 import z80emu.Z80TStatesListener;
@@ -80,7 +85,9 @@ import z80emu.Z80TStatesListener;
 
 public class KC85 extends EmuSys implements
 					Z80CTCListener,
+					Z80DeadlineListener,
 					Z80MaxSpeedListener,
+					Z80PagedMemory,
 					Z80PIOPortListener
 {
   public static final String SYSNAME_HC900  = "HC900";
@@ -350,6 +357,7 @@ public class KC85 extends EmuSys implements
   private int[]                   rgbValues;
   private Color[]                 colors;
   private AbstractKC85Module[]    modules;
+  private MemPageTable            memPages;
   private KC85CharRecognizer      charRecognizer;
   private AbstractKC85KeyboardFld keyboardFld;
   private KC85FrontFld            frontFld;
@@ -379,6 +387,7 @@ public class KC85 extends EmuSys implements
     this.caosFileF      = null;
     this.m052RomFile    = null;
     this.m052usbRomFile = null;
+    this.memPages       = new MemPageTable();
 
     this.sysName = EmuUtil.getProperty( props, EmuThread.PROP_SYSNAME );
     switch( this.sysName ) {
@@ -611,7 +620,7 @@ public class KC85 extends EmuSys implements
 	  if( this.screenBufUsed != null ) {
 	    this.screenDirty = true;
 	  } else {
-	    this.screenFrm.setScreenDirty( true );
+	    setScreenDirty( true );
 	  }
 	  break;
       }
@@ -619,6 +628,60 @@ public class KC85 extends EmuSys implements
   }
 
 
+	/* --- Z80DeadlineListener --- */
+
+  /*
+   * Der naechste relevante Zeitpunkt ergibt sich aus der CTC,
+   * dem Tongenerator, dem Zeilenende (Bildaufbau und BI-Signal),
+   * der naechsten h4-Flanke (nur wenn CTC-Kanal 0 oder 1
+   * den Eingang auswertet) sowie dem naechsten Impuls
+   * der Tastaturemulation.
+   * Bei aktiver Kassettenein- oder -ausgabe
+   * wird nach jedem Befehl gemeldet.
+   */
+  @Override
+  public int z80TStatesToDeadline( Z80CPU cpu )
+  {
+    int rv = 1;
+    if( (this.tapeIn == null) && (this.tapeOut == null) ) {
+      rv = Math.min(
+		this.ctc.z80TStatesToDeadline( cpu ),
+		this.d001SoundDevice.z80TStatesToDeadline( cpu ) );
+
+      int tStatesPerLine = this.tStatesPerLine;
+      if( tStatesPerLine > 0 ) {
+	int linePos = this.lineTStateCounter;
+	int nextPos = tStatesPerLine;
+	if( this.ctc.isExternalInputUsed( 0 )
+	    || this.ctc.isExternalInputUsed( 1 ) )
+	{
+	  if( linePos < this.tStatesLinePos0 ) {
+	    nextPos = this.tStatesLinePos0;
+	  } else if( linePos < this.tStatesLinePos1 ) {
+	    nextPos = this.tStatesLinePos1;
+	  } else if( linePos < this.tStatesLinePos2 ) {
+	    nextPos = this.tStatesLinePos2;
+	  }
+	}
+	rv = Math.min( rv, nextPos - linePos );
+      }
+
+      // Impuls erfolgt beim ersten Aufruf nach Ablauf der Zeit
+      if( this.keyShiftBitCnt > 0 ) {
+	int keyTStates = 1;
+	if( this.keyShiftBitCnt < 8 ) {
+	  keyTStates = ((this.keyShiftValue & 0x01) != 0 ? 12496 : 8960)
+							- this.keyTStates;
+	}
+	rv = Math.min( rv, keyTStates );
+      } else if( this.keyTStates > 0 ) {
+	rv = Math.min( rv, this.keyTStates );
+      }
+    }
+    return rv;
+  }
+
+
 	/* --- Z80MaxSpeedListener --- */
 
   @Override
@@ -635,6 +698,36 @@ public class KC85 extends EmuSys implements
   }
 
 
+	/* --- Z80PagedMemory --- */
+
+  @Override
+  public byte[][] getReadPages()
+  {
+    return this.memPages.getReadPages();
+  }
+
+
+  @Override
+  public int[] getReadPageOffs()
+  {
+    return this.memPages.getReadPageOffs();
+  }
+
+
+  @Override
+  public byte[][] getWritePages()
+  {
+    return this.memPages.getWritePages();
+  }
+
+
+  @Override
+  public int[] getWritePageOffs()
+  {
+    return this.memPages.getWritePageOffs();
+  }
+
+
 	/* --- Z80PIOPortListener --- */
 
   @Override
@@ -654,6 +747,7 @@ public class KC85 extends EmuSys implements
 	this.irmEnabled       = ((m & 0x04) != 0);
 	this.ram0Writeable    = ((m & 0x08) != 0);
 	this.basicC000Enabled = ((m & 0x80) != 0);
+	rebuildMemPages();
 
 	boolean kout    = ((m & 0x10) != 0);
 	Boolean oldKout = this.kout;
@@ -680,7 +774,7 @@ public class KC85 extends EmuSys implements
 	if( this.screenBufUsed != null ) {
 	  this.screenDirty = true;
 	} else {
-	  this.screenFrm.setScreenDirty( true );
+	  setScreenDirty( true );
 	}
 	if( this.frontFld != null ) {
 	  this.frontFld.setPioAValue( m );
@@ -695,8 +789,15 @@ public class KC85 extends EmuSys implements
 	    this.soundPhaseR  = false;
 	    updSoundValues();
 	  }
-	  this.ram8Enabled   = ((m & 0x20) != 0);
-	  this.ram8Writeable = ((m & 0x40) != 0);
+	  boolean ram8Enabled   = ((m & 0x20) != 0);
+	  boolean ram8Writeable = ((m & 0x40) != 0);
+	  if( (ram8Enabled != this.ram8Enabled)
+	      || (ram8Writeable != this.ram8Writeable) )
+	  {
+	    this.ram8Enabled   = ram8Enabled;
+	    this.ram8Writeable = ram8Writeable;
+	    rebuildMemPages();
+	  }
 	  if( this.frontFld != null ) {
 	    this.frontFld.setRAM8Enabled( this.ram8Enabled );
 	  }
@@ -1145,6 +1246,38 @@ public class KC85 extends EmuSys implements
   }
 
 
+  @Override
+  public boolean fillFrameBuffer( byte[] frameBuf, int lineBeg, int lineEnd )
+  {
+    boolean rv = false;
+    if( frameBuf.length >= (SCREEN_WIDTH * SCREEN_HEIGHT) ) {
+      if( lineBeg < 0 ) {
+	lineBeg = 0;
+      }
+      if( lineEnd >= SCREEN_HEIGHT ) {
+	lineEnd = SCREEN_HEIGHT - 1;
+      }
+      byte[] screenBuf = this.screenBufUsed;
+      if( screenBuf != null ) {
+	int pos = lineBeg * SCREEN_WIDTH;
+	int len = (lineEnd - lineBeg + 1) * SCREEN_WIDTH;
+	if( (pos + len) <= screenBuf.length ) {
+	  if( len > 0 ) {
+	    System.arraycopy( screenBuf, pos, frameBuf, pos, len );
+	  }
+	  rv = true;
+	}
+      } else {
+	for( int y = lineBeg; y <= lineEnd; y++ ) {
+	  fillScreenLine( frameBuf, y );
+	}
+	rv = true;
+      }
+    }
+    return rv;
+  }
+
+
   @Override
   public boolean getAutoLoadInputOnSoftReset()
   {
@@ -1874,6 +2007,7 @@ public class KC85 extends EmuSys implements
     if( this.caosF000 == null ) {
       this.caosF000 = getResource( resourceCaosF );
     }
+    rebuildMemPages();
 
     // M052-ROM
     this.m052RomFile    = getProperty( props, PROP_ROM_M052_FILE );
@@ -1889,6 +2023,76 @@ public class KC85 extends EmuSys implements
   }
 
 
+  @Override
+  public void loadSnapshot( DataInput in ) throws IOException
+  {
+    checkSnapshotSupported();
+    this.blinkEnabled         = in.readBoolean();
+    this.blinkState           = in.readBoolean();
+    this.hiColorRes           = in.readBoolean();
+    this.basicC000Enabled     = in.readBoolean();
+    this.caosC000Enabled      = in.readBoolean();
+    this.caosE000Enabled      = in.readBoolean();
+    this.irmEnabled           = in.readBoolean();
+    this.ram0Enabled          = in.readBoolean();
+    this.ram0Writeable        = in.readBoolean();
+    this.ram4Enabled          = in.readBoolean();
+    this.ram4Writeable        = in.readBoolean();
+    this.ram8Enabled          = in.readBoolean();
+    this.ram8Writeable        = in.readBoolean();
+    this.ramColorEnabled      = in.readBoolean();
+    this.screenRefreshEnabled = in.readBoolean();
+    this.screen1Enabled       = in.readBoolean();
+    this.screen1Visible       = in.readBoolean();
+    this.biState              = in.readBoolean();
+    this.h4State              = in.readBoolean();
+    this.soundPhaseL          = in.readBoolean();
+    this.soundPhaseR          = in.readBoolean();
+    this.tapeOutPhase         = in.readBoolean();
+    int koutValue             = in.readByte();
+    this.kout                 = koutValue < 0 ?
+					null
+					: Boolean.valueOf( koutValue != 0 );
+    this.ram8SegNum           = in.readInt();
+    this.basicSegNum          = in.readInt();
+    this.keyShiftBitCnt       = in.readInt();
+    this.keyShiftValue        = in.readInt();
+    this.keyTStates           = in.readInt();
+    this.lineTStateCounter    = in.readInt();
+    this.lineCounter          = in.readInt();
+    this.lastIX               = -1;
+    this.keyNumStageBuf       = 0;
+    this.keyNumStageNum       = 0;
+    this.keyNumStageMillis    = -1;
+    this.keyNumPressed        = -1;
+    this.keyNumProcessing     = -1;
+    in.readFully( this.ramColor0 );
+    in.readFully( this.ramColor1 );
+    in.readFully( this.ramPixel0 );
+    in.readFully( this.ramPixel1 );
+    if( this.ram8 != null ) {
+      in.readFully( this.ram8 );
+    }
+    this.ctc.loadState( in );
+    this.pio.loadState( in );
+    int nModules = in.readShort();
+    if( nModules != (this.modules != null ? this.modules.length : 0) ) {
+      throw new IOException( "Die Module passen nicht zur Konfiguration." );
+    }
+    if( this.modules != null ) {
+      for( AbstractKC85Module module : this.modules ) {
+	module.loadState( in );
+      }
+    }
+    this.d001SoundDevice.reset();
+    rebuildMemPages();
+    setFrontFldDirty();
+    updSoundValues();
+    this.screenDirty = true;
+    setScreenDirty( true );
+  }
+
+
   @Override
   public void openBasicProgram()
   {
@@ -1978,7 +2182,11 @@ public class KC85 extends EmuSys implements
   @Override
   public int readMemByte( int addr, boolean m1 )
   {
-    return getMemByteInternal( addr, this.irmEnabled, m1, true );
+    int rv = this.memPages.read( addr );
+    if( rv < 0 ) {
+      rv = getMemByteInternal( addr, this.irmEnabled, m1, true );
+    }
+    return rv;
   }
 
 
@@ -2310,6 +2518,7 @@ public class KC85 extends EmuSys implements
     this.ctc.reset( powerOn );
     this.pio.reset( powerOn );
     this.d001SoundDevice.reset();
+    rebuildMemPages();
     setFrontFldDirty();
     updSoundValues();
   }
@@ -2322,6 +2531,61 @@ public class KC85 extends EmuSys implements
   }
 
 
+  @Override
+  public void saveSnapshot( DataOutput out ) throws IOException
+  {
+    checkSnapshotSupported();
+    out.writeBoolean( this.blinkEnabled );
+    out.writeBoolean( this.blinkState );
+    out.writeBoolean( this.hiColorRes );
+    out.writeBoolean( this.basicC000Enabled );
+    out.writeBoolean( this.caosC000Enabled );
+    out.writeBoolean( this.caosE000Enabled );
+    out.writeBoolean( this.irmEnabled );
+    out.writeBoolean( this.ram0Enabled );
+    out.writeBoolean( this.ram0Writeable );
+    out.writeBoolean( this.ram4Enabled );
+    out.writeBoolean( this.ram4Writeable );
+    out.writeBoolean( this.ram8Enabled );
+    out.writeBoolean( this.ram8Writeable );
+    out.writeBoolean( this.ramColorEnabled );
+    out.writeBoolean( this.screenRefreshEnabled );
+    out.writeBoolean( this.screen1Enabled );
+    out.writeBoolean( this.screen1Visible );
+    out.writeBoolean( this.biState );
+    out.writeBoolean( this.h4State );
+    out.writeBoolean( this.soundPhaseL );
+    out.writeBoolean( this.soundPhaseR );
+    out.writeBoolean( this.tapeOutPhase );
+    Boolean kout = this.kout;
+    out.writeByte( kout != null ? (kout.booleanValue() ? 1 : 0) : -1 );
+    out.writeInt( this.ram8SegNum );
+    out.writeInt( this.basicSegNum );
+    out.writeInt( this.keyShiftBitCnt );
+    out.writeInt( this.keyShiftValue );
+    out.writeInt( this.keyTStates );
+    out.writeInt( this.lineTStateCounter );
+    out.writeInt( this.lineCounter );
+    out.write( this.ramColor0 );
+    out.write( this.ramColor1 );
+    out.write( this.ramPixel0 );
+    out.write( this.ramPixel1 );
+    if( this.ram8 != null ) {
+      out.write( this.ram8 );
+    }
+    this.ctc.saveState( out );
+    this.pio.saveState( out );
+    if( this.modules != null ) {
+      out.writeShort( this.modules.length );
+      for( AbstractKC85Module module : this.modules ) {
+	module.saveState( out );
+      }
+    } else {
+      out.writeShort( 0 );
+    }
+  }
+
+
   @Override
   public boolean setBasicMemByte( int addr, int value )
   {
@@ -2354,6 +2618,17 @@ public class KC85 extends EmuSys implements
   }
 
 
+  @Override
+  public void writeMemByte( int addr, int value )
+  {
+    if( this.memPages.write( addr, value )
+				== MemPageTable.WRITE_UNMAPPED )
+    {
+      setMemByteInternal( addr, value, this.irmEnabled );
+    }
+  }
+
+
   @Override
   public boolean shouldAskConvertScreenChar()
   {
@@ -2368,6 +2643,13 @@ public class KC85 extends EmuSys implements
   }
 
 
+  @Override
+  public boolean supportsFrameBuffer()
+  {
+    return true;
+  }
+
+
   @Override
   public boolean supportsHDDisks()
   {
@@ -2420,6 +2702,22 @@ public class KC85 extends EmuSys implements
   }
 
 
+  @Override
+  public boolean supportsSnapshot()
+  {
+    boolean rv = ((this.d004 == null) && (this.vdips.length == 0));
+    if( rv && (this.modules != null) ) {
+      for( AbstractKC85Module module : this.modules ) {
+	if( !module.supportsSnapshot() ) {
+	  rv = false;
+	  break;
+	}
+      }
+    }
+    return rv;
+  }
+
+
   @Override
   public boolean supportsTapeIn()
   {
@@ -2484,10 +2782,11 @@ public class KC85 extends EmuSys implements
 	  this.screen1Enabled  = ((value & 0x04) != 0);
 	  this.hiColorRes      = ((value & 0x08) == 0);
 	  this.ram8SegNum      = (value >> 4) & 0x0F;
+	  rebuildMemPages();
 	  if( this.screenBufUsed != null ) {
 	    this.screenDirty = true;
 	  } else {
-	    this.screenFrm.setScreenDirty( true );
+	    setScreenDirty( true );
 	  }
 	}
 	break;
@@ -2499,6 +2798,7 @@ public class KC85 extends EmuSys implements
 	  this.ram4Writeable   = ((value & 0x02) != 0);
 	  this.basicSegNum     = (~value >> 5) & 0x03;
 	  this.caosC000Enabled = ((value & 0x80) != 0);
+	  rebuildMemPages();
 	}
 	break;
 
@@ -2562,14 +2862,16 @@ public class KC85 extends EmuSys implements
 	if( this.lineCounter < 311 ) {
 	  if( this.screenRefreshEnabled ) {
 	    updScreenLine();
-	    this.screenFrm.setScreenDirty( true );
+	    setScreenDirty( true );
 	  }
 	  this.lineCounter++;
 	} else {
 	  this.lineCounter = 0;
 	  if( this.screenDirty && (this.screenBufUsed != null) ) {
 	    this.screenDirty = false;
-	    this.screenFrm.fireRepaint();
+	    if( this.screenFrm != null ) {
+	      this.screenFrm.fireRepaint();
+	    }
 	    this.screenRefreshEnabled = true;
 	  } else {
 	    this.screenRefreshEnabled = false;
@@ -3549,6 +3851,129 @@ public class KC85 extends EmuSys implements
   }
 
 
+  /*
+   * Die Methode baut die Seitentabelle fuer den schnellen Speicherzugriff
+   * entsprechend der aktuellen Speicherkonfiguration neu auf.
+   * Eingetragen werden nur die Seiten, bei denen ein Zugriff
+   * keine weiteren Aktionen ausloest.
+   * Alle anderen Seiten (z.B. Module, Schreibzugriffe auf den IRM)
+   * werden weiterhin ueber getMemByteInternal(...) und
+   * setMemByteInternal(...) behandelt.
+   * Die Logik muss deshalb mit diesen beiden Methoden
+   * uebereinstimmen.
+   */
+  private void rebuildMemPages()
+  {
+    MemPageTable pages = this.memPages;
+    byte[]       ram   = this.emuThread.getRAM();
+    pages.clear();
+    for( int i = 0; i < MemPageTable.PAGE_COUNT; i++ ) {
+      int addr = MemPageTable.getPageBegAddr( i );
+      if( addr < 0x4000 ) {
+	if( this.ram0Enabled ) {
+	  pages.setReadPage( addr, ram, addr );
+	  if( this.ram0Writeable ) {
+	    pages.setWritePage( addr, ram, addr );
+	  } else {
+	    pages.setWriteIgnored( addr );
+	  }
+	}
+      } else if( addr < 0x8000 ) {
+	if( this.ram4Enabled ) {
+	  pages.setReadPage( addr, ram, addr );
+	  if( this.ram4Writeable ) {
+	    pages.setWritePage( addr, ram, addr );
+	  } else {
+	    pages.setWriteIgnored( addr );
+	  }
+	}
+      } else if( addr < 0xC000 ) {
+	int idx = addr - 0x8000;
+	if( this.irmEnabled ) {
+	  // Schreibzugriffe auf den IRM muessen den Bildschirm aktualisieren
+	  byte[] a = null;
+	  if( (addr < 0xA800)
+	      || (this.caosC000Enabled && !this.caosE000Enabled) )
+	  {
+	    if( this.screen1Enabled ) {
+	      a = this.ramColorEnabled ? this.ramColor1 : this.ramPixel1;
+	    } else {
+	      a = this.ramColorEnabled ? this.ramColor0 : this.ramPixel0;
+	    }
+	  } else {
+	    a = this.ramPixel0;
+	  }
+	  pages.setReadPage( addr, a, idx );
+	} else if( this.ram8Enabled && (this.ram8 != null) ) {
+	  byte[] a = null;
+	  if( this.kcTypeNum == 4 ) {
+	    a = this.ram8;
+	    if( (this.ram8SegNum & 0x01) != 0 ) {
+	      idx += 0x4000;
+	    }
+	  } else if( this.kcTypeNum > 4 ) {
+	    if( this.ram8SegNum == 0 ) {
+	      a   = ram;
+	      idx = addr - 0x8000;
+	    } else if( this.ram8SegNum == 1 ) {
+	      a   = ram;
+	      idx = addr - 0x4000;
+	    } else {
+	      a   = this.ram8;
+	      idx = ((this.ram8SegNum - 2) * 0x4000) + addr - 0x8000;
+	    }
+	  }
+	  if( pages.setReadPage( addr, a, idx ) ) {
+	    if( this.ram8Writeable ) {
+	      pages.setWritePage( addr, a, idx );
+	    } else {
+	      pages.setWriteIgnored( addr );
+	    }
+	  }
+	}
+      } else if( addr < 0xE000 ) {
+	int idx = addr - 0xC000;
+	if( (this.kcTypeNum >= 4) && this.caosC000Enabled ) {
+	  if( (addr < 0xD000)
+	      || (this.kcTypeNum > 4)
+	      || ((this.caosC000 != null) && (this.caosC000.length > 0x1000)) )
+	  {
+	    pages.setReadPage( addr, this.caosC000, idx );
+	    pages.setWriteIgnored( addr );
+	  }
+	} else if( this.basicC000Enabled && (this.basicC000 != null) ) {
+	  if( (this.kcTypeNum > 4) && (this.basicC000.length > 0x2000) ) {
+	    switch( this.basicSegNum ) {
+	      case 0:
+		idx += 0x6000;
+		break;
+	      case 1:
+		idx += 0x2000;
+		break;
+	      case 2:
+		idx += 0x4000;
+		break;
+	    }
+	  }
+	  // Schreibzugriffe gehen an die Module
+	  pages.setReadPage( addr, this.basicC000, idx );
+	}
+      } else {
+	if( this.caosE000Enabled
+	    && ((this.kcTypeNum >= 3) || ((addr & 0x0800) == 0)) )
+	{
+	  if( (this.kcTypeNum >= 3) || (addr < 0xF000) ) {
+	    pages.setReadPage( addr, this.caosE000, addr - 0xE000 );
+	  } else {
+	    pages.setReadPage( addr, this.caosF000, addr - 0xF000 );
+	  }
+	  pages.setWriteIgnored( addr );
+	}
+      }
+    }
+  }
+
+
   private boolean setMemByteInternal(
 				int     addr,
 				int     value,
@@ -3595,7 +4020,7 @@ public class KC85 extends EmuSys implements
 	    if( this.screenBufUsed != null ) {
 	      this.screenDirty = true;
 	    } else {
-	      this.screenFrm.setScreenDirty( true );
+	      setScreenLinesDirtyByIRM( a, idx );
 	    }
 	    rv = true;
 	  }
@@ -3668,6 +4093,48 @@ public class KC85 extends EmuSys implements
   }
 
 
+  /*
+   * Die Methode markiert die Pixelzeilen als geaendert,
+   * die von einem Schreibzugriff in den Bildwiederholspeicher
+   * betroffen sind.
+   */
+  private void setScreenLinesDirtyByIRM( byte[] a, int idx )
+  {
+    if( this.kcTypeNum > 3 ) {
+      if( idx < 0x2800 ) {
+	boolean screen1 = this.screen1Visible;
+	if( (a == (screen1 ? this.ramPixel1 : this.ramPixel0))
+	    || (a == (screen1 ? this.ramColor1 : this.ramColor0)) )
+	{
+	  int y = idx & 0xFF;
+	  setScreenLinesDirty( y, y );
+	}
+      }
+    } else {
+      if( idx < 0x2000 ) {
+	// Pixel, linker Bereich
+	int y = ((idx >> 5) & 0xF0) | ((idx >> 7) & 0x03) | ((idx >> 3) & 0x0C);
+	setScreenLinesDirty( y, y );
+      } else if( idx < 0x2800 ) {
+	// Pixel, rechter Bereich
+	int y = ((idx >> 3) & 0xC0)
+			| ((idx << 1) & 0x30)
+			| ((idx >> 3) & 0x0C)
+			| ((idx >> 7) & 0x03);
+	setScreenLinesDirty( y, y );
+      } else if( idx < 0x3000 ) {
+	// Farbe, linker Bereich (jeweils 4 Pixelzeilen)
+	int y = (idx >> 3) & 0xFC;
+	setScreenLinesDirty( y, y + 3 );
+      } else if( idx < 0x3200 ) {
+	// Farbe, rechter Bereich (jeweils 4 Pixelzeilen)
+	int y = ((idx >> 1) & 0xC0) | ((idx << 1) & 0x30) | ((idx >> 3) & 0x0C);
+	setScreenLinesDirty( y, y + 3 );
+      }
+    }
+  }
+
+
   private void updKeyboardFld( int keyNum )
   {
     if( this.keyboardFld != null ) {
@@ -3681,87 +4148,97 @@ public class KC85 extends EmuSys implements
     byte[] screenBuf = this.screenBufUsed;
     int    y         = this.lineCounter;
     if( (screenBuf != null) && (y >= 0) && (y < 256) ) {
-      int linePos = y * 320;
-      int x       = 0;
-      for( int col = 0; col < 40; col++ ) {
-	if( this.kcTypeNum > 3 ) {
-	  boolean screen1  = this.screen1Visible;
-	  byte[]  ramPixel = screen1 ? this.ramPixel1 : this.ramPixel0;
-	  byte[]  ramColor = screen1 ? this.ramColor1 : this.ramColor0;
-	  int     idx      = (col * 256) + y;
-	  if( (idx >= 0) && (idx < ramPixel.length) ) {
-	    int p = ramPixel[ idx ];
-	    int c = ramColor[ idx ];
-	    int m = 0x80;
-	    for( int i = 0; (i < 8) && (x < SCREEN_WIDTH); i++ ) {
-	      int     colorIdx = 0;
-	      boolean pState   = ((p & m) != 0);
-	      if( this.hiColorRes ) {
-		if( this.blinkEnabled
-		    && this.blinkState
-		    && ((c & 0x80) != 0) )
-		{
-		  pState = false;
-		}
-		if( pState ) {
-		  if( (c & m) != 0 ) {
-		    colorIdx = 7;               // weiss
-		  } else {
-		    colorIdx = 2;               // rot
-		  }
+      fillScreenLine( screenBuf, y );
+    }
+  }
+
+
+  /*
+   * Die Methode schreibt die Farbindizes einer Pixelzeile
+   * in den uebergebenen Bildpuffer (320 Bytes pro Zeile).
+   */
+  private void fillScreenLine( byte[] screenBuf, int y )
+  {
+    int linePos = y * 320;
+    int x       = 0;
+    for( int col = 0; col < 40; col++ ) {
+      if( this.kcTypeNum > 3 ) {
+	boolean screen1  = this.screen1Visible;
+	byte[]  ramPixel = screen1 ? this.ramPixel1 : this.ramPixel0;
+	byte[]  ramColor = screen1 ? this.ramColor1 : this.ramColor0;
+	int     idx      = (col * 256) + y;
+	if( (idx >= 0) && (idx < ramPixel.length) ) {
+	  int p = ramPixel[ idx ];
+	  int c = ramColor[ idx ];
+	  int m = 0x80;
+	  for( int i = 0; (i < 8) && (x < SCREEN_WIDTH); i++ ) {
+	    int     colorIdx = 0;
+	    boolean pState   = ((p & m) != 0);
+	    if( this.hiColorRes ) {
+	      if( this.blinkEnabled
+		  && this.blinkState
+		  && ((c & 0x80) != 0) )
+	      {
+		pState = false;
+	      }
+	      if( pState ) {
+		if( (c & m) != 0 ) {
+		  colorIdx = 7;               // weiss
 		} else {
-		  if( (c & m) != 0 ) {
-		    colorIdx = 5;               // tuerkis
-		  } else {
-		    colorIdx = 0;               // schwarz
-		  }
+		  colorIdx = 2;               // rot
 		}
 	      } else {
-		colorIdx = getColorIndex( c, pState );
-	      }
-	      if( (colorIdx >= 0) && (colorIdx < rgbValues.length) ) {
-		screenBuf[ linePos + x ] = (byte) colorIdx;
-		x++;
+		if( (c & m) != 0 ) {
+		  colorIdx = 5;               // tuerkis
+		} else {
+		  colorIdx = 0;               // schwarz
+		}
 	      }
-	      m >>= 1;
+	    } else {
+	      colorIdx = getColorIndex( c, pState );
 	    }
+	    if( (colorIdx >= 0) && (colorIdx < rgbValues.length) ) {
+	      screenBuf[ linePos + x ] = (byte) colorIdx;
+	      x++;
+	    }
+	    m >>= 1;
 	  }
-	} else {
-	  int pIdx = -1;
-	  int cIdx = -1;
-	  if( col < 32 ) {
-	    pIdx = ((y << 5) & 0x1E00)
+	}
+      } else {
+	int pIdx = -1;
+	int cIdx = -1;
+	if( col < 32 ) {
+	  pIdx = ((y << 5) & 0x1E00)
 			| ((y << 7) & 0x0180)
 			| ((y << 3) & 0x0060)
 			| (col & 0x001F);
-	    cIdx = 0x2800 | ((y << 3) & 0x07E0) | (col & 0x001F);
-	  } else {
-	    pIdx = 0x2000
+	  cIdx = 0x2800 | ((y << 3) & 0x07E0) | (col & 0x001F);
+	} else {
+	  pIdx = 0x2000
 			| ((y << 3) & 0x0600)
 			| ((y << 7) & 0x0180)
 			| ((y << 3) & 0x0060)
 			| ((y >> 1) & 0x0018)
 			| (col & 0x0007);
-	    cIdx = 0x3000
+	  cIdx = 0x3000
 			| ((y << 1) & 0x0180)
 			| ((y << 3) & 0x0060)
 			| ((y >> 1) & 0x0018)
 			| (col & 0x0007);
-	  }
-	  if( (pIdx >= 0) && (pIdx < this.ramPixel0.length)
-	      && (cIdx >= 0) && (cIdx < this.ramPixel0.length) )
-	  {
-	    int p = this.ramPixel0[ pIdx ];
-	    int c = this.ramPixel0[ cIdx ];
-	    int m = 0x80;
-	    for( int i = 0; (i < 8) && (x < SCREEN_WIDTH); i++ ) {
-	      int colorIdx = getColorIndex( c, (p & m) != 0 );
-	      if( (colorIdx >= 0) && (colorIdx < rgbValues.length) ) {
-		screenBuf[ linePos + x ] = (byte) colorIdx;
-		x++;
-	      }
-	      m >>= 1;
+	}
+	if( (pIdx >= 0) && (pIdx < this.ramPixel0.length)
+	    && (cIdx >= 0) && (cIdx < this.ramPixel0.length) )
+	{
+	  int p = this.ramPixel0[ pIdx ];
+	  int c = this.ramPixel0[ cIdx ];
+	  int m = 0x80;
+	  for( int i = 0; (i < 8) && (x < SCREEN_WIDTH); i++ ) {
+	    int colorIdx = getColorIndex( c, (p & m) != 0 );
+	    if( (colorIdx >= 0) && (colorIdx < rgbValues.length) ) {
+	      screenBuf[ linePos + x ] = (byte) colorIdx;
+	      x++;
 	    }
+	    m >>= 1;
 	  }
 	}
       }
@@ -770,6 +770,8 @@ public class Poly880 extends EmuSys implements
   {
     byte[] rom = readROMFile( fileName, 0x0400, objName );
     if( (rom != null) && this.extRomsNegated ) {
+      // die gelesenen Bytes sind gemeinsam genutzt
+      rom = Arrays.copyOf( rom, rom.length );
       for( int i = 0; i < rom.length; i++ ) {
 	rom[ i ] = (byte) ~rom[ i ];
       }
@@ -8,6 +8,9 @@
 
 package jkcemu.emusys;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Properties;
@@ -698,7 +701,7 @@ public class Z1013 extends EmuSys implements
     boolean state = isFixedScreenSize( props );
     if( state != this.fixedScreenSize ) {
       this.fixedScreenSize = state;
-      this.screenFrm.fireScreenSizeChanged();
+      fireScreenSizeChanged();
     }
     checkAddPCListener( props );
     loadFonts( props );
@@ -914,7 +917,7 @@ public class Z1013 extends EmuSys implements
   public int getColorIndex( int x, int y )
   {
     int rv = BLACK;
-    if( (this.fixedScreenSize || this.screenFrm.isFullScreenMode())
+    if( (this.fixedScreenSize || isFullScreenMode())
 	&& !this.mode64x16 )
     {
       x -= 128;
@@ -997,7 +1000,7 @@ public class Z1013 extends EmuSys implements
 		32, 32,
 		8, 8, 8,
 		this.fixedScreenSize
-			|| this.screenFrm.isFullScreenMode() ? 128 : 0,
+			|| isFullScreenMode() ? 128 : 0,
 		0 );
     }
     return rv;
@@ -1181,7 +1184,7 @@ public class Z1013 extends EmuSys implements
   public int getScreenHeight()
   {
     return (!this.fixedScreenSize
-		&& !this.screenFrm.isFullScreenMode()
+		&& !isFullScreenMode()
 		&& this.mode64x16) ? 248 : 256;
   }
 
@@ -1191,7 +1194,7 @@ public class Z1013 extends EmuSys implements
   {
     return (this.mode64x16
 		|| this.fixedScreenSize
-		|| this.screenFrm.isFullScreenMode()) ? 512 : 256;
+		|| isFullScreenMode()) ? 512 : 256;
   }
 
 
@@ -1393,6 +1396,56 @@ public class Z1013 extends EmuSys implements
   }
 
 
+  @Override
+  public void loadSnapshot( DataInput in ) throws IOException
+  {
+    checkSnapshotSupported();
+    boolean old64x16       = this.mode64x16;
+    this.rom8000Enabled    = in.readBoolean();
+    this.romOSEnabled      = in.readBoolean();
+    this.videoEnabled      = in.readBoolean();
+    this.altFontEnabled    = in.readBoolean();
+    this.mode64x16         = in.readBoolean();
+    boolean mode4MHz       = in.readBoolean();
+    this.modeKRT           = in.readBoolean();
+    this.io4Value          = in.readInt();
+    this.romMegaSeg        = in.readInt();
+    this.ramBankKRT        = in.readInt();
+    this.centrTStatesToAck = in.readInt();
+    this.lastWrittenAddr   = -1;
+    int keyboardCol        = in.readByte();
+    in.readFully( this.ramVideo );
+    if( this.ramKRT != null ) {
+      for( byte[] a : this.ramKRT ) {
+	in.readFully( a );
+      }
+    }
+    this.pio.loadState( in );
+    if( this.fdc != null ) {
+      this.fdc.loadState( in );
+    }
+    this.keyboard.setSelectedCol( keyboardCol );
+
+    // Taktfrequenz der Peters-Platine
+    Z80CPU cpu = this.emuThread.getZ80CPU();
+    if( mode4MHz && !this.mode4MHz && (cpu.getMaxSpeedKHz() == 2000) ) {
+      cpu.setMaxSpeedKHz( 4000 );
+    } else if( !mode4MHz && this.mode4MHz
+	       && (cpu.getMaxSpeedKHz() == 4000) )
+    {
+      cpu.setMaxSpeedKHz( 2000 );
+    }
+    this.mode4MHz = mode4MHz;
+    if( (this.mode64x16 != old64x16)
+	&& !this.fixedScreenSize
+	&& !isFullScreenMode() )
+    {
+      fireScreenSizeChanged();
+    }
+    setScreenDirty( true );
+  }
+
+
   @Override
   public void openBasicProgram()
   {
@@ -1602,14 +1655,14 @@ public class Z1013 extends EmuSys implements
 	case 0x0C:				// IOSEL3 -> Vollgrafik ein
 	  if( this.ramKRT != null ) {
 	    this.modeKRT = true;
-	    this.screenFrm.setScreenDirty( true );
+	    setScreenDirty( true );
 	  }
 	  break;
 
 	case 0x10:				// IOSEL4 -> Vollgrafik aus
 	  if( this.ramKRT != null ) {
 	    this.modeKRT = false;
-	    this.screenFrm.setScreenDirty( true );
+	    setScreenDirty( true );
 	  }
 	  break;
       }
@@ -1714,7 +1767,7 @@ public class Z1013 extends EmuSys implements
     if( this.petersCardEnabled ) {
       if( this.mode64x16 ) {
 	this.mode64x16 = false;
-	this.screenFrm.fireScreenSizeChanged();
+	fireScreenSizeChanged();
       }
       if( this.mode4MHz ) {
 	this.emuThread.updCPUSpeed( Main.getProperties() );
@@ -1861,6 +1914,35 @@ public class Z1013 extends EmuSys implements
   }
 
 
+  @Override
+  public void saveSnapshot( DataOutput out ) throws IOException
+  {
+    checkSnapshotSupported();
+    out.writeBoolean( this.rom8000Enabled );
+    out.writeBoolean( this.romOSEnabled );
+    out.writeBoolean( this.videoEnabled );
+    out.writeBoolean( this.altFontEnabled );
+    out.writeBoolean( this.mode64x16 );
+    out.writeBoolean( this.mode4MHz );
+    out.writeBoolean( this.modeKRT );
+    out.writeInt( this.io4Value );
+    out.writeInt( this.romMegaSeg );
+    out.writeInt( this.ramBankKRT );
+    out.writeInt( this.centrTStatesToAck );
+    out.writeByte( this.keyboard.getSelectedCol() );
+    out.write( this.ramVideo );
+    if( this.ramKRT != null ) {
+      for( byte[] a : this.ramKRT ) {
+	out.write( a );
+      }
+    }
+    this.pio.saveState( out );
+    if( this.fdc != null ) {
+      this.fdc.saveState( out );
+    }
+  }
+
+
   @Override
   public void setJoystickAction( int joyNum, int actionMask )
   {
@@ -1938,7 +2020,13 @@ public class Z1013 extends EmuSys implements
 	int idx = addr - 0xEC00;
 	if( idx < ram.length ) {
 	  ram[ idx ] = (byte) value;
-	  this.screenFrm.setScreenDirty( true );
+	  if( this.mode64x16 ) {
+	    int y = (idx / 64) * 16;
+	    setScreenLinesDirty( y, y + 7 );
+	  } else {
+	    int y = (idx / 32) * 8;
+	    setScreenLinesDirty( y, y + 7 );
+	  }
 	  rv = true;
 	}
       }
@@ -2062,6 +2150,19 @@ public class Z1013 extends EmuSys implements
   }
 
 
+  @Override
+  public boolean supportsSnapshot()
+  {
+    return (this.gide == null)
+		&& (this.graphicCCJena == null)
+		&& (this.graphicPoppe == null)
+		&& (this.graphicZX == null)
+		&& (this.k1520Sound == null)
+		&& (this.kcNet == null)
+		&& (this.vdip == null);
+  }
+
+
   @Override
   public boolean supportsTapeIn()
   {
@@ -2114,14 +2215,16 @@ public class Z1013 extends EmuSys implements
 	if( (this.altFontEnabled != oldAltFontEnabled)
 	    || (this.mode64x16 != oldMode64x16) )
 	{
-	  this.screenFrm.setScreenDirty( true );
+	  setScreenDirty( true );
 	}
 	if( (this.mode64x16 != oldMode64x16)
 	    && !this.fixedScreenSize
-	    && !this.screenFrm.isFullScreenMode() )
+	    && !isFullScreenMode() )
 	{
-	  this.screenFrm.clearScreenSelection();
-	  this.screenFrm.fireScreenSizeChanged();
+	  if( this.screenFrm != null ) {
+	    this.screenFrm.clearScreenSelection();
+	  }
+	  fireScreenSizeChanged();
 	}
 	this.io4Value = value & 0xF0;
       } else if( this.rom8000 != null ) {
@@ -2272,11 +2375,11 @@ public class Z1013 extends EmuSys implements
 	    value &= 0x0F;
 	    if( value == 8 ) {
 	      this.modeKRT = true;
-	      this.screenFrm.setScreenDirty( true );
+	      setScreenDirty( true );
 	    }
 	    else if( value == 9 ) {
 	      this.modeKRT = false;
-	      this.screenFrm.setScreenDirty( true );
+	      setScreenDirty( true );
 	    }
 	    this.ramBankKRT = (value & 0x07);
 	  }
@@ -2285,14 +2388,14 @@ public class Z1013 extends EmuSys implements
 	case 0x0C:				// IOSEL3
 	  if( this.ramKRT != null ) {
 	    this.modeKRT = true;
-	    this.screenFrm.setScreenDirty( true );
+	    setScreenDirty( true );
 	  }
 	  break;
 
 	case 0x10:				// IOSEL4
 	  if( this.ramKRT != null ) {
 	    this.modeKRT = false;
-	    this.screenFrm.setScreenDirty( true );
+	    setScreenDirty( true );
 	  }
 	  break;
       }
@@ -12,6 +12,9 @@ import java.awt.Color;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Properties;
@@ -660,7 +663,7 @@ public class Z9001 extends EmuSys implements
 	&& !this.emuThread.getZ80CPU().isPause() )
     {
       this.colorSwap = !this.colorSwap;
-      this.screenFrm.setScreenDirty( true );
+      setScreenDirty( true );
     }
   }
 
@@ -895,7 +898,7 @@ public class Z9001 extends EmuSys implements
     boolean state = isFixedScreenSize( props );
     if( state != this.fixedScreenSize ) {
       this.fixedScreenSize = state;
-      this.screenFrm.fireScreenSizeChanged();
+      fireScreenSizeChanged();
     }
     checkAddPCListener( props );
     createColors( props );
@@ -1149,7 +1152,7 @@ public class Z9001 extends EmuSys implements
   public int getColorIndex( int x, int y )
   {
     int rv = 0;
-    if( this.fixedScreenSize || this.screenFrm.isFullScreenMode() ) {
+    if( this.fixedScreenSize || isFullScreenMode() ) {
       y /= 2;
     }
     if( this.graphMode
@@ -1157,7 +1160,7 @@ public class Z9001 extends EmuSys implements
 	&& (this.ramPixel != null) )
     {
       boolean done = false;
-      if( this.fixedScreenSize || this.screenFrm.isFullScreenMode() ) {
+      if( this.fixedScreenSize || isFullScreenMode() ) {
 	x /= 2;
       }
       x -= 32;		// Grafikausgabe ueber Alpha-Ausgabe zentrieren
@@ -1188,7 +1191,7 @@ public class Z9001 extends EmuSys implements
 	}
 	col /= 2;
       } else {
-	if( this.fixedScreenSize || this.screenFrm.isFullScreenMode() ) {
+	if( this.fixedScreenSize || isFullScreenMode() ) {
 	  x   /= 2;
 	  col /= 2;
 	}
@@ -1283,7 +1286,7 @@ public class Z9001 extends EmuSys implements
       int rowHeight  = (this.mode20Rows ? 9 : 8);
       int charWidth  = 8;
       int charHeight = 8;
-      if( this.fixedScreenSize || this.screenFrm.isFullScreenMode() ) {
+      if( this.fixedScreenSize || isFullScreenMode() ) {
 	rowHeight *= 2;
 	if( !this.c80Active ) {
 	  charWidth *= 2;
@@ -1414,7 +1417,7 @@ public class Z9001 extends EmuSys implements
   public int getScreenHeight()
   {
     int rv = 192;
-    if( this.fixedScreenSize || this.screenFrm.isFullScreenMode() ) {
+    if( this.fixedScreenSize || isFullScreenMode() ) {
       rv *= 2;
     }
     return rv;
@@ -1425,7 +1428,7 @@ public class Z9001 extends EmuSys implements
   public int getScreenWidth()
   {
     int rv = 320;
-    if( this.fixedScreenSize || this.screenFrm.isFullScreenMode()
+    if( this.fixedScreenSize || isFullScreenMode()
 	|| (this.c80Active && !this.graphMode) )
     {
       rv *= 2;
@@ -1781,6 +1784,63 @@ public class Z9001 extends EmuSys implements
   }
 
 
+  @Override
+  public void loadSnapshot( DataInput in ) throws IOException
+  {
+    checkSnapshotSupported();
+    this.romModuleEnabled  = in.readBoolean();
+    this.graphBorder       = in.readBoolean();
+    this.graphMode         = in.readBoolean();
+    this.c80MemSwap        = in.readBoolean();
+    this.fdcReset          = in.readBoolean();
+    this.fdcTC             = in.readBoolean();
+    this.rf1ReadOnly       = in.readBoolean();
+    this.rf2ReadOnly       = in.readBoolean();
+    this.ram4000ExtEnabled = in.readBoolean();
+    this.ramC000Enabled    = in.readBoolean();
+    this.ramFontActive     = in.readBoolean();
+    this.ramFontEnabled    = in.readBoolean();
+    this.mode20Rows        = in.readBoolean();
+    boolean c80Active      = in.readBoolean();
+    boolean graphicLED     = in.readBoolean();
+    this.megaROMSeg        = in.readInt();
+    this.fontOffs          = in.readInt();
+    this.graphBank         = in.readInt();
+    this.graphAddrL        = in.readInt();
+    this.graphBgColor      = in.readInt();
+    this.graphFgColor      = in.readInt();
+    this.borderColorIdx    = in.readInt();
+    this.lineNum           = in.readInt();
+    this.lineTStates       = in.readInt();
+    for( byte[] a : getSnapshotRAMs() ) {
+      in.readFully( a );
+    }
+    this.ctc80.loadState( in );
+    this.pio88.loadState( in );
+    this.pio90.loadState( in );
+    if( this.ctcA8 != null ) {
+      this.ctcA8.loadState( in );
+    }
+    if( this.sioB0 != null ) {
+      this.sioB0.loadState( in );
+    }
+    if( this.fdc != null ) {
+      this.fdc.loadState( in );
+    }
+    Arrays.fill( this.kbMatrix, 0 );
+    this.joy0ActionMask = 0;
+    this.joy1ActionMask = 0;
+    putKeyboardMatrixValuesToPorts();
+    this.loudspeaker.reset();
+    setGraphicLED( graphicLED );
+    upd80CharsMode( c80Active );
+    setScreenDirty( true );
+    if( this.screenFrm != null ) {
+      this.screenFrm.fireUpdScreenTextActionsEnabled();
+    }
+  }
+
+
   @Override
   public void openBasicProgram()
   {
@@ -2138,7 +2198,9 @@ public class Z9001 extends EmuSys implements
     setGraphicLED( false );
     upd80CharsMode( false );
     updScreenConfig( 0 );
-    this.screenFrm.fireUpdScreenTextActionsEnabled();
+    if( this.screenFrm != null ) {
+      this.screenFrm.fireUpdScreenTextActionsEnabled();
+    }
   }
 
 
@@ -2151,6 +2213,52 @@ public class Z9001 extends EmuSys implements
   }
 
 
+  @Override
+  public void saveSnapshot( DataOutput out ) throws IOException
+  {
+    checkSnapshotSupported();
+    out.writeBoolean( this.romModuleEnabled );
+    out.writeBoolean( this.graphBorder );
+    out.writeBoolean( this.graphMode );
+    out.writeBoolean( this.c80MemSwap );
+    out.writeBoolean( this.fdcReset );
+    out.writeBoolean( this.fdcTC );
+    out.writeBoolean( this.rf1ReadOnly );
+    out.writeBoolean( this.rf2ReadOnly );
+    out.writeBoolean( this.ram4000ExtEnabled );
+    out.writeBoolean( this.ramC000Enabled );
+    out.writeBoolean( this.ramFontActive );
+    out.writeBoolean( this.ramFontEnabled );
+    out.writeBoolean( this.mode20Rows );
+    out.writeBoolean( this.c80Active );
+    out.writeBoolean( this.graphicLED );
+    out.writeInt( this.megaROMSeg );
+    out.writeInt( this.fontOffs );
+    out.writeInt( this.graphBank );
+    out.writeInt( this.graphAddrL );
+    out.writeInt( this.graphBgColor );
+    out.writeInt( this.graphFgColor );
+    out.writeInt( this.borderColorIdx );
+    out.writeInt( this.lineNum );
+    out.writeInt( this.lineTStates );
+    for( byte[] a : getSnapshotRAMs() ) {
+      out.write( a );
+    }
+    this.ctc80.saveState( out );
+    this.pio88.saveState( out );
+    this.pio90.saveState( out );
+    if( this.ctcA8 != null ) {
+      this.ctcA8.saveState( out );
+    }
+    if( this.sioB0 != null ) {
+      this.sioB0.saveState( out );
+    }
+    if( this.fdc != null ) {
+      this.fdc.saveState( out );
+    }
+  }
+
+
   @Override
   public void setFloppyDiskDrive( int idx, FloppyDiskDrive drive )
   {
@@ -2245,6 +2353,17 @@ public class Z9001 extends EmuSys implements
   }
 
 
+  @Override
+  public boolean supportsSnapshot()
+  {
+    return (this.gide == null)
+		&& (this.k1520Sound == null)
+		&& (this.kcNet == null)
+		&& (this.plotter == null)
+		&& (this.vdip == null);
+  }
+
+
   @Override
   public boolean supportsTapeIn()
   {
@@ -2485,15 +2604,17 @@ public class Z9001 extends EmuSys implements
 	    this.graphFgColor = (value >> 4) & 0x07;
 	    this.graphBorder  = ((value & 0x80) != 0);
 	    graphMode         = ((value & 0x08) != 0);
-	    this.screenFrm.setScreenDirty( true );
+	    setScreenDirty( true );
 	  } else if( this.graphType == GRAPHIC_KRT ) {
 	    this.graphBank = value & 0x07;
 	    graphMode      = ((value & 0x08) != 0);
-	    this.screenFrm.setScreenDirty( true );
+	    setScreenDirty( true );
 	  }
 	  if( graphMode != this.graphMode ) {
 	    this.graphMode = graphMode;
-	    this.screenFrm.fireUpdScreenTextActionsEnabled();
+	    if( this.screenFrm != null ) {
+	      this.screenFrm.fireUpdScreenTextActionsEnabled();
+	    }
 	  }
 	}
 	break;
@@ -2513,7 +2634,12 @@ public class Z9001 extends EmuSys implements
 	  int addr = (port & 0xFF00) | this.graphAddrL;
 	  if( (addr >= 0) && (addr < this.ramPixel.length) ) {
 	    this.ramPixel[ addr ] = (byte) value;
-	    this.screenFrm.setScreenDirty( true );
+	    int y = addr / 32;
+	    if( this.fixedScreenSize || isFullScreenMode() ) {
+	      setScreenLinesDirty( y * 2, (y * 2) + 1 );
+	    } else {
+	      setScreenLinesDirty( y, y );
+	    }
 	  }
 	}
 	break;
@@ -2598,17 +2724,17 @@ public class Z9001 extends EmuSys implements
 	case 0xEBFC:
 	  this.ramFontActive  = false;
 	  this.ramFontEnabled = true;
-	  this.screenFrm.setScreenDirty( true );
+	  setScreenDirty( true );
 	  break;
 	case 0xEBFE:
 	  this.ramFontActive  = true;
 	  this.ramFontEnabled = false;
-	  this.screenFrm.setScreenDirty( true );
+	  setScreenDirty( true );
 	  break;
 	case 0xEBFF:
 	  this.ramFontActive  = false;
 	  this.ramFontEnabled = false;
-	  this.screenFrm.setScreenDirty( true );
+	  setScreenDirty( true );
 	  break;
       }
     }
@@ -3134,6 +3260,32 @@ public class Z9001 extends EmuSys implements
   }
 
 
+  /*
+   * Rueckgabewert:
+   *   vorhandene Speicherbereiche, die nicht von EmuThread
+   *   verwaltet werden und deshalb in einem Snapshot
+   *   gesichert werden muessen
+   */
+  private java.util.List<byte[]> getSnapshotRAMs()
+  {
+    java.util.List<byte[]> rv = new ArrayList<>();
+    for( byte[] a : new byte[][] {
+				this.ramFont,
+				this.ramColor,
+				this.ramColor2,
+				this.ramVideo,
+				this.ramVideo2,
+				this.ramPixel,
+				this.ramExt } )
+    {
+      if( a != null ) {
+	rv.add( a );
+      }
+    }
+    return rv;
+  }
+
+
   private boolean isFixedScreenSize( Properties props )
   {
     return this.c80Enabled
@@ -3263,7 +3415,7 @@ public class Z9001 extends EmuSys implements
 	} else {
 	  this.ramColor[ idx ] = (byte) value;
 	}
-	this.screenFrm.setScreenDirty( true );
+	setScreenCharDirty( idx );
 	rv = true;
 	if( emuWaitStates ) {
 	  adjustVideoRAMAccessTStates();
@@ -3276,10 +3428,11 @@ public class Z9001 extends EmuSys implements
 	  && (this.graphType == GRAPHIC_KRT)
 	  && this.graphMode )
       {
+	int offs = idx;
 	idx += (this.graphBank * 0x0400);
 	if( (idx >= 0) && (idx < this.ramPixel.length) ) {
 	  this.ramPixel[ idx ] = (byte) value;
-	  this.screenFrm.setScreenDirty( true );
+	  setScreenCharDirty( offs );
 	  rv = true;
 	}
       } else {
@@ -3288,7 +3441,7 @@ public class Z9001 extends EmuSys implements
 	} else {
 	  this.ramVideo[ idx ] = (byte) value;
 	}
-	this.screenFrm.setScreenDirty( true );
+	setScreenCharDirty( idx );
 	rv = true;
       }
       if( emuWaitStates ) {
@@ -3299,13 +3452,30 @@ public class Z9001 extends EmuSys implements
   }
 
 
+  /*
+   * Die Methode markiert die Pixelzeilen der Zeichenzeile als geaendert,
+   * in der sich die uebergebene Position des Bildwiederholspeichers
+   * befindet.
+   */
+  private void setScreenCharDirty( int idx )
+  {
+    int rowHeight = (this.mode20Rows ? 9 : 8);
+    int y         = (idx / 40) * rowHeight;
+    if( this.fixedScreenSize || isFullScreenMode() ) {
+      setScreenLinesDirty( y * 2, (y * 2) + 15 );
+    } else {
+      setScreenLinesDirty( y, y + 7 );
+    }
+  }
+
+
   private void upd80CharsMode( boolean state )
   {
     if( this.c80Active != state ) {
       this.c80Active = state;
-      this.screenFrm.setScreenDirty( true );
+      setScreenDirty( true );
       if( !this.fixedScreenSize ) {
-	this.screenFrm.fireScreenSizeChanged();
+	fireScreenSizeChanged();
       }
     }
   }
@@ -3335,7 +3505,7 @@ public class Z9001 extends EmuSys implements
     {
       this.mode20Rows     = mode20Rows;
       this.borderColorIdx = colorIdx;
-      this.screenFrm.setScreenDirty( true );
+      setScreenDirty( true );
     }
   }
 }
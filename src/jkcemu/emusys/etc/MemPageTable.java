@@ -0,0 +1,240 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Kleincomputer-Emulator
+ *
+ * Seitentabelle fuer den 64 KByte grossen Adressraum der Z80
+ *
+ * Der Adressraum ist in 64 Seiten zu je 1 KByte aufgeteilt.
+ * Fuer jede Seite wird getrennt fuer Lese- und Schreibzugriffe
+ * hinterlegt, auf welches Byte-Array ab welchem Offset zugegriffen wird.
+ * Bei einem Schreibzugriff kann eine Seite ausserdem
+ * als schreibgeschuetzt markiert werden (z.B. ROM).
+ * Seiten ohne Eintrag muessen vom emulierten System
+ * auf dem herkoemmlichen Weg behandelt werden
+ * (z.B. Bildwiederholspeicher, Module, E/A-Bereiche).
+ *
+ * Die Tabelle wird nur dann neu aufgebaut,
+ * wenn sich die Speicherkonfiguration aendert,
+ * sodass ein normaler Speicherzugriff nur noch
+ * aus einem Array-Zugriff besteht.
+ * Die Tabellen koennen ausserdem der CPU-Emulation
+ * fuer den direkten Speicherzugriff uebergeben werden
+ * (siehe z80emu.Z80PagedMemory).
+ */
+
+package jkcemu.emusys.etc;
+
+import java.util.Arrays;
+import z80emu.Z80PagedMemory;
+
+
+public class MemPageTable
+{
+  public static final int PAGE_SHIFT = Z80PagedMemory.PAGE_SHIFT;
+  public static final int PAGE_SIZE  = Z80PagedMemory.PAGE_SIZE;
+  public static final int PAGE_MASK  = Z80PagedMemory.PAGE_MASK;
+  public static final int PAGE_COUNT = Z80PagedMemory.PAGE_COUNT;
+
+  // Rueckgabewerte der Methode write(...)
+  public static final int WRITE_UNMAPPED = -1;
+  public static final int WRITE_IGNORED  = 0;
+  public static final int WRITE_DONE     = 1;
+
+  private byte[][]  readPages;
+  private int[]     readOffs;
+  private byte[][]  writePages;
+  private int[]     writeOffs;
+  private boolean[] writeIgnored;
+
+
+  public MemPageTable()
+  {
+    this.readPages    = new byte[ PAGE_COUNT ][];
+    this.readOffs     = new int[ PAGE_COUNT ];
+    this.writePages   = new byte[ PAGE_COUNT ][];
+    this.writeOffs    = new int[ PAGE_COUNT ];
+    this.writeIgnored = new boolean[ PAGE_COUNT ];
+  }
+
+
+  /*
+   * Entfernen aller Eintraege,
+   * d.h., alle Zugriffe muessen auf dem herkoemmlichen Weg
+   * behandelt werden.
+   */
+  public void clear()
+  {
+    Arrays.fill( this.readPages, null );
+    Arrays.fill( this.readOffs, 0 );
+    Arrays.fill( this.writePages, null );
+    Arrays.fill( this.writeOffs, 0 );
+    Arrays.fill( this.writeIgnored, false );
+  }
+
+
+  public byte[][] getReadPages()
+  {
+    return this.readPages;
+  }
+
+
+  public int[] getReadPageOffs()
+  {
+    return this.readOffs;
+  }
+
+
+  public byte[][] getWritePages()
+  {
+    return this.writePages;
+  }
+
+
+  public int[] getWritePageOffs()
+  {
+    return this.writeOffs;
+  }
+
+
+  public static int getPageBegAddr( int pageNum )
+  {
+    return (pageNum << PAGE_SHIFT) & 0xFFFF;
+  }
+
+
+  /*
+   * Lesen eines Bytes
+   *
+   * Rueckgabewert:
+   *   Byte-Wert oder -1, wenn die Seite nicht eingetragen ist
+   */
+  public int read( int addr )
+  {
+    int    pageNum = (addr >> PAGE_SHIFT) & (PAGE_COUNT - 1);
+    byte[] page    = this.readPages[ pageNum ];
+    return page != null ?
+		((int) page[ this.readOffs[ pageNum ] + (addr & PAGE_MASK) ]
+								& 0xFF)
+		: -1;
+  }
+
+
+  /*
+   * Eintragen einer Seite fuer Lesezugriffe
+   *
+   * Parameter:
+   *   addr:    beliebige Adresse innerhalb der Seite
+   *   data:    Byte-Array, auf das zugegriffen wird
+   *   dataIdx: Index im Byte-Array, der dem Seitenanfang entspricht
+   *
+   * Rueckgabewert:
+   *   true:  Seite eingetragen
+   *   false: Seite nicht eingetragen, da das Array die Seite
+   *          nicht vollstaendig abdeckt
+   */
+  public boolean setReadPage( int addr, byte[] data, int dataIdx )
+  {
+    boolean rv      = false;
+    int     pageNum = (addr >> PAGE_SHIFT) & (PAGE_COUNT - 1);
+    if( isPageInside( data, dataIdx ) ) {
+      this.readPages[ pageNum ] = data;
+      this.readOffs[ pageNum ]  = dataIdx;
+      rv = true;
+    } else {
+      this.readPages[ pageNum ] = null;
+      this.readOffs[ pageNum ]  = 0;
+    }
+    return rv;
+  }
+
+
+  /*
+   * Eintragen einer Seite fuer Lese- und Schreibzugriffe
+   */
+  public boolean setReadWritePage( int addr, byte[] data, int dataIdx )
+  {
+    return setReadPage( addr, data, dataIdx )
+		&& setWritePage( addr, data, dataIdx );
+  }
+
+
+  /*
+   * Entfernen des Eintrags fuer Lese- und Schreibzugriffe
+   */
+  public void setUnmapped( int addr )
+  {
+    int pageNum = (addr >> PAGE_SHIFT) & (PAGE_COUNT - 1);
+    this.readPages[ pageNum ]    = null;
+    this.readOffs[ pageNum ]     = 0;
+    this.writePages[ pageNum ]   = null;
+    this.writeOffs[ pageNum ]    = 0;
+    this.writeIgnored[ pageNum ] = false;
+  }
+
+
+  /*
+   * Markieren einer Seite als schreibgeschuetzt,
+   * d.h., Schreibzugriffe werden ignoriert
+   */
+  public void setWriteIgnored( int addr )
+  {
+    int pageNum = (addr >> PAGE_SHIFT) & (PAGE_COUNT - 1);
+    this.writePages[ pageNum ]   = null;
+    this.writeOffs[ pageNum ]    = 0;
+    this.writeIgnored[ pageNum ] = true;
+  }
+
+
+  /*
+   * Eintragen einer Seite fuer Schreibzugriffe
+   */
+  public boolean setWritePage( int addr, byte[] data, int dataIdx )
+  {
+    boolean rv      = false;
+    int     pageNum = (addr >> PAGE_SHIFT) & (PAGE_COUNT - 1);
+    this.writeIgnored[ pageNum ] = false;
+    if( isPageInside( data, dataIdx ) ) {
+      this.writePages[ pageNum ] = data;
+      this.writeOffs[ pageNum ]  = dataIdx;
+      rv = true;
+    } else {
+      this.writePages[ pageNum ] = null;
+      this.writeOffs[ pageNum ]  = 0;
+    }
+    return rv;
+  }
+
+
+  /*
+   * Schreiben eines Bytes
+   *
+   * Rueckgabewert:
+   *   WRITE_DONE:     Byte geschrieben
+   *   WRITE_IGNORED:  Seite ist schreibgeschuetzt
+   *   WRITE_UNMAPPED: Seite nicht eingetragen
+   */
+  public int write( int addr, int value )
+  {
+    int    rv      = WRITE_UNMAPPED;
+    int    pageNum = (addr >> PAGE_SHIFT) & (PAGE_COUNT - 1);
+    byte[] page    = this.writePages[ pageNum ];
+    if( page != null ) {
+      page[ this.writeOffs[ pageNum ] + (addr & PAGE_MASK) ] = (byte) value;
+      rv = WRITE_DONE;
+    } else if( this.writeIgnored[ pageNum ] ) {
+      rv = WRITE_IGNORED;
+    }
+    return rv;
+  }
+
+
+	/* --- private Methoden --- */
+
+  private static boolean isPageInside( byte[] data, int dataIdx )
+  {
+    return (data != null)
+		&& (dataIdx >= 0)
+		&& ((dataIdx + PAGE_SIZE) <= data.length);
+  }
+}
@@ -9,6 +9,9 @@
 package jkcemu.emusys.kc85;
 
 import java.awt.Component;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import jkcemu.base.EmuUtil;
 import jkcemu.text.TextUtil;
 
@@ -20,6 +23,7 @@ public abstract class AbstractKC85Module
   protected String  title;
 
   private boolean switchable;
+  private int     statusValue;
   private String  externalModuleName;
   private String  typeByteText;
 
@@ -29,6 +33,7 @@ public abstract class AbstractKC85Module
     this.slot               = slot;
     this.switchable         = switchable;
     this.enabled            = !switchable;
+    this.statusValue        = -1;
     this.title              = null;
     this.externalModuleName = null;
     this.typeByteText       = null;
@@ -190,6 +195,23 @@ public abstract class AbstractKC85Module
   }
 
 
+  /*
+   * Lesen des mit saveState(...) geschriebenen Modulzustandes
+   *
+   * Standardmaessig besteht der Zustand nur aus dem zuletzt
+   * geschriebenen Steuerbyte.
+   * Module mit eigenem Speicher oder eigener Peripherie
+   * muessen die Methode ueberschreiben.
+   */
+  public void loadState( DataInput in ) throws IOException
+  {
+    int value = in.readShort();
+    if( value >= 0 ) {
+      setStatus( value );
+    }
+  }
+
+
   public void reload( Component owner )
   {
     // leer
@@ -202,8 +224,15 @@ public abstract class AbstractKC85Module
   }
 
 
+  public void saveState( DataOutput out ) throws IOException
+  {
+    out.writeShort( this.statusValue );
+  }
+
+
   public void setStatus( int value )
   {
+    this.statusValue = value & 0xFF;
     if( this.switchable )
       this.enabled = ((value & 0x01) != 0);
   }
@@ -221,6 +250,12 @@ public abstract class AbstractKC85Module
   }
 
 
+  public boolean supportsSnapshot()
+  {
+    return true;
+  }
+
+
   /*
    * Rueckgabewert:
    *  false: Modul bedient diesen Schreibvorgang nicht.
@@ -8,6 +8,9 @@
 
 package jkcemu.emusys.kc85;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import jkcemu.base.EmuThread;
 import jkcemu.joystick.JoystickThread;
 import z80emu.Z80InterruptSource;
@@ -114,6 +117,15 @@ public abstract class KC85JoystickModule
 
 	/* --- ueberschriebene Methoden --- */
 
+  @Override
+  public void loadState( DataInput in ) throws IOException
+  {
+    super.loadState( in );
+    this.pio.loadState( in );
+    this.lastBI = in.readBoolean();
+  }
+
+
   @Override
   public int readIOByte( int port, int tStates )
   {
@@ -144,6 +156,15 @@ public abstract class KC85JoystickModule
   }
 
 
+  @Override
+  public void saveState( DataOutput out ) throws IOException
+  {
+    super.saveState( out );
+    this.pio.saveState( out );
+    out.writeBoolean( this.lastBI );
+  }
+
+
   @Override
   public boolean writeIOByte( int port, int value, int tStates )
   {
@@ -8,6 +8,9 @@
 
 package jkcemu.emusys.kc85;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Arrays;
 import jkcemu.base.EmuUtil;
 
@@ -72,6 +75,14 @@ public class KC85PlainRAMModule extends AbstractKC85Module
   }
 
 
+  @Override
+  public void loadState( DataInput in ) throws IOException
+  {
+    super.loadState( in );
+    in.readFully( this.ram );
+  }
+
+
   @Override
   public int readMemByte( int addr )
   {
@@ -94,6 +105,14 @@ public class KC85PlainRAMModule extends AbstractKC85Module
   }
 
 
+  @Override
+  public void saveState( DataOutput out ) throws IOException
+  {
+    super.saveState( out );
+    out.write( this.ram );
+  }
+
+
   @Override
   public void setStatus( int value )
   {
@@ -8,6 +8,9 @@
 
 package jkcemu.emusys.kc85;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import jkcemu.base.EmuThread;
 import jkcemu.print.PrintMngr;
 import z80emu.Z80CPU;
@@ -175,6 +178,16 @@ public class M003 extends AbstractKC85Module implements
   }
 
 
+  @Override
+  public void loadState( DataInput in ) throws IOException
+  {
+    super.loadState( in );
+    this.ctc.loadState( in );
+    this.sio.loadState( in );
+    this.remainTStates = in.readInt();
+  }
+
+
   @Override
   public int readIOByte( int port, int tStates )
   {
@@ -219,6 +232,16 @@ public class M003 extends AbstractKC85Module implements
   }
 
 
+  @Override
+  public void saveState( DataOutput out ) throws IOException
+  {
+    super.saveState( out );
+    this.ctc.saveState( out );
+    this.sio.saveState( out );
+    out.writeInt( this.remainTStates );
+  }
+
+
   @Override
   public boolean supportsPrinter()
   {
@@ -8,6 +8,9 @@
 
 package jkcemu.emusys.kc85;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import jkcemu.base.EmuUtil;
 
 
@@ -71,6 +74,14 @@ public class M011 extends AbstractKC85Module
   }
 
 
+  @Override
+  public void loadState( DataInput in ) throws IOException
+  {
+    super.loadState( in );
+    in.readFully( this.ram );
+  }
+
+
   @Override
   public int readMemByte( int addr )
   {
@@ -93,6 +104,14 @@ public class M011 extends AbstractKC85Module
   }
 
 
+  @Override
+  public void saveState( DataOutput out ) throws IOException
+  {
+    super.saveState( out );
+    out.write( this.ram );
+  }
+
+
   @Override
   public void setStatus( int value )
   {
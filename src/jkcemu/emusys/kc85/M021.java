@@ -8,6 +8,9 @@
 
 package jkcemu.emusys.kc85;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import jkcemu.base.EmuThread;
 import jkcemu.print.PrintMngr;
 import z80emu.Z80CPU;
@@ -101,6 +104,24 @@ public class M021
   }
 
 
+  @Override
+  public void loadState( DataInput in ) throws IOException
+  {
+    super.loadState( in );
+    this.cenStrobe            = in.readBoolean();
+    this.cenBusyTStateCounter = in.readInt();
+  }
+
+
+  @Override
+  public void saveState( DataOutput out ) throws IOException
+  {
+    super.saveState( out );
+    out.writeBoolean( this.cenStrobe );
+    out.writeInt( this.cenBusyTStateCounter );
+  }
+
+
   @Override
   public boolean supportsPrinter()
   {
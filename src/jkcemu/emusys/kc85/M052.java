@@ -335,6 +335,13 @@ public class M052 extends AbstractKC85Module
   }
 
 
+  @Override
+  public boolean supportsSnapshot()
+  {
+    return false;
+  }
+
+
   @Override
   public boolean writeIOByte( int port, int value, int tStates )
   {
@@ -274,6 +274,13 @@ public class M066 extends AbstractKC85Module
   }
 
 
+  @Override
+  public boolean supportsSnapshot()
+  {
+    return false;
+  }
+
+
   @Override
   public boolean writeIOByte( int port, int value, int tStates )
   {
@@ -77,6 +77,12 @@ public class Z1013Keyboard
   }
 
 
+  public int getSelectedCol()
+  {
+    return this.selectedCol;
+  }
+
+
   public void putRowValuesToPIO()
   {
     this.z80pio.putInValuePortB(
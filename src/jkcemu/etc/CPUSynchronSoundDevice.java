@@ -12,15 +12,15 @@ package jkcemu.etc;
 import jkcemu.audio.AbstractSoundDevice;
 import jkcemu.audio.AudioOut;
 import z80emu.Z80CPU;
+import z80emu.Z80DeadlineListener;
 import z80emu.Z80MaxSpeedListener;
-import z80emu.Z80TStatesListener;
 
 
 public class CPUSynchronSoundDevice
 			extends AbstractSoundDevice
 			implements
-				Z80MaxSpeedListener,
-				Z80TStatesListener
+				Z80DeadlineListener,
+				Z80MaxSpeedListener
 {
   private boolean singleBit;
   private int     curValueM;
@@ -90,6 +90,30 @@ public class CPUSynchronSoundDevice
   }
 
 
+	/* --- Z80DeadlineListener --- */
+
+  /*
+   * Die Audioausgabe berechnet die Anzahl der zu schreibenden
+   * Samples anhand der verarbeiteten Taktzyklen selbst,
+   * weshalb ein Aufruf pro Sample ausreicht.
+   */
+  @Override
+  public int z80TStatesToDeadline( Z80CPU cpu )
+  {
+    int      rv       = Integer.MAX_VALUE;
+    AudioOut audioOut = this.audioOut;
+    if( audioOut != null ) {
+      rv            = 1;
+      int frameRate = audioOut.getFrameRate();
+      int speedKHz  = cpu.getMaxSpeedKHz();
+      if( (frameRate > 0) && (speedKHz > 0) ) {
+	rv = Math.max( speedKHz * 1000 / frameRate, 1 );
+      }
+    }
+    return rv;
+  }
+
+
 	/* --- Z80MaxSpeedListener --- */
 
   @Override
@@ -12,11 +12,28 @@
  * da er die maximale Anzahl an solchen Ports besitzt.
  * Moechte man einen abgeleiteten Schaltkreis emulieren,
  * so ignoriert man einfach die ueberzaehligen Ports.
+ *
+ * Die Register werden von der CPU-Emulation beschrieben,
+ * die Klangerzeugung laeuft dagegen in einem eigenen Thread.
+ * Damit beide ohne Monitore auskommen, werden die Schreibzugriffe
+ * in eine Warteschlange eingereiht und vom PSG-Thread
+ * jeweils vor der Erzeugung des naechsten Audio-Frames uebernommen.
+ * Solange keine Frames erzeugt werden (Frame-Rate 0),
+ * wird nichts eingereiht, sondern nur vermerkt,
+ * dass die Klangerzeugung vor dem naechsten Frame
+ * aus den Registern neu geladen werden muss
+ * und ob dabei zurueckgesetzt bzw. die Huellkurve neu gestartet wird.
+ * Die Zaehler der Ton- und Rauschgeneratoren sowie der Huellkurve
+ * werden pro Frame um die Anzahl der in das Frame fallenden
+ * internen Takte auf einmal weitergezaehlt,
+ * d.h., es wird nicht mehr jeder interne Takt einzeln emuliert.
  */
 
 package jkcemu.etc;
 
 import java.net.URL;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import jkcemu.Main;
 
 
@@ -32,6 +49,14 @@ public class PSG8910 extends Thread
   public static final int PORT_A = 0;
   public static final int PORT_B = 1;
 
+  // Eintrag in der Warteschlange fuer das Zuruecksetzen
+  private static final int REG_WRITE_RESET = -1;
+
+  // Bits fuer das Neuladen der Klangerzeugung aus den Registern
+  private static final int RESYNC_REGS     = 0x01;
+  private static final int RESYNC_RESET    = 0x02;
+  private static final int RESYNC_ENVELOPE = 0x04;
+
   private static final String TEXT_OUT_FIX        = "konstanter&nbsp;Pegel";
   private static final String TEXT_OUT_NOISE      = "Rauschen";
   private static final String TEXT_OUT_NOISE_TONE = "Rauschen+Ton";
@@ -53,42 +78,103 @@ public class PSG8910 extends Thread
 				0, 2, 4, 6, 8, 11, 14, 18,
 				23, 29, 37, 50, 71, 100, 141, 200 };
 
-  private Callback         callback;
-  private int              clockHz;
-  private int              regNum;
-  private volatile int     frameRate;
-  private volatile int     amplitudeA;
-  private volatile int     amplitudeB;
-  private volatile int     amplitudeC;
-  private volatile int     periodA;
-  private volatile int     periodB;
-  private volatile int     periodC;
-  private volatile int     periodNoise;
-  private volatile int     periodEnvelope;
-  private volatile int     envelopeShape;
-  private volatile int     modeBits;
-  private volatile int     portA;
-  private volatile int     portB;
-  private int              channelOutA;
-  private int              channelOutB;
-  private int              channelOutC;
-  private int              noiseCounter;
-  private int              toneCounterA;
-  private int              toneCounterB;
-  private int              toneCounterC;
-  private int              envPeriodCounter;
-  private int              envShapeStep;
-  private int              envShapeValue;
-  private int              noiseShifter;
-  private boolean          toneStateA;
-  private boolean          toneStateB;
-  private boolean          toneStateC;
-  private boolean          noiseState;
-  private volatile boolean envelopeReset;
-  private boolean          envelopeDiv2;
-  private boolean          envelopeEnd;
-  private volatile boolean threadEnabled;
-  private Object           waitMonitor;
+  /*
+   * Tongenerator eines Kanals einschliesslich der dazugehoerenden
+   * Register, wie sie der PSG-Thread aus der Warteschlange
+   * uebernommen hat
+   */
+  private static class ToneGen
+  {
+    private int     amplitude;
+    private int     period;
+    private int     counter;
+    private boolean state;
+
+    private ToneGen()
+    {
+      reset();
+    }
+
+    /*
+     * Weiterzaehlen um die uebergebene Anzahl interner Takte
+     *
+     * Bei jedem Takt wird der Zaehler dekrementiert.
+     * Steht er bereits auf 0, wird er mit der Periode geladen
+     * und dabei der Ausgang umgeschaltet, d.h.,
+     * ab dem ersten Umschalten erfolgt das alle "period" Takte.
+     * Bei Periode=0 ist der Kanal immer an.
+     * In dem Fall kann durch Programmierung der Lautstaerke
+     * ein Ton erzeugt werden.
+     */
+    private void advance( int nClocks )
+    {
+      if( nClocks <= this.counter ) {
+	this.counter -= nClocks;
+      } else {
+	if( this.period > 0 ) {
+	  int remain   = nClocks - this.counter - 1;
+	  int nChanges = 1 + (remain / this.period);
+	  this.counter = this.period - 1 - (remain % this.period);
+	  if( (nChanges & 0x01) != 0 ) {
+	    this.state = !this.state;
+	  }
+	} else {
+	  this.counter = 0;
+	  this.state   = true;
+	}
+      }
+    }
+
+    private void reset()
+    {
+      this.amplitude = 0;
+      this.period    = 0;
+      this.counter   = 0;
+      this.state     = false;
+    }
+  };
+
+
+  private Callback                       callback;
+  private int                            clockHz;
+  private int                            regNum;
+  private volatile int                   frameRate;
+  private volatile int                   amplitudeA;
+  private volatile int                   amplitudeB;
+  private volatile int                   amplitudeC;
+  private volatile int                   periodA;
+  private volatile int                   periodB;
+  private volatile int                   periodC;
+  private volatile int                   periodNoise;
+  private volatile int                   periodEnvelope;
+  private volatile int                   envelopeShape;
+  private volatile int                   modeBits;
+  private volatile int                   portA;
+  private volatile int                   portB;
+  private ConcurrentLinkedQueue<Integer> regWrites;
+  private volatile boolean               regWritesPending;
+  private AtomicInteger                  regResync;
+  private ToneGen                        toneGenA;
+  private ToneGen                        toneGenB;
+  private ToneGen                        toneGenC;
+  private int                            genModeBits;
+  private int                            genPeriodNoise;
+  private int                            genPeriodEnvelope;
+  private int                            genEnvelopeShape;
+  private int                            channelOutA;
+  private int                            channelOutB;
+  private int                            channelOutC;
+  private int                            noiseCounter;
+  private int                            envPeriodCounter;
+  private int                            envShapeStep;
+  private int                            envShapeValue;
+  private int                            noiseShifter;
+  private boolean                        noiseState;
+  private boolean                        envelopeReset;
+  private boolean                        envelopeDiv2;
+  private boolean                        envelopeEnd;
+  private volatile boolean               threadEnabled;
+  private Object                         waitMonitor;
 
 
   public PSG8910( int clockHz, Callback callback )
@@ -97,6 +183,11 @@ public class PSG8910 extends Thread
     this.clockHz       = clockHz;
     this.callback      = callback;
     this.frameRate     = 0;
+    this.regWrites     = new ConcurrentLinkedQueue<>();
+    this.regResync     = new AtomicInteger( 0 );
+    this.toneGenA      = new ToneGen();
+    this.toneGenB      = new ToneGen();
+    this.toneGenC      = new ToneGen();
     this.waitMonitor   = new Object();
     this.threadEnabled = true;
     reset();
@@ -372,39 +463,26 @@ public class PSG8910 extends Thread
   }
 
 
+  /*
+   * Die Register werden sofort zurueckgesetzt,
+   * die Klangerzeugung erst im PSG-Thread.
+   */
   public void reset()
   {
-    this.portA            = 0xFF;
-    this.portB            = 0xFF;
-    this.modeBits         = 0xFF;
-    this.noiseShifter     = 0;
-    this.amplitudeA       = 0;
-    this.amplitudeB       = 0;
-    this.amplitudeC       = 0;
-    this.periodA          = 0;
-    this.periodB          = 0;
-    this.periodC          = 0;
-    this.periodNoise      = 0;
-    this.periodEnvelope   = 0;
-    this.envelopeShape    = 0;
-    this.regNum           = 0;
-    this.channelOutA      = 0;
-    this.channelOutB      = 0;
-    this.channelOutC      = 0;
-    this.noiseCounter     = 0;
-    this.envPeriodCounter = 0;
-    this.envShapeStep     = 0;
-    this.envShapeValue    = 0;
-    this.toneCounterA     = 0;
-    this.toneCounterB     = 0;
-    this.toneCounterC     = 0;
-    this.toneStateA       = false;
-    this.toneStateB       = false;
-    this.toneStateC       = false;
-    this.noiseState       = false;
-    this.envelopeReset    = false;
-    this.envelopeDiv2     = false;
-    this.envelopeEnd      = false;
+    this.portA          = 0xFF;
+    this.portB          = 0xFF;
+    this.modeBits       = 0xFF;
+    this.amplitudeA     = 0;
+    this.amplitudeB     = 0;
+    this.amplitudeC     = 0;
+    this.periodA        = 0;
+    this.periodB        = 0;
+    this.periodC        = 0;
+    this.periodNoise    = 0;
+    this.periodEnvelope = 0;
+    this.envelopeShape  = 0;
+    this.regNum         = 0;
+    addRegWrite( REG_WRITE_RESET, 0 );
   }
 
 
@@ -457,23 +535,15 @@ public class PSG8910 extends Thread
 	this.amplitudeC = value & 0x1F;
 	break;
       case 11:
-	synchronized( this ) {
-	  this.periodEnvelope = (this.periodEnvelope & 0xFF00)
+	this.periodEnvelope = (this.periodEnvelope & 0xFF00)
 					| (value & 0x00FF);
-	}
 	break;
       case 12:
-	synchronized( this ) {
-	  this.periodEnvelope = ((value << 8) & 0xFF00)
+	this.periodEnvelope = ((value << 8) & 0xFF00)
 					| (this.periodEnvelope & 0x00FF);
-	}
 	break;
       case 13:
-	synchronized( this ) {
-	  this.envelopeShape = value & 0x0F;
-	  this.envelopeEnd   = true;
-	  this.envelopeReset = true;
-	}
+	this.envelopeShape = value & 0x0F;
 	break;
       case 14:
 	if( (this.modeBits & 0x40) != 0 ) {
@@ -488,6 +558,9 @@ public class PSG8910 extends Thread
 	}
 	break;
     }
+    if( (regNum >= 0) && (regNum <= 13) ) {
+      addRegWrite( regNum, value );
+    }
   }
 
 
@@ -521,11 +594,15 @@ public class PSG8910 extends Thread
 	   * um auf die gleiche Frequenz zu kommen.
 	   */
 	  int n = div8Counter + clocksPerFrame;
-	  while( n >= 8 ) {
-	    n -= 8;
-	    internalClockPhaseChange();
+	  int resync = this.regResync.getAndSet( 0 );
+	  if( resync != 0 ) {
+	    resyncGenerator( resync );
+	  }
+	  if( this.regWritesPending ) {
+	    processRegWrites();
 	  }
-	  div8Counter = n;
+	  generateFrame( n / 8 );
+	  div8Counter = n % 8;
 	}
 	this.callback.psgWriteFrame(
 				this,
@@ -557,230 +634,398 @@ public class PSG8910 extends Thread
 
 	/* --- private Methoden --- */
 
-  private int getOutValue( int amplitudeReg, boolean channelState )
+  private void addRegWrite( int regNum, int value )
   {
-    int rv = 0;
-    if( channelState ) {
-      if( amplitudeReg > 0x0F ) {
-	rv = volumeValues[ this.envShapeValue ];
-      } else {
-	rv = volumeValues[ amplitudeReg ];
-      }
+    /*
+     * Ohne Frame-Erzeugung wuerde die Warteschlange nie geleert werden.
+     * In dem Fall wird deshalb nur vermerkt,
+     * dass die Klangerzeugung neu geladen werden muss.
+     * Ein RESET verwirft dabei einen zuvor vermerkten
+     * Neustart der Huellkurve.
+     */
+    if( this.frameRate > 0 ) {
+      this.regWrites.add( (regNum << 8) | (value & 0xFF) );
+      this.regWritesPending = true;
+    } else {
+      int oldValue = 0;
+      int newValue = 0;
+      do {
+	oldValue = this.regResync.get();
+	newValue = oldValue | RESYNC_REGS;
+	if( regNum == REG_WRITE_RESET ) {
+	  newValue = (newValue | RESYNC_RESET) & ~RESYNC_ENVELOPE;
+	} else if( regNum == 13 ) {
+	  newValue |= RESYNC_ENVELOPE;
+	}
+      } while( !this.regResync.compareAndSet( oldValue, newValue ) );
     }
-    return rv;
   }
 
 
-  private synchronized void internalClockPhaseChange()
+  /*
+   * Weiterzaehlen der Huellkurve um die uebergebene Anzahl Takte
+   * (halbe Frequenz der internen Takte)
+   *
+   * Der Zaehler wird bei jedem Takt dekrementiert.
+   * Hat er 0 erreicht oder wurde die Huellkurvenform neu gesetzt,
+   * wird er neu geladen und die Huellkurve einen Schritt weitergestellt.
+   * Periode=0 ist wie Periode=1 sehr kurz
+   */
+  private void advanceEnvelope( int nClocks )
   {
-    /*
-     * Tongeneratoren aktualisieren,
-     * Bei Periode=0 ist der Kanal immer an.
-     * In dem Fall kann durch Programmierung der Lautstaerke
-     * ein Ton erzeugt werden.
-     */
-    if( this.toneCounterA > 0 ) {
-      --this.toneCounterA;
-    } else {
-      this.toneCounterA = this.periodA;
-      if( this.toneCounterA > 0 ) {
-	--this.toneCounterA;
-	this.toneStateA = !this.toneStateA;
-      } else {
-	this.toneStateA = true;
-      }
-    }
-    if( this.toneCounterB > 0 ) {
-      --this.toneCounterB;
-    } else {
-      this.toneCounterB = this.periodB;
-      if( this.toneCounterB > 0 ) {
-	--this.toneCounterB;
-	this.toneStateB = !this.toneStateB;
+    while( nClocks > 0 ) {
+      if( this.envelopeReset ) {
+	--nClocks;
       } else {
-	this.toneStateB = true;
+	int n = Math.max( this.envPeriodCounter, 1 );
+	if( nClocks < n ) {
+	  this.envPeriodCounter -= nClocks;
+	  break;
+	}
+	nClocks -= n;
       }
-    }
-    if( this.toneCounterC > 0 ) {
-      --this.toneCounterC;
-    } else {
-      this.toneCounterC = this.periodC;
-      if( this.toneCounterC > 0 ) {
-	--this.toneCounterC;
-	this.toneStateC = !this.toneStateC;
-      } else {
-	this.toneStateC = true;
+      this.envPeriodCounter = this.genPeriodEnvelope;
+      if( this.envelopeReset
+	  && (this.envelopeEnd || (this.envShapeStep == 0)) )
+      {
+	this.envelopeReset = false;
+	this.envelopeEnd   = false;
+	this.envShapeStep  = 0;
+	if( (this.genEnvelopeShape <= 3)
+	    || ((this.genEnvelopeShape >= 8)
+		&& (this.genEnvelopeShape <= 11)) )
+	{
+	  this.envShapeValue = 15;
+	} else {
+	  this.envShapeValue = 0;
+	}
       }
+      stepEnvelopeShape();
     }
+  }
 
-    /*
-     * Rauschgenerator aktualisieren,
-     * Periode=0 erzeugt wie bei Periode=1 ein helles Rauschen.
-     */
-    if( this.noiseCounter > 0 ) {
-      --this.noiseCounter;
+
+  /*
+   * Weiterzaehlen des Rauschgenerators
+   * um die uebergebene Anzahl interner Takte,
+   * Periode=0 erzeugt wie bei Periode=1 ein helles Rauschen.
+   */
+  private void advanceNoise( int nClocks )
+  {
+    if( nClocks <= this.noiseCounter ) {
+      this.noiseCounter -= nClocks;
     } else {
-      this.noiseCounter = this.periodNoise;
-      if( this.noiseCounter > 0 ) {
-	--this.noiseCounter;
-      }
+      int period  = Math.max( this.genPeriodNoise, 1 );
+      int remain  = nClocks - this.noiseCounter - 1;
+      int nShifts = 1 + (remain / period);
+      this.noiseCounter = period - 1 - (remain % period);
+
       /*
        * Das Rauschen wird ueber ein rueckgekoppeltes 17-stelliges
        * Schieberegister erzeugt:
        * Rueckkopplung: Negation(Bit13 XOR Bit16) -> Bit0
        * Ausgang:       Bit16
        */
-      boolean bit13   = ((this.noiseShifter & 0x00002000) != 0);  // Bit13
-      this.noiseState = ((this.noiseShifter & 0x00010000) != 0);  // Bit16
-      this.noiseShifter <<= 1;
-      if( bit13 == this.noiseState ) {
-	this.noiseShifter |= 0x01;
+      int shifter = this.noiseShifter;
+      for( int i = 0; i < nShifts; i++ ) {
+	boolean bit13   = ((shifter & 0x00002000) != 0);	// Bit13
+	this.noiseState = ((shifter & 0x00010000) != 0);	// Bit16
+	shifter <<= 1;
+	if( bit13 == this.noiseState ) {
+	  shifter |= 0x01;
+	}
       }
+      this.noiseShifter = shifter;
+    }
+  }
+
+
+  /*
+   * Erzeugen eines Audio-Frames
+   *
+   * Ausgegeben wird der Zustand nach dem letzten internen Takt
+   * des Frames.
+   * Da die Zaehler pro Frame nur einmal weitergestellt werden,
+   * haengt der Aufwand kaum von der Taktfrequenz ab.
+   */
+  private void generateFrame( int nClocks )
+  {
+    if( nClocks > 0 ) {
+      this.toneGenA.advance( nClocks );
+      this.toneGenB.advance( nClocks );
+      this.toneGenC.advance( nClocks );
+      advanceNoise( nClocks );
+
+      /*
+       * Die Huellkurve wird mit der halben Frequenz getaktet,
+       * und zwar bei jedem zweiten internen Takt.
+       */
+      int nEnvClocks = nClocks / 2;
+      if( (nClocks & 0x01) != 0 ) {
+	if( !this.envelopeDiv2 ) {
+	  nEnvClocks++;
+	}
+	this.envelopeDiv2 = !this.envelopeDiv2;
+      }
+      advanceEnvelope( nEnvClocks );
     }
 
     // Mixer
     boolean stateA = true;
     boolean stateB = true;
     boolean stateC = true;
-    switch( this.modeBits & 0x09 ) {
+    switch( this.genModeBits & 0x09 ) {
       case 0x00:			// Rauschen + Tongenerator
-	stateA = this.noiseState || this.toneStateA;
+	stateA = this.noiseState || this.toneGenA.state;
 	break;
       case 0x01:			// Rauschen
 	stateA = this.noiseState;
 	break;
       case 0x08:			// Tongenerator
-	stateA = this.toneStateA;
+	stateA = this.toneGenA.state;
 	break;
     }
-    switch( this.modeBits & 0x12 ) {
+    switch( this.genModeBits & 0x12 ) {
       case 0x00:			// Rauschen + Tongenerator
-	stateB = this.noiseState || this.toneStateB;
+	stateB = this.noiseState || this.toneGenB.state;
 	break;
       case 0x02:			// Rauschen
 	stateB = this.noiseState;
 	break;
       case 0x10:			// Tongenerator
-	stateB = this.toneStateB;
+	stateB = this.toneGenB.state;
 	break;
     }
-    switch( this.modeBits & 0x24 ) {
+    switch( this.genModeBits & 0x24 ) {
       case 0x00:			// Rauschen + Tongenerator
-	stateC = this.noiseState || this.toneStateC;
+	stateC = this.noiseState || this.toneGenC.state;
 	break;
       case 0x04:			// Rauschen
 	stateC = this.noiseState;
 	break;
       case 0x20:			// Tongenerator
-	stateC = this.toneStateC;
+	stateC = this.toneGenC.state;
 	break;
     }
 
-    /*
-     * Huellkurve aktualisieren
-     *
-     * Da die Methode zweimal pro interner Schwingung aufgerufen wird,
-     * muss noch durch zwei geteilt werden.
-     * Periode=0 ist wie Periode=1 sehr kurz
-     */
-    this.envelopeDiv2 = !this.envelopeDiv2;
-    if( this.envelopeDiv2 ) {
-      if( this.envPeriodCounter > 0 ) {
-	--this.envPeriodCounter;
+    // Ausgangspegel berechnen
+    this.channelOutA = getOutValue( this.toneGenA.amplitude, stateA );
+    this.channelOutB = getOutValue( this.toneGenB.amplitude, stateB );
+    this.channelOutC = getOutValue( this.toneGenC.amplitude, stateC );
+  }
+
+
+  private int getOutValue( int amplitudeReg, boolean channelState )
+  {
+    int rv = 0;
+    if( channelState ) {
+      if( amplitudeReg > 0x0F ) {
+	rv = volumeValues[ this.envShapeValue ];
+      } else {
+	rv = volumeValues[ amplitudeReg ];
+      }
+    }
+    return rv;
+  }
+
+
+  /*
+   * Uebernehmen der eingereihten Registerschreibzugriffe
+   * in die Klangerzeugung (nur im PSG-Thread)
+   */
+  private void processRegWrites()
+  {
+    // zuerst zuruecksetzen, damit kein Schreibzugriff verloren geht
+    this.regWritesPending = false;
+    Integer item = this.regWrites.poll();
+    while( item != null ) {
+      int regNum = item.intValue() >> 8;
+      int value  = item.intValue() & 0xFF;
+      switch( regNum ) {
+	case REG_WRITE_RESET:
+	  resetGenerator();
+	  break;
+	case 0:
+	  this.toneGenA.period = (this.toneGenA.period & 0x0F00) | value;
+	  break;
+	case 1:
+	  this.toneGenA.period = ((value << 8) & 0x0F00)
+					| (this.toneGenA.period & 0x00FF);
+	  break;
+	case 2:
+	  this.toneGenB.period = (this.toneGenB.period & 0x0F00) | value;
+	  break;
+	case 3:
+	  this.toneGenB.period = ((value << 8) & 0x0F00)
+					| (this.toneGenB.period & 0x00FF);
+	  break;
+	case 4:
+	  this.toneGenC.period = (this.toneGenC.period & 0x0F00) | value;
+	  break;
+	case 5:
+	  this.toneGenC.period = ((value << 8) & 0x0F00)
+					| (this.toneGenC.period & 0x00FF);
+	  break;
+	case 6:
+	  this.genPeriodNoise = value & 0x1F;
+	  break;
+	case 7:
+	  this.genModeBits = value;
+	  break;
+	case 8:
+	  this.toneGenA.amplitude = value & 0x1F;
+	  break;
+	case 9:
+	  this.toneGenB.amplitude = value & 0x1F;
+	  break;
+	case 10:
+	  this.toneGenC.amplitude = value & 0x1F;
+	  break;
+	case 11:
+	  this.genPeriodEnvelope = (this.genPeriodEnvelope & 0xFF00) | value;
+	  break;
+	case 12:
+	  this.genPeriodEnvelope = (value << 8)
+					| (this.genPeriodEnvelope & 0x00FF);
+	  break;
+	case 13:
+	  this.genEnvelopeShape = value & 0x0F;
+	  this.envelopeEnd      = true;
+	  this.envelopeReset    = true;
+	  break;
       }
-      if( this.envelopeReset || (this.envPeriodCounter == 0) ) {
-	int envelopeShape = 0;
-	synchronized( this ) {
-	  envelopeShape         = this.envelopeShape;
-	  this.envPeriodCounter = this.periodEnvelope;
+      item = this.regWrites.poll();
+    }
+  }
+
+
+  /*
+   * Neuladen der Klangerzeugung aus den Registern (nur im PSG-Thread)
+   *
+   * Die Zaehler laufen dabei weiter, sofern zwischenzeitlich
+   * kein RESET erfolgte.
+   * Noch eingereihte Schreibzugriffe sind aelter als der Inhalt
+   * der Register und werden deshalb vorher uebernommen.
+   *
+   * Parameter:
+   *   resync: die bis dahin vermerkten RESYNC_...-Bits,
+   *           die der Aufrufer bereits zurueckgesetzt hat
+   */
+  private void resyncGenerator( int resync )
+  {
+    processRegWrites();
+    if( (resync & RESYNC_RESET) != 0 ) {
+      resetGenerator();
+    }
+    this.toneGenA.period    = this.periodA;
+    this.toneGenB.period    = this.periodB;
+    this.toneGenC.period    = this.periodC;
+    this.toneGenA.amplitude = this.amplitudeA;
+    this.toneGenB.amplitude = this.amplitudeB;
+    this.toneGenC.amplitude = this.amplitudeC;
+    this.genModeBits        = this.modeBits;
+    this.genPeriodNoise     = this.periodNoise;
+    this.genPeriodEnvelope  = this.periodEnvelope;
+    this.genEnvelopeShape   = this.envelopeShape;
+    if( (resync & RESYNC_ENVELOPE) != 0 ) {
+      this.envelopeEnd   = true;
+      this.envelopeReset = true;
+    }
+  }
+
+
+  private void resetGenerator()
+  {
+    this.toneGenA.reset();
+    this.toneGenB.reset();
+    this.toneGenC.reset();
+    this.genModeBits       = 0xFF;
+    this.genPeriodNoise    = 0;
+    this.genPeriodEnvelope = 0;
+    this.genEnvelopeShape  = 0;
+    this.channelOutA       = 0;
+    this.channelOutB       = 0;
+    this.channelOutC       = 0;
+    this.noiseCounter      = 0;
+    this.noiseShifter      = 0;
+    this.noiseState        = false;
+    this.envPeriodCounter  = 0;
+    this.envShapeStep      = 0;
+    this.envShapeValue     = 0;
+    this.envelopeReset     = false;
+    this.envelopeDiv2      = false;
+    this.envelopeEnd       = false;
+  }
+
+
+  private void stepEnvelopeShape()
+  {
+    switch( this.genEnvelopeShape ) {
+      case 4:							// /____
+      case 5:
+      case 6:
+      case 7:
+      case 15:
+	if( this.envShapeStep < 16 ) {
+	  this.envShapeValue = (this.envShapeStep & 0x0F);
+	  this.envShapeStep++;
+	} else {
+	  this.envShapeValue = 0;
+	  this.envelopeEnd   = true;
 	}
-	if( this.envelopeReset
-	    && (this.envelopeEnd || (this.envShapeStep == 0)) )
-	{
-	  this.envelopeReset = false;
-	  this.envelopeEnd   = false;
-	  this.envShapeStep  = 0;
-	  if( (envelopeShape <= 3)
-	      || ((envelopeShape >= 8) && (envelopeShape <= 11)) )
-	  {
-	    this.envShapeValue = 15;
-	  } else {
-	    this.envShapeValue = 0;
-	  }
+	break;
+      case 8:							// \\\\
+	this.envShapeValue = (15 - this.envShapeStep) & 0x0F;
+	this.envShapeStep  = (this.envShapeStep + 1) & 0x0F;
+	break;
+      case 10:							// \/\/
+	if( this.envShapeStep < 16 ) {
+	  this.envShapeValue = (15 - this.envShapeStep) & 0x0F;
+	} else {
+	  this.envShapeValue = (this.envShapeStep - 16) & 0x0F;
 	}
-	switch( envelopeShape ) {
-	  case 4:						// /____
-	  case 5:
-	  case 6:
-	  case 7:
-	  case 15:
-	    if( this.envShapeStep < 16 ) {
-	      this.envShapeValue = (this.envShapeStep & 0x0F);
-	      this.envShapeStep++;
-	    } else {
-	      this.envShapeValue = 0;
-	      this.envelopeEnd   = true;
-	    }
-	    break;
-	  case 8:						// \\\\
-	    this.envShapeValue = (15 - this.envShapeStep) & 0x0F;
-	    this.envShapeStep  = (this.envShapeStep + 1) & 0x0F;
-	    break;
-	  case 10:						// \/\/
-	    if( this.envShapeStep < 16 ) {
-	      this.envShapeValue = (15 - this.envShapeStep) & 0x0F;
-	    } else {
-	      this.envShapeValue = (this.envShapeStep - 16) & 0x0F;
-	    }
-	    this.envShapeStep  = (this.envShapeStep + 1) & 0x1F;
-	    break;
-	  case 11:						// \~~~
-	    if( this.envShapeStep < 16 ) {
-	      this.envShapeValue = (15 - this.envShapeStep) & 0x0F;
-	      this.envShapeStep++;
-	    } else {
-	      this.envShapeValue = 15;
-	      this.envelopeEnd   = true;
-	    }
-	    break;
-	  case 12:						// ////
-	    this.envShapeValue = this.envShapeStep & 0x0F;
-	    this.envShapeStep  = (this.envShapeStep + 1) & 0x0F;
-	    break;
-	  case 13:						// /~~~
-	    if( this.envShapeStep < 16 ) {
-	      this.envShapeValue = this.envShapeStep & 0x0F;
-	      this.envShapeStep++;
-	    } else {
-	      this.envShapeValue = 15;
-	      this.envelopeEnd   = true;
-	    }
-	    break;
-	  case 14:						// /\/\
-	    if( this.envShapeStep < 16 ) {
-	      this.envShapeValue = this.envShapeStep & 0x0F;
-	    } else {
-	      this.envShapeValue = (31 - this.envShapeStep) & 0x0F;
-	    }
-	    this.envShapeStep = (this.envShapeStep + 1) & 0x1F;
-	    break;
-	  default:						// \___
-	    if( this.envShapeStep < 16 ) {
-	      this.envShapeValue = (15 - this.envShapeStep) & 0x0F;
-	      this.envShapeStep++;
-	    } else {
-	      this.envShapeValue = 0;
-	      this.envelopeEnd   = true;
-	    }
-	    break;
+	this.envShapeStep  = (this.envShapeStep + 1) & 0x1F;
+	break;
+      case 11:							// \~~~
+	if( this.envShapeStep < 16 ) {
+	  this.envShapeValue = (15 - this.envShapeStep) & 0x0F;
+	  this.envShapeStep++;
+	} else {
+	  this.envShapeValue = 15;
+	  this.envelopeEnd   = true;
 	}
-      }
+	break;
+      case 12:							// ////
+	this.envShapeValue = this.envShapeStep & 0x0F;
+	this.envShapeStep  = (this.envShapeStep + 1) & 0x0F;
+	break;
+      case 13:							// /~~~
+	if( this.envShapeStep < 16 ) {
+	  this.envShapeValue = this.envShapeStep & 0x0F;
+	  this.envShapeStep++;
+	} else {
+	  this.envShapeValue = 15;
+	  this.envelopeEnd   = true;
+	}
+	break;
+      case 14:							// /\/\
+	if( this.envShapeStep < 16 ) {
+	  this.envShapeValue = this.envShapeStep & 0x0F;
+	} else {
+	  this.envShapeValue = (31 - this.envShapeStep) & 0x0F;
+	}
+	this.envShapeStep = (this.envShapeStep + 1) & 0x1F;
+	break;
+      default:							// \___
+	if( this.envShapeStep < 16 ) {
+	  this.envShapeValue = (15 - this.envShapeStep) & 0x0F;
+	  this.envShapeStep++;
+	} else {
+	  this.envShapeValue = 0;
+	  this.envelopeEnd   = true;
+	}
+	break;
     }
-
-    // Ausgangspegel berechnen
-    this.channelOutA = getOutValue( this.amplitudeA, stateA );
-    this.channelOutB = getOutValue( this.amplitudeB, stateB );
-    this.channelOutC = getOutValue( this.amplitudeC, stateC );
   }
 
 
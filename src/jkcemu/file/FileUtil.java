@@ -72,6 +72,7 @@ import jkcemu.base.EmuUtil;
 import jkcemu.base.ErrorMsg;
 import jkcemu.base.GUIFactory;
 import jkcemu.base.ObjectByStringComparator;
+import jkcemu.base.ROMCache;
 import jkcemu.base.ReplyDirDlg;
 import jkcemu.base.ReplyTextDlg;
 import jkcemu.base.UserInputException;
@@ -685,6 +686,26 @@ public class FileUtil
   }
 
 
+  /*
+   * Eintrag aus der Liste der Headersave-Dateitypen,
+   * der mit dem uebergebenen Dateityp beginnt,
+   * bzw. null, wenn es keinen solchen Eintrag gibt
+   */
+  public static String getHeadersaveFileTypeItem( int fileType )
+  {
+    String rv = null;
+    for( String s : headersaveFileTypeItems ) {
+      if( !s.isEmpty() ) {
+	if( s.charAt( 0 ) == fileType ) {
+	  rv = s;
+	  break;
+	}
+      }
+    }
+    return rv;
+  }
+
+
   public static File getHomeDirFile()
   {
     File   dirFile = null;
@@ -880,6 +901,12 @@ public class FileUtil
   }
 
 
+  public static FileFilter getSnapshotFileFilter()
+  {
+    return getFileFilter( "Emulatorzust\u00E4nde (*.jks)", "jks" );
+  }
+
+
   public static FileFilter getTapeFileFilter()
   {
     return getFileFilter(
@@ -1193,6 +1220,12 @@ public class FileUtil
   }
 
 
+  /*
+   * Lesen einer ROM- oder Zeichensatzdatei mit Fehlerdialog
+   *
+   * Die zurueckgelieferten Bytes werden ueber ROMCache
+   * gemeinsam genutzt und duerfen nicht veraendert werden.
+   */
   public static byte[] readFile(
 				Component owner,
 				String    fileName,
@@ -1203,8 +1236,16 @@ public class FileUtil
     byte[] rv = null;
     if( fileName != null ) {
       if( !fileName.isEmpty() ) {
+	File file = new File( fileName );
 	try {
-	  rv = readFile( new File( fileName ), allowUncompress, maxLen );
+	  rv = ROMCache.getFile( file, allowUncompress, maxLen );
+	  if( rv == null ) {
+	    rv = ROMCache.putFile(
+			file,
+			allowUncompress,
+			maxLen,
+			readFile( file, allowUncompress, maxLen ) );
+	  }
 	}
 	catch( IOException ex ) {
 	  String msg = ex.getMessage();
@@ -1367,15 +1408,11 @@ public class FileUtil
 						JComboBox<?> combo,
 						int          fileType )
   {
-    boolean rv = false;
-    for( String s : headersaveFileTypeItems ) {
-      if( !s.isEmpty() ) {
-	if( s.charAt( 0 ) == fileType ) {
-	  combo.setSelectedItem( s );
-	  rv = true;
-	  break;
-	}
-      }
+    boolean rv   = false;
+    String  item = getHeadersaveFileTypeItem( fileType );
+    if( item != null ) {
+      combo.setSelectedItem( item );
+      rv = true;
     }
     return rv;
   }
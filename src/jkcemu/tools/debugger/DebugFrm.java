@@ -113,6 +113,7 @@ import z80emu.Z80Memory;
 import z80emu.Z80ReassInstr;
 import z80emu.Z80Reassembler;
 import z80emu.Z80StatusListener;
+import z80emu.Z80TraceBuffer;
 
 
 public class DebugFrm extends BaseFrm implements
@@ -145,6 +146,9 @@ public class DebugFrm extends BaseFrm implements
   private static final int BP_INTERRUPT_IDX = 4;
   private static final int BP_GROUP_CNT     = 5;
 
+  // Anzahl Befehle, die pro Schreibvorgang aufgezeichnet werden
+  private static final int TRACE_BUFFER_SIZE = 0x10000;
+
   private static final int TAB_IDX_CPU = 0;
   private static final int TAB_IDX_LOG = 1;
   private static final int TAB_IDX_VAR = 2;
@@ -236,6 +240,10 @@ public class DebugFrm extends BaseFrm implements
   private File                      lastBreakpointFile;
   private File                      lastTraceFile;
   private PrintWriter               traceWriter;
+  private Z80TraceBuffer            traceBuffer;
+  private File                      traceTmpFile;
+  private volatile Z80TraceBuffer   traceSaveBuffer;
+  private javax.swing.Timer         traceSaveTimer;
   private int                       popupBpGroupIdx;
   private JMenuItem                 mnuFileClose;
   private JMenuItem                 mnuFileBpsImport;
@@ -396,6 +404,10 @@ public class DebugFrm extends BaseFrm implements
     this.lastBreakpointFile = null;
     this.lastTraceFile      = null;
     this.traceWriter        = null;
+    this.traceBuffer        = null;
+    this.traceTmpFile       = null;
+    this.traceSaveBuffer    = null;
+    this.traceSaveTimer     = new javax.swing.Timer( 500, this );
     this.bpDlg              = null;
     this.bpModels           = new BreakpointListModel[ BP_GROUP_CNT ];
     this.bpLists            = new BreakpointList[ BP_GROUP_CNT ];
@@ -2080,6 +2092,10 @@ public class DebugFrm extends BaseFrm implements
 	rv = true;
 	doWalkTimer();
       }
+      else if( src == this.traceSaveTimer ) {
+	rv = true;
+	doTraceSaveTimer();
+      }
       else if( (src == this.spinnerIntMode)
 	       || (src == this.fldRegAF)
 	       || (src == this.fldRegAF2)
@@ -2924,16 +2940,28 @@ public class DebugFrm extends BaseFrm implements
 	try {
 	  this.traceWriter = new PrintWriter(
 		new BufferedWriter(
-			new FileWriter( file.getPath(), append ) ),
-		true );
-
-	  this.cpu.setDebugTracer( this.traceWriter );
+			new FileWriter( file.getPath(), append ) ) );
+
+	  /*
+	   * Die CPU-Emulation zeichnet binaer in eine temporaere Datei auf.
+	   * Die Umwandlung in Text erfolgt erst beim Beenden
+	   * der Aufzeichnung.
+	   */
+	  this.traceTmpFile = File.createTempFile( "jkcemu_", ".trace" );
+	  this.traceBuffer  = new Z80TraceBuffer(
+					TRACE_BUFFER_SIZE,
+					this.traceTmpFile );
+	  this.cpu.setDebugTraceBuffer( this.traceBuffer );
 	  this.mnuExecTracer.setSelected( true );
 	  this.lastTraceFile = file;
 	  Main.setLastFile( file, Main.FILE_GROUP_DEBUG_TRACE );
 	}
 	catch( IOException ex ) {
-	  this.traceWriter = null;
+	  if( this.traceWriter != null ) {
+	    this.traceWriter.close();
+	    this.traceWriter = null;
+	  }
+	  deleteTraceTmpFile();
 	  BaseDlg.showErrorDlg(
 		this,
 		"Die Befehlsaufzeichnungsdatei kann nicht\n"
@@ -3108,6 +3136,24 @@ public class DebugFrm extends BaseFrm implements
   }
 
 
+  private void doTraceSaveTimer()
+  {
+    Z80TraceBuffer traceBuffer = this.traceSaveBuffer;
+    if( traceBuffer != null ) {
+      long nAll = traceBuffer.getRecordCount();
+      if( nAll > 0 ) {
+	long percent = Math.min(
+			traceBuffer.getTextRecordCount() * 100L / nAll,
+			100L );
+	this.labelStatus.setText(
+		String.format(
+			"Befehlsaufzeichnung wird gespeichert: %d %%",
+			percent ) );
+      }
+    }
+  }
+
+
   private void doWalkTimer()
   {
     this.walkTimer.stop();
@@ -3206,22 +3252,41 @@ public class DebugFrm extends BaseFrm implements
   }
 
 
+  /*
+   * Beenden der Befehlsaufzeichnung
+   *
+   * Die Umwandlung der binaeren Aufzeichnung in Text kann
+   * bei einer langen Aufzeichnung recht lange dauern
+   * und erfolgt deshalb in einem eigenen Thread.
+   * Solange kann keine neue Aufzeichnung gestartet werden.
+   */
   private void closeTrace()
   {
     if( this.traceWriter != null ) {
-      this.cpu.setDebugTracer( null );
-      this.traceWriter.println( "---" );
-      this.traceWriter.flush();
-      this.traceWriter.close();
-
-      boolean isErr = this.traceWriter.checkError();
-      this.traceWriter = null;
-      if( isErr ) {
-	BaseDlg.showErrorDlg(
-		this,
-		"Die Befehlsaufzeichnungsdatei konnte nicht"
-			+ " gespeichert werden." );
-      }
+      final PrintWriter    traceWriter  = this.traceWriter;
+      final Z80TraceBuffer traceBuffer  = this.traceBuffer;
+      final File           traceTmpFile = this.traceTmpFile;
+      if( traceBuffer != null ) {
+	this.cpu.setDebugTraceBuffer( null );
+      }
+      this.traceWriter     = null;
+      this.traceBuffer     = null;
+      this.traceTmpFile    = null;
+      this.traceSaveBuffer = traceBuffer;
+      this.mnuExecTracer.setEnabled( false );
+      this.labelStatus.setText( "Befehlsaufzeichnung wird gespeichert..." );
+      this.traceSaveTimer.start();
+      (new Thread(
+		Main.getThreadGroup(),
+		new Runnable()
+		{
+		  @Override
+		  public void run()
+		  {
+		    saveTrace( traceWriter, traceBuffer, traceTmpFile );
+		  }
+		},
+		"JKCEMU debugger trace writer" )).start();
     }
   }
 
@@ -3282,6 +3347,15 @@ public class DebugFrm extends BaseFrm implements
   }
 
 
+  private void deleteTraceTmpFile()
+  {
+    if( this.traceTmpFile != null ) {
+      this.traceTmpFile.delete();
+      this.traceTmpFile = null;
+    }
+  }
+
+
   private void editBreakpoint( int bpGroupIdx )
   {
     BreakpointList      list  = this.bpLists[ bpGroupIdx ];
@@ -3473,6 +3547,20 @@ public class DebugFrm extends BaseFrm implements
   }
 
 
+  private void fireTraceSaved( final boolean isErr )
+  {
+    EventQueue.invokeLater(
+		new Runnable()
+		{
+		  @Override
+		  public void run()
+		  {
+		    traceSaved( isErr );
+		  }
+		} );
+  }
+
+
   private void fireUpdBreakpointActionsEnabled()
   {
     EventQueue.invokeLater(
@@ -3748,8 +3836,15 @@ public class DebugFrm extends BaseFrm implements
 	model.sort();
 	rv = true;
       }
-      if( rv && this.cpu.isPause() ) {
-	updFieldsPC();
+      if( rv ) {
+	/*
+	 * Adressen vorhandener Halte-/Log-Punkte koennen sich
+	 * geaendert haben, deshalb Index in der CPU-Emulation erneuern
+	 */
+	updBreakpointsInCPU();
+	if( this.cpu.isPause() ) {
+	  updFieldsPC();
+	}
       }
     }
 
@@ -3774,6 +3869,38 @@ public class DebugFrm extends BaseFrm implements
   }
 
 
+  /*
+   * Umwandeln der binaeren Befehlsaufzeichnung in Text
+   * und Schliessen der Textdatei (im eigenen Thread)
+   */
+  private void saveTrace(
+			PrintWriter    traceWriter,
+			Z80TraceBuffer traceBuffer,
+			File           traceTmpFile )
+  {
+    boolean isErr = false;
+    if( traceBuffer != null ) {
+      try {
+	traceBuffer.close();
+	traceBuffer.writeTextTo( traceWriter );
+      }
+      catch( IOException ex ) {
+	isErr = true;
+      }
+    }
+    if( traceTmpFile != null ) {
+      traceTmpFile.delete();
+    }
+    traceWriter.println( "---" );
+    traceWriter.flush();
+    traceWriter.close();
+    if( traceWriter.checkError() ) {
+      isErr = true;
+    }
+    fireTraceSaved( isErr );
+  }
+
+
   private void setDebuggerEditable( boolean state )
   {
     this.btnFlagSign.setEnabled( state );
@@ -3986,6 +4113,24 @@ public class DebugFrm extends BaseFrm implements
   }
 
 
+  private void traceSaved( boolean isErr )
+  {
+    this.traceSaveTimer.stop();
+    this.traceSaveBuffer = null;
+    this.mnuExecTracer.setEnabled( true );
+    if( isErr ) {
+      this.labelStatus.setText(
+		"Befehlsaufzeichnung konnte nicht gespeichert werden" );
+      BaseDlg.showErrorDlg(
+		this,
+		"Die Befehlsaufzeichnungsdatei konnte nicht"
+			+ " gespeichert werden." );
+    } else {
+      this.labelStatus.setText( "Befehlsaufzeichnung gespeichert" );
+    }
+  }
+
+
   private void updBreakpointActionsEnabled()
   {
     boolean hasEntries      = false;
@@ -4076,7 +4221,8 @@ public class DebugFrm extends BaseFrm implements
 
   private void updBreakpointsInCPU()
   {
-    java.util.List<Z80Breakpoint> list = null;
+    java.util.List<Z80Breakpoint>    list   = null;
+    java.util.List<MemoryBreakpoint> memBPs = null;
     for( int i = 0; i < this.bpModels.length; i++ ) {
       BreakpointListModel model = this.bpModels[ i ];
       if( model != null ) {
@@ -4088,11 +4234,28 @@ public class DebugFrm extends BaseFrm implements
 		list = new ArrayList<>();
 	      }
 	      list.add( bp );
+	      if( bp instanceof MemoryBreakpoint ) {
+		if( memBPs == null ) {
+		  memBPs = new ArrayList<>();
+		}
+		memBPs.add( (MemoryBreakpoint) bp );
+	      }
 	    }
 	  }
 	}
       }
     }
+
+    /*
+     * Die Speicherzugriffe werden direkt in der CPU-Emulation
+     * ueberwacht, aber nur fuer die markierten Adressen.
+     */
+    if( memBPs != null ) {
+      MemoryWatcher watcher = new MemoryWatcher( memBPs );
+      this.cpu.setMemWatchpoints( watcher.getFlags(), watcher );
+    } else {
+      this.cpu.setMemWatchpoints( null, null );
+    }
     this.cpu.setBreakpoints( list != null ?
 		list.toArray( new Z80Breakpoint[ list.size() ] )
 		: null );
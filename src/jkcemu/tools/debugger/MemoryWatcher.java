@@ -0,0 +1,60 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Kleincomputer-Emulator
+ *
+ * Ueberwachung der Speicherzugriffe fuer die Halte-/Log-Punkte
+ * auf Speicherzellen bzw. Speicherbereiche
+ *
+ * Die zu ueberwachenden Adressen werden in einer Tabelle
+ * mit 64K Eintraegen markiert, die die CPU-Emulation
+ * bei jedem Speicherzugriff im Debug-Modus abfragt.
+ * Nur bei einem Zugriff auf eine markierte Adresse
+ * werden die Halte-/Log-Punkte informiert.
+ */
+
+package jkcemu.tools.debugger;
+
+import java.util.Collection;
+import z80emu.Z80CPU;
+import z80emu.Z80MemWatchListener;
+
+
+class MemoryWatcher implements Z80MemWatchListener
+{
+  private MemoryBreakpoint[] breakpoints;
+  private byte[]             flags;
+
+
+  MemoryWatcher( Collection<MemoryBreakpoint> breakpoints )
+  {
+    this.breakpoints = breakpoints.toArray(
+				new MemoryBreakpoint[ breakpoints.size() ] );
+    this.flags       = new byte[ 0x10000 ];
+    for( MemoryBreakpoint bp : this.breakpoints ) {
+      bp.clearHit();
+      bp.markWatchFlags( this.flags );
+    }
+  }
+
+
+  byte[] getFlags()
+  {
+    return this.flags;
+  }
+
+
+	/* --- Z80MemWatchListener --- */
+
+  @Override
+  public void z80MemWatchAccess(
+			Z80CPU  cpu,
+			int     addr,
+			int     value,
+			boolean write )
+  {
+    for( MemoryBreakpoint bp : this.breakpoints ) {
+      bp.memAccessed( addr, value, write );
+    }
+  }
+}
@@ -15,9 +15,12 @@ import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import z80emu.Z80CPU;
 import z80emu.Z80InterruptSource;
+import z80emu.Z80PCBreakpoint;
 
 
-public class PCBreakpoint extends ImportableBreakpoint
+public class PCBreakpoint
+			extends ImportableBreakpoint
+			implements Z80PCBreakpoint
 {
   public static final String BP_TYPE = "pc";
 
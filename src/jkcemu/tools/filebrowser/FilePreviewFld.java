@@ -344,12 +344,17 @@ public class FilePreviewFld extends JPanel
 								file,
 								true );
 		      if( disk != null ) {
-			addDiskInfo(
+			try {
+			  addDiskInfo(
 				infoItems,
 				checkResult.isCompressedFile(),
 				disk,
 				sortCaseSensitive );
-			cardName = CARD_NAME_FILE_TABLE;
+			  cardName = CARD_NAME_FILE_TABLE;
+			}
+			finally {
+			  disk.closeSilently();
+			}
 		      }
 		    }
 		    catch( IOException ex ) {}
@@ -25,13 +25,13 @@ public class AC1AudioFileTarget extends AbstractConvertTarget
 
 
   public AC1AudioFileTarget(
-		FileConvertFrm fileConvertFrm,
+		ConvertParams  params,
 		byte[]         buf,
 		int            offs,
 		int            len,
 		boolean        basic )
   {
-    super( fileConvertFrm, createInfoText( basic ) );
+    super( params, createInfoText( basic ) );
     this.buf   = buf;
     this.offs  = offs;
     this.len   = len;
@@ -57,9 +57,9 @@ public class AC1AudioFileTarget extends AbstractConvertTarget
 		this.buf,
 		this.offs,
 		this.len,
-		this.fileConvertFrm.getFileDesc( true ),
-		this.fileConvertFrm.getBegAddr( true ),
-		this.fileConvertFrm.getStartAddr( false ) ).newReader();
+		this.params.getFileDesc( true ),
+		this.params.getBegAddr( true ),
+		this.params.getStartAddr( false ) ).newReader();
   }
 
 
@@ -23,15 +23,15 @@ public abstract class AbstractConvertTarget
 {
   private static String suggestedAudioFileExt = null;
 
-  protected FileConvertFrm fileConvertFrm;
+  protected ConvertParams  params;
   private   String         infoText;
 
 
   public AbstractConvertTarget(
-			FileConvertFrm fileConvertFrm,
+			ConvertParams  params,
 			String         infoText )
   {
-    this.fileConvertFrm = fileConvertFrm;
+    this.params = params;
     setInfoText( infoText );
   }
 
@@ -87,6 +87,20 @@ public abstract class AbstractConvertTarget
   }
 
 
+  /*
+   * Voreingestellter Dateityp, so wie er von setFileTypesTo(...)
+   * in der Auswahlliste ausgewaehlt wird,
+   * bzw. null, wenn nichts ausgewaehlt wird
+   *
+   * Die Methode kommt ohne Swing-Komponenten aus
+   * und kann somit in jedem Thread aufgerufen werden.
+   */
+  public String getDefaultFileType()
+  {
+    return null;
+  }
+
+
   public javax.swing.filechooser.FileFilter getFileFilter()
   {
     return null;
@@ -21,10 +21,10 @@ public class AnaDiskFileTarget extends AbstractConvertTarget
 
 
   public AnaDiskFileTarget(
-			FileConvertFrm     fileConvertFrm,
+			ConvertParams      params,
 			AbstractFloppyDisk disk )
   {
-    super( fileConvertFrm, "AnaDisk-Datei (*.dump)" );
+    super( params, "AnaDisk-Datei (*.dump)" );
     this.disk = disk;
   }
 
@@ -24,11 +24,11 @@ public class AudioFileTarget extends AbstractConvertTarget
 
 
   public AudioFileTarget(
-		FileConvertFrm fileConvertFrm,
+		ConvertParams  params,
 		File           file )
   {
     super(
-	fileConvertFrm,
+	params,
 	"Sound-Datei (" + AudioFile.getFileExtensionText() + ")" );
     this.file        = file;
     this.fileFilters = null;
@@ -37,11 +37,11 @@ public class AudioFileTarget extends AbstractConvertTarget
 
 
   public AudioFileTarget(
-		FileConvertFrm  fileConvertFrm,
+		ConvertParams   params,
 		BitSampleBuffer samples )
   {
     super(
-	fileConvertFrm,
+	params,
 	"Sound-Datei (" + AudioFile.getFileExtensionText() + ")" );
     this.file        = null;
     this.fileFilters = null;
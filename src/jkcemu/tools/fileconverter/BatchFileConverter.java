@@ -0,0 +1,762 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Kleincomputer-Emulator
+ *
+ * Stapelkonvertierung von Dateien
+ *
+ * Alle Dateien eines oder mehrerer Verzeichnisbaeume werden
+ * in ein vorgegebenes Dateiformat konvertiert.
+ * Die Dateien werden von mehreren Threads parallel analysiert
+ * und konvertiert. Die Auftragswarteschlange ist begrenzt,
+ * sodass bei grossen Verzeichnisbaeumen nicht fuer alle Dateien
+ * gleichzeitig Auftraege im Speicher gehalten werden.
+ * Ist die Warteschlange voll, konvertiert der einreichende Thread
+ * die Datei selbst.
+ *
+ * Die Kopfdaten (Bezeichnung, Adressen usw.) werden
+ * aus der jeweiligen Quelldatei uebernommen.
+ * Am Ende wird ein nach Dateinamen sortierter Bericht erstellt.
+ */
+
+package jkcemu.tools.fileconverter;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import jkcemu.Main;
+import jkcemu.base.EmuUtil;
+import jkcemu.base.UserInputException;
+import jkcemu.disk.AbstractFloppyDisk;
+import jkcemu.programming.CmdLineArgIterator;
+
+
+public class BatchFileConverter
+{
+  private static final String[] usageLines = {
+	"",
+	"Aufruf:",
+	"  java -jar jkcemu.jar --fc [Optionen] <Dateien/Verzeichnisse>",
+	"  java -jar jkcemu.jar --fileconverter [Optionen]"
+					+ " <Dateien/Verzeichnisse>",
+	"",
+	"Optionen:",
+	"  -h                   diese Hilfe anzeigen",
+	"  -f <Datei>           Kommandozeile aus Datei lesen",
+	"  -t <Format>          Zielformat als Dateiendung"
+						+ " (z.B. td0, imd, dsk, kcc)",
+	"                       oder Anfang der Formatbeschreibung",
+	"  -o <Verzeichnis>     Ausgabeverzeichnis"
+					+ " (Standard: neben den Quelldateien)",
+	"  -j <Anzahl>          Anzahl der Threads",
+	"                       (Standard: Anzahl der Prozessorkerne)",
+	"  -y                   vorhandene Dateien \u00FCberschreiben",
+	"  -v                   auch \u00FCbersprungene Dateien auflisten",
+	"" };
+
+  private static final int QUEUE_SIZE_PER_THREAD = 4;
+
+  private enum Status { CONVERTED, SKIPPED, FAILED };
+
+
+  private static class Job
+  {
+    private File                   srcFile;
+    private File                   outSubDir;
+    private File                   outFile;
+    private Status                 status;
+    private String                 msg;
+    private java.util.List<String> logLines;
+
+    private Job( File srcFile, File outSubDir )
+    {
+      this.srcFile   = srcFile;
+      this.outSubDir = outSubDir;
+      this.outFile   = null;
+      this.status    = Status.FAILED;
+      this.msg       = null;
+      this.logLines  = new ArrayList<>();
+    }
+
+    private void addLogText( String text )
+    {
+      if( text != null ) {
+	for( String line : text.split( "\n" ) ) {
+	  line = line.trim();
+	  if( !line.isEmpty() ) {
+	    this.logLines.add( line );
+	  }
+	}
+      }
+    }
+  };
+
+
+  /*
+   * Parameter einer Konvertierung,
+   * die aus der Quelldatei und dem Zielformat ermittelt werden
+   */
+  private static class BatchParams implements ConvertParams
+  {
+    private ConvertSource source;
+    private String        fileDesc;
+    private String        fileType;
+    private String        remark;
+
+    private BatchParams()
+    {
+      this.source   = null;
+      this.fileDesc = null;
+      this.fileType = null;
+      this.remark   = null;
+    }
+
+    private void setSource(
+			ConvertSource         source,
+			AbstractConvertTarget target )
+    {
+      this.source   = source;
+      this.fileType = ConvertSource.strip( target.getDefaultFileType() );
+
+      this.fileDesc = source.getOrgFileDesc();
+      if( (this.fileDesc != null)
+	  && (this.fileType != null)
+	  && (source.getOrgFileTypeChar() < 0) )
+      {
+	String upperExt = "." + this.fileType.toUpperCase();
+	if( this.fileDesc.toUpperCase().endsWith( upperExt ) ) {
+	  int len = this.fileDesc.length() - upperExt.length();
+	  if( len > 0 ) {
+	    this.fileDesc = this.fileDesc.substring( 0, len );
+	  }
+	}
+      }
+      this.fileDesc = truncate( this.fileDesc, target.getMaxFileDescLength() );
+      this.remark   = truncate(
+			source.getOrgRemark(),
+			target.getMaxRemarkLength() );
+    }
+
+    @Override
+    public int getBegAddr( boolean mandatory ) throws UserInputException
+    {
+      int rv = this.source.getBegAddr();
+      if( (rv < 0) && mandatory ) {
+	throw new UserInputException(
+		"Anfangsadresse in der Quelldatei nicht enthalten" );
+      }
+      return rv;
+    }
+
+    @Override
+    public String getFileDesc()
+    {
+      return this.fileDesc;
+    }
+
+    @Override
+    public String getFileDesc( boolean mandatory ) throws UserInputException
+    {
+      if( (this.fileDesc == null) && mandatory ) {
+	throw new UserInputException( "Bezeichnung nicht ermittelbar" );
+      }
+      return this.fileDesc;
+    }
+
+    @Override
+    public String getFileType()
+    {
+      return this.fileType;
+    }
+
+    @Override
+    public int getFileTypeChar( boolean mandatory ) throws UserInputException
+    {
+      int rv = -1;
+      if( this.fileType != null ) {
+	rv = this.fileType.charAt( 0 );
+	if( (rv <= 0x20) || (rv >= 0x7F) ) {
+	  rv = -1;
+	}
+      }
+      if( (rv < 0) && mandatory ) {
+	throw new UserInputException( "Typ nicht ermittelbar" );
+      }
+      return rv;
+    }
+
+    @Override
+    public int getOrgFileTypeChar()
+    {
+      return this.source.getOrgFileTypeChar();
+    }
+
+    @Override
+    public boolean getOrgIsBasicPrg()
+    {
+      return this.source.getOrgIsBasicPrg();
+    }
+
+    @Override
+    public int getOrgStartAddr()
+    {
+      return this.source.getOrgStartAddr();
+    }
+
+    @Override
+    public String getRemark()
+    {
+      return this.remark;
+    }
+
+    @Override
+    public int getStartAddr( boolean mandatory ) throws UserInputException
+    {
+      int rv = this.source.getOrgStartAddr();
+      if( (rv < 0) && mandatory ) {
+	throw new UserInputException(
+		"Startadresse in der Quelldatei nicht enthalten" );
+      }
+      return rv;
+    }
+
+    private static String truncate( String text, int maxLen )
+    {
+      if( (text != null) && (maxLen > 0) && (text.length() > maxLen) ) {
+	text = text.substring( 0, maxLen ).trim();
+      }
+      return text;
+    }
+  };
+
+
+  private String                 targetSpec;
+  private File                   outDir;
+  private boolean                overwrite;
+  private int                    nThreads;
+  private java.util.List<Job>    jobs;
+  private Set<File>              outFiles;
+  private AtomicInteger          threadNum;
+
+
+  /*
+   * targetSpec: Dateiendung oder Anfang der Formatbeschreibung
+   * outDir:     Ausgabeverzeichnis oder null fuer neben der Quelldatei
+   */
+  public BatchFileConverter(
+			String  targetSpec,
+			File    outDir,
+			boolean overwrite,
+			int     nThreads )
+  {
+    this.targetSpec = targetSpec;
+    this.outDir     = outDir;
+    this.overwrite  = overwrite;
+    this.nThreads   = Math.max( nThreads, 1 );
+    this.jobs       = new ArrayList<>();
+    this.outFiles   = new HashSet<>();
+    this.threadNum  = new AtomicInteger();
+  }
+
+
+  /*
+   * Konvertieren der Dateien und Verzeichnisbaeume
+   *
+   * Rueckgabewert: Bericht
+   */
+  public String convert(
+			java.util.List<File> srcFiles,
+			boolean              withSkipped ) throws IOException
+  {
+    long begMillis = System.currentTimeMillis();
+
+    // zuerst die Dateien ermitteln
+    for( File srcFile : srcFiles ) {
+      if( srcFile.isDirectory() ) {
+	collectFiles( srcFile );
+      } else if( srcFile.exists() ) {
+	addJob( srcFile, null );
+      } else {
+	throw new IOException(
+			srcFile.getPath() + ": Datei nicht gefunden" );
+      }
+    }
+
+    // Dateien parallel konvertieren
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+		this.nThreads,
+		this.nThreads,
+		1,
+		TimeUnit.SECONDS,
+		new ArrayBlockingQueue<Runnable>(
+				this.nThreads * QUEUE_SIZE_PER_THREAD ),
+		new ThreadFactory()
+		{
+		  @Override
+		  public Thread newThread( Runnable r )
+		  {
+		    return new Thread(
+			Main.getThreadGroup(),
+			r,
+			"JKCEMU file converter "
+				+ threadNum.incrementAndGet() );
+		  }
+		},
+		new ThreadPoolExecutor.CallerRunsPolicy() );
+    try {
+      for( final Job job : this.jobs ) {
+	executor.execute(
+		new Runnable()
+		{
+		  @Override
+		  public void run()
+		  {
+		    convert( job );
+		  }
+		} );
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+    try {
+      while( !executor.awaitTermination( 1, TimeUnit.SECONDS ) ) {}
+    }
+    catch( InterruptedException ex ) {
+      executor.shutdownNow();
+      throw new IOException( "Konvertierung abgebrochen" );
+    }
+    return createReport(
+		withSkipped,
+		System.currentTimeMillis() - begMillis );
+  }
+
+
+  public static boolean execute( String[] args, int argIdx )
+  {
+    boolean              status     = false;
+    boolean              helpFlag   = false;
+    boolean              overwrite  = false;
+    boolean              verbose    = false;
+    int                  nThreads   = Runtime.getRuntime()
+						.availableProcessors();
+    String               targetSpec = null;
+    String               outDirName = null;
+    java.util.List<File> srcFiles   = new ArrayList<>();
+
+    // AWT darf nicht initialisiert werden
+    System.setProperty( "java.awt.headless", "true" );
+
+    CmdLineArgIterator backIter = null;
+    CmdLineArgIterator iter     = CmdLineArgIterator.createFromStringArray(
+								args,
+								argIdx );
+    try {
+      String arg = iter.next();
+      while( arg != null ) {
+	if( !arg.isEmpty() ) {
+	  if( (arg.length() == 2) && (arg.charAt( 0 ) == '-') ) {
+	    switch( arg.charAt( 1 ) ) {
+	      case 'f':
+		{
+		  if( backIter != null ) {
+		    throw new IOException(
+			"Option -f in der Datei nicht erlaubt" );
+		  }
+		  String fileName = nextArg( iter );
+		  backIter = iter;
+		  iter     = CmdLineArgIterator.createFromReader(
+					new FileReader( fileName ) );
+		}
+		break;
+	      case 'h':
+	      case 'H':
+		helpFlag = true;
+		break;
+	      case 'j':
+		nThreads = parseCount( nextArg( iter ) );
+		break;
+	      case 'o':
+		outDirName = nextArg( iter );
+		break;
+	      case 't':
+		targetSpec = nextArg( iter );
+		break;
+	      case 'v':
+		verbose = true;
+		break;
+	      case 'y':
+		overwrite = true;
+		break;
+	      default:
+		throw new IOException( "Unbekannte Option \'" + arg + "\'" );
+	    }
+	  } else {
+	    srcFiles.add( new File( arg ) );
+	  }
+	}
+	arg = iter.next();
+	if( (arg == null) && (backIter != null) ) {
+	  EmuUtil.closeSilently( iter );
+	  iter     = backIter;
+	  backIter = null;
+	  arg      = iter.next();
+	}
+      }
+      if( helpFlag ) {
+	Main.printlnOut();
+	Main.printlnOut( Main.APPINFO + " Stapelkonvertierung" );
+	for( String s : usageLines ) {
+	  Main.printlnOut( s );
+	}
+	status = true;
+      } else {
+	if( targetSpec == null ) {
+	  throw new IOException( "Zielformat nicht angegeben" );
+	}
+	if( srcFiles.isEmpty() ) {
+	  throw new IOException( "Keine Quelldateien angegeben" );
+	}
+	File outDir = null;
+	if( outDirName != null ) {
+	  outDir = new File( outDirName );
+	  if( outDir.exists() ) {
+	    if( !outDir.isDirectory() ) {
+	      throw new IOException( outDirName + ": Kein Verzeichnis" );
+	    }
+	  } else if( !outDir.mkdirs() && !outDir.isDirectory() ) {
+	    throw new IOException(
+			outDirName
+				+ ": Verzeichnis kann nicht angelegt werden" );
+	  }
+	}
+	BatchFileConverter converter = new BatchFileConverter(
+							targetSpec,
+							outDir,
+							overwrite,
+							nThreads );
+	Main.printOut( converter.convert( srcFiles, verbose ) );
+	status = (converter.getFailedCount() == 0);
+      }
+    }
+    catch( IOException ex ) {
+      Main.printlnErr();
+      Main.printlnErr( Main.APPINFO + " Stapelkonvertierung:" );
+      String msg = ex.getMessage();
+      if( msg != null ) {
+	if( !msg.isEmpty() ) {
+	  Main.printlnErr( msg );
+	}
+      }
+      for( String s : usageLines ) {
+	Main.printlnErr( s );
+      }
+      status = false;
+    }
+    finally {
+      EmuUtil.closeSilently( iter );
+    }
+    return status;
+  }
+
+
+  public int getFailedCount()
+  {
+    return getCount( Status.FAILED );
+  }
+
+
+	/* --- private Methoden --- */
+
+  private void addJob( File srcFile, File outSubDir )
+  {
+    this.jobs.add( new Job( srcFile, outSubDir ) );
+  }
+
+
+  private void collectFiles( final File rootDir ) throws IOException
+  {
+    final Path rootPath = rootDir.toPath();
+    final Path outPath  = (this.outDir != null ?
+				this.outDir.getAbsoluteFile().toPath()
+				: null);
+    Files.walkFileTree(
+		rootPath,
+		new SimpleFileVisitor<Path>()
+		{
+		  @Override
+		  public FileVisitResult preVisitDirectory(
+					Path                dir,
+					BasicFileAttributes attrs )
+		  {
+		    FileVisitResult rv = FileVisitResult.CONTINUE;
+		    if( outPath != null ) {
+		      if( dir.toAbsolutePath().equals( outPath ) ) {
+			rv = FileVisitResult.SKIP_SUBTREE;
+		      }
+		    }
+		    return rv;
+		  }
+
+		  @Override
+		  public FileVisitResult visitFile(
+					Path                file,
+					BasicFileAttributes attrs )
+		  {
+		    if( attrs.isRegularFile() ) {
+		      File outSubDir = null;
+		      if( outDir != null ) {
+			Path relDir = rootPath.relativize( file ).getParent();
+			outSubDir   = (relDir != null ?
+					new File( outDir, relDir.toString() )
+					: outDir);
+		      }
+		      addJob( file.toFile(), outSubDir );
+		    }
+		    return FileVisitResult.CONTINUE;
+		  }
+
+		  @Override
+		  public FileVisitResult visitFileFailed(
+					Path        file,
+					IOException ex )
+		  {
+		    return FileVisitResult.CONTINUE;
+		  }
+		} );
+  }
+
+
+  private void convert( Job job )
+  {
+    java.util.List<String> diskErrors = new ArrayList<>();
+    ConvertSource          source     = null;
+    try {
+      BatchParams params = new BatchParams();
+      source             = ConvertSource.analyze( null, job.srcFile, params );
+      AbstractConvertTarget target = findTarget(
+						job,
+						source.getTargets() );
+      if( target == null ) {
+	job.status = Status.SKIPPED;
+	job.msg    = "Zielformat f\u00FCr diese Datei nicht m\u00F6glich";
+      } else {
+	params.setSource( source, target );
+	AbstractFloppyDisk disk = source.getDisk();
+	if( disk != null ) {
+	  disk.setErrorMsgList( diskErrors );
+	}
+	File outFile = target.getSuggestedOutFile( job.srcFile );
+	if( outFile == null ) {
+	  throw new IOException( "Ausgabedatei nicht ermittelbar" );
+	}
+	if( job.outSubDir != null ) {
+	  outFile = new File( job.outSubDir, outFile.getName() );
+	} else if( this.outDir != null ) {
+	  outFile = new File( this.outDir, outFile.getName() );
+	}
+	job.outFile = outFile;
+	if( outFile.getAbsoluteFile().equals(
+				job.srcFile.getAbsoluteFile() ) )
+	{
+	  job.status = Status.SKIPPED;
+	  job.msg    = "Quelldatei hat bereits das Zielformat";
+	} else if( !reserveOutFile( outFile ) ) {
+	  job.status = Status.SKIPPED;
+	  job.msg    = "Ausgabedatei wird bereits aus einer anderen"
+				+ " Quelldatei erzeugt";
+	} else if( outFile.exists() && !this.overwrite ) {
+	  job.status = Status.SKIPPED;
+	  job.msg    = "Ausgabedatei existiert bereits";
+	} else {
+	  File parent = outFile.getParentFile();
+	  if( parent != null ) {
+	    parent.mkdirs();
+	  }
+	  job.addLogText( source.getInfoMsg() );
+	  job.addLogText( target.save( outFile ) );
+	  synchronized( diskErrors ) {
+	    job.logLines.addAll( diskErrors );
+	    job.status = (diskErrors.isEmpty() ?
+				Status.CONVERTED
+				: Status.FAILED);
+	  }
+	}
+      }
+    }
+    catch( IOException | UserInputException ex ) {
+      job.status = Status.FAILED;
+      job.msg    = ex.getMessage();
+    }
+    catch( RuntimeException ex ) {
+      job.status = Status.FAILED;
+      job.msg    = ex.toString();
+    }
+    finally {
+      if( source != null ) {
+	source.close();
+      }
+    }
+  }
+
+
+  private String createReport( boolean withSkipped, long millis )
+  {
+    java.util.List<Job> jobs = new ArrayList<>( this.jobs );
+    Collections.sort(
+		jobs,
+		new java.util.Comparator<Job>()
+		{
+		  @Override
+		  public int compare( Job j1, Job j2 )
+		  {
+		    return j1.srcFile.getPath().compareTo(
+						j2.srcFile.getPath() );
+		  }
+		} );
+    StringBuilder buf = new StringBuilder( 256 + (jobs.size() * 80) );
+    for( Job job : jobs ) {
+      if( withSkipped || (job.status != Status.SKIPPED) ) {
+	switch( job.status ) {
+	  case CONVERTED:
+	    buf.append( "OK      " );
+	    break;
+	  case SKIPPED:
+	    buf.append( "---     " );
+	    break;
+	  default:
+	    buf.append( "FEHLER  " );
+	}
+	buf.append( job.srcFile.getPath() );
+	if( (job.status == Status.CONVERTED) && (job.outFile != null) ) {
+	  buf.append( " -> " );
+	  buf.append( job.outFile.getPath() );
+	}
+	if( job.msg != null ) {
+	  buf.append( ": " );
+	  buf.append( job.msg );
+	}
+	buf.append( '\n' );
+	for( String line : job.logLines ) {
+	  buf.append( "        " );
+	  buf.append( line );
+	  buf.append( '\n' );
+	}
+      }
+    }
+    if( buf.length() > 0 ) {
+      buf.append( '\n' );
+    }
+    buf.append(
+	String.format(
+		"%d Datei(en) konvertiert, %d \u00FCbersprungen,"
+			+ " %d fehlerhaft (%d.%01d s)\n",
+		getCount( Status.CONVERTED ),
+		getCount( Status.SKIPPED ),
+		getCount( Status.FAILED ),
+		millis / 1000,
+		(millis % 1000) / 100 ) );
+    return buf.toString();
+  }
+
+
+  /*
+   * Ermitteln des Konvertierungsziels
+   *
+   * Passen mehrere Ziele, wird das mit der exakt
+   * uebereinstimmenden Formatbeschreibung genommen.
+   */
+  private AbstractConvertTarget findTarget(
+		Job                                   job,
+		java.util.List<AbstractConvertTarget> targets )
+							throws IOException
+  {
+    AbstractConvertTarget  rv      = null;
+    String                 spec    = this.targetSpec.toLowerCase();
+    String                 extSpec = (spec.startsWith( "." ) ?
+							spec
+							: "." + spec);
+    java.util.List<AbstractConvertTarget> matches = new ArrayList<>();
+    for( AbstractConvertTarget target : targets ) {
+      String text = target.toString();
+      if( text.equals( this.targetSpec ) ) {
+	matches.clear();
+	matches.add( target );
+	break;
+      }
+      File file = target.getSuggestedOutFile( job.srcFile );
+      if( ((file != null)
+		&& file.getName().toLowerCase().endsWith( extSpec ))
+	  || text.toLowerCase().startsWith( spec ) )
+      {
+	matches.add( target );
+      }
+    }
+    if( matches.size() == 1 ) {
+      rv = matches.get( 0 );
+    } else if( matches.size() > 1 ) {
+      for( AbstractConvertTarget target : matches ) {
+	job.logLines.add( target.toString() );
+      }
+      throw new IOException( "Zielformat mehrdeutig, in Frage kommen:" );
+    }
+    return rv;
+  }
+
+
+  private synchronized int getCount( Status status )
+  {
+    int rv = 0;
+    for( Job job : this.jobs ) {
+      if( job.status == status ) {
+	rv++;
+      }
+    }
+    return rv;
+  }
+
+
+  private static String nextArg( CmdLineArgIterator iter )
+							throws IOException
+  {
+    String rv = iter.next();
+    if( rv == null ) {
+      throw new IOException( "Kommandozeile fehlerhaft" );
+    }
+    return rv;
+  }
+
+
+  private static int parseCount( String text ) throws IOException
+  {
+    int rv = -1;
+    try {
+      rv = Integer.parseInt( text );
+    }
+    catch( NumberFormatException ex ) {}
+    if( rv < 1 ) {
+      throw new IOException( text + ": Ung\u00FCltige Anzahl" );
+    }
+    return rv;
+  }
+
+
+  private synchronized boolean reserveOutFile( File outFile )
+  {
+    return this.outFiles.add( outFile.getAbsoluteFile() );
+  }
+}
@@ -27,7 +27,7 @@ public class BinFileTarget extends AbstractConvertTarget
 
 
   public BinFileTarget(
-		FileConvertFrm fileConvertFrm,
+		ConvertParams  params,
 		byte[]         dataBytes,
 		int            offs,
 		int            len,
@@ -35,7 +35,7 @@ public class BinFileTarget extends AbstractConvertTarget
 		int            endAddr,
 		int            startAddr )
   {
-    super( fileConvertFrm, "Einfache Speicherabbilddatei (*.bin)" );
+    super( params, "Einfache Speicherabbilddatei (*.bin)" );
     this.dataBytes = dataBytes;
     this.offs      = offs;
     this.len       = len;
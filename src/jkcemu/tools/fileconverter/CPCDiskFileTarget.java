@@ -21,10 +21,10 @@ public class CPCDiskFileTarget extends AbstractConvertTarget
 
 
   public CPCDiskFileTarget(
-			FileConvertFrm     fileConvertFrm,
+			ConvertParams      params,
 			AbstractFloppyDisk disk )
   {
-    super( fileConvertFrm, "CPC-Disk-Datei (*.dsk)" );
+    super( params, "CPC-Disk-Datei (*.dsk)" );
     this.disk = disk;
   }
 
@@ -22,10 +22,10 @@ public class CSWFileTarget extends AbstractConvertTarget
 
 
   public CSWFileTarget(
-		FileConvertFrm  fileConvertFrm,
+		ConvertParams   params,
 		BitSampleBuffer samples )
   {
-    super( fileConvertFrm,
+    super( params,
 	"CSW-Datei (" + CSWFile.getFileExtensionText() + ")" );
     this.samples     = samples;
     this.fileFilters = null;
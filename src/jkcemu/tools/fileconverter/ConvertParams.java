@@ -0,0 +1,31 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Kleincomputer-Emulator
+ *
+ * Interface fuer die Parameter, die die Konvertierungsziele
+ * beim Speichern abfragen
+ *
+ * Im Dateikonverter liefert das Fenster die eingegebenen Werte,
+ * bei der Stapelkonvertierung werden die aus der Quelldatei
+ * ermittelten Werte verwendet.
+ */
+
+package jkcemu.tools.fileconverter;
+
+import jkcemu.base.UserInputException;
+
+
+public interface ConvertParams
+{
+  public int getBegAddr( boolean mandatory ) throws UserInputException;
+  public String getFileDesc();
+  public String getFileDesc( boolean mandatory ) throws UserInputException;
+  public String getFileType();
+  public int getFileTypeChar( boolean mandatory ) throws UserInputException;
+  public int getOrgFileTypeChar();
+  public boolean getOrgIsBasicPrg();
+  public int getOrgStartAddr();
+  public String getRemark();
+  public int getStartAddr( boolean mandatory ) throws UserInputException;
+}
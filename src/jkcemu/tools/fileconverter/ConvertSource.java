@@ -0,0 +1,657 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Kleincomputer-Emulator
+ *
+ * Analyse einer Quelldatei des Dateikonverters
+ *
+ * Es wird ermittelt, um was fuer eine Datei es sich handelt,
+ * welche Werte (Bezeichnung, Adressen usw.) sie enthaelt
+ * und in welche Formate sie konvertiert werden kann.
+ * Die Analyse benoetigt kein Fenster, sodass sie auch
+ * bei der Stapelkonvertierung verwendet werden kann.
+ */
+
+package jkcemu.tools.fileconverter;
+
+import java.awt.Frame;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import jkcemu.audio.AudioFile;
+import jkcemu.audio.AudioUtil;
+import jkcemu.audio.BitSampleBuffer;
+import jkcemu.audio.CSWFile;
+import jkcemu.audio.PCMDataInfo;
+import jkcemu.disk.AbstractFloppyDisk;
+import jkcemu.disk.AnaDisk;
+import jkcemu.disk.CPCDisk;
+import jkcemu.disk.CopyQMDisk;
+import jkcemu.disk.DiskUtil;
+import jkcemu.disk.FloppyDiskFormat;
+import jkcemu.disk.FloppyDiskFormatDlg;
+import jkcemu.disk.ImageDisk;
+import jkcemu.disk.PlainDisk;
+import jkcemu.disk.TeleDisk;
+import jkcemu.emusys.zxspectrum.ZXSpectrumAudioCreator;
+import jkcemu.file.FileFormat;
+import jkcemu.file.FileInfo;
+import jkcemu.file.FileUtil;
+import jkcemu.file.LoadData;
+import jkcemu.text.TextUtil;
+
+
+class ConvertSource
+{
+  private static final int MAX_MEM_FILE_SIZE  = 0x40000;	// 256 KByte
+  private static final int MAX_DISK_FILE_SIZE = 0x200000;	// 2 MByte
+  private static final int MAX_TAPE_FILE_SIZE = 0x100000;	// 1 MByte
+
+  private String                                infoText;
+  private String                                infoMsg;
+  private String                                orgFileDesc;
+  private int                                   orgFileTypeChar;
+  private int                                   orgStartAddr;
+  private String                                orgRemark;
+  private boolean                               orgIsBasicPrg;
+  private int                                   begAddr;
+  private AbstractFloppyDisk                    disk;
+  private java.util.List<AbstractConvertTarget> targets;
+
+
+  /*
+   * Analysieren einer Quelldatei
+   *
+   * Die ermittelten Konvertierungsziele fragen beim Speichern
+   * die uebergebenen Parameter ab.
+   * Ist owner null, wird bei einer einfachen Diskettenabbilddatei
+   * kein Dialog angezeigt, sondern das Diskettenformat
+   * anhand der Dateigroesse ermittelt.
+   */
+  static ConvertSource analyze(
+			Frame         owner,
+			File          file,
+			ConvertParams params ) throws IOException
+  {
+    if( !file.isFile() || !file.canRead() ) {
+      throw new IOException(
+		file.getPath() +  ": Nicht gefunden oder nicht lesbar" );
+    }
+    ConvertSource rv = new ConvertSource();
+
+    String             infoMsg      = null;
+    AbstractFloppyDisk disk         = null;
+    int                begAddr      = -1;
+    int                kcbasicOffs  = 0;
+    int                kcbasicLen   = 0;
+    int                dataOffs     = 0;
+    int                dataLen      = 0;
+    byte[]             dataBytes    = null;
+    byte[]             kcbasicBytes = null;
+    byte[]             fileBytes    = null;
+    FileFormat         fileFmt      = null;
+    boolean            multiTAP     = false;
+
+    // Dateiname
+    String fExt  = null;
+    String fName = file.getName();
+    if( fName != null ) {
+      if( !fName.isEmpty() ) {
+	/*
+	 * Dateibasisname als Bezeichnung uebernehmen,
+	 * Wenn ein Grossbuchstabe enthalten ist,
+	 * dann die Gross-/Kleinschreibung des Basisnamen beibehalten,
+	 * anderenfalls alles gross wandeln,
+	 */
+	String tmpName = fName;
+	int pos = tmpName.lastIndexOf( '.' );
+	if( pos >= 0 ) {
+	  tmpName = tmpName.substring( 0, pos );
+	}
+	int len = tmpName.length();
+	if( len > 0 ) {
+	  boolean hasUpper = false;
+	  for( int i = 0; i < len; i++ ) {
+	    if( Character.isUpperCase( tmpName.charAt( i ) ) ) {
+	      hasUpper = true;
+	      break;
+	    }
+	  }
+	  if( hasUpper ) {
+	    rv.orgFileDesc = tmpName;
+	  } else {
+	    rv.orgFileDesc = tmpName.toUpperCase();
+	  }
+	}
+      }
+      fName = fName.toLowerCase();
+      if( fName != null ) {
+	int pos = fName.lastIndexOf( '.' );
+	if( (pos > 0) && ((pos + 1) < fName.length()) ) {
+	  fExt = fName.substring( pos + 1 );
+	}
+      }
+    }
+
+    // Datei analysieren
+    StringBuilder infoBuf = new StringBuilder( 128 );
+    boolean       done    = false;
+
+    // Sound-Datei pruefen
+    try {
+      PCMDataInfo info = AudioFile.getInfo( file );
+      infoBuf.append( "Sound-Datei" );
+      infoBuf.append( ", " );
+      AudioUtil.appendAudioFormatText( infoBuf, info );
+
+      /*
+       * Ausgabeformate ermitteln, in die konverttiert werden kann,
+       * das eigene Format dabei ausblenden
+       */
+      rv.targets.add( new AudioFileTarget( params, file ) );
+      done = true;
+    }
+    catch( IOException ex2 ) {}
+
+    // Dateiextension pruefen
+    if( !done && (fName != null) ) {
+      if( fName.endsWith( ".bin" ) || fName.endsWith( ".rom" ) ) {
+	infoBuf.append( "Einfache Speicherabbilddatei" );
+	int[] addrs = FileUtil.extractAddressesFromFileName( fName );
+	if( addrs != null ) {
+	  if( addrs.length > 0 ) {
+	    begAddr = addrs[ 0 ];
+	    rv.begAddr = begAddr;
+	  }
+	  if( addrs.length > 2 ) {
+	    rv.orgStartAddr = addrs[ 2 ];
+	  }
+	}
+	fileFmt   = FileFormat.BIN;
+	fileBytes = FileUtil.readFile(
+				    file,
+				    false,
+				    MAX_MEM_FILE_SIZE );
+	if( fileBytes != null ) {
+	  dataBytes = fileBytes;
+	  dataLen   = fileBytes.length;
+	}
+	done = true;
+      }
+      else if( TextUtil.endsWith( fName, DiskUtil.plainDiskFileExt ) ) {
+	disk = getPlainFloppyDisk( owner, file );
+	if( disk != null ) {
+	  infoBuf.append( "Einfache Diskettenabbildddtei" );
+	}
+	done = true;
+      }
+      else if( TextUtil.endsWith( fName, DiskUtil.gzPlainDiskFileExt ) ) {
+	disk = getPlainFloppyDisk( owner, file );
+	if( disk != null ) {
+	  infoBuf.append( "Komprimierte einfache Diskettenabbildddtei" );
+	}
+	done = true;
+      }
+    }
+
+    // Diskettenabbilddatei pruefen
+    if( !done ) {
+      disk = DiskUtil.readNonPlainDiskFile( owner, file, true );
+      if( disk != null ) {
+	String fileFmtText = disk.getFileFormatText();
+	if( fileFmtText == null ) {
+	  fileFmtText = "Diskettenabbilddatei";
+	}
+	infoBuf.append( fileFmtText );
+	if( fName.endsWith( ".gz" ) ) {
+	  infoBuf.append( " (GZip-komprimiert)" );
+	}
+	rv.orgRemark = strip( disk.getRemark() );
+	done           = true;
+      }
+    }
+
+    // Speicherabbilddatei pruefen
+    if( !done ) {
+      if( fileBytes == null ) {
+	fileBytes = FileUtil.readFile( file, false, MAX_MEM_FILE_SIZE );
+      }
+      if( fileBytes != null ) {
+	FileInfo fileInfo = FileInfo.analyzeFile( fileBytes, file );
+	if( fileInfo != null ) {
+	  fileFmt = fileInfo.getFileFormat();
+	  if( fileFmt != null ) {
+	    infoBuf.append( fileInfo.getInfoText() );
+	    String fileDesc = fileInfo.getFileDesc();
+	    if( fileDesc != null ) {
+	      if( !fileDesc.isEmpty() ) {
+		rv.orgFileDesc = fileDesc;
+	      }
+	    }
+	    rv.orgFileTypeChar = fileInfo.getFileType();
+	    begAddr              = fileInfo.getBegAddr();
+	    if( (fileFmt.equals( FileFormat.HEADERSAVE )
+				    && (rv.orgFileTypeChar == 'B')
+				    && (begAddr == 0x0401))
+		|| fileFmt.equals( FileFormat.KCB )
+		|| fileFmt.equals( FileFormat.KCB_BLKN )
+		|| fileFmt.equals( FileFormat.KCB_BLKN_CKS )
+		|| fileFmt.equals( FileFormat.KCTAP_BASIC_PRG )
+		|| fileFmt.equals( FileFormat.KCBASIC_HEAD_PRG )
+		|| fileFmt.equals( FileFormat.KCBASIC_HEAD_PRG_BLKN )
+		|| fileFmt.equals( FileFormat.KCBASIC_HEAD_PRG_BLKN_CKS )
+		|| fileFmt.equals( FileFormat.KCBASIC_PRG ) )
+	    {
+	      try {
+		LoadData loadData = fileInfo.createLoadData( fileBytes );
+		if( loadData != null ) {
+		  // Info-Message bei KC-BASIC ignorieren!
+		  kcbasicBytes = loadData.getByteArray();
+		  kcbasicOffs  = loadData.getOffset();
+		  kcbasicLen   = loadData.getLength();
+		  if( (kcbasicBytes != null) && (kcbasicLen > 0) ) {
+		    rv.orgIsBasicPrg = true;
+		  }
+		}
+	      }
+	      catch( IOException ex ) {}
+	    }
+	    if( fileFmt.equals( FileFormat.KCB ) ) {
+	      fileFmt = FileFormat.KCC;
+	    }
+	    else if( fileFmt.equals( FileFormat.KCB_BLKN ) ) {
+	      fileFmt = FileFormat.KCC_BLKN;
+	    }
+	    else if( fileFmt.equals( FileFormat.KCB_BLKN_CKS ) ) {
+	      fileFmt = FileFormat.KCC_BLKN_CKS;
+	    }
+	    if( fileFmt.equals( FileFormat.HEADERSAVE )
+		|| fileFmt.equals( FileFormat.INTELHEX )
+		|| fileFmt.equals( FileFormat.KCC )
+		|| fileFmt.equals( FileFormat.KCC_BLKN )
+		|| fileFmt.equals( FileFormat.KCC_BLKN_CKS )
+		|| fileFmt.equals( FileFormat.KCTAP_SYS )
+		|| fileFmt.equals( FileFormat.KCTAP_Z9001 )
+		|| fileFmt.equals( FileFormat.KCTAP_KC85 ) )
+	    {
+	      try {
+		LoadData loadData = FileInfo.createLoadData(
+						    fileBytes,
+						    fileFmt );
+		if( loadData != null ) {
+		  infoMsg           = loadData.getInfoMsg();
+		  dataBytes         = loadData.getByteArray();
+		  dataOffs          = loadData.getOffset();
+		  dataLen           = loadData.getLength();
+		  begAddr           = loadData.getBegAddr();
+		  rv.orgStartAddr = loadData.getStartAddr();
+		  rv.begAddr = begAddr;
+		}
+	      }
+	      catch( IOException ex ) {}
+	    }
+	    if( (fileInfo.getNextTAPOffset() > 0)
+		&& ((kcbasicBytes != null) || (dataBytes != null)) )
+	    {
+	      infoMsg = "Die Quelldatei ist eine Mutli-KC-TAP-Datei."
+		    + " Au\u00DFer bei\n\'"
+		    + KCAudioMultiFileTarget.INFO_TEXT
+		    + "\'\nwird bei allen anderen Ausgangsformaten"
+		    + " nur die erste Teildatei verarbeitet.";
+	    }
+	  }
+	}
+	done = true;
+      }
+    }
+    if( !done ) {
+      int pos = fName.lastIndexOf( "." );
+      if( (pos >= 0) && ((pos + 1) < fName.length()) ) {
+	infoBuf.append( fName.substring( pos + 1 ).toUpperCase() );
+	infoBuf.append( "-Datei" );
+      }
+    }
+    if( disk != null ) {
+      infoMsg = disk.getWarningText();
+      if( !(disk instanceof PlainDisk) ) {
+	rv.targets.add( new PlainDiskFileTarget( params, disk ) );
+      }
+      if( !(disk instanceof AnaDisk) ) {
+	rv.targets.add( new AnaDiskFileTarget( params, disk ) );
+      }
+      if( !(disk instanceof CopyQMDisk) ) {
+	rv.targets.add( new CopyQMFileTarget( params, disk ) );
+      }
+      if( !(disk instanceof CPCDisk) ) {
+	rv.targets.add( new CPCDiskFileTarget( params, disk ) );
+      }
+      if( !(disk instanceof ImageDisk) ) {
+	rv.targets.add( new ImageDiskFileTarget( params, disk ) );
+      }
+      if( !(disk instanceof TeleDisk) ) {
+	rv.targets.add( new TeleDiskFileTarget( params, disk ) );
+      }
+    }
+    if( fileFmt != null ) {
+      if( kcbasicBytes != null ) {
+	if( !fileFmt.equals( FileFormat.KCBASIC_PRG ) ) {
+	  rv.targets.add(
+		    new KCBasicFileTarget(
+				    params,
+				    kcbasicBytes,
+				    kcbasicOffs,
+				    kcbasicLen ) );
+	}
+	if( !fileFmt.equals( FileFormat.KCB ) ) {
+	  rv.targets.add(
+		    new KCBasicSystemFileTarget(
+				    params,
+				    kcbasicBytes,
+				    kcbasicOffs,
+				    kcbasicLen ) );
+	}
+	if( !fileFmt.equals( FileFormat.KCTAP_BASIC_PRG ) ) {
+	  rv.targets.add(
+		    new KCTapBasicFileTarget(
+				    params,
+				    kcbasicBytes,
+				    kcbasicOffs,
+				    kcbasicLen ) );
+	}
+	rv.targets.add(
+		    new KCAudioFileTarget(
+			    params,
+			    kcbasicBytes,
+			    kcbasicOffs,
+			    kcbasicLen,
+			    KCAudioFileTarget.Target.KCBASIC_PRG ) );
+      }
+      if( dataBytes != null ) {
+	if( !fileFmt.equals( FileFormat.BIN ) ) {
+	  rv.targets.add(
+		    new BinFileTarget(
+				    params,
+				    dataBytes,
+				    dataOffs,
+				    dataLen,
+				    begAddr,
+				    (begAddr + dataLen - 1) & 0xFFFF,
+				    rv.orgStartAddr ) );
+	}
+	if( !fileFmt.equals( FileFormat.HEADERSAVE ) ) {
+	  rv.targets.add(
+		    new HeadersaveFileTarget(
+				    params,
+				    dataBytes,
+				    dataOffs,
+				    dataLen ) );
+	}
+	if( !fileFmt.equals( FileFormat.INTELHEX ) ) {
+	  rv.targets.add(
+		    new IntelHexFileTarget(
+				    params,
+				    dataBytes,
+				    dataOffs,
+				    dataLen ) );
+	}
+	if( !fileFmt.equals( FileFormat.KCC ) ) {
+	  rv.targets.add(
+		    new KCSystemFileTarget(
+				    params,
+				    dataBytes,
+				    dataOffs,
+				    dataLen ) );
+	}
+	if( !fileFmt.equals( FileFormat.KCTAP_Z9001 ) ) {
+	  rv.targets.add(
+		    new KCTapSystemFileTarget(
+				    params,
+				    dataBytes,
+				    dataOffs,
+				    dataLen,
+				    true ) );
+	}
+	if( !fileFmt.equals( FileFormat.KCTAP_KC85 ) ) {
+	  rv.targets.add(
+		    new KCTapSystemFileTarget(
+				    params,
+				    dataBytes,
+				    dataOffs,
+				    dataLen,
+				    false ) );
+	}
+	boolean basic = false;
+	if( fileFmt.equals( FileFormat.BASIC_PRG ) ) {
+	  basic = true;
+	}
+	else if( fileFmt.equals( FileFormat.HEADERSAVE )
+		 && (rv.orgFileTypeChar == 'B') )
+	{
+	  basic = true;
+	}
+	rv.targets.add(
+		    new AC1AudioFileTarget(
+				    params,
+				    dataBytes,
+				    dataOffs,
+				    dataLen,
+				    basic ) );
+	rv.targets.add(
+		    new SCCHAudioFileTarget(
+				    params,
+				    dataBytes,
+				    dataOffs,
+				    dataLen ) );
+	rv.targets.add(
+		    new KCAudioFileTarget(
+			    params,
+			    dataBytes,
+			    dataOffs,
+			    dataLen,
+			    KCAudioFileTarget.Target.Z9001 ) );
+	rv.targets.add(
+		    new KCAudioFileTarget(
+			    params,
+			    dataBytes,
+			    dataOffs,
+			    dataLen,
+			    KCAudioFileTarget.Target.KC85 ) );
+	rv.targets.add(
+		    new Z1013AudioFileTarget(
+				    params,
+				    dataBytes,
+				    dataOffs,
+				    dataLen,
+				    false ) );
+	rv.targets.add(
+		    new Z1013AudioFileTarget(
+				    params,
+				    dataBytes,
+				    dataOffs,
+				    dataLen,
+				    true ) );
+      }
+      if( fileBytes != null ) {
+	if( FileInfo.isKCTapMagicAt( fileBytes, 0 ) ) {
+	  rv.targets.add(
+		    new KCAudioMultiFileTarget( params, fileBytes ) );
+	}
+      }
+      if( fileFmt.equals( FileFormat.CSW ) ) {
+	if( fileBytes == null ) {
+	  fileBytes = FileUtil.readFile(
+				    file,
+				    false,
+				    MAX_TAPE_FILE_SIZE );
+	}
+	if( fileBytes != null ) {
+	  BitSampleBuffer samples = CSWFile.getBitSampleBuffer(
+							    fileBytes,
+							    0 );
+	  rv.targets.add( new AudioFileTarget( params, samples ) );
+	  rv.targets.add(   new TZXFileTarget( params, samples ) );
+	}
+      }
+      if( fileFmt.equals( FileFormat.CDT )
+	  || fileFmt.equals( FileFormat.TZX )
+	  || fileFmt.equals( FileFormat.ZXTAP ) )
+      {
+	if( fileBytes == null ) {
+	  fileBytes = FileUtil.readFile(
+				    file,
+				    false,
+				    MAX_TAPE_FILE_SIZE );
+	}
+	if( fileBytes != null ) {
+	  BitSampleBuffer samples = new ZXSpectrumAudioCreator(
+						    fileBytes,
+						    0,
+						    fileBytes.length );
+	  rv.targets.add( new AudioFileTarget( params, samples ) );
+	  rv.targets.add(   new CSWFileTarget( params, samples ) );
+	}
+      }
+    }
+
+    rv.infoText = infoBuf.toString();
+    rv.infoMsg  = infoMsg;
+    rv.disk     = disk;
+    return rv;
+  }
+
+
+  /*
+   * Schliessen einer ggf. geoeffneten Diskettenabbilddatei,
+   * danach koennen die Konvertierungsziele nicht mehr verwendet werden
+   */
+  void close()
+  {
+    if( this.disk != null ) {
+      this.disk.closeSilently();
+    }
+  }
+
+
+  /*
+   * vorbelegte Anfangsadresse, -1 wenn unbekannt
+   */
+  int getBegAddr()
+  {
+    return this.begAddr;
+  }
+
+
+  AbstractFloppyDisk getDisk()
+  {
+    return this.disk;
+  }
+
+
+  String getInfoMsg()
+  {
+    return this.infoMsg;
+  }
+
+
+  String getInfoText()
+  {
+    return this.infoText;
+  }
+
+
+  String getOrgFileDesc()
+  {
+    return this.orgFileDesc;
+  }
+
+
+  int getOrgFileTypeChar()
+  {
+    return this.orgFileTypeChar;
+  }
+
+
+  boolean getOrgIsBasicPrg()
+  {
+    return this.orgIsBasicPrg;
+  }
+
+
+  String getOrgRemark()
+  {
+    return this.orgRemark;
+  }
+
+
+  int getOrgStartAddr()
+  {
+    return this.orgStartAddr;
+  }
+
+
+  java.util.List<AbstractConvertTarget> getTargets()
+  {
+    return this.targets;
+  }
+
+
+  static String strip( String text )
+  {
+    if( text != null ) {
+      text = text.trim();
+      if( text.isEmpty() ) {
+	text = null;
+      }
+    }
+    return text;
+  }
+
+
+	/* --- private Methoden --- */
+
+  private static AbstractFloppyDisk getPlainFloppyDisk(
+					Frame owner,
+					File  file ) throws IOException
+  {
+    AbstractFloppyDisk disk = null;
+    byte[] fileBytes = FileUtil.readFile( file, false, MAX_DISK_FILE_SIZE );
+    if( fileBytes != null ) {
+      FloppyDiskFormat fmt = FloppyDiskFormat.getFormatByDiskSize(
+							file.length() );
+      if( owner != null ) {
+	FloppyDiskFormatDlg dlg = new FloppyDiskFormatDlg(
+				owner,
+				true,
+				fmt,
+				FloppyDiskFormatDlg.Flag.PHYS_FORMAT );
+	dlg.setVisible( true );
+	fmt = dlg.getFormat();
+      }
+      if( fmt != null ) {
+	disk = PlainDisk.createForByteArray(
+					owner,
+					file.getPath(),
+					fileBytes,
+					fmt );
+      }
+    }
+    return disk;
+  }
+
+
+	/* --- Konstruktor --- */
+
+  private ConvertSource()
+  {
+    this.infoText        = "";
+    this.infoMsg         = null;
+    this.orgFileDesc     = null;
+    this.orgFileTypeChar = -1;
+    this.orgStartAddr    = -1;
+    this.orgRemark       = null;
+    this.orgIsBasicPrg   = false;
+    this.begAddr         = -1;
+    this.disk            = null;
+    this.targets         = new ArrayList<>();
+  }
+}
@@ -21,10 +21,10 @@ public class CopyQMFileTarget extends AbstractConvertTarget
 
 
   public CopyQMFileTarget(
-			FileConvertFrm     fileConvertFrm,
+			ConvertParams      params,
 			AbstractFloppyDisk disk )
   {
-    super( fileConvertFrm, "CopyQM-Datei (*.cqm)" );
+    super( params, "CopyQM-Datei (*.cqm)" );
     this.disk = disk;
   }
 
@@ -59,6 +59,6 @@ public class CopyQMFileTarget extends AbstractConvertTarget
     return CopyQMDisk.export(
 			this.disk,
 			file,
-			this.fileConvertFrm.getRemark() );
+			this.params.getRemark() );
   }
 }
@@ -43,10 +43,6 @@ import javax.swing.text.JTextComponent;
 import jkcemu.Main;
 import jkcemu.audio.AudioFile;
 import jkcemu.audio.AudioPlayFrm;
-import jkcemu.audio.AudioUtil;
-import jkcemu.audio.BitSampleBuffer;
-import jkcemu.audio.PCMDataInfo;
-import jkcemu.audio.CSWFile;
 import jkcemu.base.BaseDlg;
 import jkcemu.base.BaseFrm;
 import jkcemu.base.EmuUtil;
@@ -55,35 +51,18 @@ import jkcemu.base.HelpFrm;
 import jkcemu.base.HexDocument;
 import jkcemu.base.LimitedDocument;
 import jkcemu.base.UserInputException;
-import jkcemu.disk.AbstractFloppyDisk;
-import jkcemu.disk.AnaDisk;
-import jkcemu.disk.CPCDisk;
-import jkcemu.disk.CopyQMDisk;
-import jkcemu.disk.DiskUtil;
-import jkcemu.disk.FloppyDiskFormat;
-import jkcemu.disk.FloppyDiskFormatDlg;
-import jkcemu.disk.ImageDisk;
-import jkcemu.disk.PlainDisk;
-import jkcemu.disk.TeleDisk;
-import jkcemu.emusys.zxspectrum.ZXSpectrumAudioCreator;
-import jkcemu.file.FileFormat;
-import jkcemu.file.FileInfo;
+import jkcemu.file.DirSelectDlg;
 import jkcemu.file.FileNameFld;
 import jkcemu.file.FileUtil;
-import jkcemu.file.LoadData;
-import jkcemu.text.TextUtil;
 
 
 public class FileConvertFrm extends BaseFrm implements
+						ConvertParams,
 						DropTargetListener,
 						ListSelectionListener
 {
   public static final String TITLE = Main.APPNAME + " Dateikonverter";
 
-  private static final int MAX_MEM_FILE_SIZE  = 0x40000;	// 256 KByte
-  private static final int MAX_DISK_FILE_SIZE = 0x200000;	// 2 MByte
-  private static final int MAX_TAPE_FILE_SIZE = 0x100000;	// 1 MByte
-
   private static final String HELP_PAGE = "/help/tools/fileconverter.htm";
 
   private static final String LABEL_BEG_ADDR   = "Anfangsadresse:";
@@ -98,6 +77,8 @@ public class FileConvertFrm extends BaseFrm implements
   private boolean                       orgIsBasicPrg;
   private boolean                       lastOutDirAsInDir;
   private String                        lastSavedTargetText;
+  private ConvertSource                 source;
+  private boolean                       batchRunning;
   private FileNameFld                   fldSrcFile;
   private JButton                       btnSrcSelect;
   private JButton                       btnSrcRemove;
@@ -121,6 +102,7 @@ public class FileConvertFrm extends BaseFrm implements
   private LimitedDocument               docRemark;
   private JButton                       btnConvert;
   private JButton                       btnPlay;
+  private JButton                       btnBatch;
   private JButton                       btnHelp;
   private JButton                       btnClose;
 
@@ -190,7 +172,7 @@ public class FileConvertFrm extends BaseFrm implements
 
   public String getFileDesc()
   {
-    return strip( this.fldFileDesc.getText() );
+    return ConvertSource.strip( this.fldFileDesc.getText() );
   }
 
 
@@ -232,7 +214,7 @@ public class FileConvertFrm extends BaseFrm implements
 
   public String getRemark()
   {
-    return strip( this.fldRemark.getText() );
+    return ConvertSource.strip( this.fldRemark.getText() );
   }
 
 
@@ -240,452 +222,23 @@ public class FileConvertFrm extends BaseFrm implements
   {
     if( file != null ) {
       try {
-	if( !file.isFile() || !file.canRead() ) {
-	  throw new IOException(
-		file.getPath() +  ": Nicht gefunden oder nicht lesbar" );
-	}
+	ConvertSource src = ConvertSource.analyze( this, file, this );
 	clearOutFields();
-	this.orgFileDesc     = null;
-	this.orgFileTypeChar = -1;
-	this.orgStartAddr    = -1;
-	this.orgIsBasicPrg   = false;
-	this.orgRemark       = null;
-
-	String             infoMsg      = null;
-	AbstractFloppyDisk disk         = null;
-	int                begAddr      = -1;
-	int                kcbasicOffs  = 0;
-	int                kcbasicLen   = 0;
-	int                dataOffs     = 0;
-	int                dataLen      = 0;
-	byte[]             dataBytes    = null;
-	byte[]             kcbasicBytes = null;
-	byte[]             fileBytes    = null;
-	FileFormat         fileFmt      = null;
-	boolean            multiTAP     = false;
-
-	// Dateiname
-	String fExt  = null;
-	String fName = file.getName();
-	if( fName != null ) {
-	  if( !fName.isEmpty() ) {
-	    /*
-	     * Dateibasisname als Bezeichnung uebernehmen,
-	     * Wenn ein Grossbuchstabe enthalten ist,
-	     * dann die Gross-/Kleinschreibung des Basisnamen beibehalten,
-	     * anderenfalls alles gross wandeln,
-	     */
-	    String tmpName = fName;
-	    int pos = tmpName.lastIndexOf( '.' );
-	    if( pos >= 0 ) {
-	      tmpName = tmpName.substring( 0, pos );
-	    }
-	    int len = tmpName.length();
-	    if( len > 0 ) {
-	      boolean hasUpper = false;
-	      for( int i = 0; i < len; i++ ) {
-		if( Character.isUpperCase( tmpName.charAt( i ) ) ) {
-		  hasUpper = true;
-		  break;
-		}
-	      }
-	      if( hasUpper ) {
-		this.orgFileDesc = tmpName;
-	      } else {
-		this.orgFileDesc = tmpName.toUpperCase();
-	      }
-	    }
-	  }
-	  fName = fName.toLowerCase();
-	  if( fName != null ) {
-	    int pos = fName.lastIndexOf( '.' );
-	    if( (pos > 0) && ((pos + 1) < fName.length()) ) {
-	      fExt = fName.substring( pos + 1 );
-	    }
-	  }
-	}
-
-	// Datei analysieren
-	StringBuilder infoBuf = new StringBuilder( 128 );
-	boolean       done    = false;
-
-	// Sound-Datei pruefen
-	try {
-	  PCMDataInfo info = AudioFile.getInfo( file );
-	  infoBuf.append( "Sound-Datei" );
-	  infoBuf.append( ", " );
-	  AudioUtil.appendAudioFormatText( infoBuf, info );
-
-	  /*
-	   * Ausgabeformate ermitteln, in die konverttiert werden kann,
-	   * das eigene Format dabei ausblenden
-	   */
-	  this.targets.add( new AudioFileTarget( this, file ) );
-	  done = true;
-	}
-	catch( IOException ex2 ) {}
-
-	// Dateiextension pruefen
-	if( !done && (fName != null) ) {
-	  if( fName.endsWith( ".bin" ) || fName.endsWith( ".rom" ) ) {
-	    infoBuf.append( "Einfache Speicherabbilddatei" );
-	    int[] addrs = FileUtil.extractAddressesFromFileName( fName );
-	    if( addrs != null ) {
-	      if( addrs.length > 0 ) {
-		begAddr = addrs[ 0 ];
-		setAddr( this.fldBegAddr, begAddr );
-	      }
-	      if( addrs.length > 2 ) {
-		this.orgStartAddr = addrs[ 2 ];
-		setAddr( this.fldStartAddr, this.orgStartAddr );
-	      }
-	    }
-	    fileFmt   = FileFormat.BIN;
-	    fileBytes = FileUtil.readFile(
-					file,
-					false,
-					MAX_MEM_FILE_SIZE );
-	    if( fileBytes != null ) {
-	      dataBytes = fileBytes;
-	      dataLen   = fileBytes.length;
-	    }
-	    done = true;
-	  }
-	  else if( TextUtil.endsWith( fName, DiskUtil.plainDiskFileExt ) ) {
-	    disk = getPlainFloppyDisk( file );
-	    if( disk != null ) {
-	      infoBuf.append( "Einfache Diskettenabbildddtei" );
-	    }
-	    done = true;
-	  }
-	  else if( TextUtil.endsWith( fName, DiskUtil.gzPlainDiskFileExt ) ) {
-	    disk = getPlainFloppyDisk( file );
-	    if( disk != null ) {
-	      infoBuf.append( "Komprimierte einfache Diskettenabbildddtei" );
-	    }
-	    done = true;
-	  }
-	}
-
-	// Diskettenabbilddatei pruefen
-	if( !done ) {
-	  disk = DiskUtil.readNonPlainDiskFile( this, file, true );
-	  if( disk != null ) {
-	    String fileFmtText = disk.getFileFormatText();
-	    if( fileFmtText == null ) {
-	      fileFmtText = "Diskettenabbilddatei";
-	    }
-	    infoBuf.append( fileFmtText );
-	    if( fName.endsWith( ".gz" ) ) {
-	      infoBuf.append( " (GZip-komprimiert)" );
-	    }
-	    this.orgRemark = strip( disk.getRemark() );
-	    done           = true;
-	  }
-	}
-
-	// Speicherabbilddatei pruefen
-	if( !done ) {
-	  if( fileBytes == null ) {
-	    fileBytes = FileUtil.readFile( file, false, MAX_MEM_FILE_SIZE );
-	  }
-	  if( fileBytes != null ) {
-	    FileInfo fileInfo = FileInfo.analyzeFile( fileBytes, file );
-	    if( fileInfo != null ) {
-	      fileFmt = fileInfo.getFileFormat();
-	      if( fileFmt != null ) {
-		infoBuf.append( fileInfo.getInfoText() );
-		String fileDesc = fileInfo.getFileDesc();
-		if( fileDesc != null ) {
-		  if( !fileDesc.isEmpty() ) {
-		    this.orgFileDesc = fileDesc;
-		  }
-		}
-		this.orgFileTypeChar = fileInfo.getFileType();
-		begAddr              = fileInfo.getBegAddr();
-		if( (fileFmt.equals( FileFormat.HEADERSAVE )
-					&& (this.orgFileTypeChar == 'B')
-					&& (begAddr == 0x0401))
-		    || fileFmt.equals( FileFormat.KCB )
-		    || fileFmt.equals( FileFormat.KCB_BLKN )
-		    || fileFmt.equals( FileFormat.KCB_BLKN_CKS )
-		    || fileFmt.equals( FileFormat.KCTAP_BASIC_PRG )
-		    || fileFmt.equals( FileFormat.KCBASIC_HEAD_PRG )
-		    || fileFmt.equals( FileFormat.KCBASIC_HEAD_PRG_BLKN )
-		    || fileFmt.equals( FileFormat.KCBASIC_HEAD_PRG_BLKN_CKS )
-		    || fileFmt.equals( FileFormat.KCBASIC_PRG ) )
-		{
-		  try {
-		    LoadData loadData = fileInfo.createLoadData( fileBytes );
-		    if( loadData != null ) {
-		      // Info-Message bei KC-BASIC ignorieren!
-		      kcbasicBytes = loadData.getByteArray();
-		      kcbasicOffs  = loadData.getOffset();
-		      kcbasicLen   = loadData.getLength();
-		      if( (kcbasicBytes != null) && (kcbasicLen > 0) ) {
-			this.orgIsBasicPrg = true;
-		      }
-		    }
-		  }
-		  catch( IOException ex ) {}
-		}
-		if( fileFmt.equals( FileFormat.KCB ) ) {
-		  fileFmt = FileFormat.KCC;
-		}
-		else if( fileFmt.equals( FileFormat.KCB_BLKN ) ) {
-		  fileFmt = FileFormat.KCC_BLKN;
-		}
-		else if( fileFmt.equals( FileFormat.KCB_BLKN_CKS ) ) {
-		  fileFmt = FileFormat.KCC_BLKN_CKS;
-		}
-		if( fileFmt.equals( FileFormat.HEADERSAVE )
-		    || fileFmt.equals( FileFormat.INTELHEX )
-		    || fileFmt.equals( FileFormat.KCC )
-		    || fileFmt.equals( FileFormat.KCC_BLKN )
-		    || fileFmt.equals( FileFormat.KCC_BLKN_CKS )
-		    || fileFmt.equals( FileFormat.KCTAP_SYS )
-		    || fileFmt.equals( FileFormat.KCTAP_Z9001 )
-		    || fileFmt.equals( FileFormat.KCTAP_KC85 ) )
-		{
-		  try {
-		    LoadData loadData = FileInfo.createLoadData(
-							fileBytes,
-							fileFmt );
-		    if( loadData != null ) {
-		      infoMsg           = loadData.getInfoMsg();
-		      dataBytes         = loadData.getByteArray();
-		      dataOffs          = loadData.getOffset();
-		      dataLen           = loadData.getLength();
-		      begAddr           = loadData.getBegAddr();
-		      this.orgStartAddr = loadData.getStartAddr();
-		      setAddr( this.fldBegAddr, begAddr );
-		      setAddr( this.fldStartAddr, this.orgStartAddr );
-		    }
-		  }
-		  catch( IOException ex ) {}
-		}
-		if( (fileInfo.getNextTAPOffset() > 0)
-		    && ((kcbasicBytes != null) || (dataBytes != null)) )
-		{
-		  infoMsg = "Die Quelldatei ist eine Mutli-KC-TAP-Datei."
-			+ " Au\u00DFer bei\n\'"
-			+ KCAudioMultiFileTarget.INFO_TEXT
-			+ "\'\nwird bei allen anderen Ausgangsformaten"
-			+ " nur die erste Teildatei verarbeitet.";
-		}
-	      }
-	    }
-	    done = true;
-	  }
-	}
-	if( !done ) {
-	  int pos = fName.lastIndexOf( "." );
-	  if( (pos >= 0) && ((pos + 1) < fName.length()) ) {
-	    infoBuf.append( fName.substring( pos + 1 ).toUpperCase() );
-	    infoBuf.append( "-Datei" );
-	  }
-	}
-	if( disk != null ) {
-	  infoMsg = disk.getWarningText();
-	  if( !(disk instanceof PlainDisk) ) {
-	    this.targets.add( new PlainDiskFileTarget( this, disk ) );
-	  }
-	  if( !(disk instanceof AnaDisk) ) {
-	    this.targets.add( new AnaDiskFileTarget( this, disk ) );
-	  }
-	  if( !(disk instanceof CopyQMDisk) ) {
-	    this.targets.add( new CopyQMFileTarget( this, disk ) );
-	  }
-	  if( !(disk instanceof CPCDisk) ) {
-	    this.targets.add( new CPCDiskFileTarget( this, disk ) );
-	  }
-	  if( !(disk instanceof ImageDisk) ) {
-	    this.targets.add( new ImageDiskFileTarget( this, disk ) );
-	  }
-	  if( !(disk instanceof TeleDisk) ) {
-	    this.targets.add( new TeleDiskFileTarget( this, disk ) );
-	  }
-	}
-	if( fileFmt != null ) {
-	  if( kcbasicBytes != null ) {
-	    if( !fileFmt.equals( FileFormat.KCBASIC_PRG ) ) {
-	      this.targets.add(
-			new KCBasicFileTarget(
-					this,
-					kcbasicBytes,
-					kcbasicOffs,
-					kcbasicLen ) );
-	    }
-	    if( !fileFmt.equals( FileFormat.KCB ) ) {
-	      this.targets.add(
-			new KCBasicSystemFileTarget(
-					this,
-					kcbasicBytes,
-					kcbasicOffs,
-					kcbasicLen ) );
-	    }
-	    if( !fileFmt.equals( FileFormat.KCTAP_BASIC_PRG ) ) {
-	      this.targets.add(
-			new KCTapBasicFileTarget(
-					this,
-					kcbasicBytes,
-					kcbasicOffs,
-					kcbasicLen ) );
-	    }
-	    this.targets.add(
-			new KCAudioFileTarget(
-				this,
-				kcbasicBytes,
-				kcbasicOffs,
-				kcbasicLen,
-				KCAudioFileTarget.Target.KCBASIC_PRG ) );
-	  }
-	  if( dataBytes != null ) {
-	    if( !fileFmt.equals( FileFormat.BIN ) ) {
-	      this.targets.add(
-			new BinFileTarget(
-					this,
-					dataBytes,
-					dataOffs,
-					dataLen,
-					begAddr,
-					(begAddr + dataLen - 1) & 0xFFFF,
-					this.orgStartAddr ) );
-	    }
-	    if( !fileFmt.equals( FileFormat.HEADERSAVE ) ) {
-	      this.targets.add(
-			new HeadersaveFileTarget(
-					this,
-					dataBytes,
-					dataOffs,
-					dataLen ) );
-	    }
-	    if( !fileFmt.equals( FileFormat.INTELHEX ) ) {
-	      this.targets.add(
-			new IntelHexFileTarget(
-					this,
-					dataBytes,
-					dataOffs,
-					dataLen ) );
-	    }
-	    if( !fileFmt.equals( FileFormat.KCC ) ) {
-	      this.targets.add(
-			new KCSystemFileTarget(
-					this,
-					dataBytes,
-					dataOffs,
-					dataLen ) );
-	    }
-	    if( !fileFmt.equals( FileFormat.KCTAP_Z9001 ) ) {
-	      this.targets.add(
-			new KCTapSystemFileTarget(
-					this,
-					dataBytes,
-					dataOffs,
-					dataLen,
-					true ) );
-	    }
-	    if( !fileFmt.equals( FileFormat.KCTAP_KC85 ) ) {
-	      this.targets.add(
-			new KCTapSystemFileTarget(
-					this,
-					dataBytes,
-					dataOffs,
-					dataLen,
-					false ) );
-	    }
-	    boolean basic = false;
-	    if( fileFmt.equals( FileFormat.BASIC_PRG ) ) {
-	      basic = true;
-	    }
-	    else if( fileFmt.equals( FileFormat.HEADERSAVE )
-		     && (this.orgFileTypeChar == 'B') )
-	    {
-	      basic = true;
-	    }
-	    this.targets.add(
-			new AC1AudioFileTarget(
-					this,
-					dataBytes,
-					dataOffs,
-					dataLen,
-					basic ) );
-	    this.targets.add(
-			new SCCHAudioFileTarget(
-					this,
-					dataBytes,
-					dataOffs,
-					dataLen ) );
-	    this.targets.add(
-			new KCAudioFileTarget(
-				this,
-				dataBytes,
-				dataOffs,
-				dataLen,
-				KCAudioFileTarget.Target.Z9001 ) );
-	    this.targets.add(
-			new KCAudioFileTarget(
-				this,
-				dataBytes,
-				dataOffs,
-				dataLen,
-				KCAudioFileTarget.Target.KC85 ) );
-	    this.targets.add(
-			new Z1013AudioFileTarget(
-					this,
-					dataBytes,
-					dataOffs,
-					dataLen,
-					false ) );
-	    this.targets.add(
-			new Z1013AudioFileTarget(
-					this,
-					dataBytes,
-					dataOffs,
-					dataLen,
-					true ) );
-	  }
-	  if( fileBytes != null ) {
-	    if( FileInfo.isKCTapMagicAt( fileBytes, 0 ) ) {
-	      this.targets.add(
-			new KCAudioMultiFileTarget( this, fileBytes ) );
-	    }
-	  }
-	  if( fileFmt.equals( FileFormat.CSW ) ) {
-	    if( fileBytes == null ) {
-	      fileBytes = FileUtil.readFile(
-					file,
-					false,
-					MAX_TAPE_FILE_SIZE );
-	    }
-	    if( fileBytes != null ) {
-	      BitSampleBuffer samples = CSWFile.getBitSampleBuffer(
-								fileBytes,
-								0 );
-	      this.targets.add( new AudioFileTarget( this, samples ) );
-	      this.targets.add(	new TZXFileTarget( this, samples ) );
-	    }
-	  }
-	  if( fileFmt.equals( FileFormat.CDT )
-	      || fileFmt.equals( FileFormat.TZX )
-	      || fileFmt.equals( FileFormat.ZXTAP ) )
-	  {
-	    if( fileBytes == null ) {
-	      fileBytes = FileUtil.readFile(
-					file,
-					false,
-					MAX_TAPE_FILE_SIZE );
-	    }
-	    if( fileBytes != null ) {
-	      BitSampleBuffer samples = new ZXSpectrumAudioCreator(
-							fileBytes,
-							0,
-							fileBytes.length );
-	      this.targets.add( new AudioFileTarget( this, samples ) );
-	      this.targets.add(	new CSWFileTarget( this, samples ) );
-	    }
-	  }
+	if( this.source != null ) {
+	  this.source.close();
 	}
+	this.source          = src;
+	this.orgFileDesc     = src.getOrgFileDesc();
+	this.orgFileTypeChar = src.getOrgFileTypeChar();
+	this.orgStartAddr    = src.getOrgStartAddr();
+	this.orgIsBasicPrg   = src.getOrgIsBasicPrg();
+	this.orgRemark       = src.getOrgRemark();
+	setAddr( this.fldBegAddr, src.getBegAddr() );
+	setAddr( this.fldStartAddr, this.orgStartAddr );
+	this.targets.addAll( src.getTargets() );
+
+	StringBuilder infoBuf = new StringBuilder( src.getInfoText() );
+	String        infoMsg = src.getInfoMsg();
 	if( this.targets.size() > 0 ) {
 	  try {
 	    Collections.sort( this.targets );
@@ -811,6 +364,10 @@ public class FileConvertFrm extends BaseFrm implements
 	rv = true;
 	doPlay();
       }
+      else if( src == this.btnBatch ) {
+	rv = true;
+	doBatch();
+      }
       else if( src == this.btnClose ) {
 	rv = true;
 	doClose();
@@ -860,6 +417,51 @@ public class FileConvertFrm extends BaseFrm implements
 
 	/* --- Aktionen --- */
 
+  private void doBatch()
+  {
+    AbstractConvertTarget target = this.listTarget.getSelectedValue();
+    if( (target != null) && !this.batchRunning ) {
+      File dirFile = this.fldSrcFile.getFile();
+      if( dirFile != null ) {
+	dirFile = dirFile.getParentFile();
+      }
+      dirFile = DirSelectDlg.selectDirectory( this, dirFile );
+      if( dirFile != null ) {
+	final String targetText = target.toString();
+	if( BaseDlg.showYesNoDlg(
+		this,
+		"Sollen alle Dateien im Verzeichnis\n"
+			+ dirFile.getPath()
+			+ "\nund seinen Unterverzeichnissen in das Format\n"
+			+ targetText
+			+ "\nkonvertiert werden?\n\n"
+			+ "Die Ausgabedateien werden neben den Quelldateien"
+			+ " angelegt.\n"
+			+ "Vorhandene Dateien werden nicht \u00FCberschrieben.\n"
+			+ "Die Kopfdaten werden aus den jeweiligen Quelldateien"
+			+ " \u00FCbernommen." ) )
+	{
+	  final File dir = dirFile;
+	  this.batchRunning = true;
+	  this.btnBatch.setEnabled( false );
+	  Thread thread = new Thread(
+		Main.getThreadGroup(),
+		new Runnable()
+		{
+		  @Override
+		  public void run()
+		  {
+		    runBatch( dir, targetText );
+		  }
+		},
+		"JKCEMU file converter batch" );
+	  thread.start();
+	}
+      }
+    }
+  }
+
+
   private void doPlay() throws UserInputException
   {
     AbstractConvertTarget target = this.listTarget.getSelectedValue();
@@ -885,6 +487,10 @@ public class FileConvertFrm extends BaseFrm implements
 
   private void doRemoveSrcFile()
   {
+    if( this.source != null ) {
+      this.source.close();
+      this.source = null;
+    }
     this.fldSrcFile.setFile( null );
     this.fldSrcInfo.setText( "" );
     this.btnSrcRemove.setEnabled( false );
@@ -995,6 +601,8 @@ public class FileConvertFrm extends BaseFrm implements
     this.orgIsBasicPrg       = false;
     this.lastOutDirAsInDir   = false;
     this.lastSavedTargetText = null;
+    this.source              = null;
+    this.batchRunning        = false;
     setTitle( TITLE );
 
 
@@ -1222,7 +830,7 @@ public class FileConvertFrm extends BaseFrm implements
 
 
     // Knoepfe
-    JPanel panelBtn = GUIFactory.createPanel( new GridLayout( 1, 4, 5, 5 ) );
+    JPanel panelBtn = GUIFactory.createPanel( new GridLayout( 1, 5, 5, 5 ) );
     gbc.fill          = GridBagConstraints.NONE;
     gbc.weightx       = 0.0;
     gbc.weighty       = 0.0;
@@ -1236,6 +844,9 @@ public class FileConvertFrm extends BaseFrm implements
     this.btnPlay = GUIFactory.createButton( "Wiedergeben" );
     panelBtn.add( this.btnPlay );
 
+    this.btnBatch = GUIFactory.createButton( "Verzeichnis..." );
+    panelBtn.add( this.btnBatch );
+
     this.btnHelp = GUIFactory.createButtonHelp();
     panelBtn.add( this.btnHelp );
 
@@ -1259,6 +870,7 @@ public class FileConvertFrm extends BaseFrm implements
     this.listTarget.addListSelectionListener( this );
     this.btnConvert.addActionListener( this );
     this.btnPlay.addActionListener( this );
+    this.btnBatch.addActionListener( this );
     this.btnHelp.addActionListener( this );
     this.btnClose.addActionListener( this );
 
@@ -1271,6 +883,22 @@ public class FileConvertFrm extends BaseFrm implements
 
 	/* --- private Methoden --- */
 
+  private void batchFinished( File dirFile, String report, IOException ex )
+  {
+    this.batchRunning = false;
+    this.btnBatch.setEnabled( this.listTarget.getSelectedValue() != null );
+    if( ex != null ) {
+      BaseDlg.showErrorDlg( this, ex );
+    } else if( report != null ) {
+      LogDlg.showDlg(
+		this,
+		report,
+		"Stapelkonvertierung",
+		new File( dirFile, "jkcemu_fc.log" ) );
+    }
+  }
+
+
   private void clearOutFields()
   {
     this.targets.clear();
@@ -1296,6 +924,7 @@ public class FileConvertFrm extends BaseFrm implements
 
     this.btnConvert.setEnabled( false );
     this.btnPlay.setEnabled( false );
+    this.btnBatch.setEnabled( false );
   }
 
 
@@ -1337,28 +966,35 @@ public class FileConvertFrm extends BaseFrm implements
   }
 
 
-  private AbstractFloppyDisk getPlainFloppyDisk( File file )
-						throws IOException
+  /*
+   * Stapelkonvertierung, wird in einem eigenen Thread aufgerufen
+   */
+  private void runBatch( final File dirFile, String targetText )
   {
-    AbstractFloppyDisk disk = null;
-    byte[] fileBytes = FileUtil.readFile( file, false, MAX_DISK_FILE_SIZE );
-    if( fileBytes != null ) {
-      FloppyDiskFormatDlg dlg = new FloppyDiskFormatDlg(
-			this,
-			true,
-			FloppyDiskFormat.getFormatByDiskSize( file.length() ),
-			FloppyDiskFormatDlg.Flag.PHYS_FORMAT );
-      dlg.setVisible( true );
-      FloppyDiskFormat fmt = dlg.getFormat();
-      if( fmt != null ) {
-	disk = PlainDisk.createForByteArray(
-					this,
-					file.getPath(),
-					fileBytes,
-					fmt );
-      }
+    String      report = null;
+    IOException ioEx   = null;
+    try {
+      BatchFileConverter converter = new BatchFileConverter(
+				targetText,
+				null,
+				false,
+				Runtime.getRuntime().availableProcessors() );
+      report = converter.convert( Collections.singletonList( dirFile ), true );
+    }
+    catch( IOException ex ) {
+      ioEx = ex;
     }
-    return disk;
+    final String      reportText = report;
+    final IOException errEx      = ioEx;
+    EventQueue.invokeLater(
+		new Runnable()
+		{
+		  @Override
+		  public void run()
+		  {
+		    batchFinished( dirFile, reportText, errEx );
+		  }
+		} );
   }
 
 
@@ -1386,18 +1022,6 @@ public class FileConvertFrm extends BaseFrm implements
   }
 
 
-  private static String strip( String text )
-  {
-    if( text != null ) {
-      text = text.trim();
-      if( text.isEmpty() ) {
-	text = null;
-      }
-    }
-    return text;
-  }
-
-
   private void targetSelectionChanged()
   {
     AbstractConvertTarget target = this.listTarget.getSelectedValue();
@@ -1444,17 +1068,14 @@ public class FileConvertFrm extends BaseFrm implements
       this.labelFileType.setEnabled( this.comboFileType.isEnabled() );
 
       if( (this.orgFileDesc != null) && (getOrgFileTypeChar() < 0) ) {
-	Object typeItem = this.comboFileType.getSelectedItem();
-	if( typeItem != null ) {
-	  String typeText = typeItem.toString();
-	  if( typeText != null ) {
-	    String upperExt = "." + typeText.toUpperCase();
-	    if( this.orgFileDesc.toUpperCase().endsWith( upperExt ) ) {
-	      int len = this.orgFileDesc.length() - upperExt.length();
-	      if( len > 0 ) {
-		this.fldFileDesc.setText(
+	String typeText = ConvertSource.strip( target.getDefaultFileType() );
+	if( typeText != null ) {
+	  String upperExt = "." + typeText.toUpperCase();
+	  if( this.orgFileDesc.toUpperCase().endsWith( upperExt ) ) {
+	    int len = this.orgFileDesc.length() - upperExt.length();
+	    if( len > 0 ) {
+	      this.fldFileDesc.setText(
 			this.orgFileDesc.substring( 0, len ) );
-	      }
 	    }
 	  }
 	}
@@ -1468,6 +1089,7 @@ public class FileConvertFrm extends BaseFrm implements
 
       this.btnConvert.setEnabled( target != null );
       this.btnPlay.setEnabled( target.canPlay() );
+      this.btnBatch.setEnabled( !this.batchRunning );
 
     } else {
 
@@ -1490,6 +1112,7 @@ public class FileConvertFrm extends BaseFrm implements
 
       this.btnConvert.setEnabled( false );
       this.btnPlay.setEnabled( false );
+      this.btnBatch.setEnabled( false );
     }
 
     // Startadresse
@@ -26,44 +26,63 @@ public class HeadersaveFileTarget extends AbstractConvertTarget
 
 
   public HeadersaveFileTarget(
-		FileConvertFrm fileConvertFrm,
+		ConvertParams  params,
 		byte[]         dataBytes,
 		int            offs,
 		int            len )
   {
-    super( fileConvertFrm, "Headersave-Datei (*.z80)" );
+    super( params, "Headersave-Datei (*.z80)" );
     this.dataBytes = dataBytes;
     this.offs      = offs;
     this.len       = len;
   }
 
 
-  public static void setFileTypesTo(
-				JComboBox<String> combo,
-				FileConvertFrm    fileConvertFrm )
+  public static String getDefaultFileType( ConvertParams params )
   {
-    combo.removeAllItems();
-    FileUtil.addHeadersaveFileTypeItemsTo( combo );
-    combo.setEnabled( true );
-    int fileType = fileConvertFrm.getOrgFileTypeChar();
+    String rv       = null;
+    int    fileType = params.getOrgFileTypeChar();
     if( (fileType > 0x20) && (fileType < 0x7F) ) {
-      if( !FileUtil.setSelectedHeadersaveFileTypeItem( combo, fileType ) ) {
-	combo.setSelectedItem( Character.toString( (char) fileType ) );
+      rv = FileUtil.getHeadersaveFileTypeItem( fileType );
+      if( rv == null ) {
+	rv = Character.toString( (char) fileType );
       }
     } else {
-      if( fileConvertFrm.getOrgIsBasicPrg() ) {
-	FileUtil.setSelectedHeadersaveFileTypeItem( combo, 'B' );
-      } else if( fileConvertFrm.getOrgStartAddr() >= 0 ) {
-	FileUtil.setSelectedHeadersaveFileTypeItem( combo, 'C' );
+      if( params.getOrgIsBasicPrg() ) {
+	rv = FileUtil.getHeadersaveFileTypeItem( 'B' );
+      } else if( params.getOrgStartAddr() >= 0 ) {
+	rv = FileUtil.getHeadersaveFileTypeItem( 'C' );
       } else {
-	FileUtil.setSelectedHeadersaveFileTypeItem( combo, 'M' );
+	rv = FileUtil.getHeadersaveFileTypeItem( 'M' );
       }
     }
+    return rv;
+  }
+
+
+  public static void setFileTypesTo(
+				JComboBox<String> combo,
+				ConvertParams     params )
+  {
+    combo.removeAllItems();
+    FileUtil.addHeadersaveFileTypeItemsTo( combo );
+    combo.setEnabled( true );
+    String fileType = getDefaultFileType( params );
+    if( fileType != null ) {
+      combo.setSelectedItem( fileType );
+    }
   }
 
 
 	/* --- ueberschriebene Methoden --- */
 
+  @Override
+  public String getDefaultFileType()
+  {
+    return getDefaultFileType( this.params );
+  }
+
+
   @Override
   public javax.swing.filechooser.FileFilter getFileFilter()
   {
@@ -89,11 +108,11 @@ public class HeadersaveFileTarget extends AbstractConvertTarget
   public String save( File file ) throws IOException, UserInputException
   {
     checkFileExtension( file, ".z80" );
-    int          begAddr   = this.fileConvertFrm.getBegAddr( true );
+    int          begAddr   = this.params.getBegAddr( true );
     int          endAddr   = begAddr + this.len - 1;
-    int          startAddr = this.fileConvertFrm.getStartAddr( false );
-    int          fileType  = this.fileConvertFrm.getFileTypeChar( true );
-    String       fileDesc  = this.fileConvertFrm.getFileDesc( true );
+    int          startAddr = this.params.getStartAddr( false );
+    int          fileType  = this.params.getFileTypeChar( true );
+    String       fileDesc  = this.params.getFileDesc( true );
     OutputStream out       = null;
     try {
       out = new FileOutputStream( file );
@@ -152,7 +171,7 @@ public class HeadersaveFileTarget extends AbstractConvertTarget
   @Override
   public void setFileTypesTo( JComboBox<String> combo )
   {
-    setFileTypesTo( combo, this.fileConvertFrm );
+    setFileTypesTo( combo, this.params );
   }
 
 
@@ -21,10 +21,10 @@ public class ImageDiskFileTarget extends AbstractConvertTarget
 
 
   public ImageDiskFileTarget(
-			FileConvertFrm     fileConvertFrm,
+			ConvertParams      params,
 			AbstractFloppyDisk disk )
   {
-    super( fileConvertFrm, "ImageDisk-Datei (*.imd)" );
+    super( params, "ImageDisk-Datei (*.imd)" );
     this.disk = disk;
   }
 
@@ -59,6 +59,6 @@ public class ImageDiskFileTarget extends AbstractConvertTarget
     return ImageDisk.export(
 			this.disk,
 			file,
-			this.fileConvertFrm.getRemark() );
+			this.params.getRemark() );
   }
 }
@@ -25,12 +25,12 @@ public class IntelHexFileTarget extends AbstractConvertTarget
 
 
   public IntelHexFileTarget(
-		FileConvertFrm fileConvertFrm,
+		ConvertParams  params,
 		byte[]         dataBytes,
 		int            offs,
 		int            len )
   {
-    super( fileConvertFrm, "Intel-HEX-Datei (*.hex)" );
+    super( params, "Intel-HEX-Datei (*.hex)" );
     this.dataBytes = dataBytes;
     this.offs      = offs;
     this.len       = len;
@@ -57,7 +57,7 @@ public class IntelHexFileTarget extends AbstractConvertTarget
   public String save( File file ) throws IOException, UserInputException
   {
     checkFileExtension( file, ".hex" );
-    int    addr = this.fileConvertFrm.getBegAddr( true );
+    int    addr = this.params.getBegAddr( true );
     Writer out  = null;
     try {
       out = new FileWriter( file );
@@ -29,13 +29,13 @@ public class KCAudioFileTarget extends AbstractConvertTarget
 
 
   public KCAudioFileTarget(
-		FileConvertFrm fileConvertFrm,
+		ConvertParams  params,
 		byte[]         dataBytes,
 		int            offs,
 		int            len,
 		Target         target )
   {
-    super( fileConvertFrm, createInfoText( target ) );
+    super( params, createInfoText( target ) );
     this.dataBytes = dataBytes;
     this.offs      = offs;
     this.len       = len;
@@ -63,11 +63,11 @@ public class KCAudioFileTarget extends AbstractConvertTarget
       int len = Math.min( this.len, this.dataBytes.length - this.offs );
       if( len > 0 ) {
 	if( this.target.equals( Target.Z9001 ) ) {
-	  int    begAddr = this.fileConvertFrm.getBegAddr( true );
+	  int    begAddr = this.params.getBegAddr( true );
 	  int    endAddr = begAddr + len - 1;
-	  int    startAddr = this.fileConvertFrm.getStartAddr( false );
-	  String fileDesc  = this.fileConvertFrm.getFileDesc( true );
-	  String fileType  = this.fileConvertFrm.getFileType();
+	  int    startAddr = this.params.getStartAddr( false );
+	  String fileDesc  = this.params.getFileDesc( true );
+	  String fileType  = this.params.getFileType();
 
 	  byte[] m = new byte[ 128 + len ];
 	  Arrays.fill( m, (byte) 0 );
@@ -100,10 +100,10 @@ public class KCAudioFileTarget extends AbstractConvertTarget
 	  fileBytes = m;
 	  blkNum    = 0;
 	} else if( this.target.equals( Target.KC85 ) ) {
-	  int    begAddr = this.fileConvertFrm.getBegAddr( true );
+	  int    begAddr = this.params.getBegAddr( true );
 	  int    endAddr = begAddr + len;
-	  int    startAddr = this.fileConvertFrm.getStartAddr( false );
-	  String fileDesc  = this.fileConvertFrm.getFileDesc( true );
+	  int    startAddr = this.params.getStartAddr( false );
+	  String fileDesc  = this.params.getFileDesc( true );
 
 	  byte[] m = new byte[ 128 + len ];
 	  Arrays.fill( m, (byte) 0 );
@@ -132,7 +132,7 @@ public class KCAudioFileTarget extends AbstractConvertTarget
 	  fileBytes = m;
 	  blkNum    = 1;
 	} else if( this.target.equals( Target.KCBASIC_PRG ) ) {
-	  String s = this.fileConvertFrm.getFileDesc( true );
+	  String s = this.params.getFileDesc( true );
 	  byte[] m = new byte[ 14 + len ];
 	  int    p = 0;
 	  m[ p++ ] = (byte) 0xD3;
@@ -176,6 +176,24 @@ public class KCAudioFileTarget extends AbstractConvertTarget
   }
 
 
+  @Override
+  public String getDefaultFileType()
+  {
+    String rv = null;
+    if( this.target == Target.Z9001 ) {
+      try {
+	if( this.params.getStartAddr( false ) >= 0 ) {
+	  rv = "COM";
+	}
+      }
+      catch( UserInputException ex ) {}
+    } else {
+      rv = super.getDefaultFileType();
+    }
+    return rv;
+  }
+
+
   @Override
   public javax.swing.filechooser.FileFilter getFileFilter()
   {
@@ -219,12 +237,10 @@ public class KCAudioFileTarget extends AbstractConvertTarget
       combo.removeAllItems();
       combo.addItem( "" );
       combo.addItem( "COM" );
-      try {
-	if( this.fileConvertFrm.getStartAddr( false ) >= 0 ) {
-	  combo.setSelectedItem( "COM" );
-	}
+      String fileType = getDefaultFileType();
+      if( fileType != null ) {
+	combo.setSelectedItem( fileType );
       }
-      catch( UserInputException ex ) {}
       combo.setEnabled( true );
     } else {
       super.setFileTypesTo( combo );
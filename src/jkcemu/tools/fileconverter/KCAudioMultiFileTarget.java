@@ -27,10 +27,10 @@ public class KCAudioMultiFileTarget extends AbstractConvertTarget
 
 
   public KCAudioMultiFileTarget(
-		FileConvertFrm fileConvertFrm,
+		ConvertParams  params,
 		byte[]         tapFileBytes )
   {
-    super( fileConvertFrm, INFO_TEXT );
+    super( params, INFO_TEXT );
     this.tapFileBytes = tapFileBytes;
   }
 
@@ -24,12 +24,12 @@ public class KCBasicFileTarget extends AbstractConvertTarget
 
 
   public KCBasicFileTarget(
-		FileConvertFrm fileConvertFrm,
+		ConvertParams  params,
 		byte[]         dataBytes,
 		int            offs,
 		int            len )
   {
-    super( fileConvertFrm, "KC-BASIC-Programmdatei (*.sss)" );
+    super( params, "KC-BASIC-Programmdatei (*.sss)" );
     this.dataBytes = dataBytes;
     this.offs      = offs;
     this.len       = len;
@@ -96,12 +96,12 @@ public class KCBasicSystemFileTarget extends AbstractConvertTarget
 
 
   public KCBasicSystemFileTarget(
-		FileConvertFrm fileConvertFrm,
+		ConvertParams  params,
 		byte[]         dataBytes,
 		int            offs,
 		int            len )
   {
-    super( fileConvertFrm, "KC-Systemdatei mit KC-BASIC-Programm (*.kcb)" );
+    super( params, "KC-Systemdatei mit KC-BASIC-Programm (*.kcb)" );
     this.dataBytes = dataBytes;
     this.offs      = offs;
     this.len       = len;
@@ -136,7 +136,7 @@ public class KCBasicSystemFileTarget extends AbstractConvertTarget
   {
     checkFileExtension( file, ".kcb" );
     int          endAddr   = 0x0401 + this.len;
-    String       fileDesc  = this.fileConvertFrm.getFileDesc( true );
+    String       fileDesc  = this.params.getFileDesc( true );
     OutputStream out       = null;
     try {
       out = new FileOutputStream( file );
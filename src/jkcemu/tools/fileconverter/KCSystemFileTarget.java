@@ -26,12 +26,12 @@ public class KCSystemFileTarget extends AbstractConvertTarget
 
 
   public KCSystemFileTarget(
-		FileConvertFrm fileConvertFrm,
+		ConvertParams  params,
 		byte[]         dataBytes,
 		int            offs,
 		int            len )
   {
-    super( fileConvertFrm, "KC-Systemdatei (*.kcc)" );
+    super( params, "KC-Systemdatei (*.kcc)" );
     this.dataBytes = dataBytes;
     this.offs      = offs;
     this.len       = len;
@@ -65,9 +65,9 @@ public class KCSystemFileTarget extends AbstractConvertTarget
   public String save( File file ) throws IOException, UserInputException
   {
     checkFileExtension( file, ".kcc" );
-    int          begAddr   = this.fileConvertFrm.getBegAddr( true );
-    int          startAddr = this.fileConvertFrm.getStartAddr( false );
-    String       fileDesc  = this.fileConvertFrm.getFileDesc( true );
+    int          begAddr   = this.params.getBegAddr( true );
+    int          startAddr = this.params.getStartAddr( false );
+    String       fileDesc  = this.params.getFileDesc( true );
     OutputStream out       = null;
     try {
       out = new FileOutputStream( file );
@@ -26,12 +26,12 @@ public class KCTapBasicFileTarget extends AbstractConvertTarget
 
 
   public KCTapBasicFileTarget(
-		FileConvertFrm fileConvertFrm,
+		ConvertParams  params,
 		byte[]         dataBytes,
 		int            offs,
 		int            len )
   {
-    super( fileConvertFrm, "KC-TAP-BASIC-Datei" );
+    super( params, "KC-TAP-BASIC-Datei" );
     this.dataBytes = dataBytes;
     this.offs      = offs;
     this.len       = len;
@@ -65,7 +65,7 @@ public class KCTapBasicFileTarget extends AbstractConvertTarget
   public String save( File file ) throws IOException, UserInputException
   {
     checkFileExtension( file, ".tap" );
-    String       fileDesc = this.fileConvertFrm.getFileDesc( true );
+    String       fileDesc = this.params.getFileDesc( true );
     OutputStream out      = null;
     try {
       out = new FileOutputStream( file );
@@ -29,14 +29,14 @@ public class KCTapSystemFileTarget extends AbstractConvertTarget
 
 
   public KCTapSystemFileTarget(
-		FileConvertFrm fileConvertFrm,
+		ConvertParams  params,
 		byte[]         dataBytes,
 		int            offs,
 		int            len,
 		boolean        z9001 )
   {
     super(
-	fileConvertFrm,
+	params,
 	z9001 ?
 	    "KC-TAP-Systemdatei f\u00FCr KC85/1, KC87 und Z9001 (*.tap)"
 	    : "KC-TAP-Systemdatei f\u00FCr HC900 und KC85/2..5 (*.tap)" );
@@ -49,6 +49,24 @@ public class KCTapSystemFileTarget extends AbstractConvertTarget
 
 	/* --- ueberschriebene Methoden --- */
 
+  @Override
+  public String getDefaultFileType()
+  {
+    String rv = null;
+    if( this.z9001 ) {
+      try {
+	if( this.params.getStartAddr( false ) >= 0 ) {
+	  rv = "COM";
+	}
+      }
+      catch( UserInputException ex ) {}
+    } else {
+      rv = super.getDefaultFileType();
+    }
+    return rv;
+  }
+
+
   @Override
   public javax.swing.filechooser.FileFilter getFileFilter()
   {
@@ -82,10 +100,10 @@ public class KCTapSystemFileTarget extends AbstractConvertTarget
   {
     checkFileExtension( file, ".tap" );
     int          blkNum    = (this.z9001 ? 0 : 1);
-    int          begAddr   = this.fileConvertFrm.getBegAddr( true );
-    int          startAddr = this.fileConvertFrm.getStartAddr( false );
-    String       fileDesc  = this.fileConvertFrm.getFileDesc( true );
-    String       fileType  = this.fileConvertFrm.getFileType();
+    int          begAddr   = this.params.getBegAddr( true );
+    int          startAddr = this.params.getStartAddr( false );
+    String       fileDesc  = this.params.getFileDesc( true );
+    String       fileType  = this.params.getFileType();
     OutputStream out       = null;
     try {
       out = new FileOutputStream( file );
@@ -141,12 +159,10 @@ public class KCTapSystemFileTarget extends AbstractConvertTarget
       combo.removeAllItems();
       combo.addItem( "" );
       combo.addItem( "COM" );
-      try {
-	if( this.fileConvertFrm.getStartAddr( false ) >= 0 ) {
-          combo.setSelectedItem( "COM" );
-	}
+      String fileType = getDefaultFileType();
+      if( fileType != null ) {
+	combo.setSelectedItem( fileType );
       }
-      catch( UserInputException ex ) {}
       combo.setEnabled( true );
     } else {
       super.setFileTypesTo( combo );
@@ -21,11 +21,11 @@ public class PlainDiskFileTarget extends AbstractConvertTarget
 
 
   public PlainDiskFileTarget(
-			FileConvertFrm     fileConvertFrm,
+			ConvertParams      params,
 			AbstractFloppyDisk disk )
   {
     super(
-	fileConvertFrm,
+	params,
 	"Einfache Diskettenabbilddatei (*.dd; *.img; *.image; *.raw)" );
     this.disk = disk;
   }
@@ -31,12 +31,12 @@ public class SCCHAudioFileTarget extends AbstractConvertTarget
 
 
   public SCCHAudioFileTarget(
-		FileConvertFrm fileConvertFrm,
+		ConvertParams  params,
 		byte[]         dataBytes,
 		int            offs,
 		int            len )
   {
-    super( fileConvertFrm, createInfoText() );
+    super( params, createInfoText() );
     this.dataBytes = dataBytes;
     this.offs      = offs;
     this.len       = len;
@@ -56,19 +56,26 @@ public class SCCHAudioFileTarget extends AbstractConvertTarget
   public PCMDataSource createPCMDataSource()
 				throws IOException, UserInputException
   {
-    int begAddr  = this.fileConvertFrm.getBegAddr( true );
+    int begAddr  = this.params.getBegAddr( true );
     int endAddr  = begAddr + len - 1;
     return new SCCHAudioCreator(
 			this.dataBytes,
 			this.offs,
 			this.len,
-			this.fileConvertFrm.getFileDesc( true ),
-			(char) this.fileConvertFrm.getFileTypeChar( true ),
+			this.params.getFileDesc( true ),
+			(char) this.params.getFileTypeChar( true ),
 			begAddr,
 			endAddr ).newReader();
   }
 
 
+  @Override
+  public String getDefaultFileType()
+  {
+    return fileTypeItems[ this.params.getOrgStartAddr() >= 0 ? 0 : 3 ];
+  }
+
+
   @Override
   public javax.swing.filechooser.FileFilter getFileFilter()
   {
@@ -114,8 +121,7 @@ public class SCCHAudioFileTarget extends AbstractConvertTarget
     }
     combo.setEnabled( true );
     combo.setEditable( true );
-    combo.setSelectedItem(
-	fileTypeItems[ this.fileConvertFrm.getOrgStartAddr() >= 0 ? 0 : 3 ] );
+    combo.setSelectedItem( getDefaultFileType() );
   }
 
 
@@ -22,10 +22,10 @@ public class TZXFileTarget extends AbstractConvertTarget
 
 
   public TZXFileTarget(
-		FileConvertFrm  fileConvertFrm,
+		ConvertParams   params,
 		BitSampleBuffer samples )
   {
-    super( fileConvertFrm,
+    super( params,
 	"CDT/TZX-Datei (" + TZXFile.getFileExtensionText() + ")" );
     this.samples     = samples;
     this.fileFilters = null;
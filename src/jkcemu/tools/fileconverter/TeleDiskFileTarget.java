@@ -21,10 +21,10 @@ public class TeleDiskFileTarget extends AbstractConvertTarget
 
 
   public TeleDiskFileTarget(
-			FileConvertFrm     fileConvertFrm,
+			ConvertParams      params,
 			AbstractFloppyDisk disk )
   {
-    super( fileConvertFrm, "TeleDisk-Datei (*.td0)" );
+    super( params, "TeleDisk-Datei (*.td0)" );
     this.disk = disk;
   }
 
@@ -59,6 +59,6 @@ public class TeleDiskFileTarget extends AbstractConvertTarget
     return TeleDisk.export(
 			this.disk,
 			file,
-			this.fileConvertFrm.getRemark() );
+			this.params.getRemark() );
   }
 }
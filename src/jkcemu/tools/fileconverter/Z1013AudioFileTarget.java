@@ -26,13 +26,13 @@ public class Z1013AudioFileTarget extends AbstractConvertTarget
 
 
   public Z1013AudioFileTarget(
-		FileConvertFrm fileConvertFrm,
+		ConvertParams  params,
 		byte[]         buf,
 		int            offs,
 		int            len,
 		boolean        headersave )
   {
-    super( fileConvertFrm, createInfoText( headersave ) );
+    super( params, createInfoText( headersave ) );
     this.buf        = buf;
     this.offs       = offs;
     this.len        = len;
@@ -58,17 +58,17 @@ public class Z1013AudioFileTarget extends AbstractConvertTarget
     int     len  = Math.min( this.len, this.buf.length - this.offs );
     boolean hs   = false;
     if( this.headersave ) {
-      int begAddr   = this.fileConvertFrm.getBegAddr( true );
+      int begAddr   = this.params.getBegAddr( true );
       int endAddr   = begAddr + len - 1;
-      int startAddr = this.fileConvertFrm.getBegAddr( false );
+      int startAddr = this.params.getBegAddr( false );
       if( startAddr < 0 ) {
 	startAddr = 0;
       }
-      int fileType = this.fileConvertFrm.getFileTypeChar( true );
+      int fileType = this.params.getFileTypeChar( true );
       if( fileType < 0 ) {
 	fileType = 0x20;
       }
-      String s   = this.fileConvertFrm.getFileDesc( true );
+      String s   = this.params.getFileDesc( true );
       buf        = new byte[ 32 + len ];
       buf[ 0 ]   = (byte) begAddr;
       buf[ 1 ]   = (byte) (begAddr >> 8);
@@ -106,6 +106,15 @@ public class Z1013AudioFileTarget extends AbstractConvertTarget
   }
 
 
+  @Override
+  public String getDefaultFileType()
+  {
+    return this.headersave ?
+		HeadersaveFileTarget.getDefaultFileType( this.params )
+		: super.getDefaultFileType();
+  }
+
+
   @Override
   public javax.swing.filechooser.FileFilter getFileFilter()
   {
@@ -146,7 +155,7 @@ public class Z1013AudioFileTarget extends AbstractConvertTarget
   public void setFileTypesTo( JComboBox<String> combo )
   {
     if( this.headersave ) {
-      HeadersaveFileTarget.setFileTypesTo( combo, this.fileConvertFrm );
+      HeadersaveFileTarget.setFileTypesTo( combo, this.params );
     } else {
       super.setFileTypesTo( combo );
     }
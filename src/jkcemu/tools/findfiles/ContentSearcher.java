@@ -0,0 +1,491 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Kleincomputer-Emulator
+ *
+ * Suchen eines Textes im Inhalt von Dateien
+ *
+ * Die Datei wird in grossen Bloecken in einen Zeichenpuffer gelesen,
+ * in dem mit dem Boyer-Moore-Horspool-Algorithmus gesucht wird.
+ * Dabei werden die Zeichen nicht einzeln verglichen,
+ * sondern anhand des jeweils letzten Zeichens im Vergleichsfenster
+ * ganze Bereiche uebersprungen.
+ * Die Verschiebetabelle wird ueber die unteren 8 Bit des Zeichens
+ * adressiert. Bei mehreren Zeichen mit gleichen unteren 8 Bit
+ * enthaelt sie die kleinste Verschiebung, sodass kein Treffer
+ * uebersprungen wird.
+ *
+ * Optional wird auch in ZIP-, TAR- und GZip-Dateien gesucht.
+ *
+ * Ein Objekt dieser Klasse wird von mehreren Threads
+ * gleichzeitig verwendet und darf deshalb nach dem Anlegen
+ * nicht mehr veraendert werden (ausser mit cancel()).
+ */
+
+package jkcemu.tools.findfiles;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import jkcemu.base.EmuUtil;
+import jkcemu.file.TarEntry;
+
+
+class ContentSearcher
+{
+  private static final int BUF_SIZE    = 0x10000;
+  private static final int MAX_ROW_LEN = 1024;
+
+  private enum ArchiveType { NONE, GZIP, TAR, TGZ, ZIP };
+
+
+  /*
+   * Sammeln der Zeilen, in denen der Text gefunden wurde
+   */
+  private static class RowCollector
+  {
+    private StringBuilder          rowBuf;
+    private boolean                matchesRow;
+    private java.util.List<String> rows;
+
+    private RowCollector( java.util.List<String> rows )
+    {
+      this.rowBuf     = new StringBuilder( 256 );
+      this.matchesRow = false;
+      this.rows       = rows;
+    }
+
+    private void append( char[] buf, int pos, int endPos )
+    {
+      while( pos < endPos ) {
+	char ch = buf[ pos++ ];
+	if( ch <= 0x0D ) {
+	  finishRow();
+	} else {
+	  int rowLen = this.rowBuf.length();
+	  if( rowLen < MAX_ROW_LEN ) {
+	    this.rowBuf.append( ch );
+	  } else if( rowLen == MAX_ROW_LEN ) {
+	    this.rowBuf.append( "..." );
+	  }
+	}
+      }
+    }
+
+    private void finishRow()
+    {
+      if( this.matchesRow && (this.rowBuf.length() > 0) ) {
+	this.rows.add( this.rowBuf.toString() );
+      }
+      this.rowBuf.setLength( 0 );
+      this.matchesRow = false;
+    }
+
+    private void setMatched()
+    {
+      this.matchesRow = true;
+    }
+  };
+
+
+  /*
+   * Eingabestrom auf einen Eintrag einer TAR-Datei,
+   * der das Schliessen nicht an den darunter liegenden Strom weitergibt
+   */
+  private static class TarEntryInputStream extends FilterInputStream
+  {
+    private long remain;
+
+    private TarEntryInputStream( InputStream in, long size )
+    {
+      super( in );
+      this.remain = size;
+    }
+
+    @Override
+    public void close()
+    {
+      // leer
+    }
+
+    @Override
+    public boolean markSupported()
+    {
+      return false;
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+      int rv = -1;
+      if( this.remain > 0 ) {
+	rv = this.in.read();
+	if( rv >= 0 ) {
+	  --this.remain;
+	}
+      }
+      return rv;
+    }
+
+    @Override
+    public int read( byte[] buf, int pos, int len ) throws IOException
+    {
+      int rv = -1;
+      if( this.remain > 0 ) {
+	rv = this.in.read(
+			buf,
+			pos,
+			(int) Math.min( (long) len, this.remain ) );
+	if( rv > 0 ) {
+	  this.remain -= rv;
+	}
+      }
+      return rv;
+    }
+
+    @Override
+    public long skip( long n ) throws IOException
+    {
+      long rv = this.in.skip( Math.min( n, this.remain ) );
+      if( rv > 0 ) {
+	this.remain -= rv;
+      }
+      return rv;
+    }
+
+    private void skipRemaining() throws IOException
+    {
+      while( this.remain > 0 ) {
+	if( skip( this.remain ) <= 0 ) {
+	  if( read() < 0 ) {
+	    break;
+	  }
+	}
+      }
+    }
+  };
+
+
+  private char[]           pattern;
+  private int[]            shifts;
+  private boolean          ignoreCase;
+  private boolean          withRows;
+  private boolean          withArchives;
+  private volatile boolean cancelled;
+
+
+  /*
+   * Bei ignoreCase muss das Suchmuster bereits
+   * in Grossbuchstaben uebergeben werden.
+   */
+  ContentSearcher(
+		String  pattern,
+		boolean ignoreCase,
+		boolean withRows,
+		boolean withArchives )
+  {
+    this.pattern      = pattern.toCharArray();
+    this.ignoreCase   = ignoreCase;
+    this.withRows     = withRows;
+    this.withArchives = withArchives;
+    this.cancelled    = false;
+
+    // Verschiebetabelle
+    int m       = this.pattern.length;
+    this.shifts = new int[ 0x100 ];
+    Arrays.fill( this.shifts, m );
+    for( int i = 0; i < (m - 1); i++ ) {
+      this.shifts[ this.pattern[ i ] & 0xFF ] = m - 1 - i;
+    }
+  }
+
+
+  void cancel()
+  {
+    this.cancelled = true;
+  }
+
+
+  /*
+   * Durchsuchen einer Datei
+   *
+   * Rueckgabewert:
+   *   null, wenn der Text nicht gefunden wurde,
+   *   anderenfalls die Liste der auszugebenden Zeilen
+   *   (bei Archivdateien mit den Namen der betreffenden Eintraege)
+   */
+  java.util.List<String> searchFile( Path file ) throws IOException
+  {
+    java.util.List<String> rv = new ArrayList<>();
+    InputStream            in = null;
+    try {
+      in = new BufferedInputStream( Files.newInputStream( file ), BUF_SIZE );
+      ArchiveType archiveType = ArchiveType.NONE;
+      if( this.withArchives ) {
+	archiveType = getArchiveType( file );
+      }
+      switch( archiveType ) {
+	case GZIP:
+	  if( !searchStream( new GZIPInputStream( in ), rv ) ) {
+	    rv = null;
+	  }
+	  break;
+	case TAR:
+	  if( !searchTar( in, rv ) ) {
+	    rv = null;
+	  }
+	  break;
+	case TGZ:
+	  if( !searchTar( new GZIPInputStream( in ), rv ) ) {
+	    rv = null;
+	  }
+	  break;
+	case ZIP:
+	  if( !searchZip( new ZipInputStream( in ), rv ) ) {
+	    rv = null;
+	  }
+	  break;
+	default:
+	  if( !searchStream( in, rv ) ) {
+	    rv = null;
+	  }
+      }
+    }
+    finally {
+      EmuUtil.closeSilently( in );
+    }
+    return rv;
+  }
+
+
+	/* --- private Methoden --- */
+
+  private char fold( char ch )
+  {
+    return this.ignoreCase ? Character.toUpperCase( ch ) : ch;
+  }
+
+
+  private static ArchiveType getArchiveType( Path file )
+  {
+    ArchiveType rv       = ArchiveType.NONE;
+    Path        namePath = file.getFileName();
+    if( namePath != null ) {
+      String fileName = namePath.toString().toLowerCase();
+      if( fileName.endsWith( ".zip" ) || fileName.endsWith( ".jar" ) ) {
+	rv = ArchiveType.ZIP;
+      } else if( fileName.endsWith( ".tar" ) ) {
+	rv = ArchiveType.TAR;
+      } else if( fileName.endsWith( ".tgz" )
+		 || fileName.endsWith( ".tar.gz" ) )
+      {
+	rv = ArchiveType.TGZ;
+      } else if( fileName.endsWith( ".gz" ) ) {
+	rv = ArchiveType.GZIP;
+      }
+    }
+    return rv;
+  }
+
+
+  /*
+   * Suchen in einem Zeichenstrom
+   *
+   * Gefundene Zeilen werden an die Liste angehaengt,
+   * wenn diese ausgegeben werden sollen.
+   */
+  private boolean search(
+			Reader                 reader,
+			java.util.List<String> rows ) throws IOException
+  {
+    boolean      rv        = false;
+    RowCollector collector = (this.withRows ? new RowCollector( rows ) : null);
+    char[]       pattern   = this.pattern;
+    int          m         = pattern.length;
+    int          lastIdx   = m - 1;
+    char[]       buf       = new char[ Math.max( BUF_SIZE, 2 * m ) ];
+    int          len       = 0;		// Anzahl Zeichen im Puffer
+    int          pos       = 0;		// Anfang des Vergleichsfensters
+    int          rowPos    = 0;		// Position fuer die Zeilenausgabe
+    boolean      eof       = false;
+    while( !eof && !this.cancelled && (!rv || (collector != null)) ) {
+
+      // Puffer auffuellen
+      while( len < buf.length ) {
+	int n = reader.read( buf, len, buf.length - len );
+	if( n < 0 ) {
+	  eof = true;
+	  break;
+	}
+	len += n;
+      }
+
+      // Puffer durchsuchen
+      while( (pos + m) <= len ) {
+	char ch = fold( buf[ pos + lastIdx ] );
+	if( ch == pattern[ lastIdx ] ) {
+	  int i = lastIdx - 1;
+	  while( (i >= 0) && (fold( buf[ pos + i ] ) == pattern[ i ]) ) {
+	    --i;
+	  }
+	  if( i < 0 ) {
+	    rv = true;
+	    if( collector == null ) {
+	      break;
+	    }
+	    collector.append( buf, rowPos, pos + m );
+	    collector.setMatched();
+	    rowPos = pos + m;
+	  }
+	}
+	pos += this.shifts[ ch & 0xFF ];
+      }
+      if( rv && (collector == null) ) {
+	break;
+      }
+      if( collector != null ) {
+	collector.append( buf, rowPos, len );
+      }
+
+      /*
+       * Die Zeichen ab dem naechsten Vergleichsfenster
+       * (max. Laenge des Suchmusters - 1) an den Pufferanfang verschieben
+       */
+      int keepFrom = Math.min( pos, len );
+      if( keepFrom > 0 ) {
+	System.arraycopy( buf, keepFrom, buf, 0, len - keepFrom );
+	len -= keepFrom;
+	pos -= keepFrom;
+      }
+      rowPos = len;
+    }
+    if( collector != null ) {
+      collector.finishRow();
+    }
+    return rv;
+  }
+
+
+  /*
+   * Suchen in einem Bytestrom,
+   * der Strom wird nicht geschlossen
+   *
+   * Wird die Datei mit Files.newBufferedReader(...) geoeffnet,
+   * werden beim Lesen UnmappableCharacterException geworfen,
+   * wenn der Zeichensatz nicht passt.
+   * Aus diesem Grund erfolgt hier die Umwandlung
+   * des Byte- in einen Char-Stream mittels InputStreamReader.
+   *
+   * Eine evtl. vorhandene Byte-Order-Markierung wird ausgewertet.
+   */
+  private boolean searchStream(
+			InputStream            in,
+			java.util.List<String> rows ) throws IOException
+  {
+    if( !in.markSupported() ) {
+      in = new BufferedInputStream( in, BUF_SIZE );
+    }
+    String enc   = null;
+    byte[] bom   = new byte[ 3 ];
+    int    nRead = 0;
+    in.mark( bom.length );
+    while( nRead < bom.length ) {
+      int n = in.read( bom, nRead, bom.length - nRead );
+      if( n < 0 ) {
+	break;
+      }
+      nRead += n;
+    }
+    in.reset();
+    if( (nRead == bom.length)
+	&& (bom[ 0 ] == (byte) 0xEF)
+	&& (bom[ 1 ] == (byte) 0xBB)
+	&& (bom[ 2 ] == (byte) 0xBF) )
+    {
+      enc = "UTF-8";
+      in.skip( 3 );
+    }
+    else if( (nRead >= 2)
+	     && (bom[ 0 ] == (byte) 0xFE)
+	     && (bom[ 1 ] == (byte) 0xFF) )
+    {
+      enc = "UTF-16BE";
+      in.skip( 2 );
+    }
+    else if( (nRead >= 2)
+	     && (bom[ 0 ] == (byte) 0xFF)
+	     && (bom[ 1 ] == (byte) 0xFE) )
+    {
+      enc = "UTF-16LE";
+      in.skip( 2 );
+    }
+    Reader reader = null;
+    if( enc != null ) {
+      reader = new InputStreamReader( in, enc );
+    } else {
+      reader = new InputStreamReader( in );
+    }
+    return search( reader, rows );
+  }
+
+
+  private boolean searchTar(
+			InputStream            in,
+			java.util.List<String> rows ) throws IOException
+  {
+    boolean  rv    = false;
+    TarEntry entry = TarEntry.readEntryHeader( in );
+    while( !this.cancelled && (entry != null) ) {
+      long size = entry.getSize();
+      if( size > 0 ) {
+	TarEntryInputStream entryIn = new TarEntryInputStream( in, size );
+	if( entry.isRegularFile() ) {
+	  java.util.List<String> entryRows = new ArrayList<>();
+	  if( searchStream( entryIn, entryRows ) ) {
+	    rows.add( "[" + entry.getName() + "]" );
+	    rows.addAll( entryRows );
+	    rv = true;
+	  }
+	}
+	entryIn.skipRemaining();
+
+	// Rest des letzten 512-Byte-Blocks ueberlesen
+	(new TarEntryInputStream( in, (0L - size) & 0x1FFL )).skipRemaining();
+      }
+      entry = TarEntry.readEntryHeader( in );
+    }
+    return rv;
+  }
+
+
+  private boolean searchZip(
+			ZipInputStream         in,
+			java.util.List<String> rows ) throws IOException
+  {
+    boolean  rv    = false;
+    ZipEntry entry = in.getNextEntry();
+    while( !this.cancelled && (entry != null) ) {
+      if( !entry.isDirectory() ) {
+	java.util.List<String> entryRows = new ArrayList<>();
+	if( searchStream( in, entryRows ) ) {
+	  rows.add( "[" + entry.getName() + "]" );
+	  rows.addAll( entryRows );
+	  rv = true;
+	}
+      }
+      in.closeEntry();
+      entry = in.getNextEntry();
+    }
+    return rv;
+  }
+}
@@ -43,9 +43,6 @@ import java.awt.event.MouseEvent;
 import java.awt.event.WindowEvent;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PushbackInputStream;
-import java.io.Reader;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.FileVisitOption;
@@ -70,6 +67,10 @@ import java.util.HashSet;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
@@ -183,7 +184,7 @@ public class FindFilesFrm
   public static final String TITLE = Main.APPNAME + " Dateisuche";
 
   private static final int    MAX_RESULT_ROWS = 2000;
-  private static final int    MAX_ROW_LEN     = 1024;
+  private static final int    JOBS_PER_THREAD = 4;
   private static final String COPY_TEXT       = "Zeilen als Text kopieren";
   private static final String HELP_PAGE       = "/help/tools/findfiles.htm";
 
@@ -221,6 +222,7 @@ public class FindFilesFrm
   private JCheckBox                cbSubTrees;
   private JCheckBox                cbCaseSensitive;
   private JCheckBox                cbPrintMatchedRows;
+  private JCheckBox                cbArchives;
   private JLabel                   labelCurDir;
   private JLabel                   labelStatus;
   private JList<Object>            list;
@@ -238,6 +240,9 @@ public class FindFilesFrm
   private Long                     findLastModifiedFrom;
   private Long                     findLastModifiedTill;
   private String                   findContentPattern;
+  private boolean                  findInArchives;
+  private volatile ContentSearcher contentSearcher;
+  private ThreadPoolExecutor       executor;
   private FileActionMngr           fileActionMngr;
   private volatile FileVisitResult fileVisitResult;
   private volatile Thread          thread;
@@ -559,155 +564,29 @@ public class FindFilesFrm
     }
 
     // enthaltenen Text pruefen
-    java.util.List<String> matchedRows = new ArrayList<>();
     if( matchesFile ) {
-      String findContentPattern = this.findContentPattern;
-      if( findContentPattern != null ) {
-	int patternLen = findContentPattern.length();
-	if( patternLen > 0 ) {
-	  PushbackInputStream in     = null;
-	  Reader              reader = null;
-	  try {
-	    /*
-	     * Wird die Datei mit Files.newBufferedReader(...) geoeffnet,
-	     * werden beim Lesen UnmappableCharacterException geworfen,
-	     * wenn der Zeichensatz nicht passt.
-	     * Aus diesem Grund erfolgt hier die Umwandlung
-	     * des Byte- in einen Char-Stream mittels InputStreamReader.
-	     *
-	     * Eine evtl. vorhandene Byte-Order-Markierung wird ausgewertet.
-	     */
-	    in = new PushbackInputStream( Files.newInputStream( file ), 3 );
-
-	    String enc   = null;
-	    byte[] bom   = new byte[ 3 ];
-	    int    nRead = in.read( bom );
-	    if( nRead == bom.length ) {
-	      if( (bom[ 0 ] == (byte) 0xEF)
-		  && (bom[ 1 ] == (byte) 0xBB)
-		  && (bom[ 2 ] == (byte) 0xBF) )
-	      {
-		enc = "UTF-8";
-	      }
-	      else if( (bom[ 0 ] == (byte) 0xFE)
-		  && (bom[ 1 ] == (byte) 0xFF) )
-	      {
-		enc = "UTF-16BE";
-		in.unread( bom[ 2 ] );
-	      }
-	      else if( (bom[ 0 ] == (byte) 0xFF)
-		  && (bom[ 1 ] == (byte) 0xFE) )
-	      {
-		enc = "UTF-16LE";
-		in.unread( bom[ 2 ] );
-	      }
-	    } else {
-	      if( nRead > 0 ) {
-		in.unread( bom, 0, Math.max( nRead, bom.length ) );
-	      }
-	    }
-	    if( enc != null ) {
-	      reader = new InputStreamReader( in, enc );
-	    } else {
-	      reader = new InputStreamReader( in );
-	    }
-	    matchesFile = false;
-	    char[] buf  = new char[ patternLen ];
-	    if( reader.read( buf ) == patternLen ) {
-
-	      // Puffer zur Ausgabe der betreffenden Zeile anlegen
-	      StringBuilder rowBuf = null;
-	      if( this.findPrintMatchedRows ) {
-		rowBuf = new StringBuilder( 256 );
-		for( int i = 0; i < buf.length; i++ ) {
-		  char ch = buf[ i ];
-		  if( ch <= 0x0D ) {
-		    rowBuf.setLength( 0 );
-		  } else {
-		    int rowLen = rowBuf.length();
-		    if( rowLen < MAX_ROW_LEN ) {
-		      rowBuf.append( ch );
-		    } else if( rowLen == MAX_ROW_LEN ) {
-		      rowBuf.append( "..." );
-		    }
-		  }
-		}
-	      }
-
-	      // Dateiinhalt pruefen
-	      boolean  matchesRow = false;
-	      boolean  notEOF     = true;
-	      int      begPos     = 0;
-	      while( notEOF ) {
-		boolean matchesBuf = true;
-		for( int i = 0; i < patternLen; i++ ) {
-		  char ch = buf[ (begPos + i) % patternLen ];
-		  if( this.findIgnoreCase ) {
-		    ch = Character.toUpperCase( ch );
-		  }
-		  if( ch != findContentPattern.charAt( i ) ) {
-		    matchesBuf = false;
-		    break;
-		  }
-		}
-		if( matchesBuf ) {
-		  matchesFile = true;
-		  matchesRow  = true;
-		  if( rowBuf == null ) {
-		    /*
-		     * Wenn die betroffenen Zeilen ausgegeben werden sollen,
-		     * muss die Datei auch volstaendig durchgegangen werden.
-		     * Deshalb hier nur abbrechen bei rowBuf == null
-		     */
-		    break;
-		  }
-		}
-		int ch = reader.read();
-		if( ch < 0 ) {
-		  notEOF = false;
-		  break;
-		}
-		buf[ begPos++ ] = (char) ch;
-		if( begPos >= patternLen ) {
-		  begPos = 0;
-		}
-		if( rowBuf != null ) {
-		  if( ch <= 0x0D ) {
-		    if( matchesRow && (rowBuf.length() > 0) ) {
-		      matchedRows.add( rowBuf.toString() );
-		    }
-		    rowBuf.setLength( 0 );
-		    matchesRow = false;
-		  } else {
-		    int rowLen = rowBuf.length();
-		    if( rowLen < MAX_ROW_LEN ) {
-		      rowBuf.append( (char) ch );
-		    } else if( rowLen == MAX_ROW_LEN ) {
-		      rowBuf.append( "..." );
-		    }
+      final ContentSearcher    searcher = this.contentSearcher;
+      final ThreadPoolExecutor executor = this.executor;
+      if( (searcher != null) && (executor != null) ) {
+	/*
+	 * Die Inhaltssuche erfolgt parallel in den Threads des Executors.
+	 * Ist dessen Warteschlange voll,
+	 * durchsucht der aktuelle Thread die Datei selbst.
+	 */
+	matchesFile = false;
+	executor.execute(
+		new Runnable()
+		{
+		  @Override
+		  public void run()
+		  {
+		    searchContent( searcher, file );
 		  }
-		}
-	      }
-	      if( rowBuf != null ) {
-		if( matchesRow && (rowBuf.length() > 0) ) {
-		  matchedRows.add( rowBuf.toString() );
-		}
-	      }
-	    }
-	  }
-	  catch( IOException ex ) {
-	    fireAppendErrorToResult( file, ex );
-	    matchesFile = false;
-	  }
-	  finally {
-	    EmuUtil.closeSilently( reader );
-	    EmuUtil.closeSilently( in );
-	  }
-	}
+		} );
       }
     }
     if( matchesFile ) {
-      fireAppendPathToResult( file, matchedRows );
+      fireAppendPathToResult( file, new ArrayList<String>() );
     }
     return this.fileVisitResult;
   }
@@ -805,11 +684,52 @@ public class FindFilesFrm
       if( (findDir != null) && (this.findFileNamePatterns != null) ) {
 	this.millisStart     = System.currentTimeMillis();
 	this.fileVisitResult = FileVisitResult.CONTINUE;
-	Files.walkFileTree(
+	if( this.contentSearcher != null ) {
+	  int nThreads  = Runtime.getRuntime().availableProcessors();
+	  this.executor = new ThreadPoolExecutor(
+		nThreads,
+		nThreads,
+		1,
+		TimeUnit.SECONDS,
+		new ArrayBlockingQueue<Runnable>( nThreads * JOBS_PER_THREAD ),
+		new ThreadFactory()
+		{
+		  private AtomicInteger threadNum = new AtomicInteger();
+
+		  @Override
+		  public Thread newThread( Runnable r )
+		  {
+		    return new Thread(
+				Main.getThreadGroup(),
+				r,
+				"JKCEMU file search "
+					+ this.threadNum.incrementAndGet() );
+		  }
+		},
+		new ThreadPoolExecutor.CallerRunsPolicy() );
+	}
+	try {
+	  Files.walkFileTree(
 		findDir,
 		EnumSet.noneOf( FileVisitOption.class ),
 		this.findSubTrees ? Integer.MAX_VALUE : 1,
 		this );
+	}
+	finally {
+	  ThreadPoolExecutor executor = this.executor;
+	  if( executor != null ) {
+	    // auf die noch laufenden Inhaltssuchen warten
+	    executor.shutdown();
+	    try {
+	      while( !executor.awaitTermination( 1, TimeUnit.SECONDS ) ) {}
+	    }
+	    catch( InterruptedException ex ) {
+	      cancelContentSearch();
+	      executor.shutdownNow();
+	    }
+	    this.executor = null;
+	  }
+	}
       }
     }
     catch( final Exception ex ) {
@@ -956,6 +876,7 @@ public class FindFilesFrm
     }
     if( rv ) {
       this.fileVisitResult = FileVisitResult.TERMINATE;
+      cancelContentSearch();
       Thread thread        = this.thread;
       if( thread != null ) {
 	thread.interrupt();
@@ -1046,6 +967,7 @@ public class FindFilesFrm
   {
     if( e.getWindow() == this ) {
       this.fileVisitResult = FileVisitResult.TERMINATE;
+      cancelContentSearch();
     }
   }
 
@@ -1076,6 +998,9 @@ public class FindFilesFrm
     this.findLastModifiedFrom = null;
     this.findLastModifiedTill = null;
     this.findContentPattern   = null;
+    this.findInArchives       = false;
+    this.contentSearcher      = null;
+    this.executor             = null;
     this.findCancelled        = false;
     this.findIgnoreCase       = false;
     this.findPrintMatchedRows = false;
@@ -1308,6 +1233,11 @@ public class FindFilesFrm
     gbc.gridy++;
     add( this.cbPrintMatchedRows, gbc );
 
+    this.cbArchives = GUIFactory.createCheckBox(
+			"Auch in ZIP-, TAR- und GZip-Dateien suchen" );
+    gbc.gridy++;
+    add( this.cbArchives, gbc );
+
     this.btnStartStop = GUIFactory.createButton( "Suche starten" );
     gbc.insets.top    = 10;
     gbc.gridy++;
@@ -1545,6 +1475,7 @@ public class FindFilesFrm
 	this.findSubTrees         = this.cbSubTrees.isSelected();
 	this.findIgnoreCase       = !this.cbCaseSensitive.isSelected();
 	this.findPrintMatchedRows = this.cbPrintMatchedRows.isSelected();
+	this.findInArchives       = this.cbArchives.isSelected();
 	this.findContentPattern   = contentPattern;
 	if( (contentPattern != null) && this.findIgnoreCase ) {
 	  /*
@@ -1564,6 +1495,14 @@ public class FindFilesFrm
 	    this.findContentPattern = contentPattern.toUpperCase();
 	  }
 	}
+	this.contentSearcher = null;
+	if( this.findContentPattern != null ) {
+	  this.contentSearcher = new ContentSearcher(
+					this.findContentPattern,
+					this.findIgnoreCase,
+					this.findPrintMatchedRows,
+					this.findInArchives );
+	}
 	synchronized( this ) {
 	  this.thread = new Thread(
 				Main.getThreadGroup(),
@@ -1589,6 +1528,7 @@ public class FindFilesFrm
   private void doStop()
   {
     this.fileVisitResult = FileVisitResult.TERMINATE;
+    cancelContentSearch();
     this.findCancelled   = true;
     this.mnuStop.setEnabled( false );
     updStatusBar();
@@ -1702,6 +1642,15 @@ public class FindFilesFrm
   }
 
 
+  private void cancelContentSearch()
+  {
+    ContentSearcher searcher = this.contentSearcher;
+    if( searcher != null ) {
+      searcher.cancel();
+    }
+  }
+
+
   private boolean checkPopup( MouseEvent e )
   {
     boolean status = false;
@@ -1775,7 +1724,9 @@ public class FindFilesFrm
 			final Path                   file,
 			final java.util.List<String> rows )
   {
-    this.nFilesFound++;
+    synchronized( this ) {
+      this.nFilesFound++;
+    }
     EventQueue.invokeLater(
 		new Runnable()
 		{
@@ -2183,6 +2134,26 @@ public class FindFilesFrm
   }
 
 
+  /*
+   * Durchsuchen des Inhalts einer Datei,
+   * wird in den Threads des Executors aufgerufen
+   */
+  private void searchContent( ContentSearcher searcher, Path file )
+  {
+    if( this.fileVisitResult == FileVisitResult.CONTINUE ) {
+      try {
+	java.util.List<String> rows = searcher.searchFile( file );
+	if( rows != null ) {
+	  fireAppendPathToResult( file, rows );
+	}
+      }
+      catch( IOException ex ) {
+	fireAppendErrorToResult( file, ex );
+      }
+    }
+  }
+
+
   public void searchFinished()
   {
     this.timerDuration.stop();
@@ -2258,6 +2229,7 @@ public class FindFilesFrm
     this.comboContentPattern.setEnabled( stateInput );
     this.cbCaseSensitive.setEnabled( stateInput );
     this.cbPrintMatchedRows.setEnabled( stateInput );
+    this.cbArchives.setEnabled( stateInput );
     this.cbSubTrees.setEnabled( stateInput );
     this.labelCurDir.setEnabled( stateRunning );
     this.fldCurDir.setEnabled( stateRunning );
@@ -7,14 +7,38 @@
  *
  * Die Register werden in int-Variablen gespeichert.
  * Die nicht genutzten oberen Bits muessen immer 0 sein.
+ *
+ * Die Befehle werden normalerweise ueber geschachtelte Verzweigungen
+ * dekodiert. Ist die Systemeigenschaft z80emu.dispatch auf "table"
+ * gesetzt, wird stattdessen jeder Befehl ueber eine Tabelle
+ * mit bereits dekodierten Befehlsroutinen ausgefuehrt.
+ *
+ * Ist die Systemeigenschaft z80emu.blockcache auf "true" gesetzt,
+ * werden bei unbegrenzter Geschwindigkeit haeufig ausgefuehrte
+ * Codebloecke ohne die sonst nach jedem Befehl notwendige
+ * Interrupt- und Taktzyklenverwaltung am Stueck abgearbeitet
+ * (siehe getCodeBlock()).
+ *
+ * Die Geschwindigkeitsbremse arbeitet normalerweise mit Thread.sleep(...).
+ * Ist die Systemeigenschaft z80emu.speedpacing auf "park" gesetzt,
+ * laeuft die Emulation stattdessen in Zeitscheiben von einer
+ * emulierten Millisekunde und wartet mit LockSupport.parkNanos(...)
+ * auf einen absoluten Zeitpunkt (siehe checkSpeedPark()).
+ * Dabei darf die Emulation der Echtzeit um die in der Systemeigenschaft
+ * z80emu.runaheadmillis angegebene Zeit vorauslaufen.
  */
 
 package z80emu;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 
 public class Z80CPU implements Runnable
@@ -29,18 +53,121 @@ public class Z80CPU implements Runnable
 			DEBUG_STEP_INTO,
 			DEBUG_STEP_TO_RET };
 
+  private static interface InstHandler
+  {
+    public void exec( int opCode );
+  };
+
+  private static class CodeBlock
+  {
+    private byte[]    code;
+    private boolean[] instBeg;
+
+    private CodeBlock( byte[] code, boolean[] instBeg )
+    {
+      this.code    = code;
+      this.instBeg = instBeg;
+    }
+  };
+
   private static class PCListenerItem
   {
     private Z80PCListener listener;
-    private int[]         pc;
+    private boolean[]     pcFlags;	// pro Adresse: Listener aufrufen
 
     private PCListenerItem( Z80PCListener listener, int... pc )
     {
       this.listener = listener;
-      this.pc       = pc;
+      this.pcFlags  = new boolean[ 0x10000 ];
+      if( pc != null ) {
+	for( int addr : pc ) {
+	  this.pcFlags[ addr & 0xFFFF ] = true;
+	}
+      }
     }
   };
 
+  /*
+   * Haltepunkte, aufgeteilt in solche, die nur bei einer
+   * bestimmten Programmadresse ausloesen koennen und deshalb
+   * ueber den Program Counter indiziert werden,
+   * und alle anderen, die vor jedem Befehl geprueft werden
+   *
+   * Beide Teile enthalten nur aufsteigende Indexe in das Feld
+   * aller Haltepunkte, sodass die Haltepunkte weiterhin
+   * in der urspruenglichen Reihenfolge geprueft werden koennen.
+   */
+  private static class BreakpointIndex
+  {
+    private Z80Breakpoint[] all;
+    private int[][]         byPC;	// null: keine PC-Haltepunkte
+    private int[]           others;	// null: keine anderen Haltepunkte
+
+    private BreakpointIndex( Z80Breakpoint[] breakpoints )
+    {
+      this.all    = breakpoints;
+      this.byPC   = null;
+      this.others = null;
+
+      int nOthers = 0;
+      for( int i = 0; i < breakpoints.length; i++ ) {
+	Z80Breakpoint bp = breakpoints[ i ];
+	if( bp instanceof Z80PCBreakpoint ) {
+	  if( this.byPC == null ) {
+	    this.byPC = new int[ 0x10000 ][];
+	  }
+	  int   addr = ((Z80PCBreakpoint) bp).getAddress() & 0xFFFF;
+	  int[] a    = this.byPC[ addr ];
+	  if( a != null ) {
+	    a = Arrays.copyOf( a, a.length + 1 );
+	  } else {
+	    a = new int[ 1 ];
+	  }
+	  a[ a.length - 1 ] = i;
+	  this.byPC[ addr ] = a;
+	} else if( bp != null ) {
+	  if( this.others == null ) {
+	    this.others = new int[ breakpoints.length - i ];
+	  }
+	  this.others[ nOthers++ ] = i;
+	}
+      }
+      if( this.others != null ) {
+	this.others = Arrays.copyOf( this.others, nOthers );
+      }
+    }
+  };
+
+
+  public static final String PROP_DISPATCH           = "z80emu.dispatch";
+  public static final String VALUE_DISPATCH_TABLE    = "table";
+  public static final String PROP_BLOCK_CACHE        = "z80emu.blockcache";
+  public static final String PROP_TSTATES_BATCH      = "z80emu.tstatesbatch";
+  public static final String PROP_SPEED_PACING       = "z80emu.speedpacing";
+  public static final String VALUE_SPEED_PACING_PARK = "park";
+  public static final String PROP_RUN_AHEAD_MILLIS   = "z80emu.runaheadmillis";
+
+  // Markierungen in der Tabelle fuer setMemWatchpoints(...)
+  public static final int MEM_WATCH_READ  = 0x01;
+  public static final int MEM_WATCH_WRITE = 0x02;
+
+  // Voreinstellung fuer PROP_RUN_AHEAD_MILLIS
+  private static final int DEFAULT_RUN_AHEAD_MILLIS = 2;
+
+  /*
+   * max. Rueckstand gegenueber der Echtzeit bei der Bremse
+   * mit parkNanos(...), bevor der Rueckstand verworfen wird
+   */
+  private static final long MAX_SPEED_LAG_NANOS = 200000000L;
+
+  // max. Anzahl Taktzyklen bis zur naechsten Meldung an Z80DeadlineListener
+  private static final int MAX_TSTATES_TO_DEADLINE = 0x100000;
+
+  // Grenzwerte fuer die Codebloecke
+  private static final int CODE_BLOCK_MIN_HITS    = 8;
+  private static final int CODE_BLOCK_MIN_INSTS   = 2;
+  private static final int CODE_BLOCK_MAX_INSTS   = 32;
+  private static final int CODE_BLOCK_MAX_TSTATES = 256;
 
   // Masken fuer die einzelnen Bits
   private static final int BIT0 = 0x01;
@@ -56,12 +183,25 @@ public class Z80CPU implements Runnable
   // private Attribute
   private volatile PCListenerItem           pcListener;
   private volatile Z80AddressListener       addrListener;
+  private Z80TStatesListener[]              allTStatesListeners;
   private volatile Z80TStatesListener[]     tStatesListeners;
+  private volatile Z80DeadlineListener[]    deadlineListeners;
+  private Z80DeadlineListener[]             curDeadlineListeners;
+  private boolean                           tStatesBatch;
+  private int                               pendingTStates;
+  private int                               tStatesToDeadline;
   private Z80Memory                         memory;
+  private byte[][]                          memReadPages;
+  private int[]                             memReadPageOffs;
+  private byte[][]                          memWritePages;
+  private int[]                             memWritePageOffs;
   private Z80IOSystem                       ioSys;
   private Thread                            thread;
   private volatile PrintWriter              debugTracer;
-  private volatile Z80Breakpoint[]          breakpoints;
+  private volatile Z80TraceBuffer           debugTraceBuffer;
+  private volatile BreakpointIndex          breakpoints;
+  private volatile byte[]                   memWatchFlags;
+  private volatile Z80MemWatchListener      memWatchListener;
   private volatile Z80InterruptSource[]     interruptSources;
   private Collection<Z80HaltStateListener>  haltStateListeners;
   private Collection<Z80MaxSpeedListener>   maxSpeedListeners;
@@ -74,6 +214,9 @@ public class Z80CPU implements Runnable
   private volatile long                     speedNanosBeg;
   private volatile long                     speedNanosEnd;
   private int                               speedBrakeTStates;
+  private long                              speedCheckTStates;
+  private long                              runAheadNanos;
+  private boolean                           speedPark;
   private volatile long                     speedTStates;
   private volatile long                     processedTStates;
   private volatile int                      instTStates;
@@ -85,6 +228,14 @@ public class Z80CPU implements Runnable
   private Integer                           afterHaltPC;
   private int                               instBegPC;
   private int                               preCode;
+  private InstHandler[]                     instHandlers;
+  private InstHandler[]                     cbInstHandlers;
+  private CodeBlock[]                       codeBlocks;
+  private int[]                             codeBlockHits;
+  private volatile boolean                  codeBlocksInvalid;
+  private int                               curBlockBegAddr;
+  private int                               curBlockLen;
+  private boolean                           curBlockModified;
   private int                               regPC;
   private int                               regSP;
   private int                               regA;
@@ -137,7 +288,14 @@ public class Z80CPU implements Runnable
     this.thread                = null;
     this.pcListener            = null;
     this.addrListener          = null;
+    this.allTStatesListeners   = null;
     this.tStatesListeners      = null;
+    this.deadlineListeners     = null;
+    this.curDeadlineListeners  = null;
+    this.pendingTStates        = 0;
+    this.tStatesToDeadline     = 0;
+    this.tStatesBatch          = Boolean.parseBoolean(
+			System.getProperty( PROP_TSTATES_BATCH, "true" ) );
     this.interruptSources      = null;
     this.haltStateListeners    = new ArrayList<>();
     this.maxSpeedListeners     = new ArrayList<>();
@@ -145,14 +303,43 @@ public class Z80CPU implements Runnable
     this.instTStatesMngr       = null;
     this.breakpoints           = null;
     this.debugTracer           = null;
+    this.debugTraceBuffer      = null;
+    this.memWatchFlags         = null;
+    this.memWatchListener      = null;
     this.maxSpeedKHz           = -1;
     this.brakeEnabled          = true;
+    this.speedCheckTStates     = 0L;
+    this.speedPark             = VALUE_SPEED_PACING_PARK.equalsIgnoreCase(
+				System.getProperty( PROP_SPEED_PACING ) );
+    this.runAheadNanos         = Math.max(
+			Integer.getInteger(
+				PROP_RUN_AHEAD_MILLIS,
+				DEFAULT_RUN_AHEAD_MILLIS ).intValue(),
+			0 ) * 1000000L;
     this.active                = false;
     this.haltState             = false;
     this.debugEnabled          = false;
     this.waitMode              = false;
     this.waitStates            = new AtomicInteger( 0 );
     this.waitMonitor           = new Object();
+    this.instHandlers          = null;
+    this.cbInstHandlers        = null;
+    this.codeBlocks            = null;
+    this.codeBlockHits         = null;
+    this.codeBlocksInvalid     = false;
+    this.curBlockBegAddr       = 0;
+    this.curBlockLen           = 0;
+    this.curBlockModified      = false;
+    updMemPages();
+    if( Boolean.getBoolean( PROP_BLOCK_CACHE ) ) {
+      this.codeBlocks    = new CodeBlock[ 0x10000 ];
+      this.codeBlockHits = new int[ 0x10000 ];
+    }
+    if( VALUE_DISPATCH_TABLE.equalsIgnoreCase(
+				System.getProperty( PROP_DISPATCH ) ) )
+    {
+      createInstHandlers();
+    }
 
     // Paritaeten fuer den Byte-Bereich berechnen
     this.parity = new boolean[ 0x100 ];
@@ -207,7 +394,8 @@ public class Z80CPU implements Runnable
     if( this.pcListener != null ) {
       throw new IllegalStateException( "Zu viele Z80PCListeners" );
     }
-    this.pcListener = new PCListenerItem( listener, pc );
+    this.pcListener        = new PCListenerItem( listener, pc );
+    this.codeBlocksInvalid = true;
   }
 
 
@@ -216,7 +404,8 @@ public class Z80CPU implements Runnable
     PCListenerItem item = this.pcListener;
     if( item != null ) {
       if( item.listener == listener ) {
-	this.pcListener = null;
+	this.pcListener        = null;
+	this.codeBlocksInvalid = true;
       }
     }
   }
@@ -270,9 +459,16 @@ public class Z80CPU implements Runnable
   }
 
 
+  /*
+   * Ein Z80DeadlineListener wird nur dann gebuendelt benachrichtigt,
+   * wenn das nicht ueber die System-Property PROP_TSTATES_BATCH
+   * abgeschaltet wurde.
+   * Ansonsten wird er wie jeder andere Z80TStatesListener
+   * nach jedem Befehl aufgerufen.
+   */
   public synchronized void addTStatesListener( Z80TStatesListener listener )
   {
-    Z80TStatesListener[] listeners = this.tStatesListeners;
+    Z80TStatesListener[] listeners = this.allTStatesListeners;
     if( listeners != null ) {
       Collection<Z80TStatesListener> c
 			= new ArrayList<>( listeners.length + 1 );
@@ -281,21 +477,21 @@ public class Z80CPU implements Runnable
       }
       c.add( listener );
       try {
-	this.tStatesListeners = c.toArray(
-					new Z80TStatesListener[ c.size() ] );
+	setTStatesListeners(
+		c.toArray( new Z80TStatesListener[ c.size() ] ) );
       }
       catch( ArrayStoreException ex ) {}
     } else {
-      listeners             = new Z80TStatesListener[ 1 ];
-      listeners[ 0 ]        = listener;
-      this.tStatesListeners = listeners;
+      listeners      = new Z80TStatesListener[ 1 ];
+      listeners[ 0 ] = listener;
+      setTStatesListeners( listeners );
     }
   }
 
 
   public synchronized void removeTStatesListener( Z80TStatesListener listener )
   {
-    Z80TStatesListener[] listeners = this.tStatesListeners;
+    Z80TStatesListener[] listeners = this.allTStatesListeners;
     if( listeners != null ) {
       Collection<Z80TStatesListener> c = new ArrayList<>( listeners.length );
       for( int i = 0; i < listeners.length; i++ ) {
@@ -304,11 +500,11 @@ public class Z80CPU implements Runnable
 	}
       }
       if( c.isEmpty() ) {
-	this.tStatesListeners = null;
+	setTStatesListeners( null );
       } else {
 	try {
-	  this.tStatesListeners = c.toArray(
-					new Z80TStatesListener[ c.size() ] );
+	  setTStatesListeners(
+		c.toArray( new Z80TStatesListener[ c.size() ] ) );
 	}
 	catch( ArrayStoreException ex ) {}
       }
@@ -340,12 +536,23 @@ public class Z80CPU implements Runnable
   }
 
 
+  /*
+   * Gibt an, ob die Befehle ueber Befehlstabellen dekodiert werden
+   * (siehe PROP_DISPATCH)
+   */
+  public boolean isTableDispatch()
+  {
+    return this.instHandlers != null;
+  }
+
+
   public synchronized void setBrakeEnabled( boolean state )
   {
     if( state != this.brakeEnabled ) {
       this.speedNanosBeg      = System.nanoTime();
       this.speedNanosEnd      = -1L;
       this.speedBrakeTStates  = 0;
+      this.speedCheckTStates  = 0L;
       this.speedTStates       = 0L;
       this.speedUnlimitedTill = 0L;
       this.brakeEnabled       = state;
@@ -433,6 +640,7 @@ public class Z80CPU implements Runnable
     this.speedNanosEnd      = -1L;
     this.speedUnlimitedTill = 0L;
     this.speedBrakeTStates  = 0;
+    this.speedCheckTStates  = 0L;
     this.speedTStates       = 0L;
   }
 
@@ -544,43 +752,74 @@ public class Z80CPU implements Runnable
 
 
   public void writeDebugStatusEntry( PrintWriter writer )
+  {
+    writeDebugStatusEntry(
+		writer,
+		getRegAF(),
+		getRegBC(),
+		getRegDE(),
+		getRegHL(),
+		this.regIX,
+		this.regIY,
+		this.regSP,
+		this.regPC,
+		this.memory );
+  }
+
+
+  /*
+   * Ausgabe eines Eintrags der Befehlsaufzeichnung
+   * aus den uebergebenen Registerinhalten,
+   * wird auch von Z80TraceBuffer verwendet
+   */
+  public static void writeDebugStatusEntry(
+					PrintWriter writer,
+					int         af,
+					int         bc,
+					int         de,
+					int         hl,
+					int         ix,
+					int         iy,
+					int         sp,
+					int         pc,
+					Z80MemView  memory )
   {
     if( writer != null ) {
 
       // Register ausgeben
       writer.print( "AF=" );
-      writer.printf( "%04X", getRegAF() );
+      writer.printf( "%04X", af );
       writer.print( " [" );
-      writer.print( this.flagSign	? "S" : "." );
-      writer.print( this.flagZero	? "Z" : "." );
-      writer.write( this.flag5	? "1" : "." );
-      writer.write( this.flagHalf	? "H" : "." );
-      writer.print( this.flag3	? "1" : "." );
-      writer.print( this.flagPV	? "P" : "." );
-      writer.print( this.flagN	? "N" : "." );
-      writer.print( this.flagCarry	? "C" : "." );
+      writer.print( (af & BIT7) != 0	? "S" : "." );
+      writer.print( (af & BIT6) != 0	? "Z" : "." );
+      writer.write( (af & BIT5) != 0	? "1" : "." );
+      writer.write( (af & BIT4) != 0	? "H" : "." );
+      writer.print( (af & BIT3) != 0	? "1" : "." );
+      writer.print( (af & BIT2) != 0	? "P" : "." );
+      writer.print( (af & BIT1) != 0	? "N" : "." );
+      writer.print( (af & BIT0) != 0	? "C" : "." );
       writer.print( "] BC=" );
-      writer.printf( "%04X", getRegBC() );
+      writer.printf( "%04X", bc );
       writer.print( " DE=" );
-      writer.printf( "%04X", getRegDE() );
+      writer.printf( "%04X", de );
       writer.print( " HL=" );
-      writer.printf( "%04X", getRegHL() );
+      writer.printf( "%04X", hl );
       writer.print( " IX=" );
-      writer.printf( "%04X", this.regIX );
+      writer.printf( "%04X", ix );
       writer.print( " IY=" );
-      writer.printf( "%04X", this.regIY );
+      writer.printf( "%04X", iy );
       writer.print( " SP=" );
-      writer.printf( "%04X", this.regSP );
+      writer.printf( "%04X", sp );
 
       // Adresse ausgeben
-      int addr = this.regPC;
+      int addr = pc;
       writer.print( "   PC=" );
       writer.printf( "%04X", addr );
       writer.print( "  " );
 
       // Befehl reassemblieren
       Z80ReassInstr instr = Z80Reassembler.reassInstruction(
-							this.memory,
+							memory,
 							addr );
       if( instr != null ) {
 	// Befehlscode ausgeben
@@ -619,7 +858,7 @@ public class Z80CPU implements Runnable
 	  }
 	}
       } else {
-	writer.printf( "%02X", this.memory.getMemByte( addr, true ) );
+	writer.printf( "%02X", memory.getMemByte( addr, true ) );
       }
     }
   }
@@ -677,9 +916,42 @@ public class Z80CPU implements Runnable
   }
 
 
+  /*
+   * Haltepunkte, die Z80PCBreakpoint implementieren,
+   * werden nur bei der jeweiligen Programmadresse geprueft.
+   */
   public void setBreakpoints( Z80Breakpoint[] breakpoints )
   {
-    this.breakpoints = breakpoints;
+    BreakpointIndex index = null;
+    if( breakpoints != null ) {
+      if( breakpoints.length > 0 ) {
+	index = new BreakpointIndex( breakpoints );
+      }
+    }
+    this.breakpoints = index;
+  }
+
+
+  /*
+   * Ueberwachung von Speicherzugriffen im Debug-Modus
+   *
+   * Parameter:
+   *   flags:    Tabelle mit 64K Eintraegen, ein Eintrag pro Adresse,
+   *             zu ueberwachende Zugriffe sind mit MEM_WATCH_READ
+   *             und/oder MEM_WATCH_WRITE markiert
+   *             (null: keine Ueberwachung)
+   *   listener: wird bei einem Zugriff auf eine markierte Adresse
+   *             direkt nach dem Zugriff aufgerufen
+   */
+  public void setMemWatchpoints(
+			byte[]              flags,
+			Z80MemWatchListener listener )
+  {
+    if( (flags != null) && (flags.length < 0x10000) ) {
+      throw new IllegalArgumentException( "flags.length < 0x10000" );
+    }
+    this.memWatchListener = listener;
+    this.memWatchFlags    = (listener != null ? flags : null);
   }
 
 
@@ -689,6 +961,17 @@ public class Z80CPU implements Runnable
   }
 
 
+  /*
+   * Binaere Befehlsaufzeichnung,
+   * wird im Debug-Modus anstelle bzw. zusaetzlich
+   * zu einem Text-Tracer bedient
+   */
+  public void setDebugTraceBuffer( Z80TraceBuffer traceBuffer )
+  {
+    this.debugTraceBuffer = traceBuffer;
+  }
+
+
 	/* --- Operationen mit dem Hauptspeicher --- */
 
   public int doPop()
@@ -718,6 +1001,135 @@ public class Z80CPU implements Runnable
   }
 
 
+  /*
+   * Die Methode holt sich die Seitentabellen fuer den direkten
+   * Speicherzugriff neu vom Arbeitsspeicher.
+   * Sie muss aufgerufen werden, wenn der Arbeitsspeicher
+   * andere Tabellenobjekte liefert,
+   * z.B. nach dem Wechsel des emulierten Systems.
+   */
+  public void updMemPages()
+  {
+    byte[][] readPages     = null;
+    int[]    readPageOffs  = null;
+    byte[][] writePages    = null;
+    int[]    writePageOffs = null;
+    if( this.memory instanceof Z80PagedMemory ) {
+      Z80PagedMemory memory = (Z80PagedMemory) this.memory;
+      readPages     = memory.getReadPages();
+      readPageOffs  = memory.getReadPageOffs();
+      writePages    = memory.getWritePages();
+      writePageOffs = memory.getWritePageOffs();
+    }
+    if( (readPages == null) || (readPageOffs == null)
+	|| (readPages.length < Z80PagedMemory.PAGE_COUNT)
+	|| (readPageOffs.length < Z80PagedMemory.PAGE_COUNT) )
+    {
+      readPages    = null;
+      readPageOffs = null;
+    }
+    if( (writePages == null) || (writePageOffs == null)
+	|| (writePages.length < Z80PagedMemory.PAGE_COUNT)
+	|| (writePageOffs.length < Z80PagedMemory.PAGE_COUNT) )
+    {
+      writePages    = null;
+      writePageOffs = null;
+    }
+    this.memReadPages     = readPages;
+    this.memReadPageOffs  = readPageOffs;
+    this.memWritePages    = writePages;
+    this.memWritePageOffs = writePageOffs;
+  }
+
+
+  /*
+   * Die Methoden loadState und saveState lesen bzw. schreiben
+   * den Zustand der CPU (Register, Interrupt-Status, HALT-Zustand).
+   * Sie duerfen nur aufgerufen werden, wenn die CPU-Emulation
+   * nicht laeuft oder sich im Pause-Zustand befindet.
+   */
+  public void loadState( DataInput in ) throws IOException
+  {
+    setHaltState( false );
+    setRegAF( in.readUnsignedShort() );
+    setRegBC( in.readUnsignedShort() );
+    setRegDE( in.readUnsignedShort() );
+    setRegHL( in.readUnsignedShort() );
+    setRegAF2( in.readUnsignedShort() );
+    setRegBC2( in.readUnsignedShort() );
+    setRegDE2( in.readUnsignedShort() );
+    setRegHL2( in.readUnsignedShort() );
+    setRegIX( in.readUnsignedShort() );
+    setRegIY( in.readUnsignedShort() );
+    setRegSP( in.readUnsignedShort() );
+    setRegPC( in.readUnsignedShort() );
+    setRegI( in.readUnsignedByte() );
+    setRegR( in.readUnsignedByte() );
+
+    int     interruptMode = in.readUnsignedByte();
+    int     preCode       = in.readUnsignedByte();
+    int     haltPC        = in.readUnsignedShort();
+    boolean haltState     = in.readBoolean();
+    if( (interruptMode > 2)
+	|| ((preCode != 0)
+		&& (preCode != 0xCB)
+		&& (preCode != 0xDD)
+		&& (preCode != 0xED)
+		&& (preCode != 0xFD)) )
+    {
+      throw new IOException( "Ung\u00FCltiger CPU-Zustand" );
+    }
+    this.interruptMode     = interruptMode;
+    this.preCode           = (preCode != 0 ? preCode : -1);
+    this.iff1              = in.readBoolean();
+    this.iff2              = in.readBoolean();
+    this.lastInstWasEIorDI = in.readBoolean();
+    this.nmiFired          = in.readBoolean();
+    this.waitMode          = in.readBoolean();
+    this.lastInstWasRET    = false;
+    this.debugCallLevel    = 0;
+    this.instTStates       = 0;
+    this.instBegPC         = haltPC;
+    this.waitStates.set( 0 );
+    if( haltState ) {
+      setHaltState( true );
+    }
+    resetSpeed();
+  }
+
+
+  public void saveState( DataOutput out ) throws IOException
+  {
+    int pc = this.regPC;
+    if( this.haltState && (this.afterHaltPC != null) ) {
+      pc = this.afterHaltPC.intValue();
+    }
+    out.writeShort( getRegAF() );
+    out.writeShort( getRegBC() );
+    out.writeShort( getRegDE() );
+    out.writeShort( getRegHL() );
+    out.writeShort( getRegAF2() );
+    out.writeShort( getRegBC2() );
+    out.writeShort( getRegDE2() );
+    out.writeShort( getRegHL2() );
+    out.writeShort( this.regIX );
+    out.writeShort( this.regIY );
+    out.writeShort( this.regSP );
+    out.writeShort( pc );
+    out.writeByte( this.interruptReg );
+    out.writeByte( getRegR() );
+    out.writeByte( this.interruptMode );
+    out.writeByte( this.preCode >= 0 ? this.preCode : 0 );
+    out.writeShort( this.haltState ? this.regPC : this.instBegPC );
+    out.writeBoolean( this.haltState );
+    out.writeBoolean( this.iff1 );
+    out.writeBoolean( this.iff2 );
+    out.writeBoolean( this.lastInstWasEIorDI );
+    out.writeBoolean( this.nmiFired );
+    out.writeBoolean( this.waitMode );
+  }
+
+
 	/* --- Zugriff auf Flags --- */
 
   public boolean getFlagSign()
@@ -1141,14 +1553,13 @@ public class Z80CPU implements Runnable
 
 	  // WAIT-Mode
 	  if( this.waitMode ) {
-	    Z80TStatesListener[] tStatesListeners = this.tStatesListeners;
-	    if( tStatesListeners != null ) {
+	    if( (this.tStatesListeners != null)
+		|| (this.deadlineListeners != null) )
+	    {
 	      while( this.active && this.waitMode ) {
 		this.processedTStates++;
 		this.speedTStates++;
-		for( int i = 0; i < tStatesListeners.length; i++ ) {
-		  tStatesListeners[ i ].z80TStatesProcessed( this, 1 );
-		}
+		fireTStatesProcessed( 1 );
 	      }
 	    }
 	  }
@@ -1232,7 +1643,10 @@ public class Z80CPU implements Runnable
 	   * Debugger- und Pausesteuerung
 	   */
 	  if( (this.action == Action.PAUSE) || this.debugEnabled ) {
-	    if( this.debugEnabled && (this.debugTracer != null) ) {
+	    if( this.debugEnabled
+		&& ((this.debugTracer != null)
+			|| (this.debugTraceBuffer != null)) )
+	    {
 	      doDebugTrace( nmiAccepted, interruptSource );
 	    }
 
@@ -1240,14 +1654,9 @@ public class Z80CPU implements Runnable
 	     * Pruefen, ob der Debugger anhalten soll
 	     */
 	    boolean         pause       = false;
-	    Z80Breakpoint[] breakpoints = this.breakpoints;
+	    BreakpointIndex breakpoints = this.breakpoints;
 	    if( breakpoints != null ) {
-	      for( int i = 0; i < breakpoints.length; i++ ) {
-		if( breakpoints[ i ].matches( this, interruptSource ) ) {
-		  breakpoint = breakpoints[ i ];
-		  break;
-		}
-	      }
+	      breakpoint = matchBreakpoints( breakpoints, interruptSource );
 	    }
 	    if( (breakpoint == null)
 		&& ((this.action == Action.PAUSE)
@@ -1272,6 +1681,7 @@ public class Z80CPU implements Runnable
 	      this.stepOverBreakAddr = -1;
 	      this.stepOverSP        = -1;
 	      this.walkBreakAddr     = -1;
+	      flushPendingTStates();
 	      updStatusListeners( breakpoint, interruptSource );
 	      synchronized( this.waitMonitor ) {
 		this.speedNanosEnd = System.nanoTime();
@@ -1300,10 +1710,9 @@ public class Z80CPU implements Runnable
 	  if( !this.haltState ) {
 	    PCListenerItem pcListener = this.pcListener;
 	    if( pcListener != null ) {
-	      for( int i = 0; i < pcListener.pc.length; i++ ) {
-		if( pcListener.pc[ i ] == this.regPC ) {
-		  pcListener.listener.z80PCChanged( this, this.regPC );
-		}
+	      if( pcListener.pcFlags[ this.regPC ] ) {
+		flushPendingTStates();
+		pcListener.listener.z80PCChanged( this, this.regPC );
 	      }
 	    }
 	  }
@@ -1314,10 +1723,18 @@ public class Z80CPU implements Runnable
 	  incRegR();
 	  this.instTStates += 4;
 	} else {
-	  // BefehlsOpCode lesen und PC weitersetzen
-	  opCode     = readMemByteM1( this.regPC );
-	  this.regPC = (this.regPC + 1) & 0xFFFF;
-	  execInst( opCode );
+	  CodeBlock codeBlock = null;
+	  if( (this.codeBlocks != null) && (this.preCode < 0) ) {
+	    codeBlock = getCodeBlock();
+	  }
+	  if( codeBlock != null ) {
+	    execCodeBlock( codeBlock );
+	  } else {
+	    // BefehlsOpCode lesen und PC weitersetzen
+	    opCode     = readMemByteM1( this.regPC );
+	    this.regPC = (this.regPC + 1) & 0xFFFF;
+	    execInst( opCode );
+	  }
 	}
 
 	Z80InstrTStatesMngr tStatesMngr = this.instTStatesMngr;
@@ -1328,23 +1745,20 @@ public class Z80CPU implements Runnable
 							this.instTStates );
 	}
 
-	this.instTStates      += this.waitStates.getAndSet( 0 );
+	// atomare Operation nur, wenn ueberhaupt Wartezyklen anstehen
+	if( this.waitStates.get() != 0 ) {
+	  this.instTStates += this.waitStates.getAndSet( 0 );
+	}
 	this.processedTStates += this.instTStates;
 	this.speedTStates     += this.instTStates;
 
 	// verbrauchte Anzahl Taktzyklen melden
-	Z80TStatesListener[] tStatesListeners = this.tStatesListeners;
-	if( tStatesListeners != null ) {
-	  for( int i = 0; i < tStatesListeners.length; i++ ) {
-	    tStatesListeners[ i ].z80TStatesProcessed(
-						this,
-						this.instTStates );
-	  }
-	}
+	fireTStatesProcessed( this.instTStates );
       }
     }
     catch( InterruptedException ex ) {}
     finally {
+      flushPendingTStates();
       this.active = false;
       updStatusListeners( null, null );
     }
@@ -1364,29 +1778,35 @@ public class Z80CPU implements Runnable
     if( this.brakeEnabled
 	&& (this.speedUnlimitedTill < this.speedTStates) )
     {
-      /*
-       * Geschwindigkeitsbremse nicht nach jedem Befehl aktivieren,
-       * da sonst zuviel Rechenzeit fuer die Bremse selbst
-       * benoetigt wird
-       */
-      if( this.speedBrakeTStates < 200 ) {
-	this.speedBrakeTStates++;
+      if( this.speedPark ) {
+	if( this.speedTStates >= this.speedCheckTStates ) {
+	  checkSpeedPark();
+	}
       } else {
-	this.speedBrakeTStates = 0;
+	/*
+	 * Geschwindigkeitsbremse nicht nach jedem Befehl aktivieren,
+	 * da sonst zuviel Rechenzeit fuer die Bremse selbst
+	 * benoetigt wird
+	 */
+	if( this.speedBrakeTStates < 200 ) {
+	  this.speedBrakeTStates++;
+	} else {
+	  this.speedBrakeTStates = 0;
 
-	if( this.maxSpeedKHz > 0 ) {
-	  long nanosToUse = (long) ((float) this.speedTStates
+	  if( this.maxSpeedKHz > 0 ) {
+	    long nanosToUse = (long) ((float) this.speedTStates
 						/ (float) this.maxSpeedKHz )
 						* 1000000L;
-	  long usedNanos  = (this.speedNanosEnd > 0L) ?
+	    long usedNanos  = (this.speedNanosEnd > 0L) ?
 			(this.speedNanosEnd - this.speedNanosBeg)
 			: (System.nanoTime() - this.speedNanosBeg);
 
-	  if( nanosToUse > usedNanos ) {
-	    long diffNanos = nanosToUse - usedNanos;
-	    Thread.sleep(
+	    if( nanosToUse > usedNanos ) {
+	      long diffNanos = nanosToUse - usedNanos;
+	      Thread.sleep(
 			diffNanos / 1000000L,
 			(int) (diffNanos % 1000000L) );
+	    }
 	  }
 	}
       }
@@ -1394,7 +1814,68 @@ public class Z80CPU implements Runnable
   }
 
 
+  /*
+   * Geschwindigkeitsbremse mit absolutem Zielzeitpunkt
+   *
+   * Die Methode wird jeweils nach einer emulierten Millisekunde
+   * aufgerufen. Der Zielzeitpunkt ergibt sich immer aus dem Beginn
+   * der Zeitmessung und den seitdem verarbeiteten Taktzyklen.
+   * Damit wird ein zu langes Warten automatisch in den folgenden
+   * Zeitscheiben ausgeglichen. Gewartet wird erst, wenn die Emulation
+   * der Echtzeit um mehr als runAheadNanos vorauslaeuft,
+   * sodass kurze Verzoegerungen durch das Betriebssystem
+   * nicht zu Aussetzern fuehren.
+   * Liegt die Emulation zu weit zurueck (z.B. bei einem ausgelasteten
+   * Rechner), wird der Rueckstand verworfen anstatt ihn
+   * mit voller Geschwindigkeit aufzuholen.
+   */
+  private void checkSpeedPark() throws InterruptedException
+  {
+    int maxSpeedKHz = this.maxSpeedKHz;
+    if( maxSpeedKHz > 0 ) {
+      this.speedCheckTStates = this.speedTStates + maxSpeedKHz;
+
+      long nanosBeg    = this.speedNanosBeg;
+      long targetNanos = nanosBeg
+			+ (this.speedTStates * 1000000L / maxSpeedKHz);
+      long aheadNanos  = targetNanos - System.nanoTime();
+      if( aheadNanos < -MAX_SPEED_LAG_NANOS ) {
+	this.speedNanosBeg = nanosBeg - aheadNanos;
+      } else {
+	while( aheadNanos > this.runAheadNanos ) {
+	  LockSupport.parkNanos( aheadNanos - this.runAheadNanos );
+	  if( Thread.interrupted() ) {
+	    throw new InterruptedException();
+	  }
+	  aheadNanos = targetNanos - System.nanoTime();
+	}
+      }
+    }
+  }
+
+
   public void execInst( int opCode )
+  {
+    InstHandler[] handlers = this.instHandlers;
+    if( handlers != null ) {
+      incRegR();
+      if( this.preCode < 0 ) {
+	handlers[ opCode ].exec( opCode );
+      } else if( (opCode == 0xDD) || (opCode == 0xFD) ) {
+	this.preCode = opCode;
+	this.instTStates += 4;
+      } else {
+	handlers[ (this.preCode == 0xFD ? 0x200 : 0x100) | opCode ].exec(
+								opCode );
+	this.preCode = -1;
+      }
+    } else {
+      execInstBySwitch( opCode );
+    }
+  }
+
+
+  private void execInstBySwitch( int opCode )
   {
     incRegR();
     if( (opCode == 0xDD) || (opCode == 0xFD) ) {
@@ -1443,6 +1924,1119 @@ public class Z80CPU implements Runnable
   }
 
 
+	/* --- Meldung der verarbeiteten Taktzyklen --- */
+
+  /*
+   * Melden der angefallenen Taktzyklen an die Z80DeadlineListener
+   * und Ermitteln, nach wie vielen Taktzyklen
+   * die naechste Meldung erfolgen muss
+   */
+  private void fireDeadlineTStates()
+  {
+    flushPendingTStates();
+
+    int                   deadline  = MAX_TSTATES_TO_DEADLINE;
+    Z80DeadlineListener[] listeners = this.deadlineListeners;
+    if( listeners != null ) {
+      for( int i = 0; i < listeners.length; i++ ) {
+	int tStates = listeners[ i ].z80TStatesToDeadline( this );
+	if( tStates < deadline ) {
+	  deadline = tStates;
+	}
+      }
+    }
+    this.curDeadlineListeners = listeners;
+    this.tStatesToDeadline    = deadline;
+  }
+
+
+  /*
+   * Die einfachen Z80TStatesListener werden sofort benachrichtigt,
+   * die Z80DeadlineListener erst, wenn der kleinste gemeldete
+   * Zeitpunkt erreicht ist, sich die Liste der Listener geaendert hat
+   * oder der Debugger aktiv ist.
+   */
+  private void fireTStatesProcessed( int tStates )
+  {
+    Z80TStatesListener[] tStatesListeners = this.tStatesListeners;
+    if( tStatesListeners != null ) {
+      for( int i = 0; i < tStatesListeners.length; i++ ) {
+	tStatesListeners[ i ].z80TStatesProcessed( this, tStates );
+      }
+    }
+    Z80DeadlineListener[] deadlineListeners = this.deadlineListeners;
+    if( deadlineListeners != null ) {
+      this.pendingTStates += tStates;
+      if( (this.pendingTStates >= this.tStatesToDeadline)
+	  || (deadlineListeners != this.curDeadlineListeners)
+	  || this.debugEnabled )
+      {
+	fireDeadlineTStates();
+      }
+    }
+  }
+
+
+  /*
+   * Sofortiges Melden der noch nicht gemeldeten Taktzyklen,
+   * z.B. vor einem Ein-/Ausgabebefehl, damit die Peripherie
+   * auf dem aktuellen Stand ist.
+   * Da sich dabei der Zustand der Peripherie aendern kann,
+   * wird nach dem aktuellen Befehl der naechste Zeitpunkt
+   * neu ermittelt.
+   */
+  private void flushPendingTStates()
+  {
+    int tStates = this.pendingTStates;
+    if( tStates > 0 ) {
+      this.pendingTStates = 0;
+      Z80DeadlineListener[] listeners = this.deadlineListeners;
+      if( listeners != null ) {
+	for( int i = 0; i < listeners.length; i++ ) {
+	  listeners[ i ].z80TStatesProcessed( this, tStates );
+	}
+      }
+    }
+    this.tStatesToDeadline = 0;
+  }
+
+
+  /*
+   * Alle fuer die aktuelle Programmadresse in Frage kommenden
+   * Halte-/Log-Punkte in der urspruenglichen Reihenfolge pruefen,
+   * damit weder Log-Eintraege noch die von Speicherzugriffen
+   * vorgemerkten Treffer verloren gehen bzw. erst beim naechsten
+   * Befehl wirken
+   *
+   * Rueckgabewert:
+   *   der in der urspruenglichen Reihenfolge erste
+   *   ausgeloeste Haltepunkt bzw. null
+   */
+  private Z80Breakpoint matchBreakpoints(
+				BreakpointIndex    breakpoints,
+				Z80InterruptSource iSource )
+  {
+    Z80Breakpoint rv     = null;
+    int[]         pcIdxs = null;
+    if( breakpoints.byPC != null ) {
+      pcIdxs = breakpoints.byPC[ this.regPC ];
+    }
+    int[] otherIdxs = breakpoints.others;
+    int   nPC       = (pcIdxs != null ? pcIdxs.length : 0);
+    int   nOthers   = (otherIdxs != null ? otherIdxs.length : 0);
+    int   pcPos     = 0;
+    int   otherPos  = 0;
+    while( (pcPos < nPC) || (otherPos < nOthers) ) {
+      int idx = 0;
+      if( (otherPos >= nOthers)
+	  || ((pcPos < nPC) && (pcIdxs[ pcPos ] < otherIdxs[ otherPos ])) )
+      {
+	idx = pcIdxs[ pcPos++ ];
+      } else {
+	idx = otherIdxs[ otherPos++ ];
+      }
+      Z80Breakpoint bp = breakpoints.all[ idx ];
+      if( bp.matches( this, iSource ) && (rv == null) ) {
+	rv = bp;
+      }
+    }
+    return rv;
+  }
+
+
+  private int readIOByte( int port, int tStates )
+  {
+    if( this.deadlineListeners != null ) {
+      flushPendingTStates();
+    }
+    return this.ioSys.readIOByte( port, tStates );
+  }
+
+
+  /*
+   * Aufteilen der Listener in solche, die nach jedem Befehl,
+   * und solche, die gebuendelt benachrichtigt werden
+   */
+  private void setTStatesListeners( Z80TStatesListener[] listeners )
+  {
+    Z80TStatesListener[]  tStatesListeners  = null;
+    Z80DeadlineListener[] deadlineListeners = null;
+    if( listeners != null ) {
+      Collection<Z80TStatesListener>  c1 = new ArrayList<>();
+      Collection<Z80DeadlineListener> c2 = new ArrayList<>();
+      for( Z80TStatesListener listener : listeners ) {
+	if( this.tStatesBatch
+	    && (listener instanceof Z80DeadlineListener) )
+	{
+	  c2.add( (Z80DeadlineListener) listener );
+	} else {
+	  c1.add( listener );
+	}
+      }
+      if( !c1.isEmpty() ) {
+	tStatesListeners = c1.toArray(
+				new Z80TStatesListener[ c1.size() ] );
+      }
+      if( !c2.isEmpty() ) {
+	deadlineListeners = c2.toArray(
+				new Z80DeadlineListener[ c2.size() ] );
+      }
+    }
+    this.allTStatesListeners = listeners;
+    this.tStatesListeners    = tStatesListeners;
+    this.deadlineListeners   = deadlineListeners;
+  }
+
+
+  private void writeIOByte( int port, int value, int tStates )
+  {
+    if( this.deadlineListeners != null ) {
+      flushPendingTStates();
+    }
+    this.ioSys.writeIOByte( port, value, tStates );
+  }
+
+
+	/* --- Befehlsdekodierung ueber Befehlstabellen --- */
+
+  /*
+   * Anlegen der Befehlstabellen
+   *
+   * Die Tabelle instHandlers enthaelt je 256 Eintraege
+   * fuer die Befehle ohne Vorbyte, mit Vorbyte DD und mit Vorbyte FD.
+   * Haeufig ausgefuehrte Befehle erhalten einen eigenen Eintrag,
+   * in dem der Befehl bereits vollstaendig dekodiert ist.
+   * Alle anderen Befehle werden an die Methode der jeweiligen
+   * Befehlsgruppe weitergereicht, die auch bei der
+   * herkoemmlichen Befehlsdekodierung verwendet wird.
+   */
+  private void createInstHandlers()
+  {
+    InstHandler[] h = new InstHandler[ 0x300 ];
+    for( int i = 0; i < h.length; i++ ) {
+      h[ i ] = createGroupHandler( i & 0xFF );
+    }
+
+    // Vorbytes
+    h[ 0xCB ] = op -> {
+      incRegR();
+      int cbOpCode = nextByteM1();
+      this.cbInstHandlers[ cbOpCode ].exec( cbOpCode );
+    };
+    h[ 0xDD ] = op -> { this.preCode = op; this.instTStates += 4; };
+    h[ 0xED ] = op -> { incRegR(); execED(); };
+    h[ 0xFD ] = op -> { this.preCode = op; this.instTStates += 4; };
+
+    // NOP, 16-Bit-Ladebefehle, INC und DEC
+    h[ 0x00 ] = op -> { this.instTStates += 4; };
+    h[ 0x01 ] = op -> { setRegBC( nextWord() ); this.instTStates += 10; };
+    h[ 0x03 ] = op -> { setRegBC( getRegBC() + 1 ); this.instTStates += 6; };
+    h[ 0x0B ] = op -> { setRegBC( getRegBC() - 1 ); this.instTStates += 6; };
+    h[ 0x11 ] = op -> { setRegDE( nextWord() ); this.instTStates += 10; };
+    h[ 0x13 ] = op -> { setRegDE( getRegDE() + 1 ); this.instTStates += 6; };
+    h[ 0x1B ] = op -> { setRegDE( getRegDE() - 1 ); this.instTStates += 6; };
+    h[ 0x21 ] = op -> { setRegHL( nextWord() ); this.instTStates += 10; };
+    h[ 0x23 ] = op -> { setRegHL( getRegHL() + 1 ); this.instTStates += 6; };
+    h[ 0x2B ] = op -> { setRegHL( getRegHL() - 1 ); this.instTStates += 6; };
+    h[ 0x31 ] = op -> { this.regSP = nextWord(); this.instTStates += 10; };
+    h[ 0x33 ] = op -> {
+      this.regSP = (this.regSP + 1) & 0xFFFF;
+      this.instTStates += 6;
+    };
+    h[ 0x3B ] = op -> {
+      this.regSP = (this.regSP - 1) & 0xFFFF;
+      this.instTStates += 6;
+    };
+
+    // 8-Bit-Ladebefehle, INC und DEC
+    h[ 0x04 ] = op -> {
+      this.regB = doInstINC8( this.regB );
+      this.instTStates += 4;
+    };
+    h[ 0x05 ] = op -> {
+      this.regB = doInstDEC8( this.regB );
+      this.instTStates += 4;
+    };
+    h[ 0x06 ] = op -> { this.regB = nextByte(); this.instTStates += 7; };
+    h[ 0x0C ] = op -> {
+      this.regC = doInstINC8( this.regC );
+      this.instTStates += 4;
+    };
+    h[ 0x0D ] = op -> {
+      this.regC = doInstDEC8( this.regC );
+      this.instTStates += 4;
+    };
+    h[ 0x0E ] = op -> { this.regC = nextByte(); this.instTStates += 7; };
+    h[ 0x14 ] = op -> {
+      this.regD = doInstINC8( this.regD );
+      this.instTStates += 4;
+    };
+    h[ 0x15 ] = op -> {
+      this.regD = doInstDEC8( this.regD );
+      this.instTStates += 4;
+    };
+    h[ 0x16 ] = op -> { this.regD = nextByte(); this.instTStates += 7; };
+    h[ 0x1C ] = op -> {
+      this.regE = doInstINC8( this.regE );
+      this.instTStates += 4;
+    };
+    h[ 0x1D ] = op -> {
+      this.regE = doInstDEC8( this.regE );
+      this.instTStates += 4;
+    };
+    h[ 0x1E ] = op -> { this.regE = nextByte(); this.instTStates += 7; };
+    h[ 0x24 ] = op -> {
+      this.regH = doInstINC8( this.regH );
+      this.instTStates += 4;
+    };
+    h[ 0x25 ] = op -> {
+      this.regH = doInstDEC8( this.regH );
+      this.instTStates += 4;
+    };
+    h[ 0x26 ] = op -> { this.regH = nextByte(); this.instTStates += 7; };
+    h[ 0x2C ] = op -> {
+      this.regL = doInstINC8( this.regL );
+      this.instTStates += 4;
+    };
+    h[ 0x2D ] = op -> {
+      this.regL = doInstDEC8( this.regL );
+      this.instTStates += 4;
+    };
+    h[ 0x2E ] = op -> { this.regL = nextByte(); this.instTStates += 7; };
+    h[ 0x3C ] = op -> {
+      this.regA = doInstINC8( this.regA );
+      this.instTStates += 4;
+    };
+    h[ 0x3D ] = op -> {
+      this.regA = doInstDEC8( this.regA );
+      this.instTStates += 4;
+    };
+    h[ 0x3E ] = op -> { this.regA = nextByte(); this.instTStates += 7; };
+
+    // LD B,r
+    h[ 0x40 ] = op -> { this.regB = this.regB; this.instTStates += 4; };
+    h[ 0x41 ] = op -> { this.regB = this.regC; this.instTStates += 4; };
+    h[ 0x42 ] = op -> { this.regB = this.regD; this.instTStates += 4; };
+    h[ 0x43 ] = op -> { this.regB = this.regE; this.instTStates += 4; };
+    h[ 0x44 ] = op -> { this.regB = this.regH; this.instTStates += 4; };
+    h[ 0x45 ] = op -> { this.regB = this.regL; this.instTStates += 4; };
+    h[ 0x46 ] = op -> {
+      this.regB = readMemByte( getRegHL() );
+      this.instTStates += 7;
+    };
+    h[ 0x47 ] = op -> { this.regB = this.regA; this.instTStates += 4; };
+
+    // LD C,r
+    h[ 0x48 ] = op -> { this.regC = this.regB; this.instTStates += 4; };
+    h[ 0x49 ] = op -> { this.regC = this.regC; this.instTStates += 4; };
+    h[ 0x4A ] = op -> { this.regC = this.regD; this.instTStates += 4; };
+    h[ 0x4B ] = op -> { this.regC = this.regE; this.instTStates += 4; };
+    h[ 0x4C ] = op -> { this.regC = this.regH; this.instTStates += 4; };
+    h[ 0x4D ] = op -> { this.regC = this.regL; this.instTStates += 4; };
+    h[ 0x4E ] = op -> {
+      this.regC = readMemByte( getRegHL() );
+      this.instTStates += 7;
+    };
+    h[ 0x4F ] = op -> { this.regC = this.regA; this.instTStates += 4; };
+
+    // LD D,r
+    h[ 0x50 ] = op -> { this.regD = this.regB; this.instTStates += 4; };
+    h[ 0x51 ] = op -> { this.regD = this.regC; this.instTStates += 4; };
+    h[ 0x52 ] = op -> { this.regD = this.regD; this.instTStates += 4; };
+    h[ 0x53 ] = op -> { this.regD = this.regE; this.instTStates += 4; };
+    h[ 0x54 ] = op -> { this.regD = this.regH; this.instTStates += 4; };
+    h[ 0x55 ] = op -> { this.regD = this.regL; this.instTStates += 4; };
+    h[ 0x56 ] = op -> {
+      this.regD = readMemByte( getRegHL() );
+      this.instTStates += 7;
+    };
+    h[ 0x57 ] = op -> { this.regD = this.regA; this.instTStates += 4; };
+
+    // LD E,r
+    h[ 0x58 ] = op -> { this.regE = this.regB; this.instTStates += 4; };
+    h[ 0x59 ] = op -> { this.regE = this.regC; this.instTStates += 4; };
+    h[ 0x5A ] = op -> { this.regE = this.regD; this.instTStates += 4; };
+    h[ 0x5B ] = op -> { this.regE = this.regE; this.instTStates += 4; };
+    h[ 0x5C ] = op -> { this.regE = this.regH; this.instTStates += 4; };
+    h[ 0x5D ] = op -> { this.regE = this.regL; this.instTStates += 4; };
+    h[ 0x5E ] = op -> {
+      this.regE = readMemByte( getRegHL() );
+      this.instTStates += 7;
+    };
+    h[ 0x5F ] = op -> { this.regE = this.regA; this.instTStates += 4; };
+
+    // LD H,r
+    h[ 0x60 ] = op -> { this.regH = this.regB; this.instTStates += 4; };
+    h[ 0x61 ] = op -> { this.regH = this.regC; this.instTStates += 4; };
+    h[ 0x62 ] = op -> { this.regH = this.regD; this.instTStates += 4; };
+    h[ 0x63 ] = op -> { this.regH = this.regE; this.instTStates += 4; };
+    h[ 0x64 ] = op -> { this.regH = this.regH; this.instTStates += 4; };
+    h[ 0x65 ] = op -> { this.regH = this.regL; this.instTStates += 4; };
+    h[ 0x66 ] = op -> {
+      this.regH = readMemByte( getRegHL() );
+      this.instTStates += 7;
+    };
+    h[ 0x67 ] = op -> { this.regH = this.regA; this.instTStates += 4; };
+
+    // LD L,r
+    h[ 0x68 ] = op -> { this.regL = this.regB; this.instTStates += 4; };
+    h[ 0x69 ] = op -> { this.regL = this.regC; this.instTStates += 4; };
+    h[ 0x6A ] = op -> { this.regL = this.regD; this.instTStates += 4; };
+    h[ 0x6B ] = op -> { this.regL = this.regE; this.instTStates += 4; };
+    h[ 0x6C ] = op -> { this.regL = this.regH; this.instTStates += 4; };
+    h[ 0x6D ] = op -> { this.regL = this.regL; this.instTStates += 4; };
+    h[ 0x6E ] = op -> {
+      this.regL = readMemByte( getRegHL() );
+      this.instTStates += 7;
+    };
+    h[ 0x6F ] = op -> { this.regL = this.regA; this.instTStates += 4; };
+
+    // LD (HL),r
+    h[ 0x70 ] = op -> {
+      writeMemByte( getRegHL(), this.regB );
+      this.instTStates += 7;
+    };
+    h[ 0x71 ] = op -> {
+      writeMemByte( getRegHL(), this.regC );
+      this.instTStates += 7;
+    };
+    h[ 0x72 ] = op -> {
+      writeMemByte( getRegHL(), this.regD );
+      this.instTStates += 7;
+    };
+    h[ 0x73 ] = op -> {
+      writeMemByte( getRegHL(), this.regE );
+      this.instTStates += 7;
+    };
+    h[ 0x74 ] = op -> {
+      writeMemByte( getRegHL(), this.regH );
+      this.instTStates += 7;
+    };
+    h[ 0x75 ] = op -> {
+      writeMemByte( getRegHL(), this.regL );
+      this.instTStates += 7;
+    };
+    h[ 0x77 ] = op -> {
+      writeMemByte( getRegHL(), this.regA );
+      this.instTStates += 7;
+    };
+
+    // LD A,r
+    h[ 0x78 ] = op -> { this.regA = this.regB; this.instTStates += 4; };
+    h[ 0x79 ] = op -> { this.regA = this.regC; this.instTStates += 4; };
+    h[ 0x7A ] = op -> { this.regA = this.regD; this.instTStates += 4; };
+    h[ 0x7B ] = op -> { this.regA = this.regE; this.instTStates += 4; };
+    h[ 0x7C ] = op -> { this.regA = this.regH; this.instTStates += 4; };
+    h[ 0x7D ] = op -> { this.regA = this.regL; this.instTStates += 4; };
+    h[ 0x7E ] = op -> {
+      this.regA = readMemByte( getRegHL() );
+      this.instTStates += 7;
+    };
+    h[ 0x7F ] = op -> { this.regA = this.regA; this.instTStates += 4; };
+
+    // ADD A,r
+    h[ 0x80 ] = op -> { doInstADD8( this.regB, 0 ); this.instTStates += 4; };
+    h[ 0x81 ] = op -> { doInstADD8( this.regC, 0 ); this.instTStates += 4; };
+    h[ 0x82 ] = op -> { doInstADD8( this.regD, 0 ); this.instTStates += 4; };
+    h[ 0x83 ] = op -> { doInstADD8( this.regE, 0 ); this.instTStates += 4; };
+    h[ 0x84 ] = op -> { doInstADD8( this.regH, 0 ); this.instTStates += 4; };
+    h[ 0x85 ] = op -> { doInstADD8( this.regL, 0 ); this.instTStates += 4; };
+    h[ 0x86 ] = op -> {
+      doInstADD8( readMemByte( getRegHL() ), 0 );
+      this.instTStates += 7;
+    };
+    h[ 0x87 ] = op -> { doInstADD8( this.regA, 0 ); this.instTStates += 4; };
+
+    // ADC A,r
+    h[ 0x88 ] = op -> {
+      doInstADD8( this.regB, this.flagCarry ? 1 : 0 );
+      this.instTStates += 4;
+    };
+    h[ 0x89 ] = op -> {
+      doInstADD8( this.regC, this.flagCarry ? 1 : 0 );
+      this.instTStates += 4;
+    };
+    h[ 0x8A ] = op -> {
+      doInstADD8( this.regD, this.flagCarry ? 1 : 0 );
+      this.instTStates += 4;
+    };
+    h[ 0x8B ] = op -> {
+      doInstADD8( this.regE, this.flagCarry ? 1 : 0 );
+      this.instTStates += 4;
+    };
+    h[ 0x8C ] = op -> {
+      doInstADD8( this.regH, this.flagCarry ? 1 : 0 );
+      this.instTStates += 4;
+    };
+    h[ 0x8D ] = op -> {
+      doInstADD8( this.regL, this.flagCarry ? 1 : 0 );
+      this.instTStates += 4;
+    };
+    h[ 0x8E ] = op -> {
+      doInstADD8( readMemByte( getRegHL() ), this.flagCarry ? 1 : 0 );
+      this.instTStates += 7;
+    };
+    h[ 0x8F ] = op -> {
+      doInstADD8( this.regA, this.flagCarry ? 1 : 0 );
+      this.instTStates += 4;
+    };
+
+    // SUB r
+    h[ 0x90 ] = op -> { doInstSUB8( this.regB, 0 ); this.instTStates += 4; };
+    h[ 0x91 ] = op -> { doInstSUB8( this.regC, 0 ); this.instTStates += 4; };
+    h[ 0x92 ] = op -> { doInstSUB8( this.regD, 0 ); this.instTStates += 4; };
+    h[ 0x93 ] = op -> { doInstSUB8( this.regE, 0 ); this.instTStates += 4; };
+    h[ 0x94 ] = op -> { doInstSUB8( this.regH, 0 ); this.instTStates += 4; };
+    h[ 0x95 ] = op -> { doInstSUB8( this.regL, 0 ); this.instTStates += 4; };
+    h[ 0x96 ] = op -> {
+      doInstSUB8( readMemByte( getRegHL() ), 0 );
+      this.instTStates += 7;
+    };
+    h[ 0x97 ] = op -> { doInstSUB8( this.regA, 0 ); this.instTStates += 4; };
+
+    // SBC A,r
+    h[ 0x98 ] = op -> {
+      doInstSUB8( this.regB, this.flagCarry ? 1 : 0 );
+      this.instTStates += 4;
+    };
+    h[ 0x99 ] = op -> {
+      doInstSUB8( this.regC, this.flagCarry ? 1 : 0 );
+      this.instTStates += 4;
+    };
+    h[ 0x9A ] = op -> {
+      doInstSUB8( this.regD, this.flagCarry ? 1 : 0 );
+      this.instTStates += 4;
+    };
+    h[ 0x9B ] = op -> {
+      doInstSUB8( this.regE, this.flagCarry ? 1 : 0 );
+      this.instTStates += 4;
+    };
+    h[ 0x9C ] = op -> {
+      doInstSUB8( this.regH, this.flagCarry ? 1 : 0 );
+      this.instTStates += 4;
+    };
+    h[ 0x9D ] = op -> {
+      doInstSUB8( this.regL, this.flagCarry ? 1 : 0 );
+      this.instTStates += 4;
+    };
+    h[ 0x9E ] = op -> {
+      doInstSUB8( readMemByte( getRegHL() ), this.flagCarry ? 1 : 0 );
+      this.instTStates += 7;
+    };
+    h[ 0x9F ] = op -> {
+      doInstSUB8( this.regA, this.flagCarry ? 1 : 0 );
+      this.instTStates += 4;
+    };
+
+    // AND r
+    h[ 0xA0 ] = op -> { doInstAND( this.regB ); this.instTStates += 4; };
+    h[ 0xA1 ] = op -> { doInstAND( this.regC ); this.instTStates += 4; };
+    h[ 0xA2 ] = op -> { doInstAND( this.regD ); this.instTStates += 4; };
+    h[ 0xA3 ] = op -> { doInstAND( this.regE ); this.instTStates += 4; };
+    h[ 0xA4 ] = op -> { doInstAND( this.regH ); this.instTStates += 4; };
+    h[ 0xA5 ] = op -> { doInstAND( this.regL ); this.instTStates += 4; };
+    h[ 0xA6 ] = op -> {
+      doInstAND( readMemByte( getRegHL() ) );
+      this.instTStates += 7;
+    };
+    h[ 0xA7 ] = op -> { doInstAND( this.regA ); this.instTStates += 4; };
+
+    // XOR r
+    h[ 0xA8 ] = op -> { doInstXOR( this.regB ); this.instTStates += 4; };
+    h[ 0xA9 ] = op -> { doInstXOR( this.regC ); this.instTStates += 4; };
+    h[ 0xAA ] = op -> { doInstXOR( this.regD ); this.instTStates += 4; };
+    h[ 0xAB ] = op -> { doInstXOR( this.regE ); this.instTStates += 4; };
+    h[ 0xAC ] = op -> { doInstXOR( this.regH ); this.instTStates += 4; };
+    h[ 0xAD ] = op -> { doInstXOR( this.regL ); this.instTStates += 4; };
+    h[ 0xAE ] = op -> {
+      doInstXOR( readMemByte( getRegHL() ) );
+      this.instTStates += 7;
+    };
+    h[ 0xAF ] = op -> { doInstXOR( this.regA ); this.instTStates += 4; };
+
+    // OR r
+    h[ 0xB0 ] = op -> { doInstOR( this.regB ); this.instTStates += 4; };
+    h[ 0xB1 ] = op -> { doInstOR( this.regC ); this.instTStates += 4; };
+    h[ 0xB2 ] = op -> { doInstOR( this.regD ); this.instTStates += 4; };
+    h[ 0xB3 ] = op -> { doInstOR( this.regE ); this.instTStates += 4; };
+    h[ 0xB4 ] = op -> { doInstOR( this.regH ); this.instTStates += 4; };
+    h[ 0xB5 ] = op -> { doInstOR( this.regL ); this.instTStates += 4; };
+    h[ 0xB6 ] = op -> {
+      doInstOR( readMemByte( getRegHL() ) );
+      this.instTStates += 7;
+    };
+    h[ 0xB7 ] = op -> { doInstOR( this.regA ); this.instTStates += 4; };
+
+    // CP r
+    h[ 0xB8 ] = op -> { doInstCP( this.regB ); this.instTStates += 4; };
+    h[ 0xB9 ] = op -> { doInstCP( this.regC ); this.instTStates += 4; };
+    h[ 0xBA ] = op -> { doInstCP( this.regD ); this.instTStates += 4; };
+    h[ 0xBB ] = op -> { doInstCP( this.regE ); this.instTStates += 4; };
+    h[ 0xBC ] = op -> { doInstCP( this.regH ); this.instTStates += 4; };
+    h[ 0xBD ] = op -> { doInstCP( this.regL ); this.instTStates += 4; };
+    h[ 0xBE ] = op -> {
+      doInstCP( readMemByte( getRegHL() ) );
+      this.instTStates += 7;
+    };
+    h[ 0xBF ] = op -> { doInstCP( this.regA ); this.instTStates += 4; };
+
+    // Zugriffe ueber (IX+d) und (IY+d)
+    createIXYInstHandlers( h, 0x100, true );
+    createIXYInstHandlers( h, 0x200, false );
+
+    // Befehle mit Vorbyte CB
+    InstHandler[] cb = new InstHandler[ 0x100 ];
+    for( int i = 0; i < cb.length; i++ ) {
+      if( i < 0x40 ) {
+	switch( i & 0x30 ) {
+	  case 0x00:
+	    cb[ i ] = op -> execCB_00to0F( op );
+	    break;
+	  case 0x10:
+	    cb[ i ] = op -> execCB_10to1F( op );
+	    break;
+	  case 0x20:
+	    cb[ i ] = op -> execCB_20to2F( op );
+	    break;
+	  default:
+	    cb[ i ] = op -> execCB_30to3F( op );
+	}
+      } else {
+	cb[ i ] = createCBBitHandler( i );
+      }
+    }
+    this.cbInstHandlers = cb;
+    this.instHandlers   = h;
+  }
+
+
+  /*
+   * BIT, RES und SET mit bereits ermittelter Bitmaske
+   */
+  private InstHandler createCBBitHandler( int opCode )
+  {
+    InstHandler rv   = null;
+    int         mask = getBitMask( opCode );
+    if( opCode < 0x80 ) {
+      switch( opCode & 0x07 ) {
+	case 0:
+	  rv = op -> { doInstBIT( op, this.regB ); this.instTStates += 8; };
+	  break;
+	case 1:
+	  rv = op -> { doInstBIT( op, this.regC ); this.instTStates += 8; };
+	  break;
+	case 2:
+	  rv = op -> { doInstBIT( op, this.regD ); this.instTStates += 8; };
+	  break;
+	case 3:
+	  rv = op -> { doInstBIT( op, this.regE ); this.instTStates += 8; };
+	  break;
+	case 4:
+	  rv = op -> { doInstBIT( op, this.regH ); this.instTStates += 8; };
+	  break;
+	case 5:
+	  rv = op -> { doInstBIT( op, this.regL ); this.instTStates += 8; };
+	  break;
+	case 6:
+	  rv = op -> {
+	    doInstBIT( op, readMemByte( getRegHL() ) );
+	    this.instTStates += 12;
+	  };
+	  break;
+	default:
+	  rv = op -> { doInstBIT( op, this.regA ); this.instTStates += 8; };
+      }
+    } else if( opCode < 0xC0 ) {
+      int resMask = ~mask;
+      switch( opCode & 0x07 ) {
+	case 0:
+	  rv = op -> { this.regB &= resMask; this.instTStates += 8; };
+	  break;
+	case 1:
+	  rv = op -> { this.regC &= resMask; this.instTStates += 8; };
+	  break;
+	case 2:
+	  rv = op -> { this.regD &= resMask; this.instTStates += 8; };
+	  break;
+	case 3:
+	  rv = op -> { this.regE &= resMask; this.instTStates += 8; };
+	  break;
+	case 4:
+	  rv = op -> { this.regH &= resMask; this.instTStates += 8; };
+	  break;
+	case 5:
+	  rv = op -> { this.regL &= resMask; this.instTStates += 8; };
+	  break;
+	case 6:
+	  rv = op -> {
+	    int regHL = getRegHL();
+	    writeMemByte( regHL, readMemByte( regHL ) & resMask );
+	    this.instTStates += 15;
+	  };
+	  break;
+	default:
+	  rv = op -> { this.regA &= resMask; this.instTStates += 8; };
+      }
+    } else {
+      switch( opCode & 0x07 ) {
+	case 0:
+	  rv = op -> { this.regB |= mask; this.instTStates += 8; };
+	  break;
+	case 1:
+	  rv = op -> { this.regC |= mask; this.instTStates += 8; };
+	  break;
+	case 2:
+	  rv = op -> { this.regD |= mask; this.instTStates += 8; };
+	  break;
+	case 3:
+	  rv = op -> { this.regE |= mask; this.instTStates += 8; };
+	  break;
+	case 4:
+	  rv = op -> { this.regH |= mask; this.instTStates += 8; };
+	  break;
+	case 5:
+	  rv = op -> { this.regL |= mask; this.instTStates += 8; };
+	  break;
+	case 6:
+	  rv = op -> {
+	    int regHL = getRegHL();
+	    writeMemByte( regHL, readMemByte( regHL ) | mask );
+	    this.instTStates += 15;
+	  };
+	  break;
+	default:
+	  rv = op -> { this.regA |= mask; this.instTStates += 8; };
+      }
+    }
+    return rv;
+  }
+
+
+  /*
+   * Weiterreichen eines Befehls an die Methode seiner Befehlsgruppe
+   */
+  private InstHandler createGroupHandler( int opCode )
+  {
+    InstHandler rv = null;
+    switch( opCode & 0xF0 ) {
+      case 0x00:
+	rv = op -> exec00to0F( op );
+	break;
+      case 0x10:
+	rv = op -> exec10to1F( op );
+	break;
+      case 0x20:
+	rv = op -> exec20to2F( op );
+	break;
+      case 0x30:
+	rv = op -> exec30to3F( op );
+	break;
+      case 0x40:
+      case 0x50:
+      case 0x60:
+      case 0x70:
+	rv = op -> exec40to7F( op );
+	break;
+      case 0x80:
+      case 0x90:
+      case 0xA0:
+      case 0xB0:
+	rv = op -> exec80toBF( op );
+	break;
+      case 0xC0:
+	rv = op -> execC0toCF( op );
+	break;
+      case 0xD0:
+	rv = op -> execD0toDF( op );
+	break;
+      case 0xE0:
+	rv = op -> execE0toEF( op );
+	break;
+      default:
+	rv = op -> execF0toFF( op );
+    }
+    return rv;
+  }
+
+
+  /*
+   * Befehle mit Vorbyte DD bzw. FD, die ueber (IX+d) bzw. (IY+d)
+   * auf den Speicher zugreifen
+   *
+   * Die 4 Taktzyklen des Vorbytes sind bereits gezaehlt.
+   */
+  private void createIXYInstHandlers(
+				InstHandler[] h,
+				int           offs,
+				boolean       useIX )
+  {
+    h[ offs + 0x46 ] = op -> {
+      this.regB = readMemByte( nextIXYRelAddr( useIX ) );
+      this.instTStates += 15;
+    };
+    h[ offs + 0x4E ] = op -> {
+      this.regC = readMemByte( nextIXYRelAddr( useIX ) );
+      this.instTStates += 15;
+    };
+    h[ offs + 0x56 ] = op -> {
+      this.regD = readMemByte( nextIXYRelAddr( useIX ) );
+      this.instTStates += 15;
+    };
+    h[ offs + 0x5E ] = op -> {
+      this.regE = readMemByte( nextIXYRelAddr( useIX ) );
+      this.instTStates += 15;
+    };
+    h[ offs + 0x66 ] = op -> {
+      this.regH = readMemByte( nextIXYRelAddr( useIX ) );
+      this.instTStates += 15;
+    };
+    h[ offs + 0x6E ] = op -> {
+      this.regL = readMemByte( nextIXYRelAddr( useIX ) );
+      this.instTStates += 15;
+    };
+    h[ offs + 0x7E ] = op -> {
+      this.regA = readMemByte( nextIXYRelAddr( useIX ) );
+      this.instTStates += 15;
+    };
+    h[ offs + 0x70 ] = op -> {
+      writeMemByte( nextIXYRelAddr( useIX ), this.regB );
+      this.instTStates += 15;
+    };
+    h[ offs + 0x71 ] = op -> {
+      writeMemByte( nextIXYRelAddr( useIX ), this.regC );
+      this.instTStates += 15;
+    };
+    h[ offs + 0x72 ] = op -> {
+      writeMemByte( nextIXYRelAddr( useIX ), this.regD );
+      this.instTStates += 15;
+    };
+    h[ offs + 0x73 ] = op -> {
+      writeMemByte( nextIXYRelAddr( useIX ), this.regE );
+      this.instTStates += 15;
+    };
+    h[ offs + 0x74 ] = op -> {
+      writeMemByte( nextIXYRelAddr( useIX ), this.regH );
+      this.instTStates += 15;
+    };
+    h[ offs + 0x75 ] = op -> {
+      writeMemByte( nextIXYRelAddr( useIX ), this.regL );
+      this.instTStates += 15;
+    };
+    h[ offs + 0x77 ] = op -> {
+      writeMemByte( nextIXYRelAddr( useIX ), this.regA );
+      this.instTStates += 15;
+    };
+    h[ offs + 0x86 ] = op -> {
+      doInstADD8( readMemByte( nextIXYRelAddr( useIX ) ), 0 );
+      this.instTStates += 15;
+    };
+    h[ offs + 0x8E ] = op -> {
+      doInstADD8(
+		readMemByte( nextIXYRelAddr( useIX ) ),
+		this.flagCarry ? 1 : 0 );
+      this.instTStates += 15;
+    };
+    h[ offs + 0x96 ] = op -> {
+      doInstSUB8( readMemByte( nextIXYRelAddr( useIX ) ), 0 );
+      this.instTStates += 15;
+    };
+    h[ offs + 0x9E ] = op -> {
+      doInstSUB8(
+		readMemByte( nextIXYRelAddr( useIX ) ),
+		this.flagCarry ? 1 : 0 );
+      this.instTStates += 15;
+    };
+    h[ offs + 0xA6 ] = op -> {
+      doInstAND( readMemByte( nextIXYRelAddr( useIX ) ) );
+      this.instTStates += 15;
+    };
+    h[ offs + 0xAE ] = op -> {
+      doInstXOR( readMemByte( nextIXYRelAddr( useIX ) ) );
+      this.instTStates += 15;
+    };
+    h[ offs + 0xB6 ] = op -> {
+      doInstOR( readMemByte( nextIXYRelAddr( useIX ) ) );
+      this.instTStates += 15;
+    };
+    h[ offs + 0xBE ] = op -> {
+      doInstCP( readMemByte( nextIXYRelAddr( useIX ) ) );
+      this.instTStates += 15;
+    };
+  }
+
+
+  private int nextIXYRelAddr( boolean useIX )
+  {
+    return computeRelAddr( useIX ? this.regIX : this.regIY, nextByte() );
+  }
+
+
+	/* --- Zwischenspeicher fuer haeufig ausgefuehrte Codebloecke --- */
+
+  /*
+   * Anlegen eines Codeblocks ab der uebergebenen Adresse
+   *
+   * Der Block endet vor dem ersten Ein-/Ausgabebefehl,
+   * damit die Peripherie bei Ein- und Ausgaben immer
+   * die genaue Anzahl der bis dahin verbrauchten Taktzyklen kennt.
+   * Ausserdem endet der Block vor einer Adresse, auf die
+   * ein PCListener reagiert, sowie nach einem unbedingten Sprung,
+   * einem Ruecksprung, HALT, EI und DI.
+   * Es werden nur Speicherseiten beruecksichtigt,
+   * die direkt ueber die Seitentabelle gelesen werden koennen,
+   * da nur dort das Lesen keine Seiteneffekte hat.
+   *
+   * Rueckgabewert:
+   *   Codeblock oder null, wenn kein sinnvoller Block
+   *   angelegt werden kann
+   */
+  private CodeBlock createCodeBlock( int begAddr )
+  {
+    CodeBlock      rv         = null;
+    PCListenerItem pcListener = this.pcListener;
+    Z80MemView     memView    = new Z80MemView()
+				{
+				  @Override
+				  public int getMemByte( int addr, boolean m1 )
+				  {
+				    return readCodeByte( addr );
+				  }
+
+				  @Override
+				  public int getMemWord( int addr )
+				  {
+				    return (readCodeByte( addr + 1 ) << 8)
+						| readCodeByte( addr );
+				  }
+				};
+    boolean[] instBeg  = new boolean[ CODE_BLOCK_MAX_INSTS * 4 ];
+    int       addr     = begAddr;
+    int       nInsts   = 0;
+    boolean   loop     = true;
+    while( loop && (nInsts < CODE_BLOCK_MAX_INSTS) ) {
+      if( pcListener != null ) {
+	if( pcListener.pcFlags[ addr ] ) {
+	  break;
+	}
+      }
+      Z80ReassInstr instr = Z80Reassembler.reassInstruction( memView, addr );
+      if( instr == null ) {
+	break;
+      }
+      int len = instr.getLength();
+      if( (len < 1) || ((addr + len) > 0x10000) ) {
+	break;
+      }
+      for( int i = 0; i < len; i++ ) {
+	if( readCodeByte( addr + i ) < 0 ) {
+	  loop = false;
+	  break;
+	}
+      }
+      String name = instr.getName();
+      if( (name == null) || !loop ) {
+	break;
+      }
+      if( name.startsWith( "*" ) ) {
+	name = name.substring( 1 );
+      }
+      if( name.equals( "?" )
+	  || name.equals( "IN" ) || name.equals( "OUT" )
+	  || name.startsWith( "INI" ) || name.startsWith( "IND" )
+	  || name.startsWith( "OUT" ) || name.startsWith( "OT" ) )
+      {
+	break;
+      }
+      instBeg[ addr - begAddr ] = true;
+      addr += len;
+      nInsts++;
+      if( name.equals( "HALT" ) || name.equals( "EI" ) || name.equals( "DI" )
+	  || name.equals( "RETI" ) || name.equals( "RETN" )
+	  || name.equals( "RST" )
+	  || (name.equals( "RET" ) && (instr.getArg1() == null))
+	  || ((name.equals( "JP" ) || name.equals( "JR" ))
+			&& (instr.getArg2() == null)) )
+      {
+	break;
+      }
+    }
+    if( nInsts >= CODE_BLOCK_MIN_INSTS ) {
+      byte[] code = new byte[ addr - begAddr ];
+      for( int i = 0; i < code.length; i++ ) {
+	code[ i ] = (byte) readCodeByte( begAddr + i );
+      }
+      rv = new CodeBlock( code, instBeg );
+    }
+    return rv;
+  }
+
+
+  /*
+   * Ausfuehren eines Codeblocks
+   *
+   * Die Befehle werden ohne die sonst nach jedem Befehl
+   * ausgefuehrte Interrupt-, Debugger- und Geschwindigkeitsverwaltung
+   * nacheinander abgearbeitet, solange der Programmzaehler
+   * auf einen Befehlsanfang innerhalb des Blocks zeigt.
+   * Verlaesst der Programmzaehler den Block,
+   * wird direkt mit dem Codeblock an der neuen Adresse weitergemacht,
+   * sofern es einen gibt.
+   * Damit Interrupts nicht zu lange verzoegert werden,
+   * endet die Ausfuehrung spaetestens nach CODE_BLOCK_MAX_TSTATES
+   * Taktzyklen bzw. bei Erreichen des naechsten Zeitpunktes,
+   * zu dem die Z80DeadlineListener benachrichtigt werden muessen.
+   * Die Summe der Taktzyklen steht anschliessend in instTStates.
+   */
+  private void execCodeBlock( CodeBlock block )
+  {
+    int tStates    = 0;
+    int maxTStates = CODE_BLOCK_MAX_TSTATES;
+    if( this.deadlineListeners != null ) {
+      maxTStates = Math.min(
+			maxTStates,
+			this.tStatesToDeadline - this.pendingTStates );
+    }
+    this.curBlockModified = false;
+    while( block != null ) {
+      byte[]    code    = block.code;
+      boolean[] instBeg = block.instBeg;
+      int       begAddr = this.regPC;
+      int       idx     = 0;
+
+      this.curBlockBegAddr = begAddr;
+      this.curBlockLen     = code.length;
+      do {
+	this.instBegPC   = this.regPC;
+	this.instTStates = 0;
+	do {
+	  this.regPC = (this.regPC + 1) & 0xFFFF;
+	  execInst( (int) code[ idx ] & 0xFF );
+	  idx = this.regPC - begAddr;
+	} while( (this.preCode >= 0) && (idx >= 0) && (idx < code.length) );
+	tStates += this.instTStates;
+      } while( (tStates < maxTStates)
+	       && (idx >= 0) && (idx < code.length) && instBeg[ idx ]
+	       && (this.preCode < 0)
+	       && !this.haltState
+	       && !this.curBlockModified );
+
+      // naechster Codeblock
+      block = null;
+      if( (tStates < maxTStates)
+	  && (this.preCode < 0)
+	  && !this.haltState
+	  && !this.curBlockModified )
+      {
+	block = findCodeBlock( this.regPC );
+      }
+    }
+    this.curBlockLen = 0;
+    this.instTStates = tStates;
+  }
+
+
+  /*
+   * Ermitteln des Codeblocks fuer die uebergebene Adresse
+   *
+   * Ein Codeblock wird erst angelegt, wenn die Adresse
+   * CODE_BLOCK_MIN_HITS mal ausgefuehrt wurde.
+   * Vor jeder Ausfuehrung wird ein vorhandener Block
+   * mit dem Speicherinhalt verglichen, damit auch Aenderungen
+   * erkannt werden, die nicht ueber die CPU-Emulation erfolgten
+   * (z.B. Laden einer Datei, Umschalten von Speicherbaenken).
+   */
+  private CodeBlock findCodeBlock( int addr )
+  {
+    CodeBlock rv    = null;
+    CodeBlock block = this.codeBlocks[ addr ];
+    if( block != null ) {
+      byte[] code = block.code;
+      for( int i = 0; i < code.length; i++ ) {
+	if( readCodeByte( addr + i ) != ((int) code[ i ] & 0xFF) ) {
+	  block = null;
+	  break;
+	}
+      }
+      if( block != null ) {
+	rv = block;
+      } else {
+	this.codeBlocks[ addr ]    = null;
+	this.codeBlockHits[ addr ] = 0;
+      }
+    } else {
+      int hits = this.codeBlockHits[ addr ];
+      if( hits >= 0 ) {
+	if( hits < CODE_BLOCK_MIN_HITS ) {
+	  this.codeBlockHits[ addr ] = hits + 1;
+	} else {
+	  rv = createCodeBlock( addr );
+	  if( rv != null ) {
+	    this.codeBlocks[ addr ] = rv;
+	  } else {
+	    // kein Block moeglich, nicht erneut versuchen
+	    this.codeBlockHits[ addr ] = -1;
+	  }
+	}
+      }
+    }
+    return rv;
+  }
+
+
+  /*
+   * Ermitteln des Codeblocks fuer die aktuelle Adresse,
+   * sofern Codebloecke im aktuellen Zustand der CPU-Emulation
+   * ausgefuehrt werden duerfen
+   *
+   * Rueckgabewert:
+   *   auszufuehrender Codeblock oder null,
+   *   wenn der Befehl normal ausgefuehrt werden muss
+   */
+  private CodeBlock getCodeBlock()
+  {
+    CodeBlock rv = null;
+    if( this.codeBlocksInvalid ) {
+      this.codeBlocksInvalid = false;
+      Arrays.fill( this.codeBlocks, null );
+      Arrays.fill( this.codeBlockHits, 0 );
+    }
+    if( (this.memReadPages != null)
+	&& !this.brakeEnabled
+	&& !this.debugEnabled
+	&& (this.action == Action.RUN)
+	&& (this.addrListener == null)
+	&& (this.instTStatesMngr == null) )
+    {
+      rv = findCodeBlock( this.regPC );
+    }
+    return rv;
+  }
+
+
+  /*
+   * Lesen eines Bytes fuer einen Codeblock
+   *
+   * Rueckgabewert:
+   *   Byte-Wert oder -1, wenn die Speicherseite nicht direkt
+   *   ueber die Seitentabelle gelesen werden kann
+   */
+  private int readCodeByte( int addr )
+  {
+    int      rv    = -1;
+    byte[][] pages = this.memReadPages;
+    if( pages != null ) {
+      int    pageNum = (addr >> Z80PagedMemory.PAGE_SHIFT)
+				& (Z80PagedMemory.PAGE_COUNT - 1);
+      byte[] page    = pages[ pageNum ];
+      if( page != null ) {
+	rv = (int) page[ this.memReadPageOffs[ pageNum ]
+				+ (addr & Z80PagedMemory.PAGE_MASK) ] & 0xFF;
+      }
+    }
+    return rv;
+  }
+
+
 	/* --- private Methode zur Emulation der Codes 00-FF --- */
 
   /*
@@ -2275,7 +3869,7 @@ public class Z80CPU implements Runnable
 	break;
       case 0xD3:				// OUT (n),A
 	if( this.ioSys != null ) {
-	  this.ioSys.writeIOByte(
+	  writeIOByte(
 			(this.regA << 8) | nextByte(),
 			this.regA,
 			11 );
@@ -2357,7 +3951,7 @@ public class Z80CPU implements Runnable
 	{
 	  int v = 0xFF;
 	  if( this.ioSys != null ) {
-	    v = this.ioSys.readIOByte( (this.regA << 8) | nextByte(), 11 );
+	    v = readIOByte( (this.regA << 8) | nextByte(), 11 );
 	  }
 	  this.regA        = v & 0xFF;
 	  this.instTStates += 11;
@@ -3146,7 +4740,7 @@ public class Z80CPU implements Runnable
 	break;
       case 0x41:				// OUT (C),B
 	if( this.ioSys != null ) {
-	  this.ioSys.writeIOByte(
+	  writeIOByte(
 			(this.regB << 8) | this.regC,
 			this.regB,
 			12 );
@@ -3183,7 +4777,7 @@ public class Z80CPU implements Runnable
 	break;
       case 0x49:				// OUT (C),C
 	if( this.ioSys != null ) {
-	  this.ioSys.writeIOByte(
+	  writeIOByte(
 			(this.regB << 8) | this.regC,
 			this.regC,
 			12 );
@@ -3236,7 +4830,7 @@ public class Z80CPU implements Runnable
 	break;
       case 0x51:				// OUT (C),D
 	if( this.ioSys != null ) {
-	  this.ioSys.writeIOByte(
+	  writeIOByte(
 			(this.regB << 8) | this.regC,
 			this.regD,
 			12 );
@@ -3280,7 +4874,7 @@ public class Z80CPU implements Runnable
 	break;
       case 0x59:				// OUT (C),E
 	if( this.ioSys != null ) {
-	  this.ioSys.writeIOByte(
+	  writeIOByte(
 			(this.regB << 8) | this.regC,
 			this.regE,
 			12 );
@@ -3333,7 +4927,7 @@ public class Z80CPU implements Runnable
 	break;
       case 0x61:				// OUT (C),H
 	if( this.ioSys != null ) {
-	  this.ioSys.writeIOByte(
+	  writeIOByte(
 			(this.regB << 8) | this.regC,
 			this.regH,
 			12 );
@@ -3383,7 +4977,7 @@ public class Z80CPU implements Runnable
 	break;
       case 0x69:				// OUT (C),L
 	if( this.ioSys != null ) {
-	  this.ioSys.writeIOByte(
+	  writeIOByte(
 			(this.regB << 8) | this.regC,
 			this.regL,
 			12 );
@@ -3442,7 +5036,7 @@ public class Z80CPU implements Runnable
 	break;
       case 0x71:				// *OUT (C),0
 	if( this.ioSys != null ) {
-	  this.ioSys.writeIOByte( (this.regB << 8) | this.regC, 0, 12 );
+	  writeIOByte( (this.regB << 8) | this.regC, 0, 12 );
 	}
 	this.instTStates += 12;
 	break;
@@ -3472,7 +5066,7 @@ public class Z80CPU implements Runnable
 	break;
       case 0x79:				// OUT (C),A
 	if( this.ioSys != null ) {
-	  this.ioSys.writeIOByte(
+	  writeIOByte(
 			(this.regB << 8) | this.regC,
 			this.regA,
 			12 );
@@ -4184,7 +5778,7 @@ public class Z80CPU implements Runnable
     int value = 0xFF;
     int newB  = (this.regB - 1) & 0xFF;
     if( this.ioSys != null ) {
-      value = this.ioSys.readIOByte(
+      value = readIOByte(
 			(this.regB << 8) | this.regC,
 			forRepeat && (newB == 1) ? 21 : 16 ) & 0xFF;
     }
@@ -4217,7 +5811,7 @@ public class Z80CPU implements Runnable
 
     int regHL = getRegHL();
     if( this.ioSys != null ) {
-      this.ioSys.writeIOByte(
+      writeIOByte(
 		(this.regB << 8) | this.regC,
 		readMemByte( regHL ),
 		forRepeat && (this.regB == 0) ? 21 : 16 );
@@ -4230,7 +5824,7 @@ public class Z80CPU implements Runnable
   {
     int value = 0xFF;
     if( this.ioSys != null ) {
-      value = this.ioSys.readIOByte( (this.regB << 8) | this.regC, 12 )
+      value = readIOByte( (this.regB << 8) | this.regC, 12 )
 								& 0xFF;
     }
     this.flagSign = ((value & BIT7) != 0);
@@ -4407,6 +6001,10 @@ public class Z80CPU implements Runnable
 
   private void doDebugTrace( boolean nmi, Z80InterruptSource iSource )
   {
+    Z80TraceBuffer traceBuffer = this.debugTraceBuffer;
+    if( traceBuffer != null ) {
+      traceBuffer.record( this, this.memory, nmi, iSource );
+    }
     PrintWriter tracer = this.debugTracer;
     if( tracer != null ) {
       if( nmi ) {
@@ -4431,43 +6029,121 @@ public class Z80CPU implements Runnable
   }
 
 
+  private void checkMemWatch( int addr, int value, int watchFlag )
+  {
+    // wegen Thread-Sicherheit in lokale Variable laden
+    byte[] flags = this.memWatchFlags;
+    if( flags != null ) {
+      if( ((flags[ addr & 0xFFFF ] & watchFlag) != 0) && this.debugEnabled ) {
+	Z80MemWatchListener listener = this.memWatchListener;
+	if( listener != null ) {
+	  listener.z80MemWatchAccess(
+			this,
+			addr & 0xFFFF,
+			value & 0xFF,
+			watchFlag == MEM_WATCH_WRITE );
+	}
+      }
+    }
+  }
+
+
   private int readMemByte( int addr )
   {
-    int value = this.memory.readMemByte( addr, false );
+    int value = readMemByteInternal( addr, false );
     fireAddressChanged( addr );
+    checkMemWatch( addr, value, MEM_WATCH_READ );
     return value;
   }
 
 
   private int readMemByteM1( int addr )
   {
-    int value = this.memory.readMemByte( addr, true );
+    int value = readMemByteInternal( addr, true );
     fireAddressChanged( addr );
+    checkMemWatch( addr, value, MEM_WATCH_READ );
+    return value;
+  }
+
+
+  /*
+   * Lesen eines Bytes,
+   * wenn moeglich direkt ueber die Seitentabelle
+   */
+  private int readMemByteInternal( int addr, boolean m1 )
+  {
+    int      value = -1;
+    byte[][] pages = this.memReadPages;
+    if( pages != null ) {
+      int    pageNum = (addr >> Z80PagedMemory.PAGE_SHIFT)
+				& (Z80PagedMemory.PAGE_COUNT - 1);
+      byte[] page    = pages[ pageNum ];
+      if( page != null ) {
+	value = (int) page[ this.memReadPageOffs[ pageNum ]
+				+ (addr & Z80PagedMemory.PAGE_MASK) ] & 0xFF;
+      }
+    }
+    if( value < 0 ) {
+      value = this.memory.readMemByte( addr, m1 );
+    }
     return value;
   }
 
 
   private int readMemWord( int addr )
   {
-    int value = (this.memory.readMemByte( addr + 1, false ) << 8)
-				| this.memory.readMemByte( addr, false );
+    int value = (readMemByteInternal( addr + 1, false ) << 8)
+				| readMemByteInternal( addr, false );
     fireAddressChanged( addr );
+    checkMemWatch( addr, value, MEM_WATCH_READ );
+    checkMemWatch( addr + 1, value >> 8, MEM_WATCH_READ );
     return value;
   }
 
 
   private void writeMemByte( int addr, int value )
   {
-    this.memory.writeMemByte( addr, value );
+    writeMemByteInternal( addr, value );
     fireAddressChanged( addr );
+    checkMemWatch( addr, value, MEM_WATCH_WRITE );
+  }
+
+
+  /*
+   * Schreiben eines Bytes,
+   * wenn moeglich direkt ueber die Seitentabelle
+   */
+  private void writeMemByteInternal( int addr, int value )
+  {
+    // Aendert sich der gerade ausgefuehrte Codeblock?
+    if( ((addr - this.curBlockBegAddr) & 0xFFFF) < this.curBlockLen ) {
+      this.curBlockModified = true;
+    }
+    boolean  done  = false;
+    byte[][] pages = this.memWritePages;
+    if( pages != null ) {
+      int    pageNum = (addr >> Z80PagedMemory.PAGE_SHIFT)
+				& (Z80PagedMemory.PAGE_COUNT - 1);
+      byte[] page    = pages[ pageNum ];
+      if( page != null ) {
+	page[ this.memWritePageOffs[ pageNum ]
+		+ (addr & Z80PagedMemory.PAGE_MASK) ] = (byte) value;
+	done = true;
+      }
+    }
+    if( !done ) {
+      this.memory.writeMemByte( addr, value );
+    }
   }
 
 
   private void writeMemWord( int addr, int value )
   {
-    this.memory.writeMemByte( addr, value & 0xFF );
-    this.memory.writeMemByte( addr + 1, value >> 8 );
+    writeMemByteInternal( addr, value & 0xFF );
+    writeMemByteInternal( addr + 1, value >> 8 );
     fireAddressChanged( addr );
+    checkMemWatch( addr, value, MEM_WATCH_WRITE );
+    checkMemWatch( addr + 1, value >> 8, MEM_WATCH_WRITE );
   }
 
 
@@ -4,27 +4,37 @@
  * Z80-Emulator
  *
  * Emulation der Z80 CTC
+ *
+ * Der Zustand gehoert dem Thread, in dem die CPU-Emulation laeuft.
+ * Aufrufe von externalUpdate(...) aus einem anderen Thread
+ * werden ueber eine Z80InputQueue an der naechsten Befehlsgrenze
+ * uebernommen.
  */
 
 package z80emu;
 
-import java.util.ArrayList;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Collection;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 
-public class Z80CTC implements Z80InterruptSource, Z80TStatesListener
+public class Z80CTC implements Z80InterruptSource, Z80DeadlineListener
 {
-  private String                     title;
-  private Collection<Z80CTCListener> listeners;
-  private int                        interruptVector;
-  private int                        tStatesToIgnore;
-  private Timer[]                    timer;
+  private String                              title;
+  private volatile Collection<Z80CTCListener> listeners;
+  private Z80InputQueue                       inputQueue;
+  private int                                 interruptVector;
+  private int                                 tStatesToIgnore;
+  private Timer[]                             timer;
 
 
   public Z80CTC( String title )
   {
     this.title           = title;
     this.listeners       = null;
+    this.inputQueue      = new Z80InputQueue();
     this.interruptVector = 0;
     this.timer           = new Timer[ 4 ];
     for( int i = 0; i < this.timer.length; i++ ) {
@@ -36,7 +46,7 @@ public class Z80CTC implements Z80InterruptSource, Z80TStatesListener
   public synchronized void addCTCListener( Z80CTCListener listener )
   {
     if( this.listeners == null ) {
-      this.listeners = new ArrayList<>();
+      this.listeners = new CopyOnWriteArrayList<>();
     }
     this.listeners.add( listener );
   }
@@ -49,22 +59,91 @@ public class Z80CTC implements Z80InterruptSource, Z80TStatesListener
   }
 
 
-  public synchronized int externalUpdate( int timerNum, boolean state )
+  /*
+   * Die beiden Methoden melden einen Signalwechsel bzw. Impulse
+   * am Eingang eines Kanals.
+   *
+   * Rueckgabewert:
+   *   Anzahl der dadurch ausgeloesten Nulldurchgaenge,
+   *   bei einem Aufruf aus einem fremden Thread immer 0,
+   *   da die Eingabe erst spaeter verarbeitet wird
+   */
+  public int externalUpdate( final int timerNum, final boolean state )
   {
-    return (timerNum >= 0) && (timerNum < this.timer.length) ?
-			this.timer[ timerNum ].externalUpdate( state ) : 0;
+    int rv = 0;
+    if( (timerNum >= 0) && (timerNum < this.timer.length) ) {
+      if( this.inputQueue.isOwner() ) {
+	rv = this.timer[ timerNum ].externalUpdate( state );
+      } else {
+	this.inputQueue.add(
+		new Runnable()
+		{
+		  @Override
+		  public void run()
+		  {
+		    timer[ timerNum ].externalUpdate( state );
+		  }
+		} );
+      }
+    }
+    return rv;
+  }
+
+
+  public int externalUpdate( final int timerNum, final int pulses )
+  {
+    int rv = 0;
+    if( (timerNum >= 0) && (timerNum < this.timer.length) ) {
+      if( this.inputQueue.isOwner() ) {
+	rv = this.timer[ timerNum ].externalUpdate( pulses );
+      } else {
+	this.inputQueue.add(
+		new Runnable()
+		{
+		  @Override
+		  public void run()
+		  {
+		    timer[ timerNum ].externalUpdate( pulses );
+		  }
+		} );
+      }
+    }
+    return rv;
   }
 
 
-  public synchronized int externalUpdate( int timerNum, int pulses )
+  /*
+   * Die Methode prueft, ob sich ein Signalwechsel am Eingang
+   * des Kanals auswirken kann, d.h., ob der Kanal
+   * im Zaehlermodus arbeitet oder auf einen Triggerimpuls wartet.
+   * Wenn nicht, muss der Aufrufer den Zeitpunkt des naechsten
+   * Signalwechsels auch nicht als Z80DeadlineListener melden.
+   */
+  public boolean isExternalInputUsed( int timerNum )
   {
+    this.inputQueue.claim();
     return (timerNum >= 0) && (timerNum < this.timer.length) ?
-			this.timer[ timerNum ].externalUpdate( pulses ) : 0;
+			(this.timer[ timerNum ].extMode
+				|| this.timer[ timerNum ].waitForTrigger)
+			: false;
+  }
+
+
+  public void loadState( DataInput in ) throws IOException
+  {
+    this.inputQueue.claim();
+    this.interruptVector = in.readUnsignedByte() & 0xF8;
+    this.tStatesToIgnore = in.readInt();
+    for( int i = 0; i < this.timer.length; i++ ) {
+      this.timer[ i ].loadState( in );
+    }
   }
 
 
-  public synchronized int read( int timerNum, int tStates )
+  public int read( int timerNum, int tStates )
   {
+    this.inputQueue.claim();
+
     // zuerst Taktzyklen des IO-Befehls verarbeiten
     processTStates( tStates );
     this.tStatesToIgnore += tStates;
@@ -74,8 +153,9 @@ public class Z80CTC implements Z80InterruptSource, Z80TStatesListener
   }
 
 
-  public synchronized void reset( boolean powerOn )
+  public void reset( boolean powerOn )
   {
+    this.inputQueue.claim();
     if( powerOn ) {
       this.interruptVector = 0;
     }
@@ -86,6 +166,17 @@ public class Z80CTC implements Z80InterruptSource, Z80TStatesListener
   }
 
 
+  public void saveState( DataOutput out ) throws IOException
+  {
+    this.inputQueue.claim();
+    out.writeByte( this.interruptVector );
+    out.writeInt( this.tStatesToIgnore );
+    for( int i = 0; i < this.timer.length; i++ ) {
+      this.timer[ i ].saveState( out );
+    }
+  }
+
+
   /*
    * Diese Methode stellt eine Verbindung
    * vom Ausgang fromTimerNum zum Eingang toTimerNum her.
@@ -99,8 +190,10 @@ public class Z80CTC implements Z80InterruptSource, Z80TStatesListener
   }
 
 
-  public synchronized void write( int timerNum, int value, int tStates )
+  public void write( int timerNum, int value, int tStates )
   {
+    this.inputQueue.claim();
+
     // zuerst Taktzyklen des IO-Befehls verarbeiten
     processTStates( tStates );
     this.tStatesToIgnore += tStates;
@@ -164,8 +257,8 @@ public class Z80CTC implements Z80InterruptSource, Z80TStatesListener
 	+ "<tr><td>Z&auml;hler:</td>" );
     for( int i = 0; i < this.timer.length; i++ ) {
       buf.append( "<td>" );
-      Integer counterInit = this.timer[ i ].counterInit;
-      if( counterInit != null ) {
+      int counterInit = this.timer[ i ].counterInit;
+      if( counterInit > 0 ) {
 	buf.append( this.timer[ i ].counter & 0xFF );
 	buf.append( '/' );
 	buf.append( counterInit );
@@ -214,8 +307,10 @@ public class Z80CTC implements Z80InterruptSource, Z80TStatesListener
 
 
   @Override
-  public synchronized int interruptAccept()
+  public int interruptAccept()
   {
+    this.inputQueue.claim();
+
     int rv = 0;
     for( int i = 0; i < this.timer.length; i++ ) {
       if( !this.timer[ i ].interruptAccepted
@@ -232,8 +327,10 @@ public class Z80CTC implements Z80InterruptSource, Z80TStatesListener
 
 
   @Override
-  public synchronized boolean interruptFinish( int addr )
+  public boolean interruptFinish( int addr )
   {
+    this.inputQueue.claim();
+
     boolean rv = false;
     for( int i = 0; i < this.timer.length; i++ ) {
       if( this.timer[ i ].interruptAccepted ) {
@@ -249,6 +346,8 @@ public class Z80CTC implements Z80InterruptSource, Z80TStatesListener
   @Override
   public boolean isInterruptAccepted()
   {
+    this.inputQueue.claim();
+
     boolean rv = false;
     for( Timer t : this.timer ) {
       rv |= t.interruptAccepted;
@@ -260,6 +359,8 @@ public class Z80CTC implements Z80InterruptSource, Z80TStatesListener
   @Override
   public boolean isInterruptRequested()
   {
+    this.inputQueue.claim();
+
     boolean rv = false;
     for( int i = 0; i < this.timer.length; i++ ) {
       if( this.timer[ i ].interruptAccepted ) {
@@ -276,11 +377,41 @@ public class Z80CTC implements Z80InterruptSource, Z80TStatesListener
   }
 
 
+	/* --- Z80DeadlineListener --- */
+
+  /*
+   * Der naechste relevante Zeitpunkt ist der naechste Nulldurchgang
+   * eines Kanals im Zeitgebermodus bzw. die Uebernahme
+   * eines neuen Zeitkonstantenwertes.
+   * Kanaele im Zaehlermodus werden ueber externalUpdate(...)
+   * oder von einem anderen Kanal weitergezaehlt
+   * und haben deshalb keinen eigenen Zeitpunkt.
+   */
+  @Override
+  public int z80TStatesToDeadline( Z80CPU cpu )
+  {
+    this.inputQueue.claim();
+
+    int rv = Integer.MAX_VALUE;
+    for( int i = 0; i < this.timer.length; i++ ) {
+      int tStates = this.timer[ i ].getTStatesToZero();
+      if( tStates < rv ) {
+	rv = tStates;
+      }
+    }
+    if( rv < Integer.MAX_VALUE ) {
+      rv += this.tStatesToIgnore;
+    }
+    return rv;
+  }
+
+
 	/* --- Z80TStatesListener --- */
 
   @Override
-  public synchronized void z80TStatesProcessed( Z80CPU cpu, int tStates )
+  public void z80TStatesProcessed( Z80CPU cpu, int tStates )
   {
+    this.inputQueue.claim();
     if( tStates < this.tStatesToIgnore ) {
       this.tStatesToIgnore -= tStates;
     } else {
@@ -309,10 +440,10 @@ public class Z80CTC implements Z80InterruptSource, Z80TStatesListener
     private int              timerNum;
     private int              fromTimerNum;
     private Timer            toTimer;
-    private Integer          counterLoadValue;
-    private volatile Integer counterInit;
-    private volatile int     counter;
-    private volatile int     preCounter;
+    private int              counterLoadValue;
+    private int              counterInit;
+    private int              counter;
+    private int              preCounter;
     private boolean          pre256;
     private boolean          extMode;
     private boolean          slope;
@@ -370,7 +501,7 @@ public class Z80CTC implements Z80InterruptSource, Z80TStatesListener
 	if( this.extMode ) {
 	  rv = updCounter( pulses );
 	} else {
-	  if( this.waitForTrigger && (this.counterLoadValue == null) ) {
+	  if( this.waitForTrigger && (this.counterLoadValue == 0) ) {
 	    if( start() ) {
 	      this.waitForTrigger = false;
 	    }
@@ -381,16 +512,40 @@ public class Z80CTC implements Z80InterruptSource, Z80TStatesListener
     }
 
 
+    /*
+     * Rueckgabewert:
+     *   Anzahl Taktzyklen bis zum naechsten Nulldurchgang
+     *   bzw. bis zur Uebernahme eines neuen Zeitkonstantenwertes
+     *   oder Integer.MAX_VALUE, wenn der Kanal nicht
+     *   im Zeitgebermodus laeuft
+     */
+    private int getTStatesToZero()
+    {
+      int rv = Integer.MAX_VALUE;
+      if( this.counterLoadValue > 0 ) {
+	rv = 1;
+      } else if( this.running
+		 && !this.extMode
+		 && (this.counterInit > 0) )
+      {
+	int preCounterInit = (this.pre256 ? 256 : 16);
+	rv = (this.preCounter > 0 ? this.preCounter : preCounterInit)
+		+ ((Math.max( this.counter, 1 ) - 1) * preCounterInit);
+      }
+      return rv;
+    }
+
+
     private void processTStates( int pulses )
     {
       // Ein neuer Zaehlerwert wird erst nach einem Taktzyklus uebernommen.
-      if( (pulses > 0) && (this.counterLoadValue != null) ) {
+      if( (pulses > 0) && (this.counterLoadValue > 0) ) {
 	if( !this.extMode ) {
 	  updCounter( updPreCounter( 1 ) );
 	}
 	--pulses;
 	this.counterInit      = this.counterLoadValue;
-	this.counterLoadValue = null;
+	this.counterLoadValue = 0;
 	if( this.extMode || !this.waitForTrigger ) {
 	  start();
 	}
@@ -401,6 +556,43 @@ public class Z80CTC implements Z80InterruptSource, Z80TStatesListener
     }
 
 
+    private void loadState( DataInput in ) throws IOException
+    {
+      int counterLoadValue = in.readShort();
+      int counterInit      = in.readShort();
+      int counter          = in.readUnsignedShort();
+      int preCounter       = in.readUnsignedShort();
+      if( (counterLoadValue > 0x100) || (counterInit > 0x100)
+	  || (counter > 0x100) || (preCounter > 0x100) )
+      {
+	throw new IOException( "Ung\u00FCltiger CTC-Zustand" );
+      }
+      this.counterLoadValue   = Math.max( counterLoadValue, 0 );
+      this.counterInit        = Math.max( counterInit, 0 );
+      this.counter            = counter;
+      this.preCounter         = preCounter;
+      this.pre256             = in.readBoolean();
+      this.extMode            = in.readBoolean();
+      this.slope              = in.readBoolean();
+      this.waitForTrigger     = in.readBoolean();
+      this.interruptEnabled   = in.readBoolean();
+      this.interruptAccepted  = in.readBoolean();
+      this.interruptRequested = in.readBoolean();
+      this.nextIsCounterInit  = in.readBoolean();
+      this.running            = in.readBoolean();
+      switch( in.readByte() ) {
+	case 0:
+	  this.lastInSlope = Boolean.FALSE;
+	  break;
+	case 1:
+	  this.lastInSlope = Boolean.TRUE;
+	  break;
+	default:
+	  this.lastInSlope = null;
+      }
+    }
+
+
     private int read()
     {
       return this.counter & 0xFF;
@@ -409,8 +601,8 @@ public class Z80CTC implements Z80InterruptSource, Z80TStatesListener
 
     private void reset()
     {
-      this.counterLoadValue   = null;
-      this.counterInit        = null;
+      this.counterLoadValue   = 0;
+      this.counterInit        = 0;
       this.counter            = 0x100;
       this.preCounter         = 0;
       this.pre256             = false;
@@ -426,13 +618,36 @@ public class Z80CTC implements Z80InterruptSource, Z80TStatesListener
     }
 
 
+    private void saveState( DataOutput out ) throws IOException
+    {
+      Boolean lastInSlope = this.lastInSlope;
+      out.writeShort( this.counterLoadValue > 0 ? this.counterLoadValue : -1 );
+      out.writeShort( this.counterInit > 0 ? this.counterInit : -1 );
+      out.writeShort( this.counter );
+      out.writeShort( this.preCounter );
+      out.writeBoolean( this.pre256 );
+      out.writeBoolean( this.extMode );
+      out.writeBoolean( this.slope );
+      out.writeBoolean( this.waitForTrigger );
+      out.writeBoolean( this.interruptEnabled );
+      out.writeBoolean( this.interruptAccepted );
+      out.writeBoolean( this.interruptRequested );
+      out.writeBoolean( this.nextIsCounterInit );
+      out.writeBoolean( this.running );
+      if( lastInSlope != null ) {
+	out.writeByte( lastInSlope.booleanValue() ? 1 : 0 );
+      } else {
+	out.writeByte( -1 );
+      }
+    }
+
+
     private boolean start()
     {
-      boolean rv          = false;
-      Integer counterInit = this.counterInit;
-      if( (counterInit != null) && !this.running ) {
+      boolean rv = false;
+      if( (this.counterInit > 0) && !this.running ) {
 	this.preCounter = 0;
-	this.counter    = counterInit.intValue();
+	this.counter    = this.counterInit;
 	this.running    = true;
 	rv              = true;
       }
@@ -467,16 +682,16 @@ public class Z80CTC implements Z80InterruptSource, Z80TStatesListener
 
     private int updCounter( int pulses )
     {
-      int rv = 0;
-      Integer counterInit = this.counterInit;
-      if( counterInit != null ) {
+      int rv          = 0;
+      int counterInit = this.counterInit;
+      if( counterInit > 0 ) {
 	while( this.running && (pulses > 0) ) {
 	  if( pulses < this.counter ) {
 	    this.counter -= pulses;
 	    pulses = 0;
 	  } else {
 	    pulses -= this.counter;
-	    this.counter = counterInit.intValue();
+	    this.counter = counterInit;
 	    rv++;
 	    if( this.interruptEnabled ) {
 	      this.interruptRequested = true;
@@ -0,0 +1,39 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Z80-Emulator
+ *
+ * Interface fuer das gebuendelte Empfangen von verarbeiteten Taktzyklen
+ *
+ * Im Gegensatz zu einem einfachen Z80TStatesListener wird
+ * z80TStatesProcessed(...) nicht nach jedem Befehl aufgerufen,
+ * sondern erst dann, wenn die Summe der seit dem letzten Aufruf
+ * verarbeiteten Taktzyklen den zuletzt ueber z80TStatesToDeadline(...)
+ * gemeldeten Wert erreicht oder ueberschritten hat.
+ * Der Aufruf erfolgt damit nach demselben Befehl,
+ * nach dem er auch bei einem Aufruf nach jedem Befehl
+ * das betreffende Ereignis (z.B. Nulldurchgang eines Zaehlers)
+ * ausgeloest haette.
+ *
+ * Vor jedem Ein-/Ausgabebefehl, vor dem Aufruf eines Z80PCListeners,
+ * beim Anhalten der CPU-Emulation sowie im Debug-Modus werden
+ * die angefallenen Taktzyklen unabhaengig davon sofort gemeldet.
+ * Danach wird z80TStatesToDeadline(...) erneut abgefragt,
+ * d.h., Zustandsaenderungen durch Ein-/Ausgabebefehle
+ * werden beruecksichtigt.
+ */
+
+package z80emu;
+
+
+public interface Z80DeadlineListener extends Z80TStatesListener
+{
+  /*
+   * Rueckgabewert:
+   *   Anzahl der Taktzyklen, die die CPU-Emulation hoechstens
+   *   verarbeiten darf, bevor z80TStatesProcessed(...)
+   *   wieder aufgerufen werden muss
+   *   (Werte kleiner 1 bedeuten: nach jedem Befehl)
+   */
+  public int z80TStatesToDeadline( Z80CPU cpu );
+}
@@ -0,0 +1,103 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Z80-Emulator
+ *
+ * Warteschlange fuer Eingaben an einen Peripheriebaustein,
+ * die aus einem fremden Thread kommen
+ *
+ * Der Zustand eines Peripheriebausteins gehoert dem Thread,
+ * in dem die CPU-Emulation laeuft (Eigentuemer-Thread).
+ * Alle Methoden der CPU-Seite rufen zuerst claim() auf.
+ * Damit wird der aufrufende Thread als Eigentuemer eingetragen
+ * und die inzwischen eingereihten Eingaben werden abgearbeitet.
+ * Da die CPU-Emulation die Interrupt-Methoden der Bausteine
+ * vor jedem Befehl aufruft, werden die Eingaben somit
+ * an Befehlsgrenzen uebernommen.
+ *
+ * Eingabemethoden (z.B. Tastatur, Joystick, serielle Schnittstelle)
+ * pruefen mit isOwner(), ob sie im Eigentuemer-Thread laufen.
+ * Wenn ja, wird die Eingabe sofort verarbeitet,
+ * wenn nicht, wird sie mit add(...) eingereiht.
+ *
+ * Die Warteschlange arbeitet ohne Monitore (synchronized).
+ * Im Normalfall kostet ein Aufruf von claim() bzw. isOwner()
+ * nur das Lesen von zwei volatile-Variablen.
+ */
+
+package z80emu;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+
+class Z80InputQueue
+{
+  private ConcurrentLinkedQueue<Runnable> queue;
+  private volatile boolean                pending;
+  private volatile Thread                 ownerThread;
+
+
+  Z80InputQueue()
+  {
+    this.queue       = new ConcurrentLinkedQueue<>();
+    this.pending     = false;
+    this.ownerThread = null;
+  }
+
+
+  /*
+   * Einreihen einer Eingabe, die beim naechsten Aufruf von claim()
+   * bzw. isOwner() im Eigentuemer-Thread ausgefuehrt wird
+   */
+  void add( Runnable input )
+  {
+    this.queue.add( input );
+    this.pending = true;
+  }
+
+
+  /*
+   * Eintragen des aufrufenden Threads als Eigentuemer
+   * und Abarbeiten der eingereihten Eingaben
+   */
+  void claim()
+  {
+    Thread thread = Thread.currentThread();
+    if( thread != this.ownerThread ) {
+      this.ownerThread = thread;
+    }
+    if( this.pending ) {
+      processPending();
+    }
+  }
+
+
+  /*
+   * Rueckgabewert:
+   *   true:  Aufruf im Eigentuemer-Thread,
+   *          eingereihte Eingaben wurden bereits abgearbeitet
+   *   false: Aufruf aus einem fremden Thread
+   */
+  boolean isOwner()
+  {
+    boolean rv = (Thread.currentThread() == this.ownerThread);
+    if( rv && this.pending ) {
+      processPending();
+    }
+    return rv;
+  }
+
+
+	/* --- private Methoden --- */
+
+  private void processPending()
+  {
+    // zuerst zuruecksetzen, damit keine Eingabe verloren geht
+    this.pending   = false;
+    Runnable input = this.queue.poll();
+    while( input != null ) {
+      input.run();
+      input = this.queue.poll();
+    }
+  }
+}
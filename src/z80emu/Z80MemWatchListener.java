@@ -0,0 +1,28 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Z80-Emulator
+ *
+ * Interface fuer das Empfangen von Speicherzugriffen
+ * auf ueberwachte Adressen
+ *
+ * Die Methode wird im Debug-Modus direkt nach dem Zugriff
+ * im Thread der CPU-Emulation aufgerufen,
+ * und zwar nur fuer Adressen, die in der bei
+ * Z80CPU.setMemWatchpoints(...) uebergebenen Tabelle
+ * fuer die betreffende Zugriffsart markiert sind.
+ * Beim Lesen ist "value" der gelesene, beim Schreiben
+ * der geschriebene Wert.
+ */
+
+package z80emu;
+
+
+public interface Z80MemWatchListener
+{
+  public void z80MemWatchAccess(
+			Z80CPU  cpu,
+			int     addr,
+			int     value,
+			boolean write );
+}
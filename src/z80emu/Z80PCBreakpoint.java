@@ -0,0 +1,24 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Z80-Emulator
+ *
+ * Interface fuer Haltepunkte, die nur bei einer bestimmten
+ * Programmadresse ausloesen koennen
+ *
+ * Die CPU-Emulation legt solche Haltepunkte in einer Tabelle
+ * ueber alle 64K Adressen ab und ruft matches(...) nur dann auf,
+ * wenn der Program Counter auf der zurueckgelieferten Adresse steht.
+ * Eventuelle weitere Bedingungen (z.B. Registerinhalte)
+ * prueft matches(...) wie gewohnt.
+ * Aendert sich die Adresse, muss der Haltepunkt erneut
+ * mit Z80CPU.setBreakpoints(...) gesetzt werden.
+ */
+
+package z80emu;
+
+
+public interface Z80PCBreakpoint extends Z80Breakpoint
+{
+  public int getAddress();
+}
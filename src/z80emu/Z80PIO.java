@@ -8,12 +8,20 @@
  * In der Betriebsart BYTE_INOUT wird das Ready-Signal von Port B,
  * welches in dem Fall fuer die Eingabe in Port A zustaendig ist,
  * nicht emuliert.
+ *
+ * Der Zustand gehoert dem Thread, in dem die CPU-Emulation laeuft.
+ * Eingaben aus einem anderen Thread (Seite IO-System)
+ * werden ueber eine Z80InputQueue an der naechsten Befehlsgrenze
+ * uebernommen.
  */
 
 package z80emu;
 
-import java.util.ArrayList;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Collection;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 
 public class Z80PIO implements Z80InterruptSource
@@ -35,10 +43,11 @@ public class Z80PIO implements Z80InterruptSource
 
   private enum Ctrl { NONE, INPUT_BIT_MASK, INTERRUPT_MASK };
 
-  private String      title;
-  private boolean     resetState;
-  private Z80PIO.Port portA;
-  private Z80PIO.Port portB;
+  private String        title;
+  private boolean       resetState;
+  private Z80PIO.Port   portA;
+  private Z80PIO.Port   portB;
+  private Z80InputQueue inputQueue;
 
 
   public Z80PIO( String title )
@@ -47,6 +56,7 @@ public class Z80PIO implements Z80InterruptSource
     this.resetState = true;
     this.portA      = new Z80PIO.Port( PortInfo.A );
     this.portB      = new Z80PIO.Port( PortInfo.B );
+    this.inputQueue = new Z80InputQueue();
   }
 
 
@@ -88,12 +98,12 @@ public class Z80PIO implements Z80InterruptSource
   /*
    * Diese Methoden bieten Zugriff auf den Interrupt-Vektor
    */
-  public synchronized int getInterruptVectorPortA()
+  public int getInterruptVectorPortA()
   {
     return this.portA.interruptVector;
   }
 
-  public synchronized int getInterruptVectorPortB()
+  public int getInterruptVectorPortB()
   {
     return this.portB.interruptVector;
   }
@@ -111,24 +121,24 @@ public class Z80PIO implements Z80InterruptSource
    * Je nach Betriebsart und Interrupt-Freigabe
    * kann dadurch ein Interrupt ausgeloest werden.
    */
-  public synchronized int fetchOutValuePortA( int defaultValue )
+  public int fetchOutValuePortA( int defaultValue )
   {
     return fetchOutValue( this.portA, defaultValue, false );
   }
 
-  public synchronized int fetchOutValuePortA(
+  public int fetchOutValuePortA(
 					int     defaultValue,
 					boolean strobe )
   {
     return fetchOutValue( this.portA, defaultValue, strobe );
   }
 
-  public synchronized int fetchOutValuePortB( int defaultValue )
+  public int fetchOutValuePortB( int defaultValue )
   {
     return fetchOutValue( this.portB, defaultValue, false );
   }
 
-  public synchronized int fetchOutValuePortB(
+  public int fetchOutValuePortB(
 					int     defaultValue,
 					boolean strobe )
   {
@@ -136,24 +146,24 @@ public class Z80PIO implements Z80InterruptSource
   }
 
 
-  public synchronized Mode getModePortA()
+  public Mode getModePortA()
   {
     return this.portA.mode;
   }
 
-  public synchronized Mode getModePortB()
+  public Mode getModePortB()
   {
     return this.portB.mode;
   }
 
 
-  public synchronized boolean isReadyPortA()
+  public boolean isReadyPortA()
   {
     return this.portA.ready;
   }
 
 
-  public synchronized boolean isReadyPortB()
+  public boolean isReadyPortB()
   {
     return this.portB.ready;
   }
@@ -173,23 +183,27 @@ public class Z80PIO implements Z80InterruptSource
    *	true:	Daten durch PIO uebernommen
    *	false:	Daten nicht uebernommen
    *		(CPU hat den vorherigen Wert noch nicht gelesen.)
+   *
+   * Bei einem Aufruf aus einem fremden Thread werden die Daten
+   * erst an der naechsten Befehlsgrenze uebernommen.
+   * Der Rueckgabewert ist dann immer true.
    */
-  public synchronized boolean putInValuePortA( int value, boolean strobe )
+  public boolean putInValuePortA( int value, boolean strobe )
   {
     return putInValue( this.portA, value, 0xFF, strobe );
   }
 
-  public synchronized boolean putInValuePortA( int value, int mask )
+  public boolean putInValuePortA( int value, int mask )
   {
     return putInValue( this.portA, value, mask, false );
   }
 
-  public synchronized boolean putInValuePortB( int value, boolean strobe )
+  public boolean putInValuePortB( int value, boolean strobe )
   {
     return putInValue( this.portB, value, 0xFF, strobe );
   }
 
-  public synchronized boolean putInValuePortB( int value, int mask )
+  public boolean putInValuePortB( int value, int mask )
   {
     return putInValue( this.portB, value, mask, false );
   }
@@ -213,45 +227,75 @@ public class Z80PIO implements Z80InterruptSource
    * Methoden, die im CPU-Emulations-Thread
    * aufgerufen werden koennen (CPU-Seite).
    */
-  public synchronized int readDataA()
+  public int readDataA()
   {
+    this.inputQueue.claim();
     return readData( this.portA );
   }
 
 
-  public synchronized int readDataB()
+  public int readDataB()
   {
+    this.inputQueue.claim();
     return readData( this.portB );
   }
 
 
-  public synchronized void reset( boolean powerOn )
+  public void reset( boolean powerOn )
   {
+    this.inputQueue.claim();
     this.portA.reset( powerOn );
     this.portB.reset( powerOn );
   }
 
 
-  public synchronized void writeControlA( int value )
+  /*
+   * Lesen und Schreiben des Zustandes der PIO
+   *
+   * Beim Lesen werden die PIOPortListener nicht informiert.
+   */
+  public void loadState( DataInput in ) throws IOException
+  {
+    this.inputQueue.claim();
+    this.resetState = in.readBoolean();
+    this.portA.loadState( in );
+    this.portB.loadState( in );
+  }
+
+
+  public void saveState( DataOutput out ) throws IOException
   {
+    this.inputQueue.claim();
+    out.writeBoolean( this.resetState );
+    this.portA.saveState( out );
+    this.portB.saveState( out );
+  }
+
+
+  public void writeControlA( int value )
+  {
+    this.inputQueue.claim();
     writeControl( this.portA, value );
   }
 
 
-  public synchronized void writeControlB( int value )
+  public void writeControlB( int value )
   {
+    this.inputQueue.claim();
     writeControl( this.portB, value );
   }
 
 
-  public synchronized void writeDataA( int value )
+  public void writeDataA( int value )
   {
+    this.inputQueue.claim();
     writeData( this.portA, value );
   }
 
 
-  public synchronized void writeDataB( int value )
+  public void writeDataB( int value )
   {
+    this.inputQueue.claim();
     writeData( this.portB, value );
   }
 
@@ -376,8 +420,10 @@ public class Z80PIO implements Z80InterruptSource
 
 
   @Override
-  public synchronized int interruptAccept()
+  public int interruptAccept()
   {
+    this.inputQueue.claim();
+
     int rv = 0;
     if( !this.portA.interruptAccepted
 	&& this.portA.interruptEnabled
@@ -400,8 +446,10 @@ public class Z80PIO implements Z80InterruptSource
 
 
   @Override
-  public synchronized boolean interruptFinish( int addr )
+  public boolean interruptFinish( int addr )
   {
+    this.inputQueue.claim();
+
     boolean rv = false;
     if( this.portA.interruptAccepted ) {
       this.portA.interruptAccepted = false;
@@ -418,6 +466,7 @@ public class Z80PIO implements Z80InterruptSource
   @Override
   public boolean isInterruptAccepted()
   {
+    this.inputQueue.claim();
     return this.portA.interruptAccepted || this.portB.interruptAccepted;
   }
 
@@ -425,6 +474,8 @@ public class Z80PIO implements Z80InterruptSource
   @Override
   public boolean isInterruptRequested()
   {
+    this.inputQueue.claim();
+
     boolean rv = (this.portA.interruptEnabled
 				&& this.portA.interruptRequested);
     if( !rv && !this.portA.interruptAccepted ) {
@@ -448,12 +499,12 @@ public class Z80PIO implements Z80InterruptSource
   private class Port
   {
     private PortInfo                       portInfo;
-    private int                            outReg;
+    private volatile int                   outReg;
     private int                            inReg;
     private int                            inDirMask;
     private int                            valueMask;
-    private boolean                        ready;
-    private Mode                           mode;
+    private volatile boolean               ready;
+    private volatile Mode                  mode;
     private Ctrl                           nextCtrl;
     private int                            interruptVector;
     private int                            interruptMask;
@@ -494,6 +545,53 @@ public class Z80PIO implements Z80InterruptSource
       this.interruptCondFulfilled = false;
       this.ready                  = false;
     }
+
+
+    private void loadState( DataInput in ) throws IOException
+    {
+      int modeIdx = in.readUnsignedByte();
+      int ctrlIdx = in.readUnsignedByte();
+      if( (modeIdx >= Mode.values().length)
+	  || (ctrlIdx >= Ctrl.values().length) )
+      {
+	throw new IOException( "Ung\u00FCltiger PIO-Zustand" );
+      }
+      this.mode                   = Mode.values()[ modeIdx ];
+      this.nextCtrl               = Ctrl.values()[ ctrlIdx ];
+      this.outReg                 = in.readUnsignedByte();
+      this.inReg                  = in.readUnsignedByte();
+      this.inDirMask              = in.readUnsignedByte();
+      this.valueMask              = in.readUnsignedByte();
+      this.interruptVector        = in.readUnsignedByte();
+      this.interruptMask          = in.readUnsignedByte();
+      this.interruptFireAtH       = in.readBoolean();
+      this.interruptBitsAnd       = in.readBoolean();
+      this.interruptEnabled       = in.readBoolean();
+      this.interruptAccepted      = in.readBoolean();
+      this.interruptRequested     = in.readBoolean();
+      this.interruptCondFulfilled = in.readBoolean();
+      this.ready                  = in.readBoolean();
+    }
+
+
+    private void saveState( DataOutput out ) throws IOException
+    {
+      out.writeByte( this.mode.ordinal() );
+      out.writeByte( this.nextCtrl.ordinal() );
+      out.writeByte( this.outReg );
+      out.writeByte( this.inReg );
+      out.writeByte( this.inDirMask );
+      out.writeByte( this.valueMask );
+      out.writeByte( this.interruptVector );
+      out.writeByte( this.interruptMask );
+      out.writeBoolean( this.interruptFireAtH );
+      out.writeBoolean( this.interruptBitsAnd );
+      out.writeBoolean( this.interruptEnabled );
+      out.writeBoolean( this.interruptAccepted );
+      out.writeBoolean( this.interruptRequested );
+      out.writeBoolean( this.interruptCondFulfilled );
+      out.writeBoolean( this.ready );
+    }
   }
 
 
@@ -502,7 +600,7 @@ public class Z80PIO implements Z80InterruptSource
 				Z80PIO.Port        port )
   {
     if( port.listeners == null ) {
-      port.listeners = new ArrayList<>();
+      port.listeners = new CopyOnWriteArrayList<>();
     }
     port.listeners.add( listener );
   }
@@ -583,6 +681,30 @@ public class Z80PIO implements Z80InterruptSource
 
 
   private boolean putInValue(
+			final Z80PIO.Port port,
+			final int         value,
+			final int         mask,
+			final boolean     strobe )
+  {
+    boolean rv = true;
+    if( this.inputQueue.isOwner() ) {
+      rv = putInValueIntern( port, value, mask, strobe );
+    } else {
+      this.inputQueue.add(
+		new Runnable()
+		{
+		  @Override
+		  public void run()
+		  {
+		    putInValueIntern( port, value, mask, strobe );
+		  }
+		} );
+    }
+    return rv;
+  }
+
+
+  private boolean putInValueIntern(
 			Z80PIO.Port port,
 			int         value,
 			int         mask,
@@ -596,14 +718,14 @@ public class Z80PIO implements Z80InterruptSource
 	port.inReg     = inReg;
 	port.valueMask = 0xFF;
 	if( strobe ) {
-	  strobePort( port );
+	  strobePortIntern( port );
 	}
 	rv = true;
 	break;
 
       case BYTE_OUT:
 	if( strobe ) {
-	  strobePort( port );
+	  strobePortIntern( port );
 	}
 	rv = true;
 	break;
@@ -653,7 +775,25 @@ public class Z80PIO implements Z80InterruptSource
   }
 
 
-  private void strobePort( Z80PIO.Port port )
+  private void strobePort( final Z80PIO.Port port )
+  {
+    if( this.inputQueue.isOwner() ) {
+      strobePortIntern( port );
+    } else {
+      this.inputQueue.add(
+		new Runnable()
+		{
+		  @Override
+		  public void run()
+		  {
+		    strobePortIntern( port );
+		  }
+		} );
+    }
+  }
+
+
+  private void strobePortIntern( Z80PIO.Port port )
   {
     if( ((port.portInfo == PortInfo.A)
 	 && ((port.mode == Mode.BYTE_IN)
@@ -0,0 +1,43 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Z80-Emulator
+ *
+ * Interface fuer einen Arbeitsspeicher,
+ * auf den die CPU-Emulation seitenweise direkt zugreifen kann
+ *
+ * Der Adressraum ist in Seiten zu je 1 KByte aufgeteilt.
+ * Fuer jede Seite liefern die Tabellen das Byte-Array
+ * und den Index im Array, der dem Seitenanfang entspricht.
+ * Ist fuer eine Seite kein Array eingetragen,
+ * greift die CPU-Emulation wie bisher ueber readMemByte(...)
+ * bzw. writeMemByte(...) auf den Speicher zu.
+ * Seiten, bei denen ein Zugriff weitere Aktionen ausloest
+ * (z.B. Bildwiederholspeicher, WAIT-States, Module),
+ * duerfen deshalb nicht eingetragen werden.
+ *
+ * Die CPU-Emulation holt sich die Tabellen nur einmal
+ * bzw. beim Aufruf von Z80CPU.updMemPages().
+ * Die Inhalte der Tabellen duerfen sich jederzeit aendern,
+ * die Tabellen selbst (d.h. die Array-Objekte) jedoch nicht.
+ */
+
+package z80emu;
+
+
+public interface Z80PagedMemory extends Z80Memory
+{
+  public static final int PAGE_SHIFT = 10;
+  public static final int PAGE_SIZE  = 1 << PAGE_SHIFT;
+  public static final int PAGE_MASK  = PAGE_SIZE - 1;
+  public static final int PAGE_COUNT = 0x10000 >> PAGE_SHIFT;
+
+  /*
+   * Die Methoden liefern Arrays mit PAGE_COUNT Elementen
+   * oder null, wenn kein direkter Zugriff moeglich ist.
+   */
+  public byte[][] getReadPages();
+  public int[]    getReadPageOffs();
+  public byte[][] getWritePages();
+  public int[]    getWritePageOffs();
+}
@@ -6,13 +6,21 @@
  * Emulation der Z80 SIO
  *
  * Es wird nur der asynchrone Uebertragungsmodus emuliert.
+ *
+ * Der Zustand gehoert dem Thread, in dem die CPU-Emulation laeuft.
+ * Eingaben aus einem anderen Thread (Takt, Empfangsdaten,
+ * CTS und DCD) werden ueber eine Z80InputQueue
+ * an der naechsten Befehlsgrenze uebernommen.
  */
 
 package z80emu;
 
-import java.util.ArrayList;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 
 public class Z80SIO implements Z80InterruptSource
@@ -21,6 +29,12 @@ public class Z80SIO implements Z80InterruptSource
   private static final int SENDER_INTERRUPT   = 0x02;
   private static final int EXTERNAL_INTERRUPT = 0x04;
 
+  private static final int INPUT_CLOCK_RECEIVER = 1;
+  private static final int INPUT_CLOCK_SENDER   = 2;
+  private static final int INPUT_RECEIVER       = 3;
+  private static final int INPUT_CTS            = 4;
+  private static final int INPUT_DCD            = 5;
+
   private static final int RECV_BUFFER_FILLED = 0x100;
   private static final int RECV_FIFO_OVERRUN  = 0x200;
 
@@ -52,18 +66,20 @@ public class Z80SIO implements Z80InterruptSource
   private static final String TEXT_EXTERNAL_INTERRUPT
 					= "Externer Status-Interrupt";
 
-  private String    title;
-  private Channel   a;
-  private Channel   b;
-  private Channel[] channels;
+  private String        title;
+  private Channel       a;
+  private Channel       b;
+  private Channel[]     channels;
+  private Z80InputQueue inputQueue;
 
 
   public Z80SIO( String title )
   {
-    this.title    = title;
-    this.a        = new Channel( 0 );
-    this.b        = new Channel( 1 );
-    this.channels = new Channel[] { this.a, this.b };
+    this.title      = title;
+    this.a          = new Channel( 0 );
+    this.b          = new Channel( 1 );
+    this.channels   = new Channel[] { this.a, this.b };
+    this.inputQueue = new Z80InputQueue();
   }
 
 
@@ -74,7 +90,7 @@ public class Z80SIO implements Z80InterruptSource
     if( (channelNum >= 0) && (channelNum < this.channels.length) ) {
       Channel channel = this.channels[ channelNum ];
       if( channel.listeners == null ) {
-	channel.listeners = new ArrayList<>();
+	channel.listeners = new CopyOnWriteArrayList<>();
       }
       channel.listeners.add( listener );
     }
@@ -107,37 +123,37 @@ public class Z80SIO implements Z80InterruptSource
 
   public void clockPulseReceiverA()
   {
-    this.a.clockPulseReceiver();
+    this.a.input( INPUT_CLOCK_RECEIVER, 0 );
   }
 
 
   public void clockPulseReceiverB()
   {
-    this.b.clockPulseReceiver();
+    this.b.input( INPUT_CLOCK_RECEIVER, 0 );
   }
 
 
   public void clockPulseSenderA()
   {
-    this.a.clockPulseSender();
+    this.a.input( INPUT_CLOCK_SENDER, 0 );
   }
 
 
   public void clockPulseSenderB()
   {
-    this.b.clockPulseSender();
+    this.b.input( INPUT_CLOCK_SENDER, 0 );
   }
 
 
   public void putToReceiverA( int value )
   {
-    this.a.putToReceiver( value );
+    this.a.input( INPUT_RECEIVER, value );
   }
 
 
   public void putToReceiverB( int value )
   {
-    this.b.putToReceiver( value );
+    this.b.input( INPUT_RECEIVER, value );
   }
 
 
@@ -156,79 +172,109 @@ public class Z80SIO implements Z80InterruptSource
 
   public int readControlA()
   {
+    this.inputQueue.claim();
     return this.a.readControl();
   }
 
 
   public int readControlB()
   {
+    this.inputQueue.claim();
     return this.b.readControl();
   }
 
 
   public int readDataA()
   {
+    this.inputQueue.claim();
     return this.a.readData();
   }
 
 
   public int readDataB()
   {
+    this.inputQueue.claim();
     return this.b.readData();
   }
 
 
   public void reset( boolean powerOn )
   {
+    this.inputQueue.claim();
     this.a.reset( powerOn );
     this.b.reset( powerOn );
   }
 
 
+  /*
+   * Lesen und Schreiben des Zustandes der SIO
+   *
+   * Beim Lesen werden die SIOChannelListener nicht informiert.
+   */
+  public void loadState( DataInput in ) throws IOException
+  {
+    this.inputQueue.claim();
+    this.a.loadState( in );
+    this.b.loadState( in );
+  }
+
+
+  public void saveState( DataOutput out ) throws IOException
+  {
+    this.inputQueue.claim();
+    this.a.saveState( out );
+    this.b.saveState( out );
+  }
+
+
   public void setClearToSendA( boolean state )
   {
-    this.a.setCTS( state );
+    this.a.input( INPUT_CTS, state ? 1 : 0 );
   }
 
 
   public void setClearToSendB( boolean state )
   {
-    this.b.setCTS( state );
+    this.b.input( INPUT_CTS, state ? 1 : 0 );
   }
 
 
   public void setDataCarrierDetectA( boolean state )
   {
-    this.a.setDCD( state );
+    this.a.input( INPUT_DCD, state ? 1 : 0 );
   }
 
 
   public void setDataCarrierDetectB( boolean state )
   {
-    this.b.setDCD( state );
+    this.b.input( INPUT_DCD, state ? 1 : 0 );
   }
 
 
   public void writeControlA( int value )
   {
+    this.inputQueue.claim();
     this.a.writeControl( value );
   }
 
 
   public void writeControlB( int value )
   {
+    this.inputQueue.claim();
     this.b.writeControl( value );
   }
 
 
   public void writeDataA( int value )
   {
+    this.inputQueue.claim();
     this.a.writeData( value );
   }
 
 
   public void writeDataB( int value )
   {
+    this.inputQueue.claim();
     this.b.writeData( value );
   }
 
@@ -281,23 +327,21 @@ public class Z80SIO implements Z80InterruptSource
 	  buf.append( "Zeichen wird gerade empfangen...<br/>\n" );
 	}
 	buf.append( "Empfangspuffer" );
-	synchronized ( channel ) {
-	  int n = channel.recvFifoLen;
-	  if( n > 0 ) {
-	    buf.append( ':' );
-	    for( int k = 0; k < n; k++ ) {
-	      if( k > 0 ) {
-		buf.append( ',' );
-	      }
-	      int b = channel.recvFifo[ i ];
-	      buf.append( String.format( " %02Xh", b & 0xFF ) );
-	      if( (b & RECV_FIFO_OVERRUN) != 0 ) {
-		buf.append( " overrun" );
-	      }
+	int n = channel.recvFifoLen;
+	if( n > 0 ) {
+	  buf.append( ':' );
+	  for( int k = 0; k < n; k++ ) {
+	    if( k > 0 ) {
+	      buf.append( ',' );
+	    }
+	    int b = channel.recvFifo[ i ];
+	    buf.append( String.format( " %02Xh", b & 0xFF ) );
+	    if( (b & RECV_FIFO_OVERRUN) != 0 ) {
+	      buf.append( " overrun" );
 	    }
-	  } else {
-	    buf.append( " leer" );
 	  }
+	} else {
+	  buf.append( " leer" );
 	}
 	buf.append( "<br/>\n"
 			+ "Interrupt" );
@@ -404,8 +448,10 @@ public class Z80SIO implements Z80InterruptSource
 
 
   @Override
-  public synchronized int interruptAccept()
+  public int interruptAccept()
   {
+    this.inputQueue.claim();
+
     int rv = getInterruptVector();
     if( ((this.a.interruptAccepted & RECEIVER_INTERRUPT) == 0)
 	&& ((this.a.interruptRequest & RECEIVER_INTERRUPT) != 0) )
@@ -448,8 +494,10 @@ public class Z80SIO implements Z80InterruptSource
 
 
   @Override
-  public synchronized boolean interruptFinish( int addr )
+  public boolean interruptFinish( int addr )
   {
+    this.inputQueue.claim();
+
     boolean rv = false;
     if( (this.a.interruptAccepted & RECEIVER_INTERRUPT) != 0 ) {
       this.a.interruptAccepted &= ~RECEIVER_INTERRUPT;
@@ -482,6 +530,7 @@ public class Z80SIO implements Z80InterruptSource
   @Override
   public boolean isInterruptAccepted()
   {
+    this.inputQueue.claim();
     return ((this.a.interruptAccepted
 			& (RECEIVER_INTERRUPT
 				| SENDER_INTERRUPT
@@ -496,6 +545,7 @@ public class Z80SIO implements Z80InterruptSource
   @Override
   public boolean isInterruptRequested()
   {
+    this.inputQueue.claim();
     return ((this.a.interruptRequest
 			& (RECEIVER_INTERRUPT
 				| SENDER_INTERRUPT
@@ -573,7 +623,7 @@ public class Z80SIO implements Z80InterruptSource
     }
 
 
-    private synchronized void clockPulseReceiver()
+    private void clockPulseReceiver()
     {
       if( (this.wr[ 3 ] > 0)		// Empfaengereinstellungen
 	  && (this.wr[ 4 ] > 0) )	// Vorteiler
@@ -635,7 +685,7 @@ public class Z80SIO implements Z80InterruptSource
     }
 
 
-    private synchronized void clockPulseSender()
+    private void clockPulseSender()
     {
       if( (this.wr[ 4 ] > 0)		// Vorteiler
 	  && (this.wr[ 5 ] > 0) )	// Sendereinstellungen
@@ -762,7 +812,7 @@ public class Z80SIO implements Z80InterruptSource
     }
 
 
-    private synchronized boolean isReadyReceiver()
+    private boolean isReadyReceiver()
     {
       boolean rv = false;
       if( (this.wr[ 3 ] > 0)			// Empfaengereinstellungen
@@ -790,6 +840,37 @@ public class Z80SIO implements Z80InterruptSource
     }
 
 
+    private void loadState( DataInput in ) throws IOException
+    {
+      this.interruptAccepted        = in.readInt();
+      this.interruptRequest         = in.readInt();
+      this.recvNextInterruptEnabled = in.readBoolean();
+      this.recvBuf                  = in.readInt();
+      this.recvClockDiv             = in.readInt();
+      this.recvClocksRemain         = in.readInt();
+
+      int recvFifoLen = in.readUnsignedByte();
+      if( recvFifoLen > this.recvFifo.length ) {
+	throw new IOException( "Ung\u00FCltiger SIO-Zustand" );
+      }
+      this.recvFifoLen = recvFifoLen;
+      for( int i = 0; i < this.recvFifo.length; i++ ) {
+	this.recvFifo[ i ] = in.readInt();
+      }
+      this.sendBuf          = in.readInt();
+      this.sendClockDiv     = in.readInt();
+      this.sendClocksRemain = in.readInt();
+      for( int i = 0; i < this.rr.length; i++ ) {
+	this.rr[ i ] = in.readInt();
+      }
+      for( int i = 0; i < this.wr.length; i++ ) {
+	this.wr[ i ] = in.readInt();
+      }
+      this.cts = readNullableBoolean( in );
+      this.dcd = readNullableBoolean( in );
+    }
+
+
     private void putToReceiver( int value )
     {
       if( this.recvClocksRemain == 0 ) {
@@ -798,7 +879,7 @@ public class Z80SIO implements Z80InterruptSource
     }
 
 
-    private synchronized int readControl()
+    private int readControl()
     {
       int rv     = 0;
       int regNum = this.wr[ 0 ] & 0x07;
@@ -826,7 +907,7 @@ public class Z80SIO implements Z80InterruptSource
     }
 
 
-    private synchronized int readData()
+    private int readData()
     {
       int rv = 0;
       if( this.recvFifoLen > 0 ) {
@@ -847,6 +928,66 @@ public class Z80SIO implements Z80InterruptSource
     }
 
 
+    /*
+     * Eingabe aus dem IO-System,
+     * wird im Eigentuemer-Thread sofort verarbeitet
+     * und ansonsten eingereiht
+     */
+    private void input( final int inputType, final int value )
+    {
+      if( inputQueue.isOwner() ) {
+	processInput( inputType, value );
+      } else {
+	inputQueue.add(
+		new Runnable()
+		{
+		  @Override
+		  public void run()
+		  {
+		    processInput( inputType, value );
+		  }
+		} );
+      }
+    }
+
+
+    private void processInput( int inputType, int value )
+    {
+      switch( inputType ) {
+	case INPUT_CLOCK_RECEIVER:
+	  clockPulseReceiver();
+	  break;
+	case INPUT_CLOCK_SENDER:
+	  clockPulseSender();
+	  break;
+	case INPUT_RECEIVER:
+	  putToReceiver( value );
+	  break;
+	case INPUT_CTS:
+	  setCTS( value != 0 );
+	  break;
+	case INPUT_DCD:
+	  setDCD( value != 0 );
+	  break;
+      }
+    }
+
+
+    private Boolean readNullableBoolean( DataInput in ) throws IOException
+    {
+      Boolean rv = null;
+      switch( in.readByte() ) {
+	case 0:
+	  rv = Boolean.FALSE;
+	  break;
+	case 1:
+	  rv = Boolean.TRUE;
+	  break;
+      }
+      return rv;
+    }
+
+
     private void reset( boolean powerOn )
     {
       this.interruptAccepted = 0;
@@ -883,7 +1024,33 @@ public class Z80SIO implements Z80InterruptSource
     }
 
 
-    private synchronized void setCTS( boolean state )
+    private void saveState( DataOutput out ) throws IOException
+    {
+      out.writeInt( this.interruptAccepted );
+      out.writeInt( this.interruptRequest );
+      out.writeBoolean( this.recvNextInterruptEnabled );
+      out.writeInt( this.recvBuf );
+      out.writeInt( this.recvClockDiv );
+      out.writeInt( this.recvClocksRemain );
+      out.writeByte( this.recvFifoLen );
+      for( int i = 0; i < this.recvFifo.length; i++ ) {
+	out.writeInt( this.recvFifo[ i ] );
+      }
+      out.writeInt( this.sendBuf );
+      out.writeInt( this.sendClockDiv );
+      out.writeInt( this.sendClocksRemain );
+      for( int i = 0; i < this.rr.length; i++ ) {
+	out.writeInt( this.rr[ i ] );
+      }
+      for( int i = 0; i < this.wr.length; i++ ) {
+	out.writeInt( this.wr[ i ] );
+      }
+      writeNullableBoolean( out, this.cts );
+      writeNullableBoolean( out, this.dcd );
+    }
+
+
+    private void setCTS( boolean state )
     {
       Boolean oldState = this.cts;
       this.cts         = state;
@@ -891,7 +1058,7 @@ public class Z80SIO implements Z80InterruptSource
     }
 
 
-    private synchronized void setDCD( boolean state )
+    private void setDCD( boolean state )
     {
       Boolean oldState = this.dcd;
       this.dcd         = state;
@@ -899,7 +1066,7 @@ public class Z80SIO implements Z80InterruptSource
     }
 
 
-    private synchronized void writeControl( int value )
+    private void writeControl( int value )
     {
       int regNum        = this.wr[ 0 ] & 0x07;
       this.wr[ regNum ] = value & 0xFF;
@@ -942,17 +1109,29 @@ public class Z80SIO implements Z80InterruptSource
     }
 
 
-    private synchronized void writeData( int value )
+    private void writeData( int value )
     {
       this.sendBuf = value;
       resetSenderInterrupt();
       this.rr[ 0 ] &= ~RR0_SENDER_BUFFER_EMPTY;
       this.rr[ 1 ] &= ~RR1_SENDER_EMPTY;
     }
+
+
+    private void writeNullableBoolean(
+				DataOutput out,
+				Boolean    value ) throws IOException
+    {
+      if( value != null ) {
+	out.writeByte( value.booleanValue() ? 1 : 0 );
+      } else {
+	out.writeByte( -1 );
+      }
+    }
   }
 
 
-  private synchronized void fireByteAvailable( Channel channel, int value )
+  private void fireByteAvailable( Channel channel, int value )
   {
     if( channel.listeners != null ) {
       for( Z80SIOChannelListener listener : channel.listeners ) {
@@ -0,0 +1,424 @@
+/*
+ * (c) 2022 Jens Mueller
+ *
+ * Z80-Emulator
+ *
+ * Binaere Befehlsaufzeichnung
+ *
+ * Die CPU-Emulation schreibt pro Befehl einen Datensatz fester Laenge
+ * (Ereignis, Anzahl der bis dahin abgearbeiteten Taktzyklen, PC,
+ * Befehlsbytes, Register) in einen vorab angelegten Ringpuffer.
+ * Dabei wird weder formatiert noch reassembliert.
+ * Ist eine Datei angegeben, wird der Puffer jeweils komplett
+ * in die Datei geschrieben, sobald er voll ist.
+ * Ohne Datei werden die aeltesten Datensaetze ueberschrieben,
+ * d.h., es bleiben die zuletzt ausgefuehrten Befehle erhalten.
+ *
+ * Die Umwandlung in das Textformat von
+ * Z80CPU.writeDebugStatusEntry(...), dem jeweils die Anzahl
+ * der Taktzyklen vorangestellt wird, erfolgt erst spaeter
+ * mit writeTextTo(...), auch waehrend der Aufzeichnung.
+ *
+ * Das Aufzeichnen eines Befehls kommt ohne Monitor aus.
+ * Die Anzahl der aufgezeichneten Befehle wird erst nach dem
+ * Schreiben des Datensatzes mit lazySet(...) veroeffentlicht.
+ * Da die CPU-Emulation waehrenddessen weiter Datensaetze
+ * ueberschreiben kann, kopiert writeTextTo(...) den Ringpuffer
+ * und verwirft anschliessend anhand der erneut gelesenen Anzahl
+ * alle Datensaetze, deren Platz waehrend des Kopierens
+ * neu beschrieben worden sein koennte.
+ * Formatiert wird nur die Kopie, und zwar ohne Monitor,
+ * damit die CPU-Emulation beim Leeren des Puffers nicht blockiert.
+ */
+
+package z80emu;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+public class Z80TraceBuffer
+{
+  private static final int EVENT_NMI       = 0x01;
+  private static final int EVENT_INTERRUPT = 0x02;
+
+  private static final int REC_INFO = 0;	// Ereignis, Interrupt-Quelle
+  private static final int REC_PC   = 1;
+  private static final int REC_CODE = 2;	// 4 Befehlsbytes
+  private static final int REC_AF   = 3;
+  private static final int REC_BC   = 4;
+  private static final int REC_DE   = 5;
+  private static final int REC_HL   = 6;
+  private static final int REC_IX   = 7;
+  private static final int REC_IY   = 8;
+  private static final int REC_SP   = 9;
+  private static final int REC_T_LO = 10;	// Taktzyklen, Bit 0-31
+  private static final int REC_T_HI = 11;	// Taktzyklen, Bit 32-63
+  private static final int REC_SIZE = 12;
+
+  private int[]                    recs;
+  private int                      capacity;
+  private int                      recPos;
+  private long                     recCount;
+  private long                     flushedCount;
+  private AtomicLong               publishedCount;
+  private volatile long            textCount;
+  private volatile boolean         closed;
+  private File                     file;
+  private RandomAccessFile         raf;
+  private FileChannel              channel;
+  private ByteBuffer               byteBuf;
+  private IntBuffer                intBuf;
+  private IOException              ioEx;
+  private List<Z80InterruptSource> iSources;
+
+
+  /*
+   * Ringpuffer im Arbeitsspeicher
+   *
+   * Parameter:
+   *   capacity: Anzahl der Befehle, die der Puffer aufnehmen kann
+   */
+  public Z80TraceBuffer( int capacity )
+  {
+    this.capacity       = Math.max( capacity, 2 );
+    this.recs           = new int[ this.capacity * REC_SIZE ];
+    this.recPos         = 0;
+    this.recCount       = 0L;
+    this.flushedCount   = 0L;
+    this.publishedCount = new AtomicLong( 0L );
+    this.textCount      = 0L;
+    this.closed         = false;
+    this.file           = null;
+    this.raf            = null;
+    this.channel        = null;
+    this.byteBuf        = null;
+    this.intBuf         = null;
+    this.ioEx           = null;
+    this.iSources       = new CopyOnWriteArrayList<>();
+  }
+
+
+  /*
+   * Puffer, der bei Bedarf in die uebergebene Datei geleert wird
+   *
+   * Eine bereits vorhandene Datei wird ueberschrieben.
+   */
+  public Z80TraceBuffer( int capacity, File file ) throws IOException
+  {
+    this( capacity );
+    this.file = file;
+    this.raf  = new RandomAccessFile( file, "rw" );
+    try {
+      this.raf.setLength( 0 );
+      this.channel = this.raf.getChannel();
+      this.byteBuf = ByteBuffer.allocate( this.recs.length * 4 );
+      this.intBuf  = this.byteBuf.asIntBuffer();
+    }
+    catch( IOException ex ) {
+      this.raf.close();
+      throw ex;
+    }
+  }
+
+
+  /*
+   * Beenden der Aufzeichnung und Schliessen der Datei
+   *
+   * Die noch im Puffer befindlichen Datensaetze bleiben erhalten
+   * und werden von writeTextTo(...) nach denen in der Datei
+   * ausgegeben.
+   * Ein beim Schreiben aufgetretener Fehler wird hier geworfen.
+   */
+  public synchronized void close() throws IOException
+  {
+    this.closed = true;
+    if( this.raf != null ) {
+      try {
+	this.raf.close();
+      }
+      catch( IOException ex ) {
+	if( this.ioEx == null ) {
+	  this.ioEx = ex;
+	}
+      }
+      this.raf     = null;
+      this.channel = null;
+    }
+    if( this.ioEx != null ) {
+      throw this.ioEx;
+    }
+  }
+
+
+  /*
+   * Anzahl der aufgezeichneten Befehle
+   */
+  public long getRecordCount()
+  {
+    return this.publishedCount.get();
+  }
+
+
+  /*
+   * Anzahl der vom laufenden bzw. letzten Aufruf von writeTextTo(...)
+   * bereits ausgegebenen Befehle,
+   * kann von einem anderen Thread zur Fortschrittsanzeige
+   * abgefragt werden
+   */
+  public long getTextRecordCount()
+  {
+    return this.textCount;
+  }
+
+
+  /*
+   * Ausgabe der aufgezeichneten Befehle im Textformat
+   * von Z80CPU.writeDebugStatusEntry(...)
+   * mit vorangestellter Anzahl der Taktzyklen
+   */
+  public void writeTextTo( PrintWriter writer ) throws IOException
+  {
+    CodeView codeView = new CodeView();
+    long     nFile    = 0L;
+    synchronized( this ) {
+      nFile = this.flushedCount;
+    }
+    this.textCount = 0L;
+
+    /*
+     * Ringpuffer kopieren,
+     * die vor und nach dem Kopieren gelesene Anzahl
+     * grenzt die gueltigen Datensaetze der Kopie ein
+     */
+    long  nAll = this.publishedCount.get();
+    int[] recs = this.recs.clone();
+    VarHandle.loadLoadFence();
+    long  nNew = this.publishedCount.get();
+
+    // in die Datei geschriebene Datensaetze
+    if( (this.file != null) && (nFile > 0) ) {
+      RandomAccessFile raf = null;
+      try {
+	raf = new RandomAccessFile( this.file, "r" );
+	FileChannel channel = raf.getChannel();
+	int[]       fRecs   = new int[ this.recs.length ];
+	ByteBuffer  byteBuf = ByteBuffer.allocate( fRecs.length * 4 );
+	IntBuffer   intBuf  = byteBuf.asIntBuffer();
+	long        nRemain = nFile;
+	while( nRemain > 0 ) {
+	  byteBuf.clear();
+	  while( byteBuf.hasRemaining() ) {
+	    if( channel.read( byteBuf ) < 0 ) {
+	      throw new IOException( "Unerwartetes Dateiende" );
+	    }
+	  }
+	  intBuf.clear();
+	  intBuf.get( fRecs );
+	  writeTextTo( writer, fRecs, 0, this.capacity, codeView );
+	  nRemain -= this.capacity;
+	}
+      }
+      finally {
+	if( raf != null ) {
+	  raf.close();
+	}
+      }
+    }
+
+    /*
+     * Datensaetze in der Kopie des Ringpuffers
+     *
+     * Ausgelassen werden die Datensaetze, die bereits in der Datei
+     * stehen, und die, deren Platz waehrend des Kopierens
+     * einschliesslich des gerade in Arbeit befindlichen Befehls
+     * neu beschrieben worden sein koennte.
+     */
+    long first = Math.max( nFile, nNew + 1 - this.capacity );
+    if( first < nAll ) {
+      int nBuf     = (int) (nAll - first);
+      int firstRec = (int) (first % this.capacity);
+      int n1       = Math.min( nBuf, this.capacity - firstRec );
+      writeTextTo( writer, recs, firstRec, n1, codeView );
+      writeTextTo( writer, recs, 0, nBuf - n1, codeView );
+    }
+  }
+
+
+	/* --- Methoden fuer die CPU-Emulation --- */
+
+  void record(
+		Z80CPU             cpu,
+		Z80MemView         memory,
+		boolean            nmi,
+		Z80InterruptSource iSource )
+  {
+    if( !this.closed ) {
+
+      /*
+       * Die zuvor veroeffentlichte Anzahl muss vor dem Datensatz
+       * sichtbar sein, damit writeTextTo(...) ein Ueberschreiben
+       * waehrend des Kopierens erkennt.
+       */
+      VarHandle.storeStoreFence();
+
+      int info = 0;
+      if( nmi ) {
+	info = EVENT_NMI;
+      } else if( iSource != null ) {
+	int idx = this.iSources.indexOf( iSource );
+	if( idx < 0 ) {
+	  idx = this.iSources.size();
+	  this.iSources.add( iSource );
+	}
+	info = EVENT_INTERRUPT | (idx << 8);
+      }
+      int     pc    = cpu.getRegPC();
+      int     b0    = memory.getMemByte( pc, true );
+      boolean b1_m1 = ((b0 == 0xCB) || (b0 == 0xED)
+				|| (b0 == 0xDD) || (b0 == 0xFD));
+      int     b1    = memory.getMemByte( pc + 1, b1_m1 );
+      int     b2    = memory.getMemByte( pc + 2, true );
+      int     b3    = memory.getMemByte( pc + 3, true );
+
+      int[] recs = this.recs;
+      int   pos  = this.recPos * REC_SIZE;
+      recs[ pos + REC_INFO ] = info;
+      recs[ pos + REC_PC ]   = pc;
+      recs[ pos + REC_CODE ] = (b0 & 0xFF)
+				| ((b1 & 0xFF) << 8)
+				| ((b2 & 0xFF) << 16)
+				| ((b3 & 0xFF) << 24);
+      recs[ pos + REC_AF ]   = cpu.getRegAF();
+      recs[ pos + REC_BC ]   = cpu.getRegBC();
+      recs[ pos + REC_DE ]   = cpu.getRegDE();
+      recs[ pos + REC_HL ]   = cpu.getRegHL();
+      recs[ pos + REC_IX ]   = cpu.getRegIX();
+      recs[ pos + REC_IY ]   = cpu.getRegIY();
+      recs[ pos + REC_SP ]   = cpu.getRegSP();
+      long tStates           = cpu.getProcessedTStates();
+      recs[ pos + REC_T_LO ] = (int) tStates;
+      recs[ pos + REC_T_HI ] = (int) (tStates >>> 32);
+      this.recCount++;
+      this.recPos++;
+      if( this.recPos >= this.capacity ) {
+	this.recPos = 0;
+	if( this.file != null ) {
+	  flush();
+	}
+      }
+      this.publishedCount.lazySet( this.recCount );
+    }
+  }
+
+
+	/* --- private Methoden --- */
+
+  private synchronized void flush()
+  {
+    if( !this.closed && (this.channel != null) ) {
+      try {
+	this.intBuf.clear();
+	this.intBuf.put( this.recs );
+	this.byteBuf.clear();
+	while( this.byteBuf.hasRemaining() ) {
+	  this.channel.write( this.byteBuf );
+	}
+	this.flushedCount = this.recCount;
+      }
+      catch( IOException ex ) {
+	/*
+	 * Fehler merken und ab jetzt als reinen Ringpuffer arbeiten;
+	 * der Fehler wird von close() geworfen.
+	 */
+	this.ioEx    = ex;
+	this.channel = null;
+      }
+    }
+  }
+
+
+  private void writeTextTo(
+			PrintWriter writer,
+			int[]       recs,
+			int         firstRec,
+			int         nRecs,
+			CodeView    codeView )
+  {
+    int nRecs0 = nRecs;
+    int pos    = firstRec * REC_SIZE;
+    while( nRecs > 0 ) {
+      int info = recs[ pos + REC_INFO ];
+      if( (info & EVENT_NMI) != 0 ) {
+	writer.println( "--- NMI ---" );
+      } else if( (info & EVENT_INTERRUPT) != 0 ) {
+	int idx = info >> 8;
+	writer.print( "--- Interrupt: " );
+	if( (idx >= 0) && (idx < this.iSources.size()) ) {
+	  writer.print( this.iSources.get( idx ) );
+	}
+	writer.println( " ---" );
+      }
+      long tStates = ((long) recs[ pos + REC_T_HI ] << 32)
+			| ((long) recs[ pos + REC_T_LO ] & 0xFFFFFFFFL);
+      writer.printf( "T=%-11d ", tStates );
+      codeView.addr = recs[ pos + REC_PC ];
+      codeView.code = recs[ pos + REC_CODE ];
+      Z80CPU.writeDebugStatusEntry(
+			writer,
+			recs[ pos + REC_AF ],
+			recs[ pos + REC_BC ],
+			recs[ pos + REC_DE ],
+			recs[ pos + REC_HL ],
+			recs[ pos + REC_IX ],
+			recs[ pos + REC_IY ],
+			recs[ pos + REC_SP ],
+			codeView.addr,
+			codeView );
+      writer.println();
+      pos += REC_SIZE;
+      --nRecs;
+    }
+    this.textCount += nRecs0;
+  }
+
+
+  /*
+   * Sicht auf die vier aufgezeichneten Befehlsbytes
+   * fuer den Reassembler
+   */
+  private static class CodeView implements Z80MemView
+  {
+    private int addr;
+    private int code;
+
+
+    @Override
+    public int getMemByte( int addr, boolean m1 )
+    {
+      int rv  = 0;
+      int idx = (addr - this.addr) & 0xFFFF;
+      if( idx < 4 ) {
+	rv = (this.code >> (idx * 8)) & 0xFF;
+      }
+      return rv;
+    }
+
+
+    @Override
+    public int getMemWord( int addr )
+    {
+      return (getMemByte( addr + 1, false ) << 8)
+				| getMemByte( addr, false );
+    }
+  }
+}